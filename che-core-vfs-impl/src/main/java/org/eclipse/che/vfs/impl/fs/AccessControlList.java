@@ -95,6 +95,22 @@ public class AccessControlList {
         return new HashSet<>(userPermissions);
     }
 
+    /**
+     * Get permissions of principal with specified name and type. Unlike to {@link #getPermissions(Principal)} this method does not
+     * need instance of Principal and does not copy set of permissions.
+     *
+     * @return unmodifiable set of permissions or {@code null} if there is no permissions for principal
+     */
+    Set<String> getPermissions(String name, Principal.Type type) {
+        for (Map.Entry<Principal, Set<String>> e : permissionMap.entrySet()) {
+            final Principal principal = e.getKey();
+            if (type == principal.getType() && name.equals(principal.getName())) {
+                return Collections.unmodifiableSet(e.getValue());
+            }
+        }
+        return null;
+    }
+
     public void update(List<AccessControlEntry> acl, boolean override) {
         if (acl.isEmpty() && !override) {
             // Nothing to do if there is no updates and override flag is not set.
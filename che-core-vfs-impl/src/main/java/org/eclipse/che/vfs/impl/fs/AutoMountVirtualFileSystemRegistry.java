@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.File;
 
@@ -38,6 +39,11 @@ public class AutoMountVirtualFileSystemRegistry extends VirtualFileSystemRegistr
     private final EventService         eventService;
     private final SearcherProvider     searcherProvider;
 
+    /** Track changes that are done bypassing virtual file system, see {@link MountPointWatcher}. */
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.watch")
+    private boolean watch = true;
+
     @Inject
     public AutoMountVirtualFileSystemRegistry(LocalFSMountStrategy mountStrategy,
                                               EventService eventService,
@@ -54,6 +60,6 @@ public class AutoMountVirtualFileSystemRegistry extends VirtualFileSystemRegistr
             return null;
         }
         LOG.debug("Using {} as mount point for workspace {} ", wsPath.getAbsolutePath(), vfsId);
-        return new LocalFileSystemProvider(vfsId, mountStrategy, eventService, searcherProvider, this);
+        return new LocalFileSystemProvider(vfsId, mountStrategy, eventService, searcherProvider, this, watch);
     }
 }
@@ -24,34 +24,51 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
 
 /**
- * Filesystem based LuceneSearcher which cleans index directory after call method {@link #close()}.
+ * Filesystem based LuceneSearcher which is initialized asynchronously. If searcher is {@code cleanable} then it cleans index
+ * directory after call method {@link #close()}, otherwise index is kept and synchronized with virtual filesystem when searcher is
+ * initialized next time.
  *
  * @author andrew00x
  */
 public class CleanableSearcher extends FSIndexSearcher {
     private static final Logger LOG = LoggerFactory.getLogger(CleanableSearcher.class);
     private final CleanableSearcherProvider searcherService;
+    private final boolean                   cleanable;
 
     private final AtomicBoolean              initFlag;
     private final AtomicReference<Exception> initError;
 
-    CleanableSearcher(CleanableSearcherProvider searcherService, java.io.File indexDir, VirtualFileFilter filter) {
-        super(indexDir, filter);
+    CleanableSearcher(CleanableSearcherProvider searcherService, java.io.File indexDir, VirtualFileFilter filter, boolean cleanable) {
+        // Index is updated asynchronously with the same executor that is used for initialization.
+        super(indexDir, filter, searcherService.getExecutor());
         this.searcherService = searcherService;
+        this.cleanable = cleanable;
         initFlag = new AtomicBoolean();
         initError = new AtomicReference<>();
     }
 
     @Override
     public void init(final MountPoint mountPoint) throws ServerException {
-        doInit();
+        try {
+            doInit();
+        } catch (ServerException e) {
+            if (cleanable) {
+                throw e;
+            }
+            // Index left from previous run may be broken, e.g. if server was killed. Start with new one.
+            LOG.warn("Unable open index in '{}', index is re-created. {}", getIndexDir(), e.getMessage());
+            if (!deleteRecursive(getIndexDir(), false)) {
+                throw e;
+            }
+            doInit();
+        }
         final ExecutorService executor = searcherService.getExecutor();
         if (!executor.isShutdown()) {
             executor.execute(new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        CleanableSearcher.this.addTree(mountPoint.getRoot());
+                        CleanableSearcher.this.syncTree(mountPoint.getRoot());
                         initFlag.set(true);
                     } catch (ServerException e) {
                         initError.set(e);
@@ -79,9 +96,11 @@ public class CleanableSearcher extends FSIndexSearcher {
 
     void doClose() {
         super.close();
-        final java.io.File dir = getIndexDir();
-        if (!deleteRecursive(dir)) {
-            LOG.warn("Unable delete index directory '{}'", dir);
+        if (cleanable) {
+            final java.io.File dir = getIndexDir();
+            if (!deleteRecursive(dir)) {
+                LOG.warn("Unable delete index directory '{}'", dir);
+            }
         }
     }
 }
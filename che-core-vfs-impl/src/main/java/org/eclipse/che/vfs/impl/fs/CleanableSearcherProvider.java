@@ -19,6 +19,8 @@ import org.eclipse.che.api.vfs.server.util.MediaTypeFilter;
 import org.eclipse.che.api.vfs.server.util.VirtualFileFilters;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import org.apache.commons.codec.digest.DigestUtils;
+
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -33,8 +35,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
- * NOTE: This implementation always create new index in new directory. Index is not reused after call {@link
- * CleanableSearcher#close()}. Index directory is cleaned after close Searcher.
+ * Provides filesystem based searchers. Each virtual filesystem gets own index directory which name is built from path of the root
+ * of virtual filesystem, so index is reused after close of searcher or restart of server and only files changed in meantime are
+ * indexed again. If configuration parameter {@code vfs.local.fs_index_persistent} is set to {@code false} then new index is always
+ * created in new directory and index directory is cleaned after close Searcher.
  *
  * @author andrew00x
  */
@@ -45,6 +49,10 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
     private final java.io.File                                   indexRootDir;
     private final Set<VirtualFileFilter>                         filters;
 
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.fs_index_persistent")
+    private boolean persistent = true;
+
     @Inject
     CleanableSearcherProvider(@Named("vfs.local.fs_index_root_dir") java.io.File indexRootDir,
                               @Named("vfs.index_filter") Set<VirtualFileFilter> filters) {
@@ -65,7 +73,11 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
             final CleanableSearcher newSearcher;
             try {
                 Files.createDirectories(indexRootDir.toPath());
-                myIndexDir = Files.createTempDirectory(indexRootDir.toPath(), null).toFile();
+                if (persistent) {
+                    myIndexDir = Files.createDirectories(indexRootDir.toPath().resolve(getIndexDirName(vfsIoRoot))).toFile();
+                } else {
+                    myIndexDir = Files.createTempDirectory(indexRootDir.toPath(), null).toFile();
+                }
                 final VirtualFileFilter filter;
                 if (!filters.isEmpty()) {
                     final VirtualFileFilter[] myFilters = new VirtualFileFilter[filters.size() + 1];
@@ -78,7 +90,7 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
                 } else {
                     filter = new MediaTypeFilter(getIndexedMediaTypes());
                 }
-                newSearcher = new CleanableSearcher(this, myIndexDir, filter);
+                newSearcher = new CleanableSearcher(this, myIndexDir, filter, !persistent);
             } catch (IOException e) {
                 throw new ServerException("Unable create searcher. " + e.getMessage(), e);
             }
@@ -86,7 +98,7 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
             if (searcher == null) {
                 searcher = newSearcher;
                 searcher.init(mountPoint);
-            } else {
+            } else if (!persistent) {
                 // not need this directory
                 myIndexDir.delete();
             }
@@ -94,17 +106,28 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
         return searcher;
     }
 
+    private String getIndexDirName(java.io.File vfsIoRoot) {
+        return DigestUtils.md5Hex(vfsIoRoot.getAbsolutePath());
+    }
+
     void close(CleanableSearcher searcher) {
-        instances.values().remove(searcher);
+        // Close before remove, otherwise new searcher may open the same index directory while this one still writes in it.
         searcher.doClose();
+        instances.values().remove(searcher);
+    }
+
+    // for test
+    void setPersistent(boolean persistent) {
+        this.persistent = persistent;
     }
 
     @PreDestroy
     private void stop() {
-        executor.shutdownNow();
+        // Searchers wait for changes of index that are applied at the moment, so close them before interrupting the executor.
         for (CleanableSearcher searcher : instances.values()) {
             searcher.close();
         }
+        executor.shutdownNow();
     }
 
     ExecutorService getExecutor() {
@@ -19,6 +19,7 @@ import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.SingleInstanceLockFactory;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /**
  * Implementation of LuceneSearcher which stores index in the filesystem.
@@ -29,7 +30,11 @@ public class FSIndexSearcher extends LuceneSearcher {
     protected final java.io.File indexDir;
 
     public FSIndexSearcher(java.io.File indexDir, VirtualFileFilter filter) {
-        super(filter);
+        this(indexDir, filter, null);
+    }
+
+    public FSIndexSearcher(java.io.File indexDir, VirtualFileFilter filter, Executor indexingExecutor) {
+        super(filter, indexingExecutor);
         this.indexDir = indexDir;
     }
 
@@ -15,7 +15,6 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventService;
-import org.eclipse.che.api.core.util.ValueHolder;
 import org.eclipse.che.api.vfs.server.ContentStream;
 import org.eclipse.che.api.vfs.server.LazyIterator;
 import org.eclipse.che.api.vfs.server.MountPoint;
@@ -25,7 +24,7 @@ import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUser;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUserContext;
-import org.eclipse.che.api.vfs.server.VirtualFileVisitor;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
 import org.eclipse.che.api.vfs.server.observation.CreateEvent;
 import org.eclipse.che.api.vfs.server.observation.DeleteEvent;
 import org.eclipse.che.api.vfs.server.observation.MoveEvent;
@@ -34,9 +33,9 @@ import org.eclipse.che.api.vfs.server.observation.UpdateACLEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdateContentEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdatePropertiesEvent;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
-import org.eclipse.che.api.vfs.server.util.DeleteOnCloseFileInputStream;
+import org.eclipse.che.api.vfs.server.util.FileChannelInputStream;
 import org.eclipse.che.api.vfs.server.util.NotClosableInputStream;
-import org.eclipse.che.api.vfs.server.util.ZipContent;
+import org.eclipse.che.api.vfs.server.util.SafeZipInputStream;
 import org.eclipse.che.api.vfs.shared.PropertyFilter;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
@@ -46,21 +45,20 @@ import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions
 import org.eclipse.che.commons.lang.NameGenerator;
 import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.commons.lang.cache.Cache;
-import org.eclipse.che.commons.lang.cache.LoadingValueSLRUCache;
-import org.eclipse.che.commons.lang.cache.SynchronizedCache;
+import org.eclipse.che.commons.lang.cache.ConcurrentLoadingCache;
 import org.eclipse.che.dto.server.DtoFactory;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import com.google.common.io.ByteSource;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -69,18 +67,40 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import static org.eclipse.che.commons.lang.IoUtil.GIT_FILTER;
@@ -97,17 +117,10 @@ public class FSMountPoint implements MountPoint {
 
     /*
      * Configuration parameters for caches.
-     * Caches are split to the few partitions to reduce lock contention.
-     * Use SLRU cache algorithm here.
-     * This is required some additional parameters, e.g. protected and probationary size.
-     * See details about SLRU algorithm: http://en.wikipedia.org/wiki/Cache_algorithms#Segmented_LRU
+     * Caches are concurrent and do not need partitioning. Value for each path is loaded without holding any shared lock.
+     * Eviction is approximate LRU with TinyLFU admission, see ConcurrentLoadingCache.
      */
-    private static final int CACHE_PARTITIONS_NUM        = 1 << 3;
-    private static final int CACHE_PROTECTED_SIZE        = 100;
-    private static final int CACHE_PROBATIONARY_SIZE     = 200;
-    private static final int MASK                        = CACHE_PARTITIONS_NUM - 1;
-    private static final int PARTITION_PROTECTED_SIZE    = CACHE_PROTECTED_SIZE / CACHE_PARTITIONS_NUM;
-    private static final int PARTITION_PROBATIONARY_SIZE = CACHE_PROBATIONARY_SIZE / CACHE_PARTITIONS_NUM;
+    private static final int CACHE_SIZE = 1 << 13;
     // end cache parameters
 
     private static final int MAX_BUFFER_SIZE  = 200 * 1024; // 200k
@@ -127,6 +140,29 @@ public class FSMountPoint implements MountPoint {
     static final String PROPS_DIR              = SERVICE_DIR + java.io.File.separatorChar + "props";
     static final String PROPERTIES_FILE_SUFFIX = "_props";
 
+    static final String HASH_SUMS_DIR = SERVICE_DIR + java.io.File.separatorChar + "hash";
+
+    // Temporary files that replace content of files. Must be at the same file system as files to replace them atomically.
+    static final String TMP_DIR = SERVICE_DIR + java.io.File.separatorChar + "tmp";
+
+    /* Configuration parameters for counting of hash sums. */
+    // Files bigger than this are mapped in memory when count hash sum.
+    private static final int                     MAP_FILE_THRESHOLD        = 1024 * 1024; // 1M
+    // Hash sums of files modified less than this time ago are not saved.
+    private static final long                    HASH_SUM_MODIFICATION_LAG = 2000; // 2 seconds
+    // Number of counted hash sums that may wait for reader.
+    private static final int                     HASH_SUMS_QUEUE_SIZE      = 1024;
+    // Counting of hash sums is cancelled if reader does not take them during this time.
+    private static final long                    HASH_SUMS_READ_TIMEOUT    = 60000; // 60 seconds
+    // Tasks of counting are blocked in I/O, pool starts additional threads while tasks are blocked, see managedBlock.
+    private static final ForkJoinPool            HASH_SUMS_POOL            = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private static final ThreadLocal<ByteBuffer> HASH_SUM_BUFFER           = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(8 * COPY_BUFFER_SIZE);
+        }
+    };
+
 
     /** Hide .vfs directory. */
     private static final java.io.FilenameFilter SERVICE_DIR_FILTER = new java.io.FilenameFilter() {
@@ -160,9 +196,9 @@ public class FSMountPoint implements MountPoint {
 
     private static final FileLock NO_LOCK = new FileLock("no_lock", 0);
 
-    private class FileLockCache extends LoadingValueSLRUCache<Path, FileLock> {
+    private class FileLockCache extends ConcurrentLoadingCache<Path, FileLock> {
         FileLockCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+            super(CACHE_SIZE);
         }
 
         @Override
@@ -194,9 +230,9 @@ public class FSMountPoint implements MountPoint {
     }
 
 
-    private class FileMetadataCache extends LoadingValueSLRUCache<Path, Map<String, String[]>> {
+    private class FileMetadataCache extends ConcurrentLoadingCache<Path, Map<String, String[]>> {
         FileMetadataCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+            super(CACHE_SIZE);
         }
 
         @Override
@@ -227,9 +263,9 @@ public class FSMountPoint implements MountPoint {
     }
 
 
-    private class AccessControlListCache extends LoadingValueSLRUCache<Path, AccessControlList> {
+    private class AccessControlListCache extends ConcurrentLoadingCache<Path, AccessControlList> {
         private AccessControlListCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+            super(CACHE_SIZE);
         }
 
         @Override
@@ -270,6 +306,553 @@ public class FSMountPoint implements MountPoint {
         }
     }
 
+    /**
+     * Key of cache of effective permissions. User is identified by its id and groups. Groups are copied, key must not change after it
+     * is put in the cache even if collection of groups of user is modified.
+     */
+    private static final class PermissionsKey {
+        final Path                 path;
+        final String               userId;
+        final ImmutableSet<String> groups;
+        final int                  hash;
+
+        PermissionsKey(Path path, String userId, Collection<String> groups) {
+            this.path = path;
+            this.userId = userId;
+            this.groups = ImmutableSet.copyOf(groups);
+            int hash = 7;
+            hash = 31 * hash + path.hashCode();
+            hash = 31 * hash + userId.hashCode();
+            hash = 31 * hash + this.groups.hashCode();
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PermissionsKey)) {
+                return false;
+            }
+            final PermissionsKey other = (PermissionsKey)o;
+            return hash == other.hash && path.equals(other.path) && userId.equals(other.userId) && groups.equals(other.groups);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+
+    private static final class EffectivePermissions {
+        /** Permissions of user or {@code null} if item and all its parents do not have ACL, in this case any access is allowed. */
+        final Set<String> permissions;
+        /** Version of ACLs that was used to resolve permissions or that permissions were checked against last time. */
+        volatile long     aclVersion;
+
+        EffectivePermissions(Set<String> permissions, long aclVersion) {
+            this.permissions = permissions;
+            this.aclVersion = aclVersion;
+        }
+    }
+
+
+    private class EffectivePermissionsCache extends ConcurrentLoadingCache<PermissionsKey, EffectivePermissions> {
+        EffectivePermissionsCache() {
+            super(CACHE_SIZE);
+        }
+
+        @Override
+        protected EffectivePermissions loadValue(PermissionsKey key) {
+            final long version = aclVersion;
+            final AccessControlList accessControlList = aclCache.get(key.path);
+            if (!accessControlList.isEmpty()) {
+                return new EffectivePermissions(getPermissions(accessControlList, key.userId, key.groups), version);
+            }
+            if (key.path.isRoot()) {
+                return new EffectivePermissions(null, version);
+            }
+            // Item inherits permissions from its parent. Resolving of parent is cached as well, so listing of folder
+            // resolves permissions of parent folder only once.
+            final EffectivePermissions parent = getEffectivePermissions(key.path.getParent(), key.userId, key.groups);
+            return new EffectivePermissions(parent.permissions, Math.min(version, parent.aclVersion));
+        }
+    }
+
+
+    /* Media types of files that are compressed already. Such files are stored in zip without compression. */
+    private static final Set<String> COMPRESSED_MEDIA_TYPES = Sets.newHashSet("application/zip",
+                                                                              "application/java-archive",
+                                                                              "application/x-gzip",
+                                                                              "application/x-bzip2",
+                                                                              "application/rar",
+                                                                              "image/png",
+                                                                              "image/jpeg",
+                                                                              "image/gif",
+                                                                              "audio/mp3");
+
+    /**
+     * Zipped content of folder. Zip is created step by step when caller reads from this stream: each step walks to the next item of
+     * the tree or copies next portion of current file to zip and output of ZipOutputStream is kept in small buffer until caller reads
+     * it. Each file is opened once under lock and both counting of CRC (for stored entries) and copying of content use the same
+     * channel. Content of file is never overwritten in place, see _doUpdateContent, so the channel keeps consistent content even if
+     * file is updated while zip is read.
+     */
+    private class ZipExportInputStream extends InputStream {
+        private final VirtualFileSystemUser       user;
+        private final VirtualFileFilter           filter;
+        private final int                         zipEntryNameTrim;
+        private final LinkedList<VirtualFileImpl> folders;
+        private final LinkedList<VirtualFile>     items;
+        private final ZipBuffer                   zipBuffer;
+        private final ZipOutputStream             zipOut;
+        private final byte[]                      buff;
+
+        private VirtualFileImpl currentFile;
+        private FileChannel     currentChannel;
+        // Position of next read from current channel.
+        private long            currentPosition;
+        private int             pos;
+        private boolean         finished;
+        private boolean         closed;
+
+        ZipExportInputStream(VirtualFileSystemUser user, VirtualFileImpl folder, VirtualFileFilter filter) {
+            this.user = user;
+            this.filter = filter;
+            zipEntryNameTrim = folder.getVirtualFilePath().length();
+            folders = new LinkedList<>();
+            folders.add(folder);
+            items = new LinkedList<>();
+            zipBuffer = new ZipBuffer();
+            zipOut = new ZipOutputStream(zipBuffer);
+            buff = new byte[COPY_BUFFER_SIZE];
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed. ");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == zipBuffer.size()) {
+                if (finished) {
+                    return -1;
+                }
+                zipBuffer.reset();
+                pos = 0;
+                try {
+                    next();
+                } catch (ServerException | RuntimeException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+            final int r = Math.min(len, zipBuffer.size() - pos);
+            zipBuffer.copyTo(pos, b, off, r);
+            pos += r;
+            return r;
+        }
+
+        @Override
+        public int available() {
+            return zipBuffer.size() - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                closeQuietly(currentChannel);
+                closeQuietly(zipOut);
+            }
+        }
+
+        /** Writes next portion of zip to the buffer. Nothing may be written if current item is skipped. */
+        private void next() throws IOException, ServerException {
+            if (currentFile != null) {
+                final int r = readCurrentFile();
+                if (r == -1) {
+                    closeQuietly(currentChannel);
+                    currentChannel = null;
+                    currentFile = null;
+                    zipOut.closeEntry();
+                } else {
+                    zipOut.write(buff, 0, r);
+                }
+            } else if (!items.isEmpty()) {
+                final VirtualFileImpl current = (VirtualFileImpl)items.pop();
+                // (1) Check filter.
+                // (2) Check permission directly for current file only.
+                // We already know parent accessible for current user otherwise we should not be here.
+                // Ignore item if don't have permission to read it.
+                if (filter.accept(current) && hasPermission(user, current, BasicPermissions.READ.value(), false)) {
+                    final String zipEntryName = current.getVirtualFilePath().subPath(zipEntryNameTrim).toString().substring(1);
+                    if (current.isFile()) {
+                        final ZipEntry zipEntry = new ZipEntry(zipEntryName);
+                        zipEntry.setTime(current.getLastModificationDate());
+                        final FileChannel channel = openFile(current);
+                        try {
+                            if (COMPRESSED_MEDIA_TYPES.contains(current.getMediaType())) {
+                                // Deflating of such content wastes CPU time. Size and CRC of stored entry must be known before writing,
+                                // small file is read once and stored from memory. Bigger file is deflated without compression, then
+                                // size and CRC are written after content. Content of any file is read only once, so file that is
+                                // replaced or updated during export can't break the zip entry.
+                                final byte[] content = readSmallFile(channel);
+                                if (content != null) {
+                                    storedEntry(zipEntry, content);
+                                    zipOut.putNextEntry(zipEntry);
+                                    zipOut.write(content);
+                                    zipOut.closeEntry();
+                                    closeQuietly(channel);
+                                    return;
+                                }
+                                zipOut.setLevel(Deflater.NO_COMPRESSION);
+                            } else {
+                                zipOut.setLevel(Deflater.DEFAULT_COMPRESSION);
+                            }
+                            zipOut.putNextEntry(zipEntry);
+                        } catch (IOException e) {
+                            closeQuietly(channel);
+                            throw e;
+                        }
+                        currentFile = current;
+                        currentChannel = channel;
+                        currentPosition = 0;
+                    } else if (current.isFolder()) {
+                        final ZipEntry zipEntry = new ZipEntry(zipEntryName + '/');
+                        zipEntry.setTime(0);
+                        zipOut.putNextEntry(zipEntry);
+                        zipOut.closeEntry();
+                        folders.add(current);
+                    }
+                }
+            } else if (!folders.isEmpty()) {
+                items.addAll(doGetChildren(folders.pop(), SERVICE_GIT_DIR_FILTER));
+            } else {
+                zipOut.close();
+                finished = true;
+            }
+        }
+
+        private FileChannel openFile(VirtualFileImpl file) throws IOException {
+            final PathLockFactory.PathLock lock = pathLockFactory.getLock(file.getVirtualFilePath(), false).acquire(LOCK_FILE_TIMEOUT);
+            try {
+                return FileChannel.open(file.getIoFile().toPath(), StandardOpenOption.READ);
+            } finally {
+                lock.release();
+            }
+        }
+
+        private int readCurrentFile() throws IOException {
+            final int r = currentChannel.read(ByteBuffer.wrap(buff), currentPosition);
+            if (r > 0) {
+                currentPosition += r;
+            }
+            return r;
+        }
+
+        /** Reads content of file if it isn't bigger than MAX_BUFFER_SIZE, returns {@code null} for bigger file. */
+        private byte[] readSmallFile(FileChannel channel) throws IOException {
+            if (channel.size() > MAX_BUFFER_SIZE) {
+                return null;
+            }
+            final ByteArrayOutputStream content = new ByteArrayOutputStream((int)channel.size());
+            long position = 0;
+            int r;
+            while ((r = channel.read(ByteBuffer.wrap(buff), position)) != -1) {
+                position += r;
+                if (position > MAX_BUFFER_SIZE) {
+                    // File grows while we read it.
+                    return null;
+                }
+                content.write(buff, 0, r);
+            }
+            return content.toByteArray();
+        }
+
+        private void storedEntry(ZipEntry zipEntry, byte[] content) {
+            final CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length);
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(content.length);
+            zipEntry.setCompressedSize(content.length);
+            zipEntry.setCrc(crc.getValue());
+        }
+    }
+
+
+    /** Output of ZipOutputStream. Gives access to written bytes without copying them to new array. */
+    private static class ZipBuffer extends ByteArrayOutputStream {
+        ZipBuffer() {
+            super(COPY_BUFFER_SIZE + 1024);
+        }
+
+        void copyTo(int from, byte[] b, int off, int len) {
+            System.arraycopy(buf, from, b, off, len);
+        }
+    }
+
+
+    /** State of one counting of hash sums that is shared by all tasks of counting. */
+    private static class HashSumsCounting {
+        final VirtualFileSystemUser user;
+        final String                algorithm;
+        final int                   trimPathLength;
+        final HashSumsIndex         index;
+        final HashSumsIterator      hashSums;
+        // Paths of all files that are visited. Hash sums of other files of folder are removed from index.
+        final Set<String>           visited;
+
+        HashSumsCounting(VirtualFileSystemUser user, VirtualFileImpl folder, String algorithm, HashSumsIndex index) {
+            this.user = user;
+            this.algorithm = algorithm;
+            this.index = index;
+            trimPathLength = folder.getPath().length() + 1;
+            hashSums = new HashSumsIterator();
+            visited = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        }
+    }
+
+
+    /** Counts hash sums of files in folder. Each sub-folder and each file that needs to be read is processed in separate task. */
+    private class CountHashSumsTask extends RecursiveAction {
+        private final VirtualFileImpl  folder;
+        private final HashSumsCounting counting;
+
+        CountHashSumsTask(VirtualFileImpl folder, HashSumsCounting counting) {
+            this.folder = folder;
+            this.counting = counting;
+        }
+
+        @Override
+        protected void compute() {
+            if (counting.hashSums.isCancelled()) {
+                return;
+            }
+            final List<VirtualFile> children;
+            try {
+                children = managedBlock(new Callable<List<VirtualFile>>() {
+                    @Override
+                    public List<VirtualFile> call() throws ServerException {
+                        return doGetChildren(folder, SERVICE_DIR_FILTER);
+                    }
+                });
+            } catch (Exception e) {
+                LOG.warn(e.getMessage());
+                return;
+            }
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (VirtualFile child : children) {
+                final VirtualFileImpl virtualFile = (VirtualFileImpl)child;
+                if (virtualFile.isFile()) {
+                    counting.visited.add(virtualFile.getPath());
+                }
+                // We already know parent accessible for current user otherwise we should not be here.
+                if (!hasPermission(counting.user, virtualFile, BasicPermissions.READ.value(), false)) {
+                    continue;
+                }
+                if (virtualFile.isFolder()) {
+                    tasks.add(new CountHashSumsTask(virtualFile, counting));
+                } else if (virtualFile.isFile()) {
+                    final java.io.File ioFile = virtualFile.getIoFile();
+                    final long lastModified = ioFile.lastModified();
+                    final long length = ioFile.length();
+                    final FileHashSum savedHashSum = counting.index.hashSums.get(virtualFile.getPath());
+                    if (savedHashSum != null && savedHashSum.isValid(lastModified, length)) {
+                        counting.hashSums.add(savedHashSum.getHashSum(), virtualFile.getPath().substring(counting.trimPathLength));
+                    } else {
+                        tasks.add(new CountFileHashSumTask(virtualFile, lastModified, length));
+                    }
+                }
+            }
+            invokeAll(tasks);
+        }
+
+        private class CountFileHashSumTask extends RecursiveAction {
+            final VirtualFileImpl virtualFile;
+            final long            lastModified;
+            final long            length;
+
+            CountFileHashSumTask(VirtualFileImpl virtualFile, long lastModified, long length) {
+                this.virtualFile = virtualFile;
+                this.lastModified = lastModified;
+                this.length = length;
+            }
+
+            @Override
+            protected void compute() {
+                if (counting.hashSums.isCancelled()) {
+                    return;
+                }
+                final String hashSum;
+                try {
+                    hashSum = managedBlock(new Callable<String>() {
+                        @Override
+                        public String call() throws IOException {
+                            return countHashSum(virtualFile, counting.algorithm);
+                        }
+                    });
+                } catch (Exception e) {
+                    LOG.warn("Unable count hash sum of '{}'. {}", virtualFile.getPath(), e.getMessage());
+                    return;
+                }
+                counting.hashSums.add(hashSum, virtualFile.getPath().substring(counting.trimPathLength));
+                // Do not save hash sum of file that was modified just now. Next update of file may not change its modification time.
+                if (System.currentTimeMillis() - lastModified > HASH_SUM_MODIFICATION_LAG) {
+                    counting.index.hashSums.put(virtualFile.getPath(), new FileHashSum(lastModified, length, hashSum));
+                } else {
+                    counting.index.hashSums.remove(virtualFile.getPath());
+                }
+                counting.index.modified = true;
+            }
+        }
+    }
+
+
+    /** Hash sums of files of mount point counted with one algorithm. Hash sums are mapped to paths of files. */
+    private static class HashSumsIndex {
+        final Map<String, FileHashSum> hashSums;
+        // Set when hash sums are changed and not saved yet.
+        volatile boolean               modified;
+
+        HashSumsIndex(Map<String, FileHashSum> hashSums) {
+            this.hashSums = new ConcurrentHashMap<>(hashSums);
+        }
+    }
+
+
+    /** Runs operation that may block, e.g. reads file or waits for lock, in task of HASH_SUMS_POOL. */
+    private static final class BlockingOperation<T> implements ForkJoinPool.ManagedBlocker {
+        private final Callable<T> operation;
+
+        private T         result;
+        private Exception error;
+        private boolean   done;
+
+        BlockingOperation(Callable<T> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                result = operation.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+
+    /**
+     * Executes blocking operation. Pool of tasks starts other thread if needed to keep its parallelism while thread of current task is
+     * blocked.
+     */
+    private static <T> T managedBlock(Callable<T> operation) throws Exception {
+        final BlockingOperation<T> blocker = new BlockingOperation<>(operation);
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.error != null) {
+            throw blocker.error;
+        }
+        return blocker.result;
+    }
+
+
+    /**
+     * Gives access to hash sums while they are counted by CountHashSumsTask. Number of hash sums that wait for reader is limited, tasks
+     * wait for reader when limit is reached. Counting is cancelled if nobody reads hash sums too long.
+     */
+    private static class HashSumsIterator extends LazyIterator<Pair<String, String>> {
+        private static final Pair<String, String> END = Pair.of(null, null);
+
+        private final BlockingQueue<Pair<String, String>> queue = new ArrayBlockingQueue<>(HASH_SUMS_QUEUE_SIZE);
+        private volatile boolean cancelled;
+        private boolean          finished;
+
+        HashSumsIterator start() {
+            fetchNext();
+            return this;
+        }
+
+        void add(String hashSum, String path) {
+            put(Pair.of(hashSum, path));
+        }
+
+        void done() {
+            put(END);
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void put(final Pair<String, String> pair) {
+            if (cancelled || queue.offer(pair)) {
+                return;
+            }
+            try {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    boolean released;
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        if (!released && !queue.offer(pair, HASH_SUMS_READ_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                            LOG.warn("Hash sums are not read in {} ms, counting is cancelled. ", HASH_SUMS_READ_TIMEOUT);
+                            cancelled = true;
+                        }
+                        released = true;
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return released || (released = queue.offer(pair));
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+
+        @Override
+        protected void fetchNext() {
+            next = null;
+            if (finished) {
+                return;
+            }
+            try {
+                final Pair<String, String> pair = queue.take();
+                if (pair == END) {
+                    finished = true;
+                } else {
+                    next = pair;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished = true;
+                cancelled = true;
+            }
+        }
+    }
+
+
     private final String           workspaceId;
     private final java.io.File     ioRoot;
     private final EventService     eventService;
@@ -281,16 +864,28 @@ public class FSMountPoint implements MountPoint {
     private final VirtualFileImpl root;
 
     /* ----- Access control list feature. ----- */
-    private final AccessControlListSerializer      aclSerializer;
-    private final Cache<Path, AccessControlList>[] aclCache;
+    private final AccessControlListSerializer                 aclSerializer;
+    private final Cache<Path, AccessControlList>              aclCache;
+    private final Cache<PermissionsKey, EffectivePermissions> permissionsCache;
+    // Version of the last change of ACL of each changed item. Effective permissions are stale only if ACL of item or one of its
+    // parents is changed after permissions were resolved, changes of ACL in other parts of tree do not affect them.
+    private final Map<Path, Long>                             aclChanges;
+    // Version of the last change of any ACL.
+    private volatile long                                     aclVersion;
+    // Effective permissions resolved before this version are stale regardless of aclChanges, e.g. after the whole ACL cache is cleared.
+    private volatile long                                     aclResetVersion;
 
     /* ----- Virtual file system lock feature. ----- */
-    private final FileLockSerializer      locksSerializer;
-    private final Cache<Path, FileLock>[] lockTokensCache;
+    private final FileLockSerializer    locksSerializer;
+    private final Cache<Path, FileLock> lockTokensCache;
 
     /* ----- File metadata. ----- */
-    private final FileMetadataSerializer               metadataSerializer;
-    private final Cache<Path, Map<String, String[]>>[] metadataCache;
+    private final FileMetadataSerializer             metadataSerializer;
+    private final Cache<Path, Map<String, String[]>> metadataCache;
+
+    /* ----- Hash sums of files. ----- */
+    private final FileHashSumsSerializer     hashSumsSerializer;
+    private final Map<String, HashSumsIndex> hashSumsIndexes;
 
     private final VirtualFileSystemUserContext userContext;
 
@@ -301,30 +896,29 @@ public class FSMountPoint implements MountPoint {
      *         root directory for virtual file system. Any file in higher level than root are not accessible through
      *         virtual file system API.
      */
-    @SuppressWarnings("unchecked")
     FSMountPoint(String workspaceId, java.io.File ioRoot, EventService eventService, SearcherProvider searcherProvider) {
         this.workspaceId = workspaceId;
         this.ioRoot = ioRoot;
         this.eventService = eventService;
         this.searcherProvider = searcherProvider;
 
-        root = new VirtualFileImpl(ioRoot, Path.ROOT, pathToId(Path.ROOT), this);
+        root = new VirtualFileImpl(ioRoot, Path.ROOT, this);
         pathLockFactory = new PathLockFactory(FILE_LOCK_MAX_THREADS);
 
         aclSerializer = new AccessControlListSerializer();
-        aclCache = new Cache[CACHE_PARTITIONS_NUM];
+        aclCache = new AccessControlListCache();
+        permissionsCache = new EffectivePermissionsCache();
+        aclChanges = new ConcurrentHashMap<>();
 
         locksSerializer = new FileLockSerializer();
-        lockTokensCache = new Cache[CACHE_PARTITIONS_NUM];
+        lockTokensCache = new FileLockCache();
 
         metadataSerializer = new FileMetadataSerializer();
-        metadataCache = new Cache[CACHE_PARTITIONS_NUM];
+        metadataCache = new FileMetadataCache();
+
+        hashSumsSerializer = new FileHashSumsSerializer();
+        hashSumsIndexes = new HashMap<>(4);
 
-        for (int i = 0; i < CACHE_PARTITIONS_NUM; i++) {
-            aclCache[i] = new SynchronizedCache(new AccessControlListCache());
-            lockTokensCache[i] = new SynchronizedCache(new FileLockCache());
-            metadataCache[i] = new SynchronizedCache(new FileMetadataCache());
-        }
         userContext = VirtualFileSystemUserContext.newInstance();
     }
 
@@ -365,8 +959,7 @@ public class FSMountPoint implements MountPoint {
     }
 
     private VirtualFileImpl doGetVirtualFile(Path vfsPath) throws NotFoundException, ForbiddenException, ServerException {
-        final VirtualFileImpl virtualFile =
-                new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(vfsPath)), vfsPath, pathToId(vfsPath), this);
+        final VirtualFileImpl virtualFile = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(vfsPath)), vfsPath, this);
         if (!virtualFile.exists()) {
             throw new NotFoundException(String.format("Object '%s' does not exists. ", vfsPath));
         }
@@ -428,7 +1021,7 @@ public class FSMountPoint implements MountPoint {
             return null;
         }
         final Path parentPath = virtualFile.getVirtualFilePath().getParent();
-        return new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(parentPath)), parentPath, pathToId(parentPath), this);
+        return new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(parentPath)), parentPath, this);
     }
 
 
@@ -437,7 +1030,7 @@ public class FSMountPoint implements MountPoint {
             return null;
         }
         final Path childPath = parent.getVirtualFilePath().newPath(name);
-        final VirtualFileImpl child = new VirtualFileImpl(new java.io.File(parent.getIoFile(), name), childPath, pathToId(childPath), this);
+        final VirtualFileImpl child = new VirtualFileImpl(new java.io.File(parent.getIoFile(), name), childPath, this);
         if (child.exists()) {
             if (!child.getPath().endsWith(".codenvy/misc.xml")) {
                 // Don't check permissions for file "misc.xml" in folder ".codenvy". Dirty huck :( but seems simplest solution for now.
@@ -487,14 +1080,91 @@ public class FSMountPoint implements MountPoint {
             throw new ServerException(String.format("Unable get children '%s'. ", virtualFile.getPath()));
         }
         final List<VirtualFile> children = new ArrayList<>(names.length);
+        final java.io.File ioFile = virtualFile.getIoFile();
+        final Path path = virtualFile.getVirtualFilePath();
         for (String name : names) {
-            final Path childPath = virtualFile.getVirtualFilePath().newPath(name);
-            children.add(new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(childPath)), childPath, pathToId(childPath), this));
+            // Name of child is always simple name, neither parsing of path nor building of i/o path from root is needed.
+            children.add(new VirtualFileImpl(new java.io.File(ioFile, name), path.newPath(name), this));
         }
         return children;
     }
 
 
+    /**
+     * Walks through the tree of folder. Each folder is listed only once and type of each child is taken from attributes that are read
+     * together with child. ACL files of all children of folder are listed at once and ACL is read only for children that have it, other
+     * children inherit permissions of folder that is already known as readable.
+     */
+    void walk(VirtualFileImpl virtualFile, VirtualFileFilter filter, int depth, VirtualFileTreeVisitor visitor) throws ServerException {
+        if (!virtualFile.isFolder()) {
+            visitor.visitFile(virtualFile);
+            return;
+        }
+        final VirtualFileSystemUser user = userContext.getVirtualFileSystemUser();
+        // NOTE: We do not check read permissions when access to ROOT folder. If user has not access to ROOT folder then children of
+        // ROOT folder are not visited, the same as getChildren() does.
+        final boolean readable = !virtualFile.isRoot() || hasPermission(user, virtualFile, BasicPermissions.READ.value(), false);
+        walkFolder(user, virtualFile, filter, readable ? depth : 0, visitor);
+    }
+
+
+    private void walkFolder(VirtualFileSystemUser user, VirtualFileImpl folder, VirtualFileFilter filter, int depth,
+                            VirtualFileTreeVisitor visitor) throws ServerException {
+        if (!visitor.preVisitFolder(folder)) {
+            return;
+        }
+        if (depth > 0) {
+            for (VirtualFileImpl child : getChildrenForWalk(user, folder, filter)) {
+                if (child.isFolder()) {
+                    walkFolder(user, child, filter, depth - 1, visitor);
+                } else {
+                    visitor.visitFile(child);
+                }
+            }
+        }
+        visitor.postVisitFolder(folder);
+    }
+
+
+    private List<VirtualFileImpl> getChildrenForWalk(VirtualFileSystemUser user, VirtualFileImpl folder, VirtualFileFilter filter)
+            throws ServerException {
+        final java.io.File ioFolder = folder.getIoFile();
+        final String[] aclFiles = new java.io.File(ioFolder, ACL_DIR).list();
+        final Set<String> aclFileNames = aclFiles == null ? Collections.<String>emptySet() : new HashSet<>(Arrays.asList(aclFiles));
+        final Path path = folder.getVirtualFilePath();
+        final List<VirtualFileImpl> children = new ArrayList<>();
+        try (DirectoryStream<java.nio.file.Path> ioChildren = Files.newDirectoryStream(ioFolder.toPath())) {
+            for (java.nio.file.Path ioChild : ioChildren) {
+                final String name = ioChild.getFileName().toString();
+                if (SERVICE_DIR.equals(name)) {
+                    continue;
+                }
+                final BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(ioChild, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // Removed after folder was listed or broken link.
+                    continue;
+                }
+                // Child keeps attributes, so filter, e.g. filter of folders, and visitor get type of child without reading it again.
+                final VirtualFileImpl child = new VirtualFileImpl(ioChild.toFile(), path.newPath(name), this, attributes);
+                if (aclFileNames.contains(name + ACL_FILE_SUFFIX) && !hasPermission(user, child, BasicPermissions.READ.value(), false)) {
+                    continue;
+                }
+                if (filter.accept(child)) {
+                    children.add(child);
+                }
+            }
+        } catch (IOException e) {
+            String msg = String.format("Unable get children '%s'. ", folder.getPath());
+            LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+            throw new ServerException(msg);
+        }
+        Collections.sort(children);
+        return children;
+    }
+
+
     VirtualFileImpl createFile(VirtualFileImpl parent, String name, String mediaType, InputStream content)
             throws ForbiddenException, ConflictException, ServerException {
         checkName(name);
@@ -522,7 +1192,7 @@ public class FSMountPoint implements MountPoint {
             throw new ServerException(msg);
         }
 
-        final VirtualFileImpl newVirtualFile = new VirtualFileImpl(newIoFile, newPath, pathToId(newPath), this);
+        final VirtualFileImpl newVirtualFile = new VirtualFileImpl(newIoFile, newPath, this);
         // Update content if any.
         if (content != null) {
             doUpdateContent(newVirtualFile, mediaType, content);
@@ -573,7 +1243,7 @@ public class FSMountPoint implements MountPoint {
 
         // Return first created folder, e.g. assume we need create: folder1/folder2/folder3 in specified folder.
         // If folder1 already exists then return folder2 as first created in hierarchy.
-        final VirtualFileImpl newVirtualFile = new VirtualFileImpl(newIoFile, newPath, pathToId(newPath), this);
+        final VirtualFileImpl newVirtualFile = new VirtualFileImpl(newIoFile, newPath, this);
         eventService.publish(new CreateEvent(workspaceId, newVirtualFile.getPath(), true));
         return newVirtualFile;
     }
@@ -591,12 +1261,12 @@ public class FSMountPoint implements MountPoint {
                                                        source.getPath(), parent.getPath()));
         }
         final Path newPath = parent.getVirtualFilePath().newPath(source.getName());
-        final VirtualFileImpl destination =
-                new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, pathToId(newPath), this);
+        final VirtualFileImpl destination = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, this);
         if (destination.exists()) {
             throw new ConflictException(String.format("Item '%s' already exists. ", newPath));
         }
         doCopy(source, destination);
+        invalidate(destination.getVirtualFilePath());
         eventService.publish(new CreateEvent(workspaceId, destination.getPath(), source.isFolder()));
         return destination;
     }
@@ -696,7 +1366,7 @@ public class FSMountPoint implements MountPoint {
         final VirtualFileImpl renamed;
         if (!(newName == null || name.equals(newName))) {
             final Path newPath = virtualFile.getVirtualFilePath().getParent().newPath(newName);
-            renamed = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, pathToId(newPath), this);
+            renamed = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, this);
             if (renamed.exists()) {
                 throw new ConflictException(String.format("Item '%s' already exists. ", renamed.getName()));
             }
@@ -722,6 +1392,8 @@ public class FSMountPoint implements MountPoint {
                 }
             }
             doDelete(virtualFile, lockToken);
+            // ACL of renamed item is written after copying, drop anything that was read before.
+            invalidate(renamed.getVirtualFilePath());
         } else {
             renamed = virtualFile;
         }
@@ -766,14 +1438,14 @@ public class FSMountPoint implements MountPoint {
             throw new ForbiddenException(String.format("Unable move file '%s'. File is locked. ", sourcePath));
         }
         final Path newPath = parent.getVirtualFilePath().newPath(source.getName());
-        VirtualFileImpl destination =
-                new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, pathToId(newPath), this);
+        VirtualFileImpl destination = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(newPath)), newPath, this);
         if (destination.exists()) {
             throw new ConflictException(String.format("Item '%s' already exists. ", newPath));
         }
         // use copy and delete
         doCopy(source, destination);
         doDelete(source, lockToken);
+        invalidate(destination.getVirtualFilePath());
         eventService.publish(new MoveEvent(workspaceId, destination.getPath(), sourcePath, destination.isFolder()));
         return destination;
     }
@@ -787,35 +1459,36 @@ public class FSMountPoint implements MountPoint {
         final PathLockFactory.PathLock lock = pathLockFactory.getLock(virtualFile.getVirtualFilePath(), false).acquire(LOCK_FILE_TIMEOUT);
         try {
             final java.io.File ioFile = virtualFile.getIoFile();
-            FileInputStream fIn = null;
+            FileChannel channel = null;
             try {
-                final long fLength = ioFile.length();
+                channel = FileChannel.open(ioFile.toPath(), StandardOpenOption.READ);
+                final long fLength = channel.size();
+                final Date lastModified = new Date(ioFile.lastModified());
                 if (fLength <= MAX_BUFFER_SIZE) {
                     // If file small enough save its content in memory.
-                    fIn = new FileInputStream(ioFile);
                     final byte[] buff = new byte[(int)fLength];
-                    int offset = 0;
-                    int len = buff.length;
-                    int r;
-                    while ((r = fIn.read(buff, offset, len)) > 0) {
-                        offset += r;
-                        len -= r;
+                    final ByteBuffer byteBuffer = ByteBuffer.wrap(buff);
+                    while (byteBuffer.hasRemaining()) {
+                        if (channel.read(byteBuffer) < 0) {
+                            break;
+                        }
                     }
-                    return new ContentStream(virtualFile.getName(), new ByteArrayInputStream(buff),
-                                             virtualFile.getMediaType(), buff.length, new Date(ioFile.lastModified()));
+                    return new ContentStream(virtualFile.getName(), new ByteArrayInputStream(buff, 0, byteBuffer.position()),
+                                             virtualFile.getMediaType(), byteBuffer.position(), lastModified);
                 }
 
-                // Otherwise copy this file to be able release the file lock before leave this method.
-                final java.io.File f = java.io.File.createTempFile("spool_file", null);
-                nioCopy(ioFile, f, null);
-                return new ContentStream(virtualFile.getName(), new DeleteOnCloseFileInputStream(f),
-                                         virtualFile.getMediaType(), fLength, new Date(ioFile.lastModified()));
+                // Otherwise read file directly from the opened channel after releasing the file lock. Content of file is never
+                // overwritten in place, see _doUpdateContent, so the channel keeps content that is consistent with its length.
+                final ContentStream contentStream = new ContentStream(virtualFile.getName(), new FileChannelInputStream(channel),
+                                                                      virtualFile.getMediaType(), fLength, lastModified);
+                channel = null;
+                return contentStream;
             } catch (IOException e) {
                 String msg = String.format("Unable get content of '%s'. ", virtualFile.getPath());
                 LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
                 throw new ServerException(msg);
             } finally {
-                closeQuietly(fIn);
+                closeQuietly(channel);
             }
         } finally {
             lock.release();
@@ -889,21 +1562,57 @@ public class FSMountPoint implements MountPoint {
     }
 
     // UNDER LOCK
+    // Content is written to the temporary file and then the temporary file atomically replaces the original one. Readers that opened
+    // the original file before keep reading its content, see getContent.
     private void _doUpdateContent(VirtualFileImpl virtualFile, InputStream content) throws ServerException {
+        final java.io.File ioFile = virtualFile.getIoFile();
+        java.io.File tmpFile = null;
         FileOutputStream fOut = null;
         try {
-            fOut = new FileOutputStream(virtualFile.getIoFile());
+            final java.io.File tmpDir = new java.io.File(ioRoot, TMP_DIR);
+            // Ignore result of 'mkdirs' here. If we are failed to create directory we will get IOException at the next line.
+            tmpDir.mkdirs();
+            tmpFile = java.io.File.createTempFile("content", null, tmpDir);
+            fOut = new FileOutputStream(tmpFile);
             final byte[] buff = new byte[COPY_BUFFER_SIZE];
             int r;
             while ((r = content.read(buff)) != -1) {
                 fOut.write(buff, 0, r);
             }
+            fOut.close();
+            fOut = null;
+            copyPermissions(ioFile, tmpFile);
+            // Replace target of link but not link itself.
+            final java.nio.file.Path target = Files.isSymbolicLink(ioFile.toPath()) ? ioFile.toPath().toRealPath() : ioFile.toPath();
+            try {
+                Files.move(tmpFile.toPath(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmpFile = null;
         } catch (IOException e) {
             String msg = String.format("Unable set content of '%s'. ", virtualFile.getPath());
             LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
             throw new ServerException(msg);
         } finally {
             closeQuietly(fOut);
+            if (tmpFile != null && !tmpFile.delete()) {
+                LOG.warn("Unable delete temporary file '{}'. ", tmpFile);
+            }
+        }
+    }
+
+    private void copyPermissions(java.io.File source, java.io.File target) {
+        if (!source.exists()) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(target.toPath(), Files.getPosixFilePermissions(source.toPath()));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Not POSIX file system. Keep default permissions.
+            if (source.canExecute() && !target.setExecutable(true)) {
+                LOG.warn("Unable to set executable flag to '{}'. ", target);
+            }
         }
     }
 
@@ -957,9 +1666,7 @@ public class FSMountPoint implements MountPoint {
         }
 
         // clear caches
-        clearAclCache();
-        clearLockTokensCache();
-        clearMetadataCache();
+        invalidate(virtualFile.getVirtualFilePath());
 
         final String path = virtualFile.getPath();
         boolean isFile = virtualFile.isFile();
@@ -996,24 +1703,106 @@ public class FSMountPoint implements MountPoint {
     }
 
 
-    private void clearLockTokensCache() {
-        for (Cache<Path, FileLock> cache : lockTokensCache) {
+    /**
+     * Removes cached ACL, lock and metadata of item and all its descendants. Next access reads them from the service files again.
+     * Caches of other items are kept.
+     */
+    void invalidate(Path path) {
+        removeTree(lockTokensCache, path);
+        removeTree(metadataCache, path);
+        removeTree(aclCache, path);
+        // Effective permissions of descendants depend on removed ACLs.
+        aclChanged(path);
+    }
+
+
+    /** Removes cached ACL of item, e.g. if ACL file is changed bypassing virtual file system. */
+    void invalidateAcl(Path path) {
+        aclCache.remove(path);
+        aclChanged(path);
+    }
+
+
+    /** Removes cached lock of item, e.g. if lock file is changed bypassing virtual file system. */
+    void invalidateLock(Path path) {
+        lockTokensCache.remove(path);
+    }
+
+
+    /** Removes cached metadata of item, e.g. if metadata file is changed bypassing virtual file system. */
+    void invalidateMetadata(Path path) {
+        metadataCache.remove(path);
+    }
+
+
+    private static <V> void removeTree(Cache<Path, V> cache, Path path) {
+        if (path.isRoot()) {
             cache.clear();
+            return;
+        }
+        final List<Path> remove = new ArrayList<>();
+        for (Map.Entry<Path, V> entry : cache) {
+            final Path key = entry.getKey();
+            if (key.equals(path) || key.isChild(path)) {
+                remove.add(key);
+            }
         }
+        for (Path key : remove) {
+            cache.remove(key);
+        }
+    }
+
+
+    private void clearLockTokensCache() {
+        lockTokensCache.clear();
     }
 
 
     private void clearAclCache() {
-        for (Cache<Path, AccessControlList> cache : aclCache) {
-            cache.clear();
+        aclCache.clear();
+        aclChanged(Path.ROOT);
+    }
+
+
+    /**
+     * Registers change of ACL of item. Effective permissions of item and all its descendants are resolved again next time when they are
+     * requested. Must be called after new ACL is visible in cache.
+     */
+    private void aclChanged(Path path) {
+        synchronized (aclChanges) {
+            final long version = aclVersion + 1;
+            if (path.isRoot() || aclChanges.size() >= CACHE_SIZE) {
+                // Permissions of all items are affected, or too many changes to remember. Forget all resolved permissions.
+                aclResetVersion = version;
+                aclChanges.clear();
+                permissionsCache.clear();
+            } else {
+                aclChanges.put(path, version);
+            }
+            aclVersion = version;
         }
     }
 
 
-    private void clearMetadataCache() {
-        for (Cache<Path, Map<String, String[]>> cache : metadataCache) {
-            cache.clear();
+    /** Checks whether ACL of item or any of its parents is changed after specified version. */
+    private boolean isAclChanged(Path path, long version) {
+        if (version < aclResetVersion) {
+            return true;
         }
+        for (Path current = path; ; current = current.getParent()) {
+            final Long changed = aclChanges.get(current);
+            if (changed != null && changed > version) {
+                return true;
+            }
+            if (current.isRoot()) {
+                return false;
+            }
+        }
+    }
+
+
+    private void clearMetadataCache() {
+        metadataCache.clear();
     }
 
 
@@ -1021,63 +1810,9 @@ public class FSMountPoint implements MountPoint {
         if (!virtualFile.isFolder()) {
             throw new ForbiddenException(String.format("Unable export to zip. Item '%s' is not a folder. ", virtualFile.getPath()));
         }
-        java.io.File zipFile = null;
-        FileOutputStream out = null;
-        try {
-            zipFile = java.io.File.createTempFile("export", ".zip");
-            out = new FileOutputStream(zipFile);
-            final ZipOutputStream zipOut = new ZipOutputStream(out);
-            final LinkedList<VirtualFile> q = new LinkedList<>();
-            q.add(virtualFile);
-            final int zipEntryNameTrim = virtualFile.getVirtualFilePath().length();
-            final byte[] buff = new byte[COPY_BUFFER_SIZE];
-            while (!q.isEmpty()) {
-                for (VirtualFile current : doGetChildren((VirtualFileImpl)q.pop(), SERVICE_GIT_DIR_FILTER)) {
-                    // (1) Check filter.
-                    // (2) Check permission directly for current file only.
-                    // We already know parent accessible for current user otherwise we should not be here.
-                    // Ignore item if don't have permission to read it.
-                    if (filter.accept(current) && hasPermission((VirtualFileImpl)current, BasicPermissions.READ.value(), false)) {
-                        final String zipEntryName = current.getVirtualFilePath().subPath(zipEntryNameTrim).toString().substring(1);
-                        if (current.isFile()) {
-                            final ZipEntry zipEntry = new ZipEntry(zipEntryName);
-                            zipOut.putNextEntry(zipEntry);
-                            InputStream in = null;
-                            final PathLockFactory.PathLock lock =
-                                    pathLockFactory.getLock(current.getVirtualFilePath(), false).acquire(LOCK_FILE_TIMEOUT);
-                            try {
-                                zipEntry.setTime(virtualFile.getLastModificationDate());
-                                in = new FileInputStream(((VirtualFileImpl)current).getIoFile());
-                                int r;
-                                while ((r = in.read(buff)) != -1) {
-                                    zipOut.write(buff, 0, r);
-                                }
-                            } finally {
-                                closeQuietly(in);
-                                lock.release();
-                            }
-                            zipOut.closeEntry();
-                        } else if (current.isFolder()) {
-                            final ZipEntry zipEntry = new ZipEntry(zipEntryName + '/');
-                            zipEntry.setTime(0);
-                            zipOut.putNextEntry(zipEntry);
-                            q.add(current);
-                            zipOut.closeEntry();
-                        }
-                    }
-                }
-            }
-            closeQuietly(zipOut);
-            final String name = virtualFile.getName() + ".zip";
-            return new ContentStream(name, new DeleteOnCloseFileInputStream(zipFile), "application/zip", zipFile.length(), new Date());
-        } catch (IOException | RuntimeException ioe) {
-            if (zipFile != null) {
-                zipFile.delete();
-            }
-            throw new ServerException(ioe.getMessage(), ioe);
-        } finally {
-            closeQuietly(out);
-        }
+        // Zip is produced when caller reads the stream, so length of content is unknown.
+        final InputStream zipStream = new ZipExportInputStream(userContext.getVirtualFileSystemUser(), virtualFile, filter);
+        return new ContentStream(virtualFile.getName() + ".zip", zipStream, "application/zip", -1, new Date());
     }
 
 
@@ -1086,19 +1821,14 @@ public class FSMountPoint implements MountPoint {
         if (!parent.isFolder()) {
             throw new ForbiddenException(String.format("Unable import zip content. Item '%s' is not a folder. ", parent.getPath()));
         }
-        final ZipContent zipContent;
-        try {
-            zipContent = ZipContent.newInstance(zipped);
-        } catch (IOException e) {
-            throw new ServerException(e.getMessage(), e);
-        }
         if (!hasPermission(parent, BasicPermissions.WRITE.value(), true)) {
             throw new ForbiddenException(String.format("Unable import from zip to '%s'. Operation not permitted. ", parent.getPath()));
         }
 
-        ZipInputStream zip = null;
+        // Zip content is checked while it is extracted, so zipped data is read only once.
+        SafeZipInputStream zip = null;
         try {
-            zip = new ZipInputStream(zipContent.zippedData);
+            zip = new SafeZipInputStream(zipped);
             // Wrap zip stream to prevent close it. We can pass stream to other method and it can read content of current
             // ZipEntry but not able to close original stream of ZIPed data.
             InputStream noCloseZip = new NotClosableInputStream(zip);
@@ -1119,7 +1849,7 @@ public class FSMountPoint implements MountPoint {
                 if (relPath.length() > 1) {
                     // create all required parent directories
                     final Path parentPath = parent.getVirtualFilePath().newPath(relPath.subPath(0, relPath.length() - 1));
-                    current = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(parentPath)), parentPath, pathToId(parentPath), this);
+                    current = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(parentPath)), parentPath, this);
                     if (!(current.exists() || current.getIoFile().mkdirs())) {
                         throw new ServerException(String.format("Unable create directory '%s' ", parentPath));
                     }
@@ -1135,8 +1865,7 @@ public class FSMountPoint implements MountPoint {
                         }
                     }
                 } else {
-                    final VirtualFileImpl file =
-                            new VirtualFileImpl(new java.io.File(current.getIoFile(), name), newPath, pathToId(newPath), this);
+                    final VirtualFileImpl file = new VirtualFileImpl(new java.io.File(current.getIoFile(), name), newPath, this);
                     if (file.exists()) {
                         if (isLocked(file)) {
                             throw new ForbiddenException(String.format("File '%s' already exists and locked. ", file.getPath()));
@@ -1160,7 +1889,18 @@ public class FSMountPoint implements MountPoint {
                         throw new ServerException(msg);
                     }
 
-                    doUpdateContent(file, noCloseZip);
+                    try {
+                        doUpdateContent(file, noCloseZip);
+                    } catch (ServerException | RuntimeException e) {
+                        // Content of existing file isn't changed if update failed, but new file must be removed.
+                        if (newFile && !file.getIoFile().delete()) {
+                            LOG.warn("Unable delete file '{}'. ", file.getIoFile());
+                        }
+                        if (zip.getLimitError() != null) {
+                            throw new ServerException(zip.getLimitError().getMessage(), zip.getLimitError());
+                        }
+                        throw e;
+                    }
                     if (newFile) {
                         eventService.publish(new CreateEvent(workspaceId, newPath.toString(), false));
                     } else {
@@ -1169,6 +1909,8 @@ public class FSMountPoint implements MountPoint {
                 }
                 zip.closeEntry();
             }
+            LOG.info("Extracted {} entries, {} bytes to '{}' in {} ms, {} entries/s, {} bytes/s", zip.getEntries(), zip.getSize(),
+                     parent.getPath(), zip.getElapsedTime(), zip.getEntriesPerSecond(), zip.getBytesPerSecond());
             if (searcherProvider != null) {
                 try {
                     searcherProvider.getSearcher(this, true).add(parent);
@@ -1198,8 +1940,7 @@ public class FSMountPoint implements MountPoint {
 
 
     private String doLock(VirtualFileImpl virtualFile, long timeout) throws ConflictException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        if (NO_LOCK == lockTokensCache[index].get(virtualFile.getVirtualFilePath())) // causes read from file if need.
+        if (NO_LOCK == lockTokensCache.get(virtualFile.getVirtualFilePath())) // causes read from file if need.
         {
             final String lockToken = NameGenerator.generate(null, 16);
             final long expired = timeout > 0 ? (System.currentTimeMillis() + timeout) : Long.MAX_VALUE;
@@ -1226,7 +1967,7 @@ public class FSMountPoint implements MountPoint {
             }
 
             // Save lock token in cache if lock successful.
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), fileLock);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), fileLock);
             return lockToken;
         }
 
@@ -1250,7 +1991,6 @@ public class FSMountPoint implements MountPoint {
     }
 
     private void doUnlock(VirtualFileImpl virtualFile, FileLock lock, String lockToken) throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         try {
             if (!lock.getLockToken().equals(lockToken)) {
                 throw new ForbiddenException(String.format("Unable unlock file '%s'. Lock token does not match. ", virtualFile.getPath()));
@@ -1260,7 +2000,7 @@ public class FSMountPoint implements MountPoint {
                 throw new IOException(String.format("Unable delete lock file %s. ", lockIoFile));
             }
             // Mark as unlocked in cache.
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), NO_LOCK);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), NO_LOCK);
         } catch (IOException e) {
             String msg = String.format("Unable unlock file '%s'. ", virtualFile.getPath());
             LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
@@ -1274,9 +2014,8 @@ public class FSMountPoint implements MountPoint {
     }
 
     private FileLock checkIsLockValidAndGet(VirtualFileImpl virtualFile) {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         // causes read from file if need
-        final FileLock lock = lockTokensCache[index].get(virtualFile.getVirtualFilePath());
+        final FileLock lock = lockTokensCache.get(virtualFile.getVirtualFilePath());
         if (NO_LOCK == lock) {
             return NO_LOCK;
         }
@@ -1288,7 +2027,7 @@ public class FSMountPoint implements MountPoint {
                     LOG.warn("Unable delete lock file %s. ", lockIoFile);
                 }
             }
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), NO_LOCK);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), NO_LOCK);
             return NO_LOCK;
         }
         return lock;
@@ -1311,14 +2050,13 @@ public class FSMountPoint implements MountPoint {
 
     AccessControlList getACL(VirtualFileImpl virtualFile) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        return new AccessControlList(aclCache[virtualFile.getVirtualFilePath().hashCode() & MASK].get(virtualFile.getVirtualFilePath()));
+        return new AccessControlList(aclCache.get(virtualFile.getVirtualFilePath()));
     }
 
 
     void updateACL(VirtualFileImpl virtualFile, List<AccessControlEntry> acl, boolean override, String lockToken)
             throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final AccessControlList actualACL = aclCache[index].get(virtualFile.getVirtualFilePath());
+        final AccessControlList actualACL = aclCache.get(virtualFile.getVirtualFilePath());
 
         if (!hasPermission(virtualFile, BasicPermissions.UPDATE_ACL.value(), true)) {
             throw new ForbiddenException(String.format("Unable update ACL for '%s'. Operation not permitted. ", virtualFile.getPath()));
@@ -1363,7 +2101,9 @@ public class FSMountPoint implements MountPoint {
         }
 
         // 4. update cache
-        aclCache[index].put(virtualFile.getVirtualFilePath(), copy);
+        aclCache.put(virtualFile.getVirtualFilePath(), copy);
+        // effective permissions of this item and all its children must be resolved again
+        aclChanged(virtualFile.getVirtualFilePath());
         // 5. update last modification time
         if (!virtualFile.getIoFile().setLastModified(System.currentTimeMillis())) {
             LOG.warn("Unable to set timestamp to '{}'. ", virtualFile.getIoFile());
@@ -1374,42 +2114,55 @@ public class FSMountPoint implements MountPoint {
 
 
     private boolean hasPermission(VirtualFileImpl virtualFile, String p, boolean checkParent) {
-        final VirtualFileSystemUser user = userContext.getVirtualFileSystemUser();
-        Path path = virtualFile.getVirtualFilePath();
-        while (path != null) {
-            final AccessControlList accessControlList = aclCache[path.hashCode() & MASK].get(path);
-            if (!accessControlList.isEmpty()) {
-                final Principal userPrincipal = DtoFactory.getInstance().createDto(Principal.class)
-                                                          .withName(user.getUserId()).withType(Principal.Type.USER);
-                Set<String> userPermissions = accessControlList.getPermissions(userPrincipal);
-                if (userPermissions != null) {
-                    return userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value());
-                }
-                Collection<String> groups = user.getGroups();
-                if (!groups.isEmpty()) {
-                    for (String group : groups) {
-                        final Principal groupPrincipal = DtoFactory.getInstance().createDto(Principal.class)
-                                                                   .withName(group)
-                                                                   .withType(Principal.Type.GROUP);
-                        userPermissions = accessControlList.getPermissions(groupPrincipal);
-                        if (userPermissions != null) {
-                            return userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value());
-                        }
-                    }
-                }
-                final Principal anyPrincipal = DtoFactory.getInstance().createDto(Principal.class)
-                                                         .withName(VirtualFileSystemInfo.ANY_PRINCIPAL)
-                                                         .withType(Principal.Type.USER);
-                userPermissions = accessControlList.getPermissions(anyPrincipal);
-                return userPermissions != null && (userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value()));
-            }
-            if (checkParent) {
-                path = path.getParent();
+        return hasPermission(userContext.getVirtualFileSystemUser(), virtualFile, p, checkParent);
+    }
+
+
+    private boolean hasPermission(VirtualFileSystemUser user, VirtualFileImpl virtualFile, String p, boolean checkParent) {
+        final Set<String> userPermissions;
+        if (checkParent) {
+            userPermissions = getEffectivePermissions(virtualFile.getVirtualFilePath(), user.getUserId(), user.getGroups()).permissions;
+        } else {
+            final AccessControlList accessControlList = aclCache.get(virtualFile.getVirtualFilePath());
+            userPermissions = accessControlList.isEmpty() ? null : getPermissions(accessControlList, user.getUserId(), user.getGroups());
+        }
+        return userPermissions == null || userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value());
+    }
+
+
+    private EffectivePermissions getEffectivePermissions(Path path, String userId, Collection<String> groups) {
+        final PermissionsKey key = new PermissionsKey(path, userId, groups);
+        EffectivePermissions permissions = permissionsCache.get(key);
+        // Read version before checking changes, all changes up to this version are visible in aclChanges.
+        final long version = aclVersion;
+        if (permissions.aclVersion != version) {
+            if (isAclChanged(path, permissions.aclVersion)) {
+                // ACL of item or one of its parents was updated after permissions were resolved.
+                permissionsCache.remove(key);
+                permissions = permissionsCache.get(key);
             } else {
-                break;
+                // Changed ACLs do not affect this item. Remember that, next time item is not checked against the same changes again.
+                permissions.aclVersion = version;
             }
         }
-        return true;
+        return permissions;
+    }
+
+
+    /** Get permissions of user from not empty ACL. Checks user itself then each of its groups and at the end any principal. */
+    private Set<String> getPermissions(AccessControlList accessControlList, String userId, Collection<String> groups) {
+        Set<String> userPermissions = accessControlList.getPermissions(userId, Principal.Type.USER);
+        if (userPermissions != null) {
+            return userPermissions;
+        }
+        for (String group : groups) {
+            userPermissions = accessControlList.getPermissions(group, Principal.Type.GROUP);
+            if (userPermissions != null) {
+                return userPermissions;
+            }
+        }
+        userPermissions = accessControlList.getPermissions(VirtualFileSystemInfo.ANY_PRINCIPAL, Principal.Type.USER);
+        return userPermissions == null ? Collections.<String>emptySet() : userPermissions;
     }
 
 
@@ -1443,7 +2196,6 @@ public class FSMountPoint implements MountPoint {
 
     void updateProperties(VirtualFileImpl virtualFile, List<Property> properties, String lockToken)
             throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         if (!hasPermission(virtualFile, BasicPermissions.WRITE.value(), true)) {
             throw new ForbiddenException(
                     String.format("Unable update properties for '%s'. Operation not permitted. ", virtualFile.getPath()));
@@ -1455,7 +2207,7 @@ public class FSMountPoint implements MountPoint {
         }
 
         // 1. make copy of properties
-        final Map<String, String[]> metadata = copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        final Map<String, String[]> metadata = copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
         // 2. update
         for (Property property : properties) {
             final String name = property.getName();
@@ -1470,7 +2222,7 @@ public class FSMountPoint implements MountPoint {
         // 3. save in file
         saveFileMetadata(virtualFile, metadata);
         // 4. update cache
-        metadataCache[index].put(virtualFile.getVirtualFilePath(), metadata);
+        metadataCache.put(virtualFile.getVirtualFilePath(), metadata);
         // 5. update last modification time
         if (!virtualFile.getIoFile().setLastModified(System.currentTimeMillis())) {
             LOG.warn("Unable to set timestamp to '{}'. ", virtualFile.getIoFile());
@@ -1480,23 +2232,20 @@ public class FSMountPoint implements MountPoint {
 
 
     private Map<String, String[]> getFileMetadata(VirtualFileImpl virtualFile) {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        return copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        return copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
     }
 
 
     String getPropertyValue(VirtualFileImpl virtualFile, String name) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final String[] value = metadataCache[index].get(virtualFile.getVirtualFilePath()).get(name);
+        final String[] value = metadataCache.get(virtualFile.getVirtualFilePath()).get(name);
         return value == null || value.length == 0 ? null : value[0];
     }
 
 
     String[] getPropertyValues(VirtualFileImpl virtualFile, String name) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final String[] value = metadataCache[index].get(virtualFile.getVirtualFilePath()).get(name);
+        final String[] value = metadataCache.get(virtualFile.getVirtualFilePath()).get(name);
         final String[] copyValue = new String[value.length];
         System.arraycopy(value, 0, copyValue, 0, value.length);
         return copyValue;
@@ -1509,9 +2258,8 @@ public class FSMountPoint implements MountPoint {
 
 
     void setProperty(VirtualFileImpl virtualFile, String name, String... value) throws ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         // 1. make copy of properties
-        final Map<String, String[]> metadata = copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        final Map<String, String[]> metadata = copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
         // 2. update
         if (value != null) {
             String[] copyValue = new String[value.length];
@@ -1523,7 +2271,7 @@ public class FSMountPoint implements MountPoint {
         // 3. save in file
         saveFileMetadata(virtualFile, metadata);
         // 4. update cache
-        metadataCache[index].put(virtualFile.getVirtualFilePath(), metadata);
+        metadataCache.put(virtualFile.getVirtualFilePath(), metadata);
     }
 
 
@@ -1597,48 +2345,184 @@ public class FSMountPoint implements MountPoint {
    /* ==================================== */
 
     LazyIterator<Pair<String, String>> countMd5Sums(VirtualFileImpl virtualFile) throws ServerException {
+        return countHashSums(virtualFile, "MD5");
+    }
+
+
+    /**
+     * Counts hash sums of all files in the folder with specified algorithm. Folders are visited in parallel, hash sums of files are
+     * saved in index of mount point and file is read only if it was modified after its hash sum has been counted.
+     *
+     * @param virtualFile
+     *         folder
+     * @param algorithm
+     *         name of algorithm supported by {@link MessageDigest}, e.g. MD5, SHA-1
+     * @return pairs of hash sum of file and path of file relative to {@code virtualFile}. Hash sums are available in iterator as soon
+     * as they are counted.
+     */
+    LazyIterator<Pair<String, String>> countHashSums(final VirtualFileImpl virtualFile, String algorithm) throws ServerException {
         if (!virtualFile.isFolder()) {
             return LazyIterator.emptyIterator();
         }
-        final List<Pair<String, String>> hashes = new ArrayList<>();
-        final int trimPathLength = virtualFile.getPath().length() + 1;
-        final HashFunction hashFunction = Hashing.md5();
-        final ValueHolder<ServerException> errorHolder = new ValueHolder<>();
-        virtualFile.accept(new VirtualFileVisitor() {
+        try {
+            MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ServerException(String.format("Unsupported hash algorithm '%s'. ", algorithm));
+        }
+        final HashSumsCounting counting = new HashSumsCounting(userContext.getVirtualFileSystemUser(), virtualFile, algorithm,
+                                                               getHashSumsIndex(algorithm));
+        HASH_SUMS_POOL.execute(new RecursiveAction() {
             @Override
-            public void visit(final VirtualFile virtualFile) {
+            protected void compute() {
                 try {
-                    if (virtualFile.isFile()) {
-                        hashes.add(Pair.of(countHashSum(virtualFile, hashFunction), virtualFile.getPath().substring(trimPathLength)));
-                    } else {
-                        final LazyIterator<VirtualFile> children = virtualFile.getChildren(VirtualFileFilter.ALL);
-                        while (children.hasNext()) {
-                            children.next().accept(this);
-                        }
+                    new CountHashSumsTask(virtualFile, counting).invoke();
+                    if (!counting.hashSums.isCancelled()) {
+                        removeHashSumsOfRemovedFiles(virtualFile, counting);
                     }
-                } catch (ServerException e) {
-                    errorHolder.set(e);
+                    // Index is saved before reader gets end of hash sums.
+                    managedBlock(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            saveHashSums(counting.algorithm, counting.index);
+                            return null;
+                        }
+                    });
+                } catch (Exception e) {
+                    LOG.warn(e.getMessage(), e);
+                } finally {
+                    counting.hashSums.done();
                 }
             }
         });
-        return LazyIterator.fromList(hashes);
+        return counting.hashSums.start();
+    }
+
+
+    private void removeHashSumsOfRemovedFiles(VirtualFileImpl folder, HashSumsCounting counting) {
+        final String prefix = folder.getVirtualFilePath().isRoot() ? "/" : folder.getPath() + '/';
+        for (Iterator<String> i = counting.index.hashSums.keySet().iterator(); i.hasNext(); ) {
+            final String path = i.next();
+            if (path.startsWith(prefix) && !counting.visited.contains(path)) {
+                i.remove();
+                counting.index.modified = true;
+            }
+        }
     }
 
 
-    private String countHashSum(VirtualFile virtualFile, HashFunction hashFunction) throws ServerException {
+    private String countHashSum(VirtualFileImpl virtualFile, String algorithm) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // Algorithm is checked before.
+            throw new IllegalStateException(e.getMessage(), e);
+        }
         final PathLockFactory.PathLock lock = pathLockFactory.getLock(virtualFile.getVirtualFilePath(), false).acquire(LOCK_FILE_TIMEOUT);
+        try (FileChannel channel = FileChannel.open(virtualFile.getIoFile().toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > MAP_FILE_THRESHOLD) {
+                long position = 0;
+                while (position < size) {
+                    final long length = Math.min(size - position, Integer.MAX_VALUE);
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                    position += length;
+                }
+            } else {
+                final ByteBuffer buffer = HASH_SUM_BUFFER.get();
+                buffer.clear();
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        } finally {
+            lock.release();
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+
+    /** Gets hash sums counted with specified algorithm. Saved hash sums are read from index of mount point at first use. */
+    private HashSumsIndex getHashSumsIndex(String algorithm) {
+        final String name = algorithm.toLowerCase();
+        synchronized (hashSumsIndexes) {
+            HashSumsIndex index = hashSumsIndexes.get(name);
+            if (index == null) {
+                hashSumsIndexes.put(name, index = new HashSumsIndex(readHashSums(name)));
+            }
+            return index;
+        }
+    }
+
+
+    private Map<String, FileHashSum> readHashSums(String algorithm) {
+        final Path hashSumsFilePath = getHashSumsFilePath(algorithm);
+        final java.io.File hashSumsIoFile = new java.io.File(ioRoot, toIoPath(hashSumsFilePath));
+        if (!hashSumsIoFile.exists()) {
+            return Collections.emptyMap();
+        }
+        DataInputStream dis = null;
+        final PathLockFactory.PathLock lock = pathLockFactory.getLock(hashSumsFilePath, false).acquire(LOCK_FILE_TIMEOUT);
         try {
-            final InputStream stream = virtualFile.getContent().getStream();
-            return ByteSource.concat().hash(hashFunction).toString();
-        } catch (ForbiddenException e) {
-            throw new ServerException(e.getServiceError());
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(hashSumsIoFile)));
+            return hashSumsSerializer.read(dis);
         } catch (IOException e) {
-            throw new ServerException(e);
+            // Not critical, hash sums are counted again.
+            LOG.warn("Unable read {} hash sums. {}", algorithm, e.getMessage());
+            return Collections.emptyMap();
         } finally {
+            closeQuietly(dis);
             lock.release();
         }
     }
 
+
+    /** Saves hash sums in index of mount point if they are modified. Index is replaced atomically, readers never see partial index. */
+    private void saveHashSums(String algorithm, HashSumsIndex index) {
+        if (!index.modified) {
+            return;
+        }
+        final Path hashSumsFilePath = getHashSumsFilePath(algorithm);
+        final java.io.File hashSumsIoFile = new java.io.File(ioRoot, toIoPath(hashSumsFilePath));
+        hashSumsIoFile.getParentFile().mkdirs(); // Ignore result of 'mkdirs' here. If we are failed to create
+        // directory we will get IOException at the next line when try to create temporary file.
+        java.io.File tmpFile = null;
+        DataOutputStream dos = null;
+        final PathLockFactory.PathLock lock = pathLockFactory.getLock(hashSumsFilePath, true).acquire(LOCK_FILE_TIMEOUT);
+        try {
+            // Cleared before copying, changes made while index is written are saved next time.
+            index.modified = false;
+            tmpFile = java.io.File.createTempFile(hashSumsIoFile.getName(), null, hashSumsIoFile.getParentFile());
+            dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            hashSumsSerializer.write(dos, new HashMap<>(index.hashSums));
+            dos.close();
+            dos = null;
+            try {
+                Files.move(tmpFile.toPath(), hashSumsIoFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), hashSumsIoFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmpFile = null;
+        } catch (IOException e) {
+            index.modified = true;
+            LOG.warn("Unable save {} hash sums. {}", algorithm, e.getMessage());
+        } finally {
+            closeQuietly(dos);
+            if (tmpFile != null && !tmpFile.delete()) {
+                LOG.warn("Unable delete temporary file '{}'. ", tmpFile);
+            }
+            lock.release();
+        }
+    }
+
+
+    /** Hash sums of all files of mount point are saved in one index file under service directory of root folder. */
+    private Path getHashSumsFilePath(String algorithm) {
+        return Path.ROOT.newPath(HASH_SUMS_DIR, algorithm.toLowerCase());
+    }
+
    /* ============ HELPERS  ============ */
 
     /* Relative system path */
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+/**
+ * Hash sum of file content. Hash sum is valid while modification time and length of file are not changed.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ */
+public class FileHashSum {
+    private final long   lastModified;
+    private final long   length;
+    private final String hashSum;
+
+    public FileHashSum(long lastModified, long length, String hashSum) {
+        this.lastModified = lastModified;
+        this.length = length;
+        this.hashSum = hashSum;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String getHashSum() {
+        return hashSum;
+    }
+
+    /** Checks is this hash sum valid for file with specified modification time and length. */
+    public boolean isValid(long lastModified, long length) {
+        return this.lastModified == lastModified && this.length == length;
+    }
+
+    @Override
+    public String toString() {
+        return "FileHashSum{" +
+               "lastModified=" + lastModified +
+               ", length=" + length +
+               ", hashSum='" + hashSum + '\'' +
+               '}';
+    }
+}
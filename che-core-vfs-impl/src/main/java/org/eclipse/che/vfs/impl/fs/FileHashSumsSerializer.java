@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializer for hash sums of files in folder. Hash sums are mapped to names of files.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @see FileHashSum
+ */
+public class FileHashSumsSerializer implements DataSerializer<Map<String, FileHashSum>> {
+    @Override
+    public void write(DataOutput output, Map<String, FileHashSum> hashSums) throws IOException {
+        output.writeInt(hashSums.size());
+        for (Map.Entry<String, FileHashSum> entry : hashSums.entrySet()) {
+            final FileHashSum hashSum = entry.getValue();
+            output.writeUTF(entry.getKey());
+            output.writeLong(hashSum.getLastModified());
+            output.writeLong(hashSum.getLength());
+            output.writeUTF(hashSum.getHashSum());
+        }
+    }
+
+    @Override
+    public Map<String, FileHashSum> read(DataInput input) throws IOException {
+        final int recordsNum = input.readInt();
+        final Map<String, FileHashSum> hashSums = new HashMap<>(recordsNum);
+        int readRecords = 0;
+        while (readRecords < recordsNum) {
+            String name = input.readUTF();
+            long lastModified = input.readLong();
+            long length = input.readLong();
+            String hashSum = input.readUTF();
+            hashSums.put(name, new FileHashSum(lastModified, length, hashSum));
+            ++readRecords;
+        }
+        return hashSums;
+    }
+}
@@ -55,7 +55,28 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
                                    EventService eventService,
                                    SearcherProvider searcherProvider,
                                    VirtualFileSystemRegistry vfsRegistry) {
+        this(workspaceId, mountStrategy, eventService, searcherProvider, vfsRegistry, false);
+    }
+
+    /**
+     * @param workspaceId
+     *         virtual file system identifier
+     * @param mountStrategy
+     *         LocalFSMountStrategy
+     * @param searcherProvider
+     *         SearcherProvider or {@code null}
+     * @param watch
+     *         if {@code true} changes that are done bypassing virtual file system are tracked with {@link MountPointWatcher}
+     * @see LocalFileSystemProvider
+     */
+    public LocalFileSystemProvider(String workspaceId,
+                                   LocalFSMountStrategy mountStrategy,
+                                   EventService eventService,
+                                   SearcherProvider searcherProvider,
+                                   VirtualFileSystemRegistry vfsRegistry,
+                                   boolean watch) {
         this(workspaceId, mountStrategy, eventService, searcherProvider, VirtualFileSystemUserContext.newInstance(), vfsRegistry);
+        this.mountRef.watch = watch;
     }
 
 
@@ -137,13 +158,14 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
         FSMountPoint mount = mountRef.get();
         if (mount == null && create) {
             final java.io.File workspaceMountPoint = mountStrategy.getMountPath(workspaceId);
+            // Create directory before mount point is published, watcher starts registering its tree at once.
+            if (!(workspaceMountPoint.exists() || workspaceMountPoint.mkdirs() || workspaceMountPoint.isDirectory())) {
+                LOG.error("Unable create directory {}", workspaceMountPoint);
+                // critical error cannot continue
+                throw new ServerException(String.format("Virtual filesystem '%s' is not available. ", workspaceId));
+            }
             FSMountPoint newMount = new FSMountPoint(workspaceId, workspaceMountPoint, eventService, searcherProvider);
             if (mountRef.maybeSet(newMount)) {
-                if (!(workspaceMountPoint.exists() || workspaceMountPoint.mkdirs())) {
-                    LOG.error("Unable create directory {}", workspaceMountPoint);
-                    // critical error cannot continue
-                    throw new ServerException(String.format("Virtual filesystem '%s' is not available. ", workspaceId));
-                }
                 mount = newMount;
             }
         }
@@ -153,6 +175,8 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
     private static class MountPointRef {
         final AtomicReference<FSMountPoint> ref;
 
+        boolean watch;
+
         private MountPointRef() {
             ref = new AtomicReference<>();
         }
@@ -160,7 +184,10 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
         boolean maybeSet(FSMountPoint mountPoint) {
             final boolean res = ref.compareAndSet(null, mountPoint);
             if (res) {
-                MountPointCacheCleaner.add(mountPoint);
+                // Watcher resets caches by request as well. Use cleaner if file system can't be watched.
+                if (!(watch && MountPointWatcher.add(mountPoint))) {
+                    MountPointCacheCleaner.add(mountPoint);
+                }
             }
             return res;
         }
@@ -172,6 +199,7 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
         FSMountPoint remove() {
             final FSMountPoint mountPoint = ref.getAndSet(null);
             if (mountPoint != null) {
+                MountPointWatcher.remove(mountPoint);
                 MountPointCacheCleaner.remove(mountPoint);
             }
             return mountPoint;
@@ -25,14 +25,35 @@ import javax.inject.Singleton;
  */
 @Singleton
 public class LocalFileSystemRegistryPlugin {
+    private final String[]                  ids;
+    private final LocalFSMountStrategy      mountStrategy;
+    private final VirtualFileSystemRegistry registry;
+    private final EventService              eventService;
+    private final SearcherProvider          searcherProvider;
+
+    /** Track changes that are done bypassing virtual file system, see {@link MountPointWatcher}. */
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.watch")
+    private boolean watch = true;
+
     @Inject
     public LocalFileSystemRegistryPlugin(@Named("vfs.local.id") String[] ids,
                                          LocalFSMountStrategy mountStrategy,
                                          VirtualFileSystemRegistry registry,
                                          EventService eventService,
-                                         @Nullable SearcherProvider searcherProvider) throws ServerException {
+                                         @Nullable SearcherProvider searcherProvider) {
+        this.ids = ids;
+        this.mountStrategy = mountStrategy;
+        this.registry = registry;
+        this.eventService = eventService;
+        this.searcherProvider = searcherProvider;
+    }
+
+    // Called by Guice after optional configuration is injected.
+    @Inject
+    void registerProviders() throws ServerException {
         for (String id : ids) {
-            registry.registerProvider(id, new LocalFileSystemProvider(id, mountStrategy, eventService, searcherProvider, registry));
+            registry.registerProvider(id, new LocalFileSystemProvider(id, mountStrategy, eventService, searcherProvider, registry, watch));
         }
     }
 }
@@ -0,0 +1,931 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.vfs.server.Path;
+import org.eclipse.che.api.vfs.server.observation.CreateEvent;
+import org.eclipse.che.api.vfs.server.observation.DeleteEvent;
+import org.eclipse.che.api.vfs.server.observation.MoveEvent;
+import org.eclipse.che.api.vfs.server.observation.RenameEvent;
+import org.eclipse.che.api.vfs.server.observation.UpdateContentEvent;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+import org.eclipse.che.api.vfs.server.search.Searcher;
+import org.eclipse.che.api.vfs.server.search.SearcherProvider;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches mounted workspaces for changes that are done bypassing virtual file system, e.g. by git checkout that is done by builder or
+ * runner on the same disk. For each external change:
+ * <ul>
+ * <li>cached ACL, lock and metadata of changed item are dropped, caches of other items are kept</li>
+ * <li>search index is updated incrementally</li>
+ * <li>{@link VirtualFileEvent} is published</li>
+ * </ul>
+ * All mount points share single {@link WatchService} and single thread that takes its keys. Changes are applied with another single
+ * thread when the tree of the mount point is quiet for {@link #QUIET_PERIOD} ms, but not later than {@link #MAX_DELAY} ms after the
+ * first change, so series of changes, e.g. checkout, is applied at once and each item is processed once. Directories are registered
+ * recursively, except {@code .git} and internal directories of virtual file system. If events are lost (overflow) the whole tree is
+ * rescanned.
+ * <p/>
+ * Changes that are done through virtual file system are already applied to caches and search index, they are recognized by events
+ * that virtual file system publishes and skipped. When virtual file system publishes event the state of item, whether it exists, its
+ * size and time of last modification, is remembered. Change of item in file system is skipped only if the item is still in the same
+ * state, so external change that is done right after change through virtual file system isn't lost.
+ * <p/>
+ * Service file {@code .vfs/cache/reset} in the root of mount point resets all caches, as {@link MountPointCacheCleaner} does.
+ *
+ * @author andrew00x
+ */
+public class MountPointWatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(MountPointWatcher.class);
+
+    /** Changes are applied when there is no new changes during this time in milliseconds. */
+    static final long QUIET_PERIOD       = 500;
+    /** Max delay in milliseconds between the first change and applying it. */
+    static final long MAX_DELAY          = 5000;
+    /** How long in milliseconds state of item that is changed through virtual file system is remembered. */
+    static final long OWN_CHANGE_TIMEOUT = MAX_DELAY * 2;
+    /** If there are more pending changes the whole tree is rescanned instead of applying each of them. */
+    static final int  MAX_PENDING        = 10000;
+
+    private static final String   GIT_DIR      = ".git";
+    private static final String   CACHE_DIR    = "cache";
+    private static final String   RESET_FILE   = "reset";
+    private static final String   ACL_NAME     = "acl";
+    private static final String   LOCKS_NAME   = "locks";
+    private static final String   PROPS_NAME   = "props";
+    private static final String[] SERVICE_DIRS = {ACL_NAME, LOCKS_NAME, PROPS_NAME};
+
+    /** Helps to recognize events that are published by watcher itself. */
+    private static final ThreadLocal<Boolean> PUBLISHING = new ThreadLocal<>();
+
+    private static final Map<java.io.File, Watcher> watched = new ConcurrentHashMap<>();
+    private static final Map<WatchKey, Watcher>     keys    = new ConcurrentHashMap<>();
+
+    // Guarded by MountPointWatcher.class. Created when the first mount point is added after start or after stop.
+    private static ScheduledExecutorService exec;
+    private static WatchService             watchService;
+    private static boolean                  unsupported;
+
+    /**
+     * Starts watching of mount point.
+     *
+     * @return {@code false} if file system doesn't support watching
+     */
+    static boolean add(FSMountPoint mountPoint) {
+        final Watcher watcher;
+        synchronized (MountPointWatcher.class) {
+            if (!init()) {
+                return false;
+            }
+            watcher = new Watcher(mountPoint, watchService, exec);
+        }
+        final java.io.File ioRoot = mountPoint.getRoot().getIoFile();
+        if (watched.put(ioRoot, watcher) != null) {
+            LOG.warn("Mount point {} is already watched", ioRoot);
+        }
+        watcher.start();
+        return true;
+    }
+
+    static void remove(FSMountPoint mountPoint) {
+        final Watcher watcher = watched.remove(mountPoint.getRoot().getIoFile());
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Stops watching of all mount points. Watching is started again when mount point is added next time, e.g. by another instance of
+     * virtual file system registry that lives in the same class loader.
+     */
+    public static void stop() {
+        for (Watcher watcher : watched.values()) {
+            watcher.stop();
+        }
+        watched.clear();
+        synchronized (MountPointWatcher.class) {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+                watchService = null;
+            }
+            if (exec != null) {
+                exec.shutdownNow();
+                exec = null;
+            }
+        }
+        keys.clear();
+        LOG.info("VFS watcher stopped.");
+    }
+
+    /**
+     * Creates WatchService, thread that takes its keys and executor for watchers of mount points if they aren't created yet.
+     *
+     * @return {@code false} if file system doesn't support watching
+     */
+    private static boolean init() {
+        if (unsupported) {
+            return false;
+        }
+        if (watchService == null) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                LOG.warn("Unable to watch local file system: {}", e.getMessage());
+                unsupported = true;
+                return false;
+            }
+            final Thread poller = new Thread(new Poller(watchService), "MountPointWatcher-Poller");
+            poller.setDaemon(true);
+            poller.start();
+            exec = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("MountPointWatcher-%d")
+                                                                                        .setDaemon(true).build());
+        }
+        return true;
+    }
+
+    /** Takes keys of WatchService and passes events to the watchers of mount points. */
+    private static class Poller implements Runnable {
+        final WatchService watchService;
+
+        Poller(WatchService watchService) {
+            this.watchService = watchService;
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                final WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                final java.nio.file.Path dir = (java.nio.file.Path)key.watchable();
+                final Watcher watcher = findWatcher(key, dir);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (watcher == null) {
+                        continue;
+                    }
+                    if (event.kind() == OVERFLOW) {
+                        watcher.overflow();
+                    } else {
+                        watcher.changed(dir.resolve((java.nio.file.Path)event.context()), event.kind());
+                    }
+                }
+                if (!key.reset()) {
+                    // Directory is removed or isn't accessible anymore. Watcher finds it out when applies changes.
+                    keys.remove(key);
+                }
+            }
+        }
+    }
+
+    // Used in tests. Waits until all tasks that are ready to run, e.g. registration of directories, are done.
+    static void awaitTasks() throws Exception {
+        final ScheduledExecutorService myExec;
+        synchronized (MountPointWatcher.class) {
+            myExec = exec;
+        }
+        myExec.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    private static Watcher findWatcher(WatchKey key, java.nio.file.Path dir) {
+        final Watcher watcher = keys.get(key);
+        if (watcher != null) {
+            return watcher;
+        }
+        // Key may be taken before it is added in map just after registration of directory.
+        for (Watcher candidate : watched.values()) {
+            if (dir.startsWith(candidate.root)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /** Watcher of single mount point. */
+    private static class Watcher implements Runnable {
+        final FSMountPoint                      mountPoint;
+        final WatchService                      watchService;
+        final java.nio.file.Path                root;
+        final String                            workspaceId;
+        final EventService                      eventService;
+        final SearcherProvider                  searcherProvider;
+        final ScheduledExecutorService          exec;
+        final EventSubscriber<VirtualFileEvent> ownChangesListener;
+        // Paths of items that are changed through virtual file system and their state after changes.
+        final Map<String, ItemState>            ownChanges;
+        // Changes through virtual file system which state isn't read yet. State is read in the thread of executor.
+        final Queue<OwnChange>                  pendingOwnChanges;
+        final AtomicBoolean                     rememberScheduled;
+        final Runnable                          rememberTask;
+        // Registered directories, accessed only from the thread of executor.
+        final Map<java.nio.file.Path, WatchKey> dirs;
+
+        // Guarded by this.
+        Map<java.nio.file.Path, WatchEvent.Kind<?>> changes;
+        boolean                                     overflow;
+        boolean                                     scheduled;
+        long                                        firstChange;
+        long                                        lastChange;
+
+        volatile boolean stopped;
+
+        Watcher(FSMountPoint mountPoint, WatchService watchService, ScheduledExecutorService exec) {
+            this.mountPoint = mountPoint;
+            this.watchService = watchService;
+            this.exec = exec;
+            root = mountPoint.getRoot().getIoFile().toPath().toAbsolutePath().normalize();
+            workspaceId = mountPoint.getWorkspaceId();
+            eventService = mountPoint.getEventService();
+            searcherProvider = mountPoint.getSearcherProvider();
+            ownChanges = new ConcurrentHashMap<>();
+            pendingOwnChanges = new ConcurrentLinkedQueue<>();
+            rememberScheduled = new AtomicBoolean();
+            dirs = new HashMap<>();
+            changes = new LinkedHashMap<>();
+            rememberTask = new Runnable() {
+                @Override
+                public void run() {
+                    rememberScheduled.set(false);
+                    rememberPendingOwnChanges();
+                }
+            };
+            // Listener is called in thread that changes virtual file system, it only records path and time of change.
+            ownChangesListener = new EventSubscriber<VirtualFileEvent>() {
+                @Override
+                public void onEvent(VirtualFileEvent event) {
+                    if (workspaceId.equals(event.getWorkspaceId()) && PUBLISHING.get() == null) {
+                        final long time = System.currentTimeMillis();
+                        final boolean newItem = event instanceof CreateEvent || event instanceof MoveEvent || event instanceof RenameEvent;
+                        // Children of copied or moved folder don't get own events.
+                        pendingOwnChanges.add(new OwnChange(event.getPath(), newItem && event.isFolder(), time));
+                        if (event instanceof MoveEvent) {
+                            pendingOwnChanges.add(new OwnChange(((MoveEvent)event).getOldPath(), false, time));
+                        } else if (event instanceof RenameEvent) {
+                            pendingOwnChanges.add(new OwnChange(((RenameEvent)event).getOldPath(), false, time));
+                        }
+                        if (rememberScheduled.compareAndSet(false, true)) {
+                            execute(rememberTask, 0);
+                        }
+                    }
+                }
+            };
+        }
+
+        void start() {
+            eventService.subscribe(ownChangesListener);
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!stopped) {
+                        registerTree(root);
+                        LOG.debug("Watch {} directories of VFS mounted at {}", dirs.size(), root);
+                    }
+                }
+            }, 0);
+        }
+
+        void stop() {
+            stopped = true;
+            eventService.unsubscribe(ownChangesListener);
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (WatchKey key : dirs.values()) {
+                        cancel(key);
+                    }
+                    dirs.clear();
+                }
+            }, 0);
+        }
+
+        synchronized void changed(final java.nio.file.Path path, WatchEvent.Kind<?> kind) {
+            if (kind == ENTRY_CREATE) {
+                // Register new directory at once, otherwise changes inside it are lost until changes are applied.
+                execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!stopped && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            registerNew(path);
+                        }
+                    }
+                }, 0);
+            }
+            if (overflow) {
+                return;
+            }
+            if (!changes.containsKey(path)) {
+                // The first kind of event tells whether item existed before this series of changes.
+                if (changes.size() >= MAX_PENDING) {
+                    overflow();
+                    return;
+                }
+                changes.put(path, kind);
+            }
+            touch();
+        }
+
+        private void execute(Runnable task, long delay) {
+            try {
+                exec.schedule(task, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // Watcher is stopped.
+            }
+        }
+
+        synchronized void overflow() {
+            overflow = true;
+            changes.clear();
+            touch();
+        }
+
+        private void touch() {
+            lastChange = System.currentTimeMillis();
+            if (!scheduled) {
+                scheduled = true;
+                firstChange = lastChange;
+                execute(this, QUIET_PERIOD);
+            }
+        }
+
+        /** Applies collected changes. NOTE: Not expected to call directly by regular users of this class. */
+        @Override
+        public void run() {
+            final Map<java.nio.file.Path, WatchEvent.Kind<?>> myChanges;
+            final boolean myOverflow;
+            synchronized (this) {
+                final long delay = Math.min(lastChange + QUIET_PERIOD, firstChange + MAX_DELAY) - System.currentTimeMillis();
+                if (delay > 0) {
+                    execute(this, delay);
+                    return;
+                }
+                myChanges = changes;
+                myOverflow = overflow;
+                changes = new LinkedHashMap<>();
+                overflow = false;
+                scheduled = false;
+            }
+            if (stopped) {
+                return;
+            }
+            // Own changes that are published before changes are applied must be recognized.
+            rememberPendingOwnChanges();
+            removeExpiredOwnChanges();
+            if (myOverflow) {
+                rescan();
+                return;
+            }
+            for (Map.Entry<java.nio.file.Path, WatchEvent.Kind<?>> e : myChanges.entrySet()) {
+                if (isCoveredByParent(e.getKey(), myChanges)) {
+                    continue;
+                }
+                try {
+                    apply(e.getKey(), e.getValue() == ENTRY_CREATE);
+                } catch (RuntimeException ex) {
+                    LOG.error(ex.getMessage(), ex);
+                }
+            }
+        }
+
+        private void apply(java.nio.file.Path path, boolean created) {
+            final java.nio.file.Path parent = path.getParent();
+            if (parent == null || !path.startsWith(root)) {
+                return;
+            }
+            final String name = path.getFileName().toString();
+            if (isServiceDir(parent)) {
+                // Subdirectories of .vfs are registered when they are created.
+                return;
+            }
+            if (isServiceDir(parent.getParent())) {
+                if (CACHE_DIR.equals(parent.getFileName().toString())) {
+                    if (RESET_FILE.equals(name)) {
+                        resetCache(path);
+                    }
+                } else {
+                    serviceFileChanged(parent, name);
+                }
+                return;
+            }
+            if (GIT_DIR.equals(name) || FSMountPoint.SERVICE_DIR.equals(name)) {
+                return;
+            }
+            final Path vfsPath = toVirtualPath(path);
+            if (isOwnChange(path, vfsPath)) {
+                if (created) {
+                    applyExternalChildren(path);
+                }
+                return;
+            }
+            final boolean exists = Files.exists(path, LinkOption.NOFOLLOW_LINKS);
+            final boolean folder = exists ? Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) : dirs.containsKey(path);
+            if (exists && created) {
+                mountPoint.invalidate(vfsPath);
+                publish(new CreateEvent(workspaceId, vfsPath.toString(), folder));
+                final VirtualFileImpl virtualFile = toVirtualFile(path, vfsPath);
+                try {
+                    final Searcher searcher = getSearcher();
+                    if (searcher != null) {
+                        searcher.add(virtualFile);
+                    }
+                } catch (ServerException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            } else if (exists && !folder) {
+                publish(new UpdateContentEvent(workspaceId, vfsPath.toString()));
+                final VirtualFileImpl virtualFile = toVirtualFile(path, vfsPath);
+                try {
+                    final Searcher searcher = getSearcher();
+                    if (searcher != null) {
+                        searcher.update(virtualFile);
+                    }
+                } catch (ServerException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            } else if (!exists && !created) {
+                if (folder) {
+                    unregisterTree(path);
+                }
+                mountPoint.invalidate(vfsPath);
+                publish(new DeleteEvent(workspaceId, vfsPath.toString(), folder));
+                try {
+                    final Searcher searcher = getSearcher();
+                    if (searcher != null) {
+                        searcher.delete(vfsPath.toString(), !folder);
+                    }
+                } catch (ServerException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+            // Otherwise item is created and removed in the same series of changes or folder is modified, nothing to do.
+        }
+
+        /**
+         * Folder that is created through virtual file system covers its children as any other new folder, but some of them may be
+         * created bypassing virtual file system just after the folder. Such children are applied as new items.
+         */
+        private void applyExternalChildren(final java.nio.file.Path dir) {
+            if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                return;
+            }
+            try {
+                Files.walkFileTree(dir, new SimpleFileVisitor<java.nio.file.Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(java.nio.file.Path child, BasicFileAttributes attrs) {
+                        if (child.equals(dir)) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        final String name = child.getFileName().toString();
+                        if (GIT_DIR.equals(name) || FSMountPoint.SERVICE_DIR.equals(name)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (isOwnChange(child, toVirtualPath(child))) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        // New folder covers its subtree.
+                        apply(child, true);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(java.nio.file.Path child, BasicFileAttributes attrs) {
+                        if (!isOwnChange(child, toVirtualPath(child))) {
+                            apply(child, true);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(java.nio.file.Path child, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Checks whether item is inside folder that is created or removed in the same series of changes. Creating or removing of
+         * the folder updates whole subtree, so there is no need to process each item separately.
+         */
+        private boolean isCoveredByParent(java.nio.file.Path path, Map<java.nio.file.Path, WatchEvent.Kind<?>> changes) {
+            for (java.nio.file.Path name : root.relativize(path)) {
+                if (FSMountPoint.SERVICE_DIR.equals(name.toString())) {
+                    // Service files are processed one by one even if their directory is new.
+                    return false;
+                }
+            }
+            for (java.nio.file.Path parent = path.getParent(); parent != null && parent.startsWith(root); parent = parent.getParent()) {
+                final WatchEvent.Kind<?> kind = changes.get(parent);
+                if (kind != null && (kind == ENTRY_CREATE || !Files.exists(parent, LinkOption.NOFOLLOW_LINKS))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Drops cached data of item if its ACL, lock or metadata file is changed. */
+        private void serviceFileChanged(java.nio.file.Path serviceDir, String fileName) {
+            final String type = serviceDir.getFileName().toString();
+            final String suffix = ACL_NAME.equals(type) ? FSMountPoint.ACL_FILE_SUFFIX
+                                  : LOCKS_NAME.equals(type) ? FSMountPoint.LOCK_FILE_SUFFIX
+                                  : PROPS_NAME.equals(type) ? FSMountPoint.PROPERTIES_FILE_SUFFIX : null;
+            if (suffix == null || !fileName.endsWith(suffix)) {
+                return;
+            }
+            final String itemName = fileName.substring(0, fileName.length() - suffix.length());
+            final java.nio.file.Path dir = serviceDir.getParent().getParent();
+            final Path vfsPath;
+            if (itemName.isEmpty()) {
+                // Service files of root are kept in root with empty name.
+                if (!dir.equals(root)) {
+                    return;
+                }
+                vfsPath = Path.ROOT;
+            } else {
+                vfsPath = toVirtualPath(dir).newPath(itemName);
+            }
+            if (suffix.equals(FSMountPoint.ACL_FILE_SUFFIX)) {
+                mountPoint.invalidateAcl(vfsPath);
+            } else if (suffix.equals(FSMountPoint.LOCK_FILE_SUFFIX)) {
+                mountPoint.invalidateLock(vfsPath);
+            } else {
+                mountPoint.invalidateMetadata(vfsPath);
+            }
+        }
+
+        private void resetCache(java.nio.file.Path resetFile) {
+            if (Files.exists(resetFile)) {
+                mountPoint.reset();
+                LOG.info("Reset cache for VFS mounted at {}", root);
+                try {
+                    Files.delete(resetFile);
+                } catch (IOException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        /** Events are lost, re-registers directories, resets caches and updates the whole search index. */
+        private void rescan() {
+            LOG.warn("Events of VFS mounted at {} are lost, rescan it", root);
+            final List<java.nio.file.Path> removed = new ArrayList<>();
+            for (Iterator<Map.Entry<java.nio.file.Path, WatchKey>> i = dirs.entrySet().iterator(); i.hasNext(); ) {
+                final Map.Entry<java.nio.file.Path, WatchKey> e = i.next();
+                if (!Files.isDirectory(e.getKey(), LinkOption.NOFOLLOW_LINKS)) {
+                    cancel(e.getValue());
+                    i.remove();
+                    if (!isServiceDir(e.getKey()) && !isServiceDir(e.getKey().getParent())) {
+                        removed.add(e.getKey());
+                    }
+                }
+            }
+            registerTree(root);
+            resetCache(root.resolve(FSMountPoint.SERVICE_DIR).resolve(CACHE_DIR).resolve(RESET_FILE));
+            mountPoint.reset();
+            try {
+                final Searcher searcher = getSearcher();
+                if (searcher != null) {
+                    for (java.nio.file.Path dir : removed) {
+                        searcher.delete(toVirtualPath(dir).toString(), false);
+                    }
+                    searcher.add(mountPoint.getRoot());
+                }
+            } catch (ServerException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+
+        private void registerNew(java.nio.file.Path dir) {
+            final java.nio.file.Path parent = dir.getParent();
+            final String name = dir.getFileName().toString();
+            if (isServiceDir(parent)) {
+                if (isWatchedServiceDir(parent, name)) {
+                    register(dir);
+                }
+            } else if (!(isServiceDir(parent.getParent()) || GIT_DIR.equals(name))) {
+                registerTree(dir);
+            }
+        }
+
+        private void registerTree(java.nio.file.Path start) {
+            try {
+                Files.walkFileTree(start, new SimpleFileVisitor<java.nio.file.Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) {
+                        final java.nio.file.Path fileName = dir.getFileName();
+                        final String name = fileName == null ? "" : fileName.toString();
+                        if (GIT_DIR.equals(name)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (!register(dir)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (FSMountPoint.SERVICE_DIR.equals(name)) {
+                            // Only directories of service files that are cached are interesting.
+                            for (String serviceDir : SERVICE_DIRS) {
+                                registerIfExists(dir.resolve(serviceDir));
+                            }
+                            if (dir.getParent().equals(root)) {
+                                registerIfExists(dir.resolve(CACHE_DIR));
+                            }
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+
+        private void registerIfExists(java.nio.file.Path dir) {
+            if (Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                register(dir);
+            }
+        }
+
+        private boolean register(java.nio.file.Path dir) {
+            try {
+                final WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                dirs.put(dir, key);
+                keys.put(key, this);
+                return true;
+            } catch (IOException | ClosedWatchServiceException e) {
+                // Typically limit of watched directories is reached, changes in this directory are not noticed.
+                LOG.warn("Unable to watch directory {}: {}", dir, e.getMessage());
+                return false;
+            }
+        }
+
+        private void unregisterTree(java.nio.file.Path dir) {
+            for (Iterator<Map.Entry<java.nio.file.Path, WatchKey>> i = dirs.entrySet().iterator(); i.hasNext(); ) {
+                final Map.Entry<java.nio.file.Path, WatchKey> e = i.next();
+                if (e.getKey().startsWith(dir)) {
+                    cancel(e.getValue());
+                    i.remove();
+                }
+            }
+        }
+
+        private void cancel(WatchKey key) {
+            key.cancel();
+            keys.remove(key);
+        }
+
+        private boolean isServiceDir(java.nio.file.Path dir) {
+            if (dir == null) {
+                return false;
+            }
+            final java.nio.file.Path fileName = dir.getFileName();
+            return fileName != null && FSMountPoint.SERVICE_DIR.equals(fileName.toString());
+        }
+
+        private boolean isWatchedServiceDir(java.nio.file.Path serviceDir, String name) {
+            if (CACHE_DIR.equals(name)) {
+                return serviceDir.getParent().equals(root);
+            }
+            for (String serviceDirName : SERVICE_DIRS) {
+                if (serviceDirName.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Checks whether item is changed through virtual file system and isn't changed bypassing it after that. */
+        private boolean isOwnChange(java.nio.file.Path path, Path vfsPath) {
+            final ItemState own = ownChanges.get(vfsPath.toString());
+            return own != null && own.isSameAs(ItemState.of(path, 0));
+        }
+
+        private void rememberPendingOwnChanges() {
+            OwnChange change;
+            while ((change = pendingOwnChanges.poll()) != null) {
+                if (change.tree) {
+                    rememberOwnTree(change.path, change.time);
+                } else {
+                    rememberOwnChange(change.path, change.time);
+                }
+            }
+        }
+
+        private void rememberOwnChange(String vfsPath, long time) {
+            rememberState(vfsPath, ItemState.of(toIoPath(vfsPath), time));
+        }
+
+        /**
+         * State is read some time after the change. File that is modified after the change through virtual file system is changed by
+         * someone else as well, so it isn't remembered and its external change is published.
+         */
+        private void rememberState(String vfsPath, ItemState state) {
+            if (state.exists && !state.folder && state.lastModified > state.time) {
+                ownChanges.remove(vfsPath);
+            } else {
+                ownChanges.put(vfsPath, state);
+            }
+        }
+
+        private void rememberOwnTree(final String vfsPath, final long time) {
+            final java.nio.file.Path start = toIoPath(vfsPath);
+            try {
+                Files.walkFileTree(start, new SimpleFileVisitor<java.nio.file.Path>() {
+                    int count;
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) {
+                        final java.nio.file.Path fileName = dir.getFileName();
+                        final String name = fileName == null ? "" : fileName.toString();
+                        if (GIT_DIR.equals(name) || FSMountPoint.SERVICE_DIR.equals(name)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        return remember(dir, attrs);
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) {
+                        return remember(file, attrs);
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    FileVisitResult remember(java.nio.file.Path path, BasicFileAttributes attrs) {
+                        rememberState(toVirtualPath(path).toString(), new ItemState(time, attrs));
+                        // Children of very big tree are published as external changes.
+                        return ++count < MAX_PENDING ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                    }
+                });
+            } catch (IOException e) {
+                rememberOwnChange(vfsPath, time);
+            }
+        }
+
+        private void removeExpiredOwnChanges() {
+            final long expired = System.currentTimeMillis() - OWN_CHANGE_TIMEOUT;
+            for (Iterator<ItemState> i = ownChanges.values().iterator(); i.hasNext(); ) {
+                if (i.next().time < expired) {
+                    i.remove();
+                }
+            }
+        }
+
+        private void publish(VirtualFileEvent event) {
+            PUBLISHING.set(Boolean.TRUE);
+            try {
+                eventService.publish(event);
+            } finally {
+                PUBLISHING.remove();
+            }
+        }
+
+        private Searcher getSearcher() throws ServerException {
+            return searcherProvider == null ? null : searcherProvider.getSearcher(mountPoint, true);
+        }
+
+        private Path toVirtualPath(java.nio.file.Path ioPath) {
+            final java.nio.file.Path relative = root.relativize(ioPath);
+            final int count = relative.getNameCount();
+            if (count == 0 || (count == 1 && relative.getFileName().toString().isEmpty())) {
+                return Path.ROOT;
+            }
+            final String[] elements = new String[count];
+            for (int i = 0; i < count; i++) {
+                elements[i] = relative.getName(i).toString();
+            }
+            return Path.ROOT.newPath(elements);
+        }
+
+        private java.nio.file.Path toIoPath(String vfsPath) {
+            // Path of virtual file system always starts with '/'.
+            return root.resolve(vfsPath.substring(1));
+        }
+
+        private VirtualFileImpl toVirtualFile(java.nio.file.Path ioPath, Path vfsPath) {
+            return new VirtualFileImpl(ioPath.toFile(), vfsPath, mountPoint);
+        }
+    }
+
+    /** Change through virtual file system which state isn't read yet. */
+    private static class OwnChange {
+        final String  path;
+        /** If {@code true} state of all items in the tree is remembered. */
+        final boolean tree;
+        final long    time;
+
+        OwnChange(String path, boolean tree, long time) {
+            this.path = path;
+            this.tree = tree;
+            this.time = time;
+        }
+    }
+
+    /** State of item in file system. Change of item is recognized by change of its state. */
+    private static class ItemState {
+        /** Time of change after which state is read. */
+        final long    time;
+        final boolean exists;
+        final boolean folder;
+        final long    size;
+        final long    lastModified;
+
+        static ItemState of(java.nio.file.Path path, long time) {
+            try {
+                return new ItemState(time, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+            } catch (IOException e) {
+                return new ItemState(time, null);
+            }
+        }
+
+        ItemState(long time, BasicFileAttributes attrs) {
+            this.time = time;
+            exists = attrs != null;
+            folder = exists && attrs.isDirectory();
+            size = exists ? attrs.size() : 0;
+            lastModified = exists ? attrs.lastModifiedTime().toMillis() : 0;
+        }
+
+        /** Time of last modification and size of folder are changed with its children, so only existence and type are compared. */
+        boolean isSameAs(ItemState other) {
+            if (exists != other.exists || folder != other.folder) {
+                return false;
+            }
+            return folder || !exists || (size == other.size && lastModified == other.lastModified);
+        }
+    }
+
+    /** Helper component that stops watching when Guice container destroyed. */
+    public static class Finalizer {
+        @PreDestroy
+        void stop() {
+            MountPointWatcher.stop();
+        }
+    }
+
+    private MountPointWatcher() {
+    }
+}
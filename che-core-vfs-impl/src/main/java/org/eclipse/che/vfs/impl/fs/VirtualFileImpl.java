@@ -20,6 +20,7 @@ import org.eclipse.che.api.vfs.server.LazyIterator;
 import org.eclipse.che.api.vfs.server.Path;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
 import org.eclipse.che.api.vfs.server.VirtualFileVisitor;
 import org.eclipse.che.api.vfs.shared.PropertyFilter;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
@@ -29,6 +30,7 @@ import org.eclipse.che.api.vfs.shared.dto.Property;
 import org.eclipse.che.commons.lang.Pair;
 
 import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -40,21 +42,36 @@ import java.util.Set;
  * @author andrew00x
  */
 public class VirtualFileImpl implements VirtualFile {
-    private final java.io.File ioFile;
-    private final String       id;
-    private final Path         path;
-    private final FSMountPoint mountPoint;
+    private final java.io.File        ioFile;
+    private final Path                path;
+    private final FSMountPoint        mountPoint;
+    /**
+     * Attributes that are read together with item, e.g. when walk through the tree, or {@code null}. Type of item is taken from them
+     * instead of file system, so filters and visitors don't read attributes of the same item again.
+     */
+    private final BasicFileAttributes attributes;
 
-    VirtualFileImpl(java.io.File ioFile, Path path, String id, FSMountPoint mountPoint) {
+    // Most of items, e.g. items that are visited when walk through the tree, never need id, so it is computed at first use.
+    private volatile String id;
+
+    VirtualFileImpl(java.io.File ioFile, Path path, FSMountPoint mountPoint) {
+        this(ioFile, path, mountPoint, null);
+    }
+
+    VirtualFileImpl(java.io.File ioFile, Path path, FSMountPoint mountPoint, BasicFileAttributes attributes) {
         this.ioFile = ioFile;
         this.path = path;
-        this.id = id;
         this.mountPoint = mountPoint;
+        this.attributes = attributes;
     }
 
     @Override
     public String getId() {
-        return id;
+        String myId = id;
+        if (myId == null) {
+            id = myId = mountPoint.pathToId(path);
+        }
+        return myId;
     }
 
     @Override
@@ -84,12 +101,12 @@ public class VirtualFileImpl implements VirtualFile {
 
     @Override
     public boolean isFile() {
-        return getIoFile().isFile();
+        return attributes == null ? getIoFile().isFile() : attributes.isRegularFile();
     }
 
     @Override
     public boolean isFolder() {
-        return getIoFile().isDirectory();
+        return attributes == null ? getIoFile().isDirectory() : attributes.isDirectory();
     }
 
     @Override
@@ -297,6 +314,11 @@ public class VirtualFileImpl implements VirtualFile {
         visitor.visit(this);
     }
 
+    @Override
+    public void walk(VirtualFileFilter filter, int depth, VirtualFileTreeVisitor visitor) throws ServerException {
+        mountPoint.walk(this, filter, depth, visitor);
+    }
+
     @Override
     public LazyIterator<Pair<String, String>> countMd5Sums() throws ServerException {
         return mountPoint.countMd5Sums(this);
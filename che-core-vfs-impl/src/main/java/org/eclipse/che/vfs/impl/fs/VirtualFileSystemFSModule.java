@@ -32,5 +32,6 @@ public class VirtualFileSystemFSModule extends AbstractModule {
         //bind(LocalFSMountStrategy.class).to(WorkspaceHashLocalFSMountStrategy.class);
         bind(SearcherProvider.class).to(CleanableSearcherProvider.class);
         bind(MountPointCacheCleaner.Finalizer.class).asEagerSingleton();
+        bind(MountPointWatcher.Finalizer.class).asEagerSingleton();
     }
 }
@@ -264,6 +264,66 @@ public class ACLTest extends LocalFileSystemTest {
         assertTrue(updatedAcl.isEmpty()); // TODO
     }
 
+    public void testUpdateParentACLAppliedToChildren() throws Exception {
+        String folderPath = createDirectory(testRootPath, "ACLTest_Folder");
+        String childPath = createFile(folderPath, "ACLTest_Child", DEFAULT_CONTENT_BYTES);
+        String childRequestPath = SERVICE_URI + "item/" + pathToId(childPath);
+
+        // Default ACL of root allows to read for any user. Permissions of john are cached after this request.
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        ContainerResponse response = launcher.service("GET", childRequestPath, BASE_URI, null, null, null);
+        assertEquals(200, response.getStatus());
+
+        // Take away all rights on parent folder for everyone except admin.
+        EnvironmentContext.getCurrent().setUser(new UserImpl("admin", "admin", null, Arrays.asList("workspace/admin", "workspace/developer"),
+                                                             false));
+        String acl = "[{\"principal\":{\"name\":\"admin\",\"type\":\"USER\"},\"permissions\":[\"all\"]}]";
+        Map<String, List<String>> h = new HashMap<>(1);
+        h.put("Content-Type", Arrays.asList("application/json"));
+        response = launcher.service("POST", SERVICE_URI + "acl/" + pathToId(folderPath) + "?override=true", BASE_URI, h,
+                                    acl.getBytes(), null);
+        assertEquals(204, response.getStatus());
+
+        // Child inherits ACL of parent, john must not be able to read it any more.
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        response = launcher.service("GET", childRequestPath, BASE_URI, null, null, null);
+        assertEquals(403, response.getStatus());
+    }
+
+    public void testUpdateACLOfOtherFolderDoesNotHideChangesOfParent() throws Exception {
+        String folderPath = createDirectory(testRootPath, "ACLTest_Folder");
+        String otherFolderPath = createDirectory(testRootPath, "ACLTest_OtherFolder");
+        String childPath = createFile(folderPath, "ACLTest_Child", DEFAULT_CONTENT_BYTES);
+        String childRequestPath = SERVICE_URI + "item/" + pathToId(childPath);
+        String acl = "[{\"principal\":{\"name\":\"admin\",\"type\":\"USER\"},\"permissions\":[\"all\"]}]";
+        Map<String, List<String>> h = new HashMap<>(1);
+        h.put("Content-Type", Arrays.asList("application/json"));
+
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        ContainerResponse response = launcher.service("GET", childRequestPath, BASE_URI, null, null, null);
+        assertEquals(200, response.getStatus());
+
+        // Change of ACL of other folder does not affect permissions of child.
+        EnvironmentContext.getCurrent().setUser(new UserImpl("admin", "admin", null, Arrays.asList("workspace/admin", "workspace/developer"),
+                                                             false));
+        response = launcher.service("POST", SERVICE_URI + "acl/" + pathToId(otherFolderPath) + "?override=true", BASE_URI, h,
+                                    acl.getBytes(), null);
+        assertEquals(204, response.getStatus());
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        response = launcher.service("GET", childRequestPath, BASE_URI, null, null, null);
+        assertEquals(200, response.getStatus());
+
+        // Change of ACL of parent is applied to child after child is checked against previous changes.
+        EnvironmentContext.getCurrent().setUser(new UserImpl("admin", "admin", null, Arrays.asList("workspace/admin", "workspace/developer"),
+                                                             false));
+        response = launcher.service("POST", SERVICE_URI + "acl/" + pathToId(folderPath) + "?override=true", BASE_URI, h,
+                                    acl.getBytes(), null);
+        assertEquals(204, response.getStatus());
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        response = launcher.service("GET", childRequestPath, BASE_URI, null, null, null);
+        assertEquals(403, response.getStatus());
+    }
+
     private Map<Principal, Set<String>> toMap(List<AccessControlEntry> acl) {
         Map<Principal, Set<String>> map = new HashMap<>(acl.size());
         for (AccessControlEntry ace : acl) {
@@ -10,14 +10,19 @@
  *******************************************************************************/
 package org.eclipse.che.vfs.impl.fs;
 
+import org.eclipse.che.api.vfs.server.ContentStream;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
 import org.eclipse.che.dto.server.DtoFactory;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 
 import org.everrest.core.impl.ContainerResponse;
 import org.everrest.core.tools.ByteArrayContainerResponseWriter;
 
 import javax.ws.rs.core.HttpHeaders;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -133,6 +138,23 @@ public class ContentTest extends LocalFileSystemTest {
         validateProperties(filePath, expectedProperties);
     }
 
+    public void testReadLargeContentWhileUpdate() throws Exception {
+        byte[] largeContent = new byte[300 * 1024];
+        Arrays.fill(largeContent, (byte)'a');
+        writeFile(filePath, largeContent);
+        VirtualFileImpl file = mountPoint.getVirtualFile(filePath);
+        ContentStream contentStream = file.getContent();
+        assertEquals(largeContent.length, contentStream.getLength());
+        // Content is updated while reader doesn't read it yet. Reader must get content that was actual when reading started.
+        file.updateContent(new ByteArrayInputStream(updateContent), null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = contentStream.getStream()) {
+            ByteStreams.copy(in, out);
+        }
+        assertTrue(Arrays.equals(largeContent, out.toByteArray()));
+        assertTrue(Arrays.equals(updateContent, readFile(filePath)));
+    }
+
     public void testUpdateContentFolder() throws Exception {
         ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
         String requestPath = SERVICE_URI + "content/" + folderId;
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.shared.dto.Principal;
+import org.eclipse.che.dto.server.DtoFactory;
+import com.google.common.collect.Sets;
+
+import org.everrest.core.impl.ContainerResponse;
+import org.everrest.core.tools.ByteArrayContainerResponseWriter;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
+
+/** @author andrew00x */
+public class ExportTest extends LocalFileSystemTest {
+    private String folderId;
+    private byte[] bigContent;
+
+    private Set<String> expectedZipItems = new HashSet<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        String folderPath = createDirectory(testRootPath, "ExportTest_Folder");
+        String folder1 = createDirectory(folderPath, "folder1");
+        String folder2 = createDirectory(folder1, "folder2");
+        createFile(folder1, "file1.txt", DEFAULT_CONTENT_BYTES);
+        createFile(folder2, "file2.txt", DEFAULT_CONTENT_BYTES);
+        createFile(folderPath, "image.png", DEFAULT_CONTENT_BYTES);
+        // Bigger than internal buffers of zip stream.
+        bigContent = new byte[100 * 1024];
+        for (int i = 0; i < bigContent.length; i++) {
+            bigContent[i] = (byte)(i % 61);
+        }
+        createFile(folderPath, "big.txt", bigContent);
+        String protectedFile = createFile(folderPath, "protected.txt", DEFAULT_CONTENT_BYTES);
+
+        Map<Principal, Set<String>> permissions = new HashMap<>(1);
+        Principal principal = DtoFactory.getInstance().createDto(Principal.class).withName("andrew").withType(Principal.Type.USER);
+        permissions.put(principal, Sets.newHashSet(BasicPermissions.ALL.value()));
+        writePermissions(protectedFile, permissions);
+
+        expectedZipItems.add("folder1/");
+        expectedZipItems.add("folder1/folder2/");
+        expectedZipItems.add("folder1/file1.txt");
+        expectedZipItems.add("folder1/folder2/file2.txt");
+        expectedZipItems.add("image.png");
+        expectedZipItems.add("big.txt");
+
+        folderId = pathToId(folderPath);
+    }
+
+    public void testExportFolder() throws Exception {
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        String requestPath = SERVICE_URI + "export/" + folderId;
+        ContainerResponse response = launcher.service("GET", requestPath, BASE_URI, null, null, writer, null);
+        assertEquals("Error: " + response.getEntity(), 200, response.getStatus());
+        assertEquals("application/zip", writer.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        // Zip is streamed and its length is not known.
+        assertNull(writer.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(writer.getBody()));
+        ZipEntry zipEntry;
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            String name = zipEntry.getName();
+            assertTrue("Not found " + name + " entry in zip. ", expectedZipItems.remove(name));
+            if (!zipEntry.isDirectory()) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buf = new byte[1024];
+                int r;
+                while ((r = zip.read(buf)) != -1) {
+                    content.write(buf, 0, r);
+                }
+                if ("big.txt".equals(name)) {
+                    assertTrue(Arrays.equals(bigContent, content.toByteArray()));
+                } else {
+                    assertTrue(Arrays.equals(DEFAULT_CONTENT_BYTES, content.toByteArray()));
+                }
+                if ("image.png".equals(name)) {
+                    // Compressed media types are not compressed again.
+                    assertEquals(ZipEntry.STORED, zipEntry.getMethod());
+                } else {
+                    assertEquals(ZipEntry.DEFLATED, zipEntry.getMethod());
+                }
+            }
+            zip.closeEntry();
+        }
+        zip.close();
+        assertTrue("Missed zip entries: " + expectedZipItems, expectedZipItems.isEmpty());
+    }
+
+    public void testUpdateFileWhileZipIsRead() throws Exception {
+        String folderPath = createDirectory(testRootPath, "ExportTest_UpdatedFolder");
+        String filePath = createFile(folderPath, "big.png", bigContent);
+        InputStream zipStream = mountPoint.getVirtualFile(folderPath).zip(VirtualFileFilter.ALL).getStream();
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int r = zipStream.read(buf);
+        zipped.write(buf, 0, r);
+        // Content of stored entry is already checked, update of file must not break the entry.
+        mountPoint.getVirtualFile(filePath).updateContent(new ByteArrayInputStream(DEFAULT_CONTENT_BYTES), null);
+        while ((r = zipStream.read(buf)) != -1) {
+            zipped.write(buf, 0, r);
+        }
+        zipStream.close();
+
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray()));
+        ZipEntry zipEntry = zip.getNextEntry();
+        assertEquals("big.png", zipEntry.getName());
+        assertEquals(ZipEntry.STORED, zipEntry.getMethod());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        while ((r = zip.read(buf)) != -1) {
+            content.write(buf, 0, r);
+        }
+        assertTrue(Arrays.equals(bigContent, content.toByteArray()));
+        assertNull(zip.getNextEntry());
+        zip.close();
+    }
+
+    public void testUpdateBigCompressedFileWhileZipIsRead() throws Exception {
+        String folderPath = createDirectory(testRootPath, "ExportTest_UpdatedBigFolder");
+        // Bigger than content of stored entry that is kept in memory.
+        byte[] hugeContent = new byte[300 * 1024];
+        for (int i = 0; i < hugeContent.length; i++) {
+            hugeContent[i] = (byte)(i % 67);
+        }
+        String filePath = createFile(folderPath, "huge.png", hugeContent);
+        InputStream zipStream = mountPoint.getVirtualFile(folderPath).zip(VirtualFileFilter.ALL).getStream();
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int r = zipStream.read(buf);
+        zipped.write(buf, 0, r);
+        // Size and CRC of entry are written after content, content is read once from file that was open before update.
+        mountPoint.getVirtualFile(filePath).updateContent(new ByteArrayInputStream(DEFAULT_CONTENT_BYTES), null);
+        while ((r = zipStream.read(buf)) != -1) {
+            zipped.write(buf, 0, r);
+        }
+        zipStream.close();
+
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray()));
+        ZipEntry zipEntry = zip.getNextEntry();
+        assertEquals("huge.png", zipEntry.getName());
+        assertEquals(ZipEntry.DEFLATED, zipEntry.getMethod());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        while ((r = zip.read(buf)) != -1) {
+            content.write(buf, 0, r);
+        }
+        assertTrue(Arrays.equals(hugeContent, content.toByteArray()));
+        assertNull(zip.getNextEntry());
+        zip.close();
+    }
+}
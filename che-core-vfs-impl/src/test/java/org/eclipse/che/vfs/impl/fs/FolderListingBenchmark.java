@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.vfs.server.Path;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.shared.dto.Principal;
+import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo;
+import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.user.UserImpl;
+import org.eclipse.che.dto.server.DtoFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
+
+/**
+ * Measures cost of permission checks when list folder with {@code files} files. Benchmark {@code checkPermissions} gets each file
+ * by its path, that checks existence of file and permissions of user. Benchmark {@code checkPermissionsWithDto} checks existence of
+ * file in the same way and repeats the way permissions were resolved before caching of effective permissions: walk from item to the
+ * root and create new Principal DTOs for user, each group and any principal at each level that has ACL. ACLs are taken from the map
+ * to exclude reading of files.
+ * <p/>
+ * Not a unit test, run {@link #main(String[])} with test classpath.
+ *
+ * @author andrew00x
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FolderListingBenchmark {
+    @Param({"5000"})
+    public int files;
+
+    @Param({"false", "true"})
+    public boolean aclOnEachFile;
+
+    private java.io.File                  ioRoot;
+    private FSMountPoint                  mountPoint;
+    private VirtualFileImpl               folder;
+    private List<VirtualFileImpl>         children;
+    private Map<Path, AccessControlList>  acls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ioRoot = Files.createTempDirectory("vfs-benchmark").toFile();
+        final java.io.File ioFolder = new java.io.File(ioRoot, "folder");
+        final java.io.File aclDir = new java.io.File(ioFolder, FSMountPoint.ACL_DIR);
+        if (!aclDir.mkdirs()) {
+            throw new IllegalStateException("Unable create directory " + aclDir);
+        }
+        final Principal developer = DtoFactory.getInstance().createDto(Principal.class)
+                                              .withName("workspace/developer").withType(Principal.Type.GROUP);
+        final Map<Principal, Set<String>> permissions = new HashMap<>(1);
+        permissions.put(developer, Sets.newHashSet(BasicPermissions.ALL.value()));
+        final AccessControlList acl = new AccessControlList(permissions);
+        for (int i = 0; i < files; i++) {
+            final String name = "file" + i;
+            if (!new java.io.File(ioFolder, name).createNewFile()) {
+                throw new IllegalStateException("Unable create file " + name);
+            }
+            if (aclOnEachFile) {
+                try (DataOutputStream dos = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(new java.io.File(aclDir, name + FSMountPoint.ACL_FILE_SUFFIX))))) {
+                    acl.write(dos);
+                }
+            }
+        }
+
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        mountPoint = new FSMountPoint("my-ws", ioRoot, new EventService(), null);
+        folder = mountPoint.getVirtualFile("/folder");
+        children = new ArrayList<>(files);
+        acls = new HashMap<>();
+        acls.put(Path.ROOT, mountPoint.getACL(mountPoint.getRoot()));
+        acls.put(folder.getVirtualFilePath(), mountPoint.getACL(folder));
+        for (VirtualFile child : Lists.newArrayList(mountPoint.getChildren(folder, VirtualFileFilter.ALL))) {
+            children.add((VirtualFileImpl)child);
+            acls.put(child.getVirtualFilePath(), mountPoint.getACL((VirtualFileImpl)child));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        mountPoint.reset();
+        deleteRecursive(ioRoot);
+    }
+
+    @Benchmark
+    public void listFolder(Blackhole blackhole) throws Exception {
+        blackhole.consume(Lists.newArrayList(mountPoint.getChildren(folder, VirtualFileFilter.ALL)));
+    }
+
+    @Benchmark
+    public void checkPermissions(Blackhole blackhole) throws Exception {
+        for (VirtualFileImpl child : children) {
+            blackhole.consume(mountPoint.getVirtualFile(child.getPath()));
+        }
+    }
+
+    @Benchmark
+    public void checkPermissionsWithDto(Blackhole blackhole) {
+        final String userId = "john";
+        final Collection<String> groups = Arrays.asList("workspace/developer");
+        for (VirtualFileImpl child : children) {
+            blackhole.consume(child.exists());
+            blackhole.consume(hasPermissionWithDto(child.getVirtualFilePath(), userId, groups, BasicPermissions.READ.value()));
+        }
+    }
+
+    private boolean hasPermissionWithDto(Path path, String userId, Collection<String> groups, String p) {
+        while (path != null) {
+            final AccessControlList accessControlList = acls.get(path);
+            if (!accessControlList.isEmpty()) {
+                final Principal userPrincipal = DtoFactory.getInstance().createDto(Principal.class)
+                                                          .withName(userId).withType(Principal.Type.USER);
+                Set<String> userPermissions = accessControlList.getPermissions(userPrincipal);
+                if (userPermissions != null) {
+                    return userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value());
+                }
+                for (String group : groups) {
+                    final Principal groupPrincipal = DtoFactory.getInstance().createDto(Principal.class)
+                                                               .withName(group)
+                                                               .withType(Principal.Type.GROUP);
+                    userPermissions = accessControlList.getPermissions(groupPrincipal);
+                    if (userPermissions != null) {
+                        return userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value());
+                    }
+                }
+                final Principal anyPrincipal = DtoFactory.getInstance().createDto(Principal.class)
+                                                         .withName(VirtualFileSystemInfo.ANY_PRINCIPAL)
+                                                         .withType(Principal.Type.USER);
+                userPermissions = accessControlList.getPermissions(anyPrincipal);
+                return userPermissions != null && (userPermissions.contains(p) || userPermissions.contains(BasicPermissions.ALL.value()));
+            }
+            path = path.getParent();
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(FolderListingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.LazyIterator;
+import org.eclipse.che.commons.lang.Pair;
+import com.google.common.hash.Hashing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** @author andrew00x */
+public class HashSumsTest extends LocalFileSystemTest {
+    private final byte[] content1 = "__HashSumsTest_1__".getBytes();
+    private final byte[] content2 = "__HashSumsTest_2__".getBytes();
+
+    private String folderPath;
+    private String file1Path;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "HashSumsTest_Folder");
+        String childFolderPath = createDirectory(folderPath, "folder");
+        file1Path = createFile(folderPath, "file1.txt", content1);
+        createFile(childFolderPath, "file2.txt", content2);
+        // Hash sums of files modified just now are not saved.
+        getIoFile(file1Path).setLastModified(System.currentTimeMillis() - 60000);
+        getIoFile(childFolderPath + "/file2.txt").setLastModified(System.currentTimeMillis() - 60000);
+    }
+
+    public void testCountMd5Sums() throws Exception {
+        Map<String, String> expected = new HashMap<>(2);
+        expected.put("file1.txt", Hashing.md5().hashBytes(content1).toString());
+        expected.put("folder/file2.txt", Hashing.md5().hashBytes(content2).toString());
+        assertEquals(expected, countHashSums("MD5"));
+        // One index of hash sums for whole mount point, nothing is saved in counted folders.
+        assertTrue(getIoFile('/' + FSMountPoint.HASH_SUMS_DIR + "/md5").exists());
+        assertFalse(getIoFile(folderPath + '/' + FSMountPoint.SERVICE_DIR).exists());
+    }
+
+    public void testCountSha1Sums() throws Exception {
+        Map<String, String> expected = new HashMap<>(2);
+        expected.put("file1.txt", Hashing.sha1().hashBytes(content1).toString());
+        expected.put("folder/file2.txt", Hashing.sha1().hashBytes(content2).toString());
+        assertEquals(expected, countHashSums("SHA-1"));
+    }
+
+    public void testCountHashSumOfUpdatedFile() throws Exception {
+        countHashSums("MD5");
+        byte[] updateContent = "__HashSumsTest_Updated__".getBytes();
+        writeFile(file1Path, updateContent);
+        Map<String, String> hashSums = countHashSums("MD5");
+        assertEquals(Hashing.md5().hashBytes(updateContent).toString(), hashSums.get("file1.txt"));
+        assertEquals(Hashing.md5().hashBytes(content2).toString(), hashSums.get("folder/file2.txt"));
+    }
+
+    public void testCountHashSumsOfRemovedFile() throws Exception {
+        countHashSums("MD5");
+        assertTrue(getIoFile(file1Path).delete());
+        Map<String, String> hashSums = countHashSums("MD5");
+        assertEquals(1, hashSums.size());
+        assertEquals(Hashing.md5().hashBytes(content2).toString(), hashSums.get("folder/file2.txt"));
+    }
+
+    private Map<String, String> countHashSums(String algorithm) throws Exception {
+        LazyIterator<Pair<String, String>> iterator = mountPoint.countHashSums(mountPoint.getVirtualFile(folderPath), algorithm);
+        Map<String, String> hashSums = new HashMap<>();
+        while (iterator.hasNext()) {
+            Pair<String, String> hashSum = iterator.next();
+            hashSums.put(hashSum.second, hashSum.first);
+        }
+        return hashSums;
+    }
+}
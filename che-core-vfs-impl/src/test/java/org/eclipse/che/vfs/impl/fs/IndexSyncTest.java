@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.search.QueryExpression;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
+
+/** @author andrew00x */
+public class IndexSyncTest extends LocalFileSystemTest {
+    private static final long INIT_TIMEOUT = 10000;
+
+    private java.io.File indexDir;
+    private String       folderPath;
+    private String       file1Path;
+    private String       file2Path;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        indexDir = Files.createTempDirectory("vfs-index").toFile();
+        folderPath = createDirectory(testRootPath, "IndexSyncTest_Folder");
+        file1Path = createFile(folderPath, "file1.txt", "to be or not to be".getBytes());
+        file2Path = createFile(folderPath, "file2.txt", "to be or not to be".getBytes());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteRecursive(indexDir);
+        super.tearDown();
+    }
+
+    public void testReindexOnlyChangedFiles() throws Exception {
+        RecordingSearcher searcher = new RecordingSearcher();
+        searcher.init(mountPoint);
+        assertTrue(searcher.indexed.contains(file1Path));
+        assertTrue(searcher.indexed.contains(file2Path));
+        searcher.close();
+
+        // Changes made while searcher is closed.
+        writeFile(file1Path, "maybe you should think twice".getBytes());
+        assertTrue(getIoFile(file2Path).delete());
+        String file3Path = createFile(folderPath, "file3.txt", "to be or not to be".getBytes());
+
+        searcher = new RecordingSearcher();
+        searcher.init(mountPoint);
+        try {
+            assertEquals(new HashSet<>(Arrays.asList(file1Path, file3Path)), searcher.indexed);
+            String[] result = searcher.search(new QueryExpression().setPath(folderPath).setText("twice")).getFilePaths();
+            assertEquals(Arrays.asList(file1Path), Arrays.asList(result));
+            result = searcher.search(new QueryExpression().setPath(folderPath).setText("be")).getFilePaths();
+            assertEquals(Arrays.asList(file3Path), Arrays.asList(result));
+            assertEquals(0, searcher.search(new QueryExpression().setName("file2.txt")).getTotalHits());
+        } finally {
+            searcher.close();
+        }
+    }
+
+    public void testNothingReindexedIfNoChanges() throws Exception {
+        RecordingSearcher searcher = new RecordingSearcher();
+        searcher.init(mountPoint);
+        searcher.close();
+
+        searcher = new RecordingSearcher();
+        searcher.init(mountPoint);
+        try {
+            assertTrue(searcher.indexed.isEmpty());
+            assertEquals(2, searcher.search(new QueryExpression().setPath(folderPath)).getTotalHits());
+        } finally {
+            searcher.close();
+        }
+    }
+
+    public void testIndexDirectoryReusedByProvider() throws Exception {
+        CleanableSearcherProvider searcherProvider = new CleanableSearcherProvider(indexDir, new HashSet<VirtualFileFilter>());
+        CleanableSearcher searcher = getInitializedSearcher(searcherProvider);
+        java.io.File myIndexDir = searcher.getIndexDir();
+        searcher.close();
+        assertTrue(myIndexDir.exists());
+        searcher = getInitializedSearcher(searcherProvider);
+        searcher.close();
+        assertEquals(myIndexDir, searcher.getIndexDir());
+
+        searcherProvider.setPersistent(false);
+        searcher = getInitializedSearcher(searcherProvider);
+        searcher.close();
+        assertFalse(myIndexDir.equals(searcher.getIndexDir()));
+        assertFalse(searcher.getIndexDir().exists());
+    }
+
+    private CleanableSearcher getInitializedSearcher(CleanableSearcherProvider searcherProvider) throws Exception {
+        CleanableSearcher searcher = (CleanableSearcher)searcherProvider.getSearcher(mountPoint, true);
+        final long endTime = System.currentTimeMillis() + INIT_TIMEOUT;
+        Throwable error;
+        while ((error = searcher.initializationError()) == null && !searcher.initialized()) {
+            assertTrue("Searcher is not initialized in " + INIT_TIMEOUT + " ms", System.currentTimeMillis() < endTime);
+            Thread.sleep(100);
+        }
+        if (error != null) {
+            fail(error.getMessage());
+        }
+        return searcher;
+    }
+
+    private class RecordingSearcher extends FSIndexSearcher {
+        final Set<String> indexed = new HashSet<>();
+
+        RecordingSearcher() {
+            super(indexDir, VirtualFileFilter.ALL);
+        }
+
+        @Override
+        protected void addFile(VirtualFile virtualFile) throws ServerException {
+            if (virtualFile.getPath().startsWith(folderPath)) {
+                indexed.add(virtualFile.getPath());
+            }
+            super.addFile(virtualFile);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent.ChangeType;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
+
+/** @author andrew00x */
+public class MountPointWatcherTest extends LocalFileSystemTest {
+    private static final long TIMEOUT = 10000;
+
+    private List<VirtualFileEvent>            events;
+    private EventSubscriber<VirtualFileEvent> subscriber;
+    private String                            folderPath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "MountPointWatcherTest_Folder");
+        events = new CopyOnWriteArrayList<>();
+        subscriber = new EventSubscriber<VirtualFileEvent>() {
+            @Override
+            public void onEvent(VirtualFileEvent event) {
+                events.add(event);
+            }
+        };
+        mountPoint.getEventService().subscribe(subscriber);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MountPointWatcher.remove(mountPoint);
+        mountPoint.getEventService().unsubscribe(subscriber);
+        super.tearDown();
+    }
+
+    public void testExternalChangesArePublished() throws Exception {
+        startWatcher();
+        String filePath = folderPath + "/file.txt";
+        createFile(folderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        assertFalse(waitEvent(ChangeType.CREATED, filePath).isFolder());
+
+        writeFile(filePath, "updated".getBytes());
+        waitEvent(ChangeType.CONTENT_UPDATED, filePath);
+
+        assertTrue(getIoFile(filePath).delete());
+        assertFalse(waitEvent(ChangeType.DELETED, filePath).isFolder());
+    }
+
+    public void testNewFoldersAreWatched() throws Exception {
+        startWatcher();
+        String newFolderPath = createDirectory(folderPath, "new");
+        assertTrue(waitEvent(ChangeType.CREATED, newFolderPath).isFolder());
+
+        String filePath = createFile(newFolderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        waitEvent(ChangeType.CREATED, filePath);
+
+        assertTrue(deleteRecursive(getIoFile(newFolderPath)));
+        assertTrue(waitEvent(ChangeType.DELETED, newFolderPath).isFolder());
+        // Removing of folder covers its children.
+        assertNull(findEvent(ChangeType.DELETED, filePath));
+    }
+
+    public void testChangesOfVirtualFileSystemAreSkipped() throws Exception {
+        startWatcher();
+        VirtualFileImpl folder = mountPoint.getVirtualFile(folderPath);
+        VirtualFileImpl file = mountPoint.createFile(folder, "own.txt", "text/plain", new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+        String externalPath = createFile(folderPath, "external.txt", DEFAULT_CONTENT_BYTES);
+        waitEvent(ChangeType.CREATED, externalPath);
+        int created = 0;
+        for (VirtualFileEvent event : events) {
+            if (event.getType() == ChangeType.CREATED && file.getPath().equals(event.getPath())) {
+                created++;
+            }
+        }
+        assertEquals("Only event of virtual file system is expected", 1, created);
+    }
+
+    public void testExternalChangeAfterOwnChangeIsPublished() throws Exception {
+        String filePath = createFile(folderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        startWatcher();
+        VirtualFileImpl file = mountPoint.getVirtualFile(filePath);
+        mountPoint.updateContent(file, new ByteArrayInputStream("own".getBytes()), null);
+        // State of own change is read in background.
+        MountPointWatcher.awaitTasks();
+        writeFile(filePath, "external update".getBytes());
+        // The first event is published by virtual file system, the second one by watcher.
+        waitEvents(ChangeType.CONTENT_UPDATED, filePath, 2);
+    }
+
+    public void testExternalChildOfOwnFolderIsPublished() throws Exception {
+        startWatcher();
+        VirtualFileImpl folder = mountPoint.createFolder(mountPoint.getVirtualFile(folderPath), "own");
+        String externalPath = createFile(folder.getPath(), "external.txt", DEFAULT_CONTENT_BYTES);
+        waitEvent(ChangeType.CREATED, externalPath);
+        assertEquals("Only event of virtual file system is expected", 1, countEvents(ChangeType.CREATED, folder.getPath()));
+    }
+
+    public void testWatchingIsStartedAgainAfterStop() throws Exception {
+        startWatcher();
+        MountPointWatcher.stop();
+        startWatcher();
+        String filePath = createFile(folderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        waitEvent(ChangeType.CREATED, filePath);
+    }
+
+    public void testCachedMetadataIsDroppedWhenPropertiesFileIsChanged() throws Exception {
+        String filePath = createFile(folderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        VirtualFileImpl file = mountPoint.getVirtualFile(filePath);
+        mountPoint.setProperty(file, "MyProperty", "a");
+        startWatcher();
+        assertEquals("a", mountPoint.getPropertyValue(file, "MyProperty"));
+
+        writeProperties(filePath, Collections.singletonMap("MyProperty", new String[]{"b"}));
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!"b".equals(mountPoint.getPropertyValue(file, "MyProperty")) && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        assertEquals("b", mountPoint.getPropertyValue(file, "MyProperty"));
+    }
+
+    private void startWatcher() throws Exception {
+        assertTrue(MountPointWatcher.add(mountPoint));
+        // Wait until directories are registered.
+        MountPointWatcher.awaitTasks();
+    }
+
+    private VirtualFileEvent waitEvent(ChangeType type, String path) throws Exception {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        VirtualFileEvent event;
+        while ((event = findEvent(type, path)) == null && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        assertNotNull(String.format("Event '%s' for '%s' is not published", type, path), event);
+        return event;
+    }
+
+    private void waitEvents(ChangeType type, String path, int count) throws Exception {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (countEvents(type, path) < count && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        assertEquals(String.format("Events '%s' for '%s'", type, path), count, countEvents(type, path));
+    }
+
+    private int countEvents(ChangeType type, String path) {
+        int count = 0;
+        for (VirtualFileEvent event : events) {
+            if (event.getType() == type && path.equals(event.getPath())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private VirtualFileEvent findEvent(ChangeType type, String path) {
+        for (VirtualFileEvent event : events) {
+            if (event.getType() == type && path.equals(event.getPath())) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.vfs.server.Path;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.user.UserImpl;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
+
+/**
+ * Measures listing of folder with {@code files} files and walk through the tree of {@code depth} levels with {@code files} files at
+ * each level. Benchmarks {@code *Eager} repeat the way virtual files were created before paths were interned: path of each child is
+ * parsed with regular expression from string and id of each child is computed when virtual file is created. Listing of folder is done
+ * by the mount point in all benchmarks, so difference between {@code listFolder} and {@code listFolderEager} shows only cost of paths
+ * and ids.
+ * <p/>
+ * Not a unit test, run {@link #main(String[])} with test classpath.
+ *
+ * @author andrew00x
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TreeWalkBenchmark {
+    private static final Pattern PATH_SPLITTER = Pattern.compile("/");
+
+    @Param({"1000"})
+    public int files;
+
+    @Param({"5"})
+    public int depth;
+
+    private java.io.File    ioRoot;
+    private FSMountPoint    mountPoint;
+    private VirtualFileImpl folder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ioRoot = Files.createTempDirectory("vfs-benchmark").toFile();
+        java.io.File ioFolder = new java.io.File(ioRoot, "folder");
+        for (int level = 0; level < depth; level++) {
+            if (!ioFolder.mkdirs()) {
+                throw new IllegalStateException("Unable create directory " + ioFolder);
+            }
+            for (int i = 0; i < files; i++) {
+                final String name = "file" + i;
+                if (!new java.io.File(ioFolder, name).createNewFile()) {
+                    throw new IllegalStateException("Unable create file " + name);
+                }
+            }
+            ioFolder = new java.io.File(ioFolder, "level" + level);
+        }
+
+        EnvironmentContext.getCurrent().setUser(new UserImpl("john", "john", null, Arrays.asList("workspace/developer"), false));
+        mountPoint = new FSMountPoint("my-ws", ioRoot, new EventService(), null);
+        folder = mountPoint.getVirtualFile("/folder");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        mountPoint.reset();
+        deleteRecursive(ioRoot);
+    }
+
+    @Benchmark
+    public void listFolder(Blackhole blackhole) throws Exception {
+        blackhole.consume(Lists.newArrayList(mountPoint.getChildren(folder, VirtualFileFilter.ALL)));
+    }
+
+    @Benchmark
+    public void listFolderEager(Blackhole blackhole) throws Exception {
+        blackhole.consume(eager(Lists.newArrayList(mountPoint.getChildren(folder, VirtualFileFilter.ALL))));
+    }
+
+    @Benchmark
+    public void walkTree(Blackhole blackhole) throws Exception {
+        walk(folder, false, blackhole);
+    }
+
+    @Benchmark
+    public void walkTreeEager(Blackhole blackhole) throws Exception {
+        walk(folder, true, blackhole);
+    }
+
+    private void walk(VirtualFileImpl parent, boolean eager, Blackhole blackhole) throws Exception {
+        List<VirtualFile> children = Lists.newArrayList(mountPoint.getChildren(parent, VirtualFileFilter.ALL));
+        if (eager) {
+            children = eager(children);
+        }
+        for (VirtualFile child : children) {
+            blackhole.consume(child.getVirtualFilePath());
+            if (child.isFolder()) {
+                walk((VirtualFileImpl)child, eager, blackhole);
+            }
+        }
+    }
+
+    /** Creates the same virtual files in the way they were created before: path is parsed from string and id is set at creation. */
+    private List<VirtualFile> eager(List<VirtualFile> children) {
+        final List<VirtualFile> result = new ArrayList<>(children.size());
+        for (VirtualFile child : children) {
+            final String parentPath = child.getVirtualFilePath().getParent().toString();
+            final Path path = Path.ROOT.newPath(PATH_SPLITTER.split(parentPath.substring(1) + '/' + child.getName()));
+            final VirtualFileImpl virtualFile = new VirtualFileImpl(((VirtualFileImpl)child).getIoFile(), path, mountPoint);
+            virtualFile.getId();
+            result.add(virtualFile);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(TreeWalkBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
+import org.eclipse.che.api.vfs.shared.dto.Principal;
+import org.eclipse.che.dto.server.DtoFactory;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
+
+/** @author andrew00x */
+public class WalkTest extends LocalFileSystemTest {
+    private static final VirtualFileFilter FOLDER_FILTER = new VirtualFileFilter() {
+        @Override
+        public boolean accept(VirtualFile file) {
+            return file.isFolder();
+        }
+    };
+
+    private String folderPath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "WalkTest_Folder");
+        createFile(folderPath, "FILE01", DEFAULT_CONTENT_BYTES);
+        String folder01 = createDirectory(folderPath, "FOLDER01");
+        createFile(folder01, "FILE02", DEFAULT_CONTENT_BYTES);
+        String folder03 = createDirectory(folder01, "FOLDER03");
+        createFile(folder03, "FILE03", DEFAULT_CONTENT_BYTES);
+        createDirectory(folderPath, "FOLDER02");
+    }
+
+    public void testWalk() throws Exception {
+        List<String> visited = walk(VirtualFileFilter.ALL, 10);
+        assertEquals(Arrays.asList("+WalkTest_Folder",
+                                   "+FOLDER01", "+FOLDER03", "FILE03", "-FOLDER03", "FILE02", "-FOLDER01",
+                                   "+FOLDER02", "-FOLDER02",
+                                   "FILE01",
+                                   "-WalkTest_Folder"), visited);
+    }
+
+    public void testWalkDepth() throws Exception {
+        assertEquals(Arrays.asList("+WalkTest_Folder", "-WalkTest_Folder"), walk(VirtualFileFilter.ALL, 0));
+        assertEquals(Arrays.asList("+WalkTest_Folder",
+                                   "+FOLDER01", "-FOLDER01",
+                                   "+FOLDER02", "-FOLDER02",
+                                   "FILE01",
+                                   "-WalkTest_Folder"), walk(VirtualFileFilter.ALL, 1));
+    }
+
+    public void testWalkFilter() throws Exception {
+        assertEquals(Arrays.asList("+WalkTest_Folder",
+                                   "+FOLDER01", "+FOLDER03", "-FOLDER03", "-FOLDER01",
+                                   "+FOLDER02", "-FOLDER02",
+                                   "-WalkTest_Folder"), walk(FOLDER_FILTER, 10));
+    }
+
+    public void testFilterGetsTypeReadWhileWalk() throws Exception {
+        VirtualFileFilter filter = new VirtualFileFilter() {
+            @Override
+            public boolean accept(VirtualFile file) {
+                if ("FILE01".equals(file.getName())) {
+                    // Type of item is known from walk, file system isn't checked again.
+                    assertTrue(((VirtualFileImpl)file).getIoFile().delete());
+                }
+                return file.isFile();
+            }
+        };
+        assertEquals(Arrays.asList("+WalkTest_Folder",
+                                   "FILE01",
+                                   "-WalkTest_Folder"), walk(filter, 1));
+    }
+
+    public void testWalkNoPermissions() throws Exception {
+        Map<Principal, Set<String>> permissions = new HashMap<>(1);
+        Principal principal = DtoFactory.getInstance().createDto(Principal.class).withName("andrew").withType(Principal.Type.USER);
+        permissions.put(principal, Sets.newHashSet(BasicPermissions.ALL.value()));
+        writePermissions(folderPath + "/FOLDER01", permissions);
+        // Neither folder that isn't readable for current user nor its children are visited.
+        assertEquals(Arrays.asList("+WalkTest_Folder",
+                                   "+FOLDER02", "-FOLDER02",
+                                   "FILE01",
+                                   "-WalkTest_Folder"), walk(VirtualFileFilter.ALL, 10));
+    }
+
+    private List<String> walk(VirtualFileFilter filter, int depth) throws Exception {
+        final List<String> visited = new ArrayList<>();
+        mountPoint.getVirtualFile(folderPath).walk(filter, depth, new VirtualFileTreeVisitor() {
+            @Override
+            public boolean preVisitFolder(VirtualFile folder) {
+                visited.add("+" + folder.getName());
+                return true;
+            }
+
+            @Override
+            public void visitFile(VirtualFile file) {
+                visited.add(file.getName());
+            }
+
+            @Override
+            public void postVisitFolder(VirtualFile folder) {
+                visited.add("-" + folder.getName());
+            }
+        });
+        return visited;
+    }
+}
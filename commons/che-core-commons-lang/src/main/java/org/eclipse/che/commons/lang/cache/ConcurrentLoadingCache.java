@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.lang.cache;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sized thread-safe cache that loads value for key if it is not cached yet. Unlike {@link SynchronizedCache} this cache does not use
+ * any shared lock for reading and loading values:
+ * <ul>
+ * <li>Values are stored in {@link ConcurrentHashMap}.</li>
+ * <li>Value for each key is loaded at most once at the same time, all threads that need the same key wait for the one that loads it.
+ * Threads that need other keys are not blocked.</li>
+ * <li>When cache is full the entry to evict is selected with CLOCK algorithm, that is approximation of LRU. Newly loaded value is
+ * admitted to the cache only if it is used more frequently than entry selected for eviction (TinyLFU admission policy). Frequency of
+ * access is estimated with small count-min sketch, so one-time scans over many keys do not push out values that are used often.</li>
+ * </ul>
+ * Values that are set with method {@link #put(Object, Object)} are always admitted to the cache.
+ *
+ * @see LoadingValueSLRUCache
+ */
+public abstract class ConcurrentLoadingCache<K, V> implements Cache<K, V> {
+    private static final int   SKETCH_DEPTH  = 4;
+    private static final int   MAX_FREQUENCY = 15;
+    private static final int   SAMPLE_FACTOR = 10;
+    private static final int[] SKETCH_SEEDS  = {0x97cb3127, 0xb3bf1b25, 0x8d5ac4ab, 0xf0b4aa7d};
+
+    private final int                               maximumSize;
+    private final ConcurrentMap<K, Node<K, V>>      map;
+    private final ConcurrentLinkedQueue<Node<K, V>> clock;
+    private final AtomicInteger                     size;
+    // Number of entries removed from the cache since last purge of the clock.
+    private final AtomicInteger                     removed;
+    private final ReentrantLock                     evictionLock;
+    // Count-min sketch. Updates are not atomic, lost update changes estimated frequency a bit but it is not critical.
+    private final int[]                             sketch;
+    private final int                               sketchShift;
+    private final AtomicInteger                     sketchAdditions;
+    private final int                               sketchResetThreshold;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    /**
+     * @param maximumSize
+     *         max number of entries in this cache
+     */
+    public ConcurrentLoadingCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than zero. ");
+        }
+        this.maximumSize = maximumSize;
+        map = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        clock = new ConcurrentLinkedQueue<>();
+        size = new AtomicInteger();
+        removed = new AtomicInteger();
+        evictionLock = new ReentrantLock();
+        final int sketchWidth = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 4;
+        sketch = new int[sketchWidth];
+        sketchShift = Integer.numberOfLeadingZeros(sketchWidth) + 1;
+        sketchAdditions = new AtomicInteger();
+        sketchResetThreshold = maximumSize * SAMPLE_FACTOR;
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+    }
+
+    /**
+     * Load value in implementation specific way. Method is called without any lock held by this cache.
+     *
+     * @param key
+     *         key
+     * @return value, must not be {@code null}
+     * @throws RuntimeException
+     *         if failed to load value
+     */
+    protected abstract V loadValue(K key) throws RuntimeException;
+
+    /**
+     * Called when value is removed from this cache, e.g. evicted, replaced or removed with method {@link #remove(Object)}.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         evicted value
+     * @see SLRUCache#evict(Object, Object)
+     */
+    protected void evict(K key, V value) {
+        // nothing by default
+    }
+
+    @Override
+    public V get(K key) {
+        incrementFrequency(key);
+        Node<K, V> node = map.get(key);
+        if (node != null && node.isLoaded()) {
+            hits.incrementAndGet();
+            node.referenced = true;
+            return node.value;
+        }
+        misses.incrementAndGet();
+        if (node != null) {
+            // Other thread loads value at the moment.
+            return node.await();
+        }
+        final Node<K, V> newNode = new Node<>(key);
+        node = map.putIfAbsent(key, newNode);
+        if (node != null) {
+            return node.await();
+        }
+        final V value;
+        try {
+            value = loadValue(key);
+            if (value == null) {
+                throw new IllegalStateException(String.format("Null value loaded for key '%s'. ", key));
+            }
+        } catch (RuntimeException e) {
+            map.remove(key, newNode);
+            newNode.fail(e);
+            throw e;
+        }
+        newNode.set(value);
+        admit(newNode, true);
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value. ");
+        }
+        final Node<K, V> newNode = new Node<>(key);
+        newNode.set(value);
+        // Replace entry only if it is not changed by other thread, e.g. removed and loaded again, otherwise value set by this method may
+        // be lost.
+        Node<K, V> oldNode;
+        for (; ; ) {
+            oldNode = map.get(key);
+            if (oldNode == null) {
+                if (map.putIfAbsent(key, newNode) == null) {
+                    break;
+                }
+            } else if (map.replace(key, oldNode, newNode)) {
+                break;
+            }
+        }
+        V oldValue = null;
+        if (oldNode != null) {
+            // Keep recent access of replaced entry for eviction.
+            newNode.referenced = oldNode.referenced;
+            unlink(oldNode);
+            oldValue = oldNode.value;
+            if (oldValue != null) {
+                evict(key, oldValue);
+            }
+        }
+        admit(newNode, false);
+        return oldValue;
+    }
+
+    @Override
+    public V remove(K key) {
+        final Node<K, V> oldNode = map.remove(key);
+        if (oldNode == null) {
+            return null;
+        }
+        unlink(oldNode);
+        final V oldValue = oldNode.value;
+        if (oldValue != null) {
+            evict(key, oldValue);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        final Node<K, V> node = map.get(key);
+        return node != null && node.value != null;
+    }
+
+    @Override
+    public void clear() {
+        for (Node<K, V> node : map.values()) {
+            if (map.remove(node.key, node)) {
+                unlink(node);
+                if (node.value != null) {
+                    evict(node.key, node.value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public void printStats() {
+        System.out.println("-------------------------------------------");
+        System.out.printf("size:      %d\n", size.get());
+        System.out.printf("hits:      %d\n", hits.get());
+        System.out.printf("misses:    %d\n", misses.get());
+        System.out.printf("evictions: %d\n", evictions.get());
+        System.out.println("-------------------------------------------");
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        final Iterator<Node<K, V>> nodes = map.values().iterator();
+        return new Iterator<Entry<K, V>>() {
+            Entry<K, V> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && nodes.hasNext()) {
+                    final Node<K, V> node = nodes.next();
+                    final V value = node.value;
+                    if (value != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(node.key, value);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Entry<K, V> result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+   /* ===== Eviction ===== */
+
+    private void admit(Node<K, V> node, boolean checkFrequency) {
+        if (!node.linked.compareAndSet(false, true)) {
+            return;
+        }
+        size.incrementAndGet();
+        clock.add(node);
+        if (map.get(node.key) != node) {
+            // Removed while we were adding it.
+            unlink(node);
+            return;
+        }
+        if (size.get() > maximumSize) {
+            evictEntries(checkFrequency ? node : null);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.linked.compareAndSet(true, false)) {
+            size.decrementAndGet();
+            if (removed.incrementAndGet() > maximumSize) {
+                purge();
+            }
+        }
+    }
+
+    /** Removes from the clock entries that were removed from the cache but not polled by eviction yet. */
+    private void purge() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            removed.set(0);
+            for (Iterator<Node<K, V>> i = clock.iterator(); i.hasNext(); ) {
+                final Node<K, V> node = i.next();
+                if (map.get(node.key) != node) {
+                    i.remove();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evictEntries(Node<K, V> candidate) {
+        // Only one thread evicts entries, others do not wait for it.
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (size.get() > maximumSize) {
+                Node<K, V> victim = nextVictim();
+                if (victim == null) {
+                    return;
+                }
+                if (candidate != null && victim != candidate && map.get(candidate.key) == candidate
+                    && frequency(candidate.key) <= frequency(victim.key)) {
+                    // New entry is not used more often than the victim, keep the victim and drop new entry.
+                    clock.add(victim);
+                    victim = candidate;
+                }
+                candidate = null;
+                if (map.remove(victim.key, victim)) {
+                    unlink(victim);
+                    evictions.incrementAndGet();
+                    evict(victim.key, victim.value);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // UNDER EVICTION LOCK
+    private Node<K, V> nextVictim() {
+        // Give each entry that was accessed since last pass the second chance. Two passes are enough to find the victim.
+        int attempts = 2 * size.get() + 1;
+        Node<K, V> node;
+        while ((node = clock.poll()) != null) {
+            if (map.get(node.key) != node) {
+                // Already removed from the cache.
+                continue;
+            }
+            if (node.referenced && --attempts > 0) {
+                node.referenced = false;
+                clock.add(node);
+                continue;
+            }
+            return node;
+        }
+        return null;
+    }
+
+    private void incrementFrequency(K key) {
+        final int hash = spread(key.hashCode());
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            final int index = indexOf(hash, i);
+            if (sketch[index] < MAX_FREQUENCY) {
+                sketch[index]++;
+            }
+        }
+        if (sketchAdditions.incrementAndGet() >= sketchResetThreshold) {
+            // Aging. Halve all counters that frequency reflects recent history of access.
+            sketchAdditions.set(0);
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] >>>= 1;
+            }
+        }
+    }
+
+    private int frequency(K key) {
+        final int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            frequency = Math.min(frequency, sketch[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private int indexOf(int hash, int i) {
+        // Multiplicative hashing with different multiplier for each row, take high bits of result.
+        return (hash * SKETCH_SEEDS[i] + SKETCH_SEEDS[i]) >>> sketchShift;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+   /* ============================================= */
+
+    private static final class Node<K, V> {
+        final    K                key;
+        final    CountDownLatch   loaded;
+        final    AtomicBoolean    linked;
+        volatile V                value;
+        volatile RuntimeException failure;
+        volatile boolean          referenced;
+
+        Node(K key) {
+            this.key = key;
+            loaded = new CountDownLatch(1);
+            linked = new AtomicBoolean();
+        }
+
+        boolean isLoaded() {
+            return value != null;
+        }
+
+        void set(V value) {
+            this.value = value;
+            loaded.countDown();
+        }
+
+        void fail(RuntimeException failure) {
+            this.failure = failure;
+            loaded.countDown();
+        }
+
+        V await() {
+            final V v = value;
+            if (v != null) {
+                return v;
+            }
+            boolean interrupted = false;
+            for (; ; ) {
+                try {
+                    loaded.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/** Test of ConcurrentLoadingCache class */
+public class ConcurrentLoadingCacheTest {
+    @Test
+    public void shouldLoadValueIfNotCached() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        //when
+        String value = cache.get("k1");
+        //then
+        assertEquals(value, "v_k1");
+        assertEquals(cache.loads.get(), 1);
+        assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void shouldNotLoadValueTwice() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        cache.get("k1");
+        //when
+        String value = cache.get("k1");
+        //then
+        assertEquals(value, "v_k1");
+        assertEquals(cache.loads.get(), 1);
+        assertEquals(cache.getHits(), 1);
+    }
+
+    @Test
+    public void shouldReturnValueAfterPut() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        cache.get("k1");
+        //when
+        String old = cache.put("k1", "new");
+        //then
+        assertEquals(old, "v_k1");
+        assertEquals(cache.get("k1"), "new");
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void shouldLoadValueAgainAfterRemove() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        cache.get("k1");
+        //when
+        cache.remove("k1");
+        //then
+        assertFalse(cache.contains("k1"));
+        assertEquals(cache.size(), 0);
+        cache.get("k1");
+        assertEquals(cache.loads.get(), 2);
+    }
+
+    @Test
+    public void shouldNotKeepMoreEntriesThanMaximumSize() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        //when
+        for (int i = 0; i < 100; i++) {
+            cache.get("k" + i);
+        }
+        //then
+        assertEquals(cache.size(), 10);
+        assertEquals(cache.getEvictions(), 90);
+    }
+
+    @Test
+    public void shouldKeepFrequentlyUsedEntriesWhenScanOverManyKeys() throws Exception {
+        //given
+        CountingCache cache = new CountingCache(10);
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < 5; i++) {
+                cache.get("hot" + i);
+            }
+        }
+        //when
+        for (int i = 0; i < 100; i++) {
+            cache.get("cold" + i);
+        }
+        //then
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.contains("hot" + i));
+        }
+    }
+
+    @Test
+    public void shouldLoadValueOnceForConcurrentRequests() throws Exception {
+        //given
+        final CountDownLatch loading = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<String, String>(10) {
+            @Override
+            protected String loadValue(String key) {
+                loads.incrementAndGet();
+                try {
+                    loading.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "v_" + key;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            //when
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.get("k1");
+                    }
+                }));
+            }
+            Thread.sleep(100);
+            loading.countDown();
+            //then
+            for (Future<String> result : results) {
+                assertEquals(result.get(), "v_k1");
+            }
+            assertEquals(loads.get(), 1);
+            // Threads that waited for loading of value are not counted as hits.
+            assertEquals(cache.getHits(), 0);
+            assertEquals(cache.getMisses(), 4);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotOverwritePutValueWithConcurrentlyLoadedValue() throws Exception {
+        //given
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<String, String>(10) {
+            @Override
+            protected String loadValue(String key) {
+                loadStarted.countDown();
+                try {
+                    loading.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "v_" + key;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> loaded = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.get("k1");
+                }
+            });
+            loadStarted.await();
+            //when
+            cache.put("k1", "new");
+            loading.countDown();
+            loaded.get();
+            //then
+            assertEquals(cache.get("k1"), "new");
+            assertEquals(cache.size(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCacheFailedLoading() throws Exception {
+        //given
+        final AtomicInteger loads = new AtomicInteger();
+        ConcurrentLoadingCache<String, String> cache = new ConcurrentLoadingCache<String, String>(10) {
+            @Override
+            protected String loadValue(String key) {
+                if (loads.getAndIncrement() == 0) {
+                    throw new RuntimeException("failed");
+                }
+                return "v_" + key;
+            }
+        };
+        try {
+            cache.get("k1");
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(e.getMessage(), "failed");
+        }
+        //when
+        String value = cache.get("k1");
+        //then
+        assertEquals(value, "v_k1");
+        assertEquals(cache.size(), 1);
+    }
+
+    private static class CountingCache extends ConcurrentLoadingCache<String, String> {
+        final AtomicInteger loads = new AtomicInteger();
+
+        CountingCache(int maximumSize) {
+            super(maximumSize);
+        }
+
+        @Override
+        protected String loadValue(String key) {
+            loads.incrementAndGet();
+            return "v_" + key;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.schedule;
+
+/**
+ * Launcher of periodic jobs that supports {@link MissedFirePolicy} of cron jobs. Other implementations of {@link Launcher} run cron
+ * jobs with their own default behaviour.
+ *
+ * @author Sergii Kabashniuk
+ */
+public interface CronLauncher extends Launcher {
+    /**
+     * execution periodic action  according to the cron expression with specified policy for missed fire times.
+     * See more {@link org.eclipse.che.commons.schedule.executor.CronExpression}
+     */
+    void scheduleCron(Runnable runnable, String cron, MissedFirePolicy missedFirePolicy);
+}
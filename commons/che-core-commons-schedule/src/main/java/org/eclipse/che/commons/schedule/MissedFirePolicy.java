@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.schedule;
+
+/**
+ * Defines what to do with cron job if its fire time is missed, e.g. all threads of pool were busy or process was paused. Fire time is
+ * missed if the next fire time is already passed when job starts.
+ *
+ * @author Sergii Kabashniuk
+ */
+public enum MissedFirePolicy {
+    /** Run job once for all missed fire times then continue with the next fire time after the end of run. */
+    FIRE_ONCE,
+    /** Run job once for each missed fire time, one after another, until job catches up with its schedule. */
+    FIRE_ALL,
+    /** Don't run job that is late, wait for the next fire time. */
+    SKIP
+}
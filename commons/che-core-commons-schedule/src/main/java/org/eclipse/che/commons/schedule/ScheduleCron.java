@@ -34,4 +34,9 @@ public @interface ScheduleCron {
      */
     String cronParameterName() default "";
 
+    /**
+     * @return what to do if fire time of job is missed.
+     */
+    MissedFirePolicy missedFirePolicy() default MissedFirePolicy.FIRE_ONCE;
+
 }
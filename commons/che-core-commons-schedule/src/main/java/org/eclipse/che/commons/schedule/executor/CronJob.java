@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.schedule.executor;
+
+import org.eclipse.che.commons.schedule.MissedFirePolicy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Job that is run by {@link CronThreadPoolExecutor} according to the cron expression. Job doesn't occupy any thread between runs, only
+ * its next fire time is kept in the delayed queue of executor. When run of job ends the next fire time is calculated and job is queued
+ * again, so runs of the same job never overlap.
+ * <p/>
+ * Job is done when it is cancelled, when executor is shut down or when cron expression doesn't have more fire times. Method {@link
+ * #get()} throws {@code CancellationException} in first two cases.
+ *
+ * @author Sergii Kabashniuk
+ */
+public final class CronJob implements Runnable, Future<Object> {
+    private static final Logger LOG = LoggerFactory.getLogger(CronJob.class);
+
+    /** Don't look further than this number of missed fire times, e.g. after long pause of process. */
+    private static final int MAX_MISSED_FIRES = 10000;
+
+    private final Runnable               task;
+    private final CronExpression         expression;
+    private final MissedFirePolicy       missedFirePolicy;
+    private final CronThreadPoolExecutor executor;
+    private final CountDownLatch         done;
+
+    private ScheduledFuture<?> next;
+    private Date               fireTime;
+    private boolean            cancelled;
+
+    private volatile long runCount;
+    private volatile long failureCount;
+    private volatile long missedCount;
+    private volatile long lastStartTime;
+    private volatile long lastRunTime;
+    private volatile long maxRunTime;
+    private volatile long totalRunTime;
+
+    CronJob(Runnable task, CronExpression expression, MissedFirePolicy missedFirePolicy, CronThreadPoolExecutor executor) {
+        this.task = task;
+        this.expression = expression;
+        this.missedFirePolicy = missedFirePolicy;
+        this.executor = executor;
+        done = new CountDownLatch(1);
+    }
+
+    /**
+     * Queues the first run of job.
+     *
+     * @throws RejectedExecutionException
+     *         if executor is shut down
+     */
+    synchronized void start() {
+        scheduleNext(expression.getNextValidTimeAfter(new Date(executor.currentTimeMillis())));
+    }
+
+    /** NOTE: Not expected to call directly by regular users of this class. */
+    @Override
+    public void run() {
+        final Date scheduled;
+        synchronized (this) {
+            if (cancelled || fireTime == null) {
+                return;
+            }
+            scheduled = fireTime;
+        }
+        final long now = executor.currentTimeMillis();
+        if (now < scheduled.getTime()) {
+            // Wall clock is moved back or delayed queue of executor, that uses its own clock, fired too early.
+            reschedule(scheduled);
+            return;
+        }
+        int missedFires = 0;
+        for (Date time = expression.getNextValidTimeAfter(scheduled);
+             time != null && time.getTime() <= now && missedFires < MAX_MISSED_FIRES;
+             time = expression.getNextValidTimeAfter(time)) {
+            missedFires++;
+        }
+        if (missedFires == 0) {
+            execute(now);
+        } else {
+            switch (missedFirePolicy) {
+                case FIRE_ALL:
+                    execute(now);
+                    break;
+                case SKIP:
+                    missedCount += missedFires + 1;
+                    LOG.warn("Skip {} missed runs of {} with cron {}", missedFires + 1, task, expression.getCronExpression());
+                    break;
+                default:
+                    missedCount += missedFires;
+                    execute(now);
+                    break;
+            }
+        }
+        // Fire times that pass while job is running are checked when job starts next time. With policy FIRE_ALL next fire time is
+        // counted from the current one, so if it is already passed it is queued without delay.
+        final Date nextAfter = missedFirePolicy == MissedFirePolicy.FIRE_ALL ? scheduled : new Date(now);
+        reschedule(expression.getNextValidTimeAfter(nextAfter));
+    }
+
+    private synchronized void reschedule(Date time) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            scheduleNext(time);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Executor doesn't accept job {}, it is probably shut down", task);
+            cancel(false);
+        }
+    }
+
+    private void execute(long startTime) {
+        lastStartTime = startTime;
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failureCount++;
+            LOG.error(e.getMessage(), e);
+        } finally {
+            final long time = executor.currentTimeMillis() - startTime;
+            lastRunTime = time;
+            totalRunTime += time;
+            if (time > maxRunTime) {
+                maxRunTime = time;
+            }
+            runCount++;
+        }
+    }
+
+    private void scheduleNext(Date time) {
+        fireTime = time;
+        if (time == null) {
+            next = null;
+            executor.removeCronJob(this);
+            done.countDown();
+            return;
+        }
+        next = executor.schedule(this, Math.max(0, time.getTime() - executor.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+    public CronExpression getExpression() {
+        return expression;
+    }
+
+    public MissedFirePolicy getMissedFirePolicy() {
+        return missedFirePolicy;
+    }
+
+    /** Gets next fire time or {@code null} if job is done. */
+    public synchronized Date getNextFireTime() {
+        return cancelled ? null : fireTime;
+    }
+
+    /** Gets number of runs, including failed runs. */
+    public long getRunCount() {
+        return runCount;
+    }
+
+    /** Gets number of runs that threw an exception. */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /** Gets number of fire times that were skipped because of {@link MissedFirePolicy}. */
+    public long getMissedCount() {
+        return missedCount;
+    }
+
+    /** Gets time in milliseconds when the last run started or {@code 0} if job never run. */
+    public long getLastStartTime() {
+        return lastStartTime;
+    }
+
+    /** Gets duration of the last run in milliseconds. */
+    public long getLastRunTime() {
+        return lastRunTime;
+    }
+
+    /** Gets duration of the longest run in milliseconds. */
+    public long getMaxRunTime() {
+        return maxRunTime;
+    }
+
+    /** Gets total duration of all runs in milliseconds. */
+    public long getTotalRunTime() {
+        return totalRunTime;
+    }
+
+    /**
+     * Cancels all next runs of job. Run that is in progress isn't stopped, even if {@code mayInterruptIfRunning} is {@code true}, since
+     * worker threads of executor are shared with other jobs.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (cancelled || done.getCount() == 0) {
+                return false;
+            }
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+        }
+        executor.removeCronJob(this);
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /** Waits until job is done. */
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+        done.await();
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        return null;
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "CronJob{" +
+               "task=" + task +
+               ", expression=" + expression.getCronExpression() +
+               ", runCount=" + runCount +
+               ", failureCount=" + failureCount +
+               ", missedCount=" + missedCount +
+               ", lastRunTime=" + lastRunTime +
+               ", maxRunTime=" + maxRunTime +
+               '}';
+    }
+}
@@ -10,30 +10,32 @@
  *******************************************************************************/
 package org.eclipse.che.commons.schedule.executor;
 
+import org.eclipse.che.commons.schedule.MissedFirePolicy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Scheduled thread-pool executor implementation that leverages a CronExpression
  * to calculate future execution times for scheduled tasks.
+ * <p/>
+ * All cron jobs share the fixed pool of threads and the delayed queue of executor. Cron job doesn't occupy thread while it waits for
+ * the next fire time, so number of cron jobs doesn't affect number of threads.
  */
 public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implements CronExecutorService {
 
     private static final Logger LOG = LoggerFactory.getLogger(CronThreadPoolExecutor.class);
 
-    private final List<CountDownLatch> cronJobWatchDogs;
+    private final Set<CronJob> cronJobs;
 
     /**
      * Constructs a new CronThreadPoolExecutor.
@@ -43,7 +45,7 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
      */
     public CronThreadPoolExecutor(int corePoolSize) {
         super(corePoolSize);
-        this.cronJobWatchDogs = new ArrayList<>();
+        this.cronJobs = Collections.newSetFromMap(new ConcurrentHashMap<CronJob, Boolean>());
         this.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
@@ -57,7 +59,7 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
      */
     public CronThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory) {
         super(corePoolSize, threadFactory);
-        this.cronJobWatchDogs = new ArrayList<>();
+        this.cronJobs = Collections.newSetFromMap(new ConcurrentHashMap<CronJob, Boolean>());
         this.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
@@ -71,7 +73,7 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
      */
     public CronThreadPoolExecutor(int corePoolSize, RejectedExecutionHandler handler) {
         super(corePoolSize, handler);
-        this.cronJobWatchDogs = new ArrayList<>();
+        this.cronJobs = Collections.newSetFromMap(new ConcurrentHashMap<CronJob, Boolean>());
         this.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
@@ -87,53 +89,57 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
      */
     public CronThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory, RejectedExecutionHandler handler) {
         super(corePoolSize, threadFactory, handler);
-        this.cronJobWatchDogs = new ArrayList<>();
+        this.cronJobs = Collections.newSetFromMap(new ConcurrentHashMap<CronJob, Boolean>());
+        this.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
     @Override
-    public Future<?> schedule(final Runnable task, final CronExpression expression) {
-        if (task == null) {
+    public CronJob schedule(Runnable task, CronExpression expression) {
+        return schedule(task, expression, MissedFirePolicy.FIRE_ONCE);
+    }
+
+    /**
+     * Schedules the specified task to execute according to the specified cron expression.
+     *
+     * @param task
+     *         the Runnable task to schedule
+     * @param expression
+     *         a cron expression
+     * @param missedFirePolicy
+     *         what to do if fire time of task is missed
+     */
+    public CronJob schedule(Runnable task, CronExpression expression, MissedFirePolicy missedFirePolicy) {
+        if (task == null || expression == null || missedFirePolicy == null) {
             throw new NullPointerException();
         }
-        setCorePoolSize(getCorePoolSize() + 1);
-        Runnable scheduleTask = new Runnable() {
-            @Override
-            public void run() {
-                CountDownLatch countDownLatch = new CountDownLatch(1);
-                cronJobWatchDogs.add(countDownLatch);
-                Date now = new Date();
-                Date time = expression.getNextValidTimeAfter(now);
-                try {
-                    while (time != null) {
-                        CronThreadPoolExecutor.this
-                                .schedule(task, time.getTime() - now.getTime(), TimeUnit.MILLISECONDS);
-                        while (now.before(time)) {
-                            LOG.debug("Cron watch dog wait {} ", time.getTime() - now.getTime());
-                            if (countDownLatch.await(time.getTime() - now.getTime(), TimeUnit.MILLISECONDS)) {
-                                LOG.debug("Stopping cron watch dog.");
-                                return;
-                            }
-                            now = new Date();
-                        }
-                        time = expression.getNextValidTimeAfter(now);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } catch (RejectedExecutionException | CancellationException e) {
-                    LOG.error(e.getMessage(), e);
-                }
-            }
-        };
-        return this.submit(scheduleTask);
+        final CronJob job = new CronJob(task, expression, missedFirePolicy, this);
+        cronJobs.add(job);
+        try {
+            job.start();
+        } catch (RuntimeException e) {
+            cronJobs.remove(job);
+            throw e;
+        }
+        return job;
+    }
+
+    /** Gets cron jobs that are not done yet. Cron job provides statistic about its runs. */
+    public List<CronJob> getCronJobs() {
+        return new ArrayList<>(cronJobs);
+    }
+
+    /** Gets current time in milliseconds. Fire times of cron jobs are counted with this clock. */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    void removeCronJob(CronJob job) {
+        cronJobs.remove(job);
     }
 
     @Override
     public void shutdown() {
-
-        for (CountDownLatch cronJobWatchDog : cronJobWatchDogs) {
-            cronJobWatchDog.countDown();
-        }
-        cronJobWatchDogs.clear();
+        cancelCronJobs();
         super.shutdown();
         LOG.debug("Active {} Pool {}, CEPTAS {} ,  EEDTAS {} , Task count {} , queue size {}",
                   getActiveCount(),
@@ -148,10 +154,7 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
 
     @Override
     public List<Runnable> shutdownNow() {
-        for (CountDownLatch cronJobWatchDog : cronJobWatchDogs) {
-            cronJobWatchDog.countDown();
-        }
-        cronJobWatchDogs.clear();
+        cancelCronJobs();
         LOG.debug("Active {} Pool {}, CEPTAS {} ,  EEDTAS {} , Task count {} , queue size {}",
                   getActiveCount(),
                   getPoolSize(),
@@ -162,4 +165,11 @@ public class CronThreadPoolExecutor extends ScheduledThreadPoolExecutor implemen
                  );
         return super.shutdownNow();
     }
+
+    private void cancelCronJobs() {
+        for (CronJob job : getCronJobs()) {
+            LOG.debug("Stopping cron job {}", job);
+            job.cancel(false);
+        }
+    }
 }
@@ -10,7 +10,8 @@
  *******************************************************************************/
 package org.eclipse.che.commons.schedule.executor;
 
-import org.eclipse.che.commons.schedule.Launcher;
+import org.eclipse.che.commons.schedule.CronLauncher;
+import org.eclipse.che.commons.schedule.MissedFirePolicy;
 import org.eclipse.che.inject.ConfigurationException;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -21,6 +22,7 @@ import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,7 +32,7 @@ import java.util.concurrent.TimeUnit;
  * @author Sergii Kabashniuk
  */
 @Singleton
-public class ThreadPullLauncher implements Launcher {
+public class ThreadPullLauncher implements CronLauncher {
     private static final Logger LOG = LoggerFactory.getLogger(CronThreadPoolExecutor.class);
     private final CronThreadPoolExecutor service;
 
@@ -66,12 +68,22 @@ public class ThreadPullLauncher implements Launcher {
 
     @Override
     public void scheduleCron(Runnable runnable, String cron) {
+        scheduleCron(runnable, cron, MissedFirePolicy.FIRE_ONCE);
+    }
+
+    @Override
+    public void scheduleCron(Runnable runnable, String cron, MissedFirePolicy missedFirePolicy) {
         if (cron == null || cron.isEmpty()) {
             throw new ConfigurationException("Cron parameter can't be null");
         }
         CronExpression expression = new CronExpression(cron);
-        service.schedule(runnable, expression);
-        LOG.debug("Schedule method {} with cron  {} schedule", runnable, cron);
+        service.schedule(runnable, expression, missedFirePolicy);
+        LOG.debug("Schedule method {} with cron  {} schedule, missed fire policy {}", runnable, cron, missedFirePolicy);
+    }
+
+    /** Gets cron jobs with statistic about their runs. */
+    public List<CronJob> getCronJobs() {
+        return service.getCronJobs();
     }
 
     @Override
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.che.inject.lifecycle;
 
+import org.eclipse.che.commons.schedule.CronLauncher;
 import org.eclipse.che.commons.schedule.Launcher;
+import org.eclipse.che.commons.schedule.MissedFirePolicy;
 import org.eclipse.che.commons.schedule.ScheduleCron;
 import org.eclipse.che.commons.schedule.ScheduleDelay;
 import org.eclipse.che.commons.schedule.ScheduleRate;
@@ -90,12 +92,17 @@ public class ScheduleInjectionListener<T> extends LifecycleModule implements Inj
 
     private void launch(Object object, Method method, ScheduleCron annotation) {
         Launcher launcher = launcherProvider.get();
-        launcher.scheduleCron(new LoggedRunnable(object,
-                                                 method), annotation.cronParameterName().isEmpty() ? annotation.cron()
-                                                                                                   : getValue(String.class,
-                                                                                                              annotation
-                                                                                                                      .cronParameterName
-                                                                                                                              ()));
+        String cron = annotation.cronParameterName().isEmpty() ? annotation.cron() : getValue(String.class, annotation.cronParameterName());
+        MissedFirePolicy missedFirePolicy = annotation.missedFirePolicy();
+        if (launcher instanceof CronLauncher) {
+            ((CronLauncher)launcher).scheduleCron(new LoggedRunnable(object, method), cron, missedFirePolicy);
+        } else {
+            if (missedFirePolicy != MissedFirePolicy.FIRE_ONCE) {
+                LOG.warn("Launcher {} doesn't support missed fire policies, policy {} of method {} is ignored",
+                         launcher, missedFirePolicy, method);
+            }
+            launcher.scheduleCron(new LoggedRunnable(object, method), cron);
+        }
     }
 
     private void launch(Object object, Method method, ScheduleDelay annotation) {
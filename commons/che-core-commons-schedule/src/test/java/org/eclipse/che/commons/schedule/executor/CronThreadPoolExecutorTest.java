@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.schedule.executor;
+
+import org.eclipse.che.commons.schedule.MissedFirePolicy;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Sergii Kabashniuk
+ */
+public class CronThreadPoolExecutorTest {
+    private static final String EVERY_SECOND = "* * * * * ?";
+    /** Start time of clock of {@link ManualClockExecutor}, 2015-01-01 00:00:00 in default time zone. */
+    private static final long   START        = new GregorianCalendar(2015, Calendar.JANUARY, 1).getTimeInMillis();
+
+    private CronThreadPoolExecutor executor;
+
+    @BeforeMethod
+    public void setUp() {
+        executor = new CronThreadPoolExecutor(2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldRunManyJobsWithFixedPool() throws Exception {
+        final int jobs = 200;
+        final CountDownLatch latch = new CountDownLatch(jobs * 2);
+        for (int i = 0; i < jobs; i++) {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, new CronExpression(EVERY_SECOND));
+        }
+        // Each job runs at least twice.
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(executor.getCronJobs().size(), jobs);
+        assertEquals(executor.getPoolSize(), 2);
+        for (CronJob job : executor.getCronJobs()) {
+            assertTrue(job.getRunCount() > 0);
+            assertTrue(job.getNextFireTime() != null);
+        }
+    }
+
+    @Test
+    public void shouldStopRunningCancelledJob() throws Exception {
+        final ManualClockExecutor executor = new ManualClockExecutor();
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            CronJob job = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    counter.incrementAndGet();
+                }
+            }, new CronExpression(EVERY_SECOND));
+            assertTrue(job.cancel(false));
+            assertTrue(job.isDone());
+            assertTrue(executor.getCronJobs().isEmpty());
+            assertNull(job.getNextFireTime());
+            executor.time += 1000;
+            job.run();
+            assertEquals(counter.get(), 0);
+            try {
+                job.get();
+                throw new AssertionError("CancellationException expected");
+            } catch (CancellationException expected) {
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCollectRunStatistic() throws Exception {
+        final ManualClockExecutor executor = new ManualClockExecutor();
+        try {
+            CronJob job = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("expected");
+                }
+            }, new CronExpression(EVERY_SECOND));
+            assertEquals(job.getNextFireTime().getTime(), START + 1000);
+            executor.time += 1000;
+            job.run();
+            // Job isn't stopped by exception.
+            assertFalse(job.isDone());
+            assertEquals(job.getNextFireTime().getTime(), START + 2000);
+            executor.time += 1000;
+            job.run();
+            assertEquals(job.getRunCount(), 2);
+            assertEquals(job.getFailureCount(), 2);
+            assertEquals(job.getMissedCount(), 0);
+            assertEquals(job.getLastStartTime(), START + 2000);
+            assertFalse(job.isDone());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldApplyMissedFirePolicy() throws Exception {
+        final ManualClockExecutor executor = new ManualClockExecutor();
+        try {
+            final AtomicInteger skipRuns = new AtomicInteger();
+            final AtomicInteger onceRuns = new AtomicInteger();
+            final AtomicInteger allRuns = new AtomicInteger();
+            CronJob skip = executor.schedule(new CountingRunnable(skipRuns), new CronExpression(EVERY_SECOND), MissedFirePolicy.SKIP);
+            CronJob once = executor.schedule(new CountingRunnable(onceRuns), new CronExpression(EVERY_SECOND), MissedFirePolicy.FIRE_ONCE);
+            CronJob all = executor.schedule(new CountingRunnable(allRuns), new CronExpression(EVERY_SECOND), MissedFirePolicy.FIRE_ALL);
+            // Jobs should fire at START + 1000 but start 3.5 seconds later, so fire times START + 2000 - START + 4000 are missed.
+            executor.time += 4500;
+            skip.run();
+            once.run();
+            all.run();
+
+            // Job with policy SKIP doesn't run when it is late.
+            assertEquals(skipRuns.get(), 0);
+            assertEquals(skip.getMissedCount(), 4);
+            assertEquals(skip.getNextFireTime().getTime(), START + 5000);
+
+            assertEquals(onceRuns.get(), 1);
+            assertEquals(once.getMissedCount(), 3);
+            assertEquals(once.getNextFireTime().getTime(), START + 5000);
+
+            // Job with policy FIRE_ALL runs for each missed fire time.
+            assertEquals(allRuns.get(), 1);
+            assertEquals(all.getMissedCount(), 0);
+            assertEquals(all.getNextFireTime().getTime(), START + 2000);
+            for (int i = 0; i < 3; i++) {
+                all.run();
+            }
+            assertEquals(allRuns.get(), 4);
+            assertEquals(all.getNextFireTime().getTime(), START + 5000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class CountingRunnable implements Runnable {
+        final AtomicInteger counter;
+
+        CountingRunnable(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void run() {
+            counter.incrementAndGet();
+        }
+    }
+
+    /** Executor with clock that is moved by test. Cron jobs aren't run by executor, test runs them when it moves clock. */
+    private static class ManualClockExecutor extends CronThreadPoolExecutor {
+        volatile long time = START;
+
+        ManualClockExecutor() {
+            super(1);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return super.schedule(command, 1, TimeUnit.DAYS);
+        }
+    }
+}
@@ -18,7 +18,6 @@ import org.eclipse.che.api.builder.dto.BuildRequest;
 import org.eclipse.che.api.builder.dto.BuilderServerAccessCriteria;
 import org.eclipse.che.api.builder.dto.BuilderServerLocation;
 import org.eclipse.che.api.builder.dto.BuilderServerRegistration;
-import org.eclipse.che.api.builder.dto.BuilderState;
 import org.eclipse.che.api.builder.dto.DependencyRequest;
 import org.eclipse.che.api.builder.internal.BuilderEvent;
 import org.eclipse.che.api.builder.internal.Constants;
@@ -32,6 +31,7 @@ import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.core.rest.HttpJsonHelper;
 import org.eclipse.che.api.core.rest.ServiceContext;
 import org.eclipse.che.api.core.rest.shared.dto.Link;
+import org.eclipse.che.api.core.util.PriorityThreadPoolExecutor;
 import org.eclipse.che.api.project.server.ProjectService;
 import org.eclipse.che.api.project.shared.dto.BuilderConfiguration;
 import org.eclipse.che.api.project.shared.dto.BuildersDescriptor;
@@ -62,20 +62,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -96,7 +98,10 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 public class BuildQueue {
     private static final Logger LOG = LoggerFactory.getLogger(BuildQueue.class);
 
-    private static final long CHECK_AVAILABLE_BUILDER_DELAY = 2000;
+    private static final long CHECK_BUILDER_STATE_PERIOD = 10000;
+
+    private static final int DEFAULT_MAX_THREADS    = 100;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
 
     private static final AtomicLong sequence = new AtomicLong(1);
 
@@ -114,14 +119,26 @@ public class BuildQueue {
     private final AtomicBoolean                              started;
     private final long                                       keepResultTimeMillis;
 
-    private ExecutorService          executor;
-    private ScheduledExecutorService scheduler;
+    private PriorityThreadPoolExecutor executor;
+    private ScheduledExecutorService   scheduler;
 
     /** Optional pre-configured slave builders. */
     @com.google.inject.Inject(optional = true)
     @Named(Constants.BUILDER_SLAVE_BUILDER_URLS)
     private String[] slaves = new String[0];
 
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILDER_QUEUE_MAX_THREADS)
+    private int maxThreads = DEFAULT_MAX_THREADS;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILDER_QUEUE_MAX_SIZE)
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
+    // Switched to default for test.
+    // private
+    long checkBuilderStatePeriod = CHECK_BUILDER_STATE_PERIOD;
+
     /**
      * @param baseWorkspaceApiUrl
      *         workspace api url. Configuration parameter that points to the Workspace API location. If such parameter isn't specified than
@@ -190,6 +207,12 @@ public class BuildQueue {
         return count;
     }
 
+    /** Gets statistic of pool that executes build tasks. */
+    public PriorityThreadPoolExecutor.Stats getExecutorStats() {
+        checkStarted();
+        return executor.getStats();
+    }
+
     public List<RemoteBuilderServer> getRegisterBuilderServers() {
         return new ArrayList<>(builderServices.values());
     }
@@ -242,7 +265,11 @@ public class BuildQueue {
                 builderList = newBuilderList;
             }
         }
-        return builderList.addBuilders(builderServer.getRemoteBuilders());
+        final List<RemoteBuilder> remoteBuilders = builderServer.getRemoteBuilders();
+        final boolean modified = builderList.addBuilders(remoteBuilders);
+        // Don't wait for next check of builders state, new builders may start processing of waiting tasks right now.
+        updateBuildersState(builderList, remoteBuilders);
+        return modified;
     }
 
     /**
@@ -275,6 +302,8 @@ public class BuildQueue {
                     modified |= builderList.removeBuilder(builder);
                 }
             }
+            // Tasks that wait for removed builders can't be processed any more, resume them to let them fail.
+            resume(builderList.drainOrphans());
             if (builderList.size() == 0) {
                 i.remove();
             }
@@ -331,10 +360,6 @@ public class BuildQueue {
                 callable = new Callable<RemoteTask>() {
                     @Override
                     public RemoteTask call() throws Exception {
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException ignored) {
-                        }
                         return successfulTask;
                     }
                 };
@@ -347,12 +372,23 @@ public class BuildQueue {
             callable = createTaskFor(request);
         }
         final Long id = sequence.getAndIncrement();
-        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, wsId, project, reuse);
+        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, wsId, project, reuse,
+                                                               getPriority(workspace));
         request.setId(id);
         final BuildQueueTask task = new BuildQueueTask(id, request, waitingTimeMillis, future, eventService, serviceContext.getServiceUriBuilder());
         tasks.put(id, task);
         eventService.publish(BuilderEvent.queueStartedEvent(id, wsId, project));
-        executor.execute(future);
+        if (reuse) {
+            // Result of previous build is reused, give client a second to get ready for the events of this task.
+            try {
+                executor.schedule(future, future.priority, id, 1, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                tasks.remove(id);
+                throw new BuilderException("Build queue is stopped. ");
+            }
+        } else {
+            execute(future);
+        }
         return task;
     }
 
@@ -360,11 +396,49 @@ public class BuildQueue {
         return new Callable<RemoteTask>() {
             @Override
             public RemoteTask call() throws BuilderException {
-                return getBuilder(request).perform(request);
+                return perform(request);
             }
         };
     }
 
+    /**
+     * Sends request to the builder that has free worker. Worker is reserved for the request while request is sent. If remote builder
+     * doesn't accept request the worker is returned to the builder list immediately, otherwise it is returned when builder notifies about
+     * end of task.
+     * <p/>
+     * Number of free workers in builder list is refreshed periodically and may be bigger than actual. If builder doesn't accept request
+     * its state is refreshed immediately. Request is treated as rejected because builder is busy if builder has no free workers, then
+     * task waits for free worker instead of failing.
+     */
+    private RemoteTask perform(BaseBuilderRequest request) throws BuilderException {
+        final RemoteBuilder builder = getBuilder(request);
+        final BuilderList builderList = getBuilderList(request.getWorkspace(), request.getProject());
+        boolean accepted = false;
+        boolean released = false;
+        try {
+            final RemoteTask remoteTask = request instanceof DependencyRequest ? builder.perform((DependencyRequest)request)
+                                                                               : builder.perform((BuildRequest)request);
+            accepted = true;
+            return remoteTask;
+        } catch (BuilderException e) {
+            if (builderList != null) {
+                final int freeWorkers = getRemoteFreeWorkers(builder);
+                released = true;
+                resume(builderList.releaseRejected(builder, freeWorkers));
+                if (freeWorkers == 0) {
+                    LOG.info("Builder '{}' at '{}' is busy, request waits for free worker. {}",
+                             builder.getName(), builder.getBaseUrl(), e.getMessage());
+                    throw new NoFreeBuilderException(builderList, builder.getName());
+                }
+            }
+            throw e;
+        } finally {
+            if (builderList != null && !released) {
+                resume(builderList.releaseReservation(builder, accepted));
+            }
+        }
+    }
+
     /**
      * Schedule new dependencies analyze.
      *
@@ -404,19 +478,97 @@ public class BuildQueue {
         request.setTimeout(getBuildTimeout(workspace));
         final Callable<RemoteTask> callable = createTaskFor(request);
         final Long id = sequence.getAndIncrement();
-        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, wsId, project, false);
+        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, wsId, project, false,
+                                                               getPriority(workspace));
         request.setId(id);
         final BuildQueueTask task = new BuildQueueTask(id, request, waitingTimeMillis, future, eventService, serviceContext.getServiceUriBuilder());
         tasks.put(id, task);
-        executor.execute(future);
+        execute(future);
         return task;
     }
 
+    // Switched to default for test.
+    // private
+    void execute(InternalBuildTask future) throws BuilderException {
+        try {
+            executor.execute(future, future.priority, future.id);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(future.id);
+            throw new BuilderException("Too many tasks in build queue, try again later. ");
+        }
+    }
+
+    /**
+     * Asks builders about their current state and updates number of free workers in builder list. Tasks that wait for free workers are
+     * resumed if some builder has free workers. It is the only place where remote builders are asked about their state, so number of
+     * remote calls doesn't depend on number of tasks in queue.
+     */
+    private void updateBuildersState(BuilderList builderList, List<RemoteBuilder> builders) {
+        for (RemoteBuilder builder : builders) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            resume(builderList.setFreeWorkers(builder, getRemoteFreeWorkers(builder)));
+        }
+    }
+
+    /** Asks builder about its current number of free workers. */
+    private int getRemoteFreeWorkers(RemoteBuilder builder) {
+        try {
+            return builder.getBuilderState().getFreeWorkers();
+        } catch (Exception e) {
+            LOG.warn("Unable get state of builder '{}' at '{}'. {}", builder.getName(), builder.getBaseUrl(), e.getMessage());
+            // Don't send new tasks to builder that isn't responding.
+            return 0;
+        }
+    }
+
+    private void cancelDiscarded(InternalBuildTask task, RemoteTask remoteTask) {
+        try {
+            remoteTask.cancel();
+        } catch (Exception e) {
+            LOG.warn("Unable cancel task {} of builder '{}' at '{}'. {}",
+                     remoteTask.getId(), remoteTask.getBuilder(), remoteTask.getBaseRemoteUrl(), e.getMessage());
+        }
+        final BuilderList builderList = getBuilderList(task.workspace, task.project);
+        if (builderList != null) {
+            resume(builderList.releaseWorker(remoteTask.getBaseRemoteUrl(), remoteTask.getBuilder()));
+        }
+    }
+
+    /** Passes tasks that were waiting for free builder to the executor. */
+    private void resume(List<InternalBuildTask> waitingTasks) {
+        for (InternalBuildTask waitingTask : waitingTasks) {
+            resume(waitingTask);
+        }
+    }
+
+    private void resume(InternalBuildTask waitingTask) {
+        try {
+            // Task is accepted by executor already, use schedule() to avoid limit of queue size.
+            executor.schedule(waitingTask, waitingTask.priority, waitingTask.id, 0, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            waitingTask.cancel(false);
+        }
+    }
+
+    /** Builds of workspaces on 'always_on' and 'paid' infra are taken from queue before builds of other workspaces. */
+    private static int getPriority(WorkspaceDescriptor workspace) {
+        final String infra = workspace.getAttributes().get(Constants.BUILDER_INFRA);
+        if ("always_on".equals(infra)) {
+            return PriorityThreadPoolExecutor.NORMAL_PRIORITY + 2;
+        }
+        if ("paid".equals(infra)) {
+            return PriorityThreadPoolExecutor.NORMAL_PRIORITY + 1;
+        }
+        return PriorityThreadPoolExecutor.NORMAL_PRIORITY;
+    }
+
     protected Callable<RemoteTask> createTaskFor(final DependencyRequest request) {
         return new Callable<RemoteTask>() {
             @Override
             public RemoteTask call() throws BuilderException {
-                return getBuilder(request).perform(request);
+                return perform(request);
             }
         };
     }
@@ -570,14 +722,26 @@ public class BuildQueue {
     @PostConstruct
     public void start() {
         if (started.compareAndSet(false, true)) {
-            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
-                                              new ThreadFactoryBuilder().setNameFormat("BuildQueue-[%d]").setDaemon(true).build()) {
+            executor = new PriorityThreadPoolExecutor("BuildQueue", maxThreads, maxQueueSize) {
                 @Override
-                protected void afterExecute(Runnable runnable, Throwable error) {
-                    super.afterExecute(runnable, error);
+                protected void afterTaskExecute(Runnable runnable, Throwable error) {
                     if (runnable instanceof InternalBuildTask) {
                         final InternalBuildTask internalBuildTask = (InternalBuildTask)runnable;
-                        if (internalBuildTask.reused) {
+                        final NoFreeBuilderException noFreeBuilder = internalBuildTask.noFreeBuilder;
+                        if (noFreeBuilder != null) {
+                            // There is no free builder. Task doesn't hold thread while waiting, it is resumed when some builder has
+                            // free workers.
+                            internalBuildTask.noFreeBuilder = null;
+                            if (!noFreeBuilder.builderList.await(noFreeBuilder.builder, internalBuildTask)) {
+                                resume(internalBuildTask);
+                            }
+                        } else if (internalBuildTask.discarded != null) {
+                            // Task was cancelled while its request was sent to the remote builder. Nobody gets result of remote task,
+                            // so stop it and return its worker to the builder list.
+                            final RemoteTask discarded = internalBuildTask.discarded;
+                            internalBuildTask.discarded = null;
+                            cancelDiscarded(internalBuildTask, discarded);
+                        } else if (internalBuildTask.reused) {
                             // Emulate event from remote builder. In fact we didn't send request to remote builder just reuse result from previous
                             // build.
                             eventService.publish(BuilderEvent.doneEvent(internalBuildTask.id,
@@ -645,6 +809,14 @@ public class BuildQueue {
                     }
                 }
             }, 1, 1, TimeUnit.MINUTES);
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    for (BuilderList builderList : builderListMapping.values()) {
+                        updateBuildersState(builderList, builderList.getBuilders());
+                    }
+                }
+            }, checkBuilderStatePeriod, checkBuilderStatePeriod, TimeUnit.MILLISECONDS);
 
             eventService.subscribe(new EventSubscriber<BuilderEvent>() {
                 @Override
@@ -654,10 +826,17 @@ public class BuildQueue {
                         try {
                             final BuildQueueTask task = getTask(id);
                             final BaseBuilderRequest request = task.getRequest();
+                            final RemoteTask remoteTask = task.getRemoteTask();
+                            if (remoteTask != null) {
+                                // Worker of remote builder is free now.
+                                final BuilderList builderList = getBuilderList(request.getWorkspace(), request.getProject());
+                                if (builderList != null) {
+                                    resume(builderList.releaseWorker(remoteTask.getBaseRemoteUrl(), remoteTask.getBuilder()));
+                                }
+                            }
                             if (task.getDescriptor().getStatus() == BuildStatus.SUCCESSFUL) {
                                 // Clone request and replace its id and timeout with 0.
-                                successfulBuilds
-                                        .put(DtoFactory.getInstance().clone(request).withId(0L).withTimeout(0L), task.getRemoteTask());
+                                successfulBuilds.put(DtoFactory.getInstance().clone(request).withId(0L).withTimeout(0L), remoteTask);
                             }
                         } catch (NotFoundException ignored) {
                         } catch (Exception e) {
@@ -772,21 +951,85 @@ public class BuildQueue {
         return eventService;
     }
 
-    private static class InternalBuildTask extends FutureTask<RemoteTask> {
-        final Long    id;
-        final String  workspace;
-        final String  project;
-        final boolean reused;
-
-        InternalBuildTask(Callable<RemoteTask> callable, Long id, String workspace, String project, boolean reused) {
+    /**
+     * Task of build queue. Task may be run few times: it isn't completed if there is no free builder and it is run again when some
+     * builder is free. Callable of task is called by task itself, FutureTask keeps result of task only.
+     */
+    // Switched to default for test.
+    // private
+    static class InternalBuildTask extends FutureTask<RemoteTask> {
+        final Long                 id;
+        final String               workspace;
+        final String               project;
+        final boolean              reused;
+        final int                  priority;
+        final Callable<RemoteTask> callable;
+
+        volatile NoFreeBuilderException noFreeBuilder;
+        /** Remote task that was started after this task was cancelled, its result isn't available to anyone. */
+        volatile RemoteTask             discarded;
+
+        InternalBuildTask(Callable<RemoteTask> callable, Long id, String workspace, String project, boolean reused, int priority) {
             super(callable);
+            this.callable = callable;
             this.id = id;
             this.workspace = workspace;
             this.project = project;
             this.reused = reused;
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            final RemoteTask remoteTask;
+            try {
+                remoteTask = callable.call();
+            } catch (NoFreeBuilderException e) {
+                // Don't complete task, it is run again when some builder is free.
+                noFreeBuilder = e;
+                return;
+            } catch (Throwable e) {
+                setException(e);
+                return;
+            }
+            set(remoteTask);
+        }
+
+        @Override
+        protected void set(RemoteTask remoteTask) {
+            super.set(remoteTask);
+            if (isCancelled() && !reused) {
+                discarded = remoteTask;
+            }
+        }
+    }
+
+    /** Thrown if all builders that may process request are busy. */
+    private static class NoFreeBuilderException extends BuilderException {
+        final BuilderList builderList;
+        final String      builder;
+
+        NoFreeBuilderException(BuilderList builderList, String builder) {
+            super("There is no free builder. ");
+            this.builderList = builderList;
+            this.builder = builder;
         }
     }
 
+    /** Higher priority first, tasks with the same priority in order they were added to the queue. */
+    private static final Comparator<InternalBuildTask> WAITING_TASKS_COMPARATOR = new Comparator<InternalBuildTask>() {
+        @Override
+        public int compare(InternalBuildTask o1, InternalBuildTask o2) {
+            if (o1.priority != o2.priority) {
+                return o1.priority > o2.priority ? -1 : 1;
+            }
+            return o1.id.compareTo(o2.id);
+        }
+    };
+
     private static class BuilderListKey {
         final String project;
         final String workspace;
@@ -828,21 +1071,33 @@ public class BuildQueue {
     }
 
 
-    private static class BuilderList {
-        final Collection<RemoteBuilder> builders;
-        final BuilderSelectionStrategy  builderSelector;
+    /**
+     * List of builders with number of their free workers. Number of free workers is decreased when task is sent to the builder, it is
+     * increased when builder notifies about end of task and it is refreshed periodically from state of remote builder. Workers that are
+     * reserved for requests which are being sent to the builder are not known to remote builder yet, so they are subtracted from refreshed
+     * number of free workers. Tasks that can't find free builder wait in this list and they are resumed in order of their priority when
+     * some builder has free workers.
+     */
+    // Switched to default for test.
+    // private
+    static class BuilderList {
+        // Number of free workers at index 0 and number of reserved workers at index 1.
+        final Map<RemoteBuilder, int[]>             builders;
+        final Map<String, Queue<InternalBuildTask>> waitingTasks;
+        final BuilderSelectionStrategy              builderSelector;
 
         BuilderList(BuilderSelectionStrategy builderSelector) {
             this.builderSelector = builderSelector;
-            builders = new LinkedHashSet<>();
+            builders = new LinkedHashMap<>();
+            waitingTasks = new HashMap<>();
         }
 
         synchronized List<RemoteBuilder> getBuilders() {
-            return new ArrayList<>(builders);
+            return new ArrayList<>(builders.keySet());
         }
 
         synchronized boolean hasBuilder(String name) {
-            for (RemoteBuilder builder : builders) {
+            for (RemoteBuilder builder : builders.keySet()) {
                 if (name.equals(builder.getName())) {
                     return true;
                 }
@@ -851,64 +1106,194 @@ public class BuildQueue {
         }
 
         synchronized boolean addBuilders(Collection<? extends RemoteBuilder> list) {
-            return builders.addAll(list);
+            boolean modified = false;
+            for (RemoteBuilder builder : list) {
+                if (!builders.containsKey(builder)) {
+                    // Number of free workers is unknown until we get state of remote builder.
+                    builders.put(builder, new int[2]);
+                    modified = true;
+                }
+            }
+            return modified;
         }
 
         synchronized boolean removeBuilders(Collection<? extends RemoteBuilder> list) {
-            return builders.removeAll(list);
+            return builders.keySet().removeAll(list);
         }
 
         synchronized boolean removeBuilder(RemoteBuilder builder) {
-            return builders.remove(builder);
+            return builders.remove(builder) != null;
         }
 
         synchronized int size() {
             return builders.size();
         }
 
-        synchronized RemoteBuilder getBuilder(BaseBuilderRequest request) {
-            final List<RemoteBuilder> matched = new ArrayList<>();
-            for (RemoteBuilder builder : builders) {
-                if (request.getBuilder().equals(builder.getName())) {
-                    matched.add(builder);
+        /**
+         * Gets builder that has free workers. This method doesn't make any remote calls and doesn't block. One free worker of returned
+         * builder is reserved for the request, reservation must be released with {@link #releaseReservation(RemoteBuilder, boolean)}.
+         *
+         * @return builder or {@code null} if there is no builder that may process request
+         * @throws NoFreeBuilderException
+         *         if all builders that may process request are busy
+         */
+        synchronized RemoteBuilder getBuilder(BaseBuilderRequest request) throws NoFreeBuilderException {
+            final String name = request.getBuilder();
+            final List<RemoteBuilder> available = new ArrayList<>();
+            boolean matched = false;
+            for (Map.Entry<RemoteBuilder, int[]> entry : builders.entrySet()) {
+                if (name.equals(entry.getKey().getName())) {
+                    matched = true;
+                    if (entry.getValue()[0] > 0) {
+                        available.add(entry.getKey());
+                    }
                 }
             }
-            final int size = matched.size();
-            if (size == 0) {
+            if (!matched) {
                 return null;
             }
-            final List<RemoteBuilder> available = new ArrayList<>(matched.size());
-            for (; ; ) {
-                for (RemoteBuilder builder : matched) {
-                    if (Thread.currentThread().isInterrupted()) {
-                        return null; // stop immediately
-                    }
-                    BuilderState builderState;
-                    try {
-                        builderState = builder.getBuilderState();
-                    } catch (Exception e) {
-                        LOG.error(e.getMessage(), e);
-                        continue;
-                    }
-                    if (builderState.getFreeWorkers() > 0) {
-                        available.add(builder);
-                    }
+            if (available.isEmpty()) {
+                throw new NoFreeBuilderException(this, name);
+            }
+            final RemoteBuilder builder = available.size() > 1 ? builderSelector.select(available) : available.get(0);
+            final int[] workers = builders.get(builder);
+            workers[0]--;
+            workers[1]++;
+            return builder;
+        }
+
+        /**
+         * Adds task to the list of tasks that wait for free worker of builder with specified name.
+         *
+         * @return {@code false} if task isn't added because some builder with specified name has free workers, in this case task should
+         * be resumed immediately
+         */
+        synchronized boolean await(String name, InternalBuildTask task) {
+            if (getFreeWorkers(name) > 0) {
+                return false;
+            }
+            Queue<InternalBuildTask> queue = waitingTasks.get(name);
+            if (queue == null) {
+                waitingTasks.put(name, queue = new PriorityQueue<>(16, WAITING_TASKS_COMPARATOR));
+            }
+            queue.add(task);
+            return true;
+        }
+
+        /**
+         * Updates number of free workers of builder with state of remote builder. Workers that are reserved for requests which are being
+         * sent to the builder are still counted as busy.
+         *
+         * @return tasks that should be resumed
+         */
+        synchronized List<InternalBuildTask> setFreeWorkers(RemoteBuilder builder, int freeWorkers) {
+            final int[] workers = builders.get(builder);
+            if (workers == null) {
+                return Collections.emptyList();
+            }
+            workers[0] = Math.max(0, freeWorkers - workers[1]);
+            return pollWaitingTasks(builder.getName());
+        }
+
+        /**
+         * Releases worker that was reserved with {@link #getBuilder(BaseBuilderRequest)}.
+         *
+         * @param accepted
+         *         {@code true} if request is accepted by remote builder, in this case worker stays busy until builder notifies about end of
+         *         task, otherwise worker is free again
+         * @return tasks that should be resumed
+         */
+        synchronized List<InternalBuildTask> releaseReservation(RemoteBuilder builder, boolean accepted) {
+            final int[] workers = builders.get(builder);
+            if (workers == null) {
+                return Collections.emptyList();
+            }
+            workers[1]--;
+            if (accepted) {
+                return Collections.emptyList();
+            }
+            workers[0]++;
+            return pollWaitingTasks(builder.getName());
+        }
+
+        /**
+         * Releases worker that was reserved with {@link #getBuilder(BaseBuilderRequest)} for request that builder didn't accept and
+         * updates number of free workers of builder with its state that was got after request was rejected.
+         *
+         * @return tasks that should be resumed
+         */
+        synchronized List<InternalBuildTask> releaseRejected(RemoteBuilder builder, int freeWorkers) {
+            final int[] workers = builders.get(builder);
+            if (workers == null) {
+                return Collections.emptyList();
+            }
+            workers[1]--;
+            workers[0] = Math.max(0, freeWorkers - workers[1]);
+            return pollWaitingTasks(builder.getName());
+        }
+
+        /**
+         * Increases number of free workers of builder after its task is done.
+         *
+         * @return tasks that should be resumed
+         */
+        synchronized List<InternalBuildTask> releaseWorker(String baseUrl, String name) {
+            for (Map.Entry<RemoteBuilder, int[]> entry : builders.entrySet()) {
+                final RemoteBuilder builder = entry.getKey();
+                if (baseUrl.equals(builder.getBaseUrl()) && name.equals(builder.getName())) {
+                    entry.getValue()[0]++;
+                    return pollWaitingTasks(name);
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        /**
+         * Removes tasks that wait for builders which aren't in this list any more.
+         *
+         * @return tasks that should be resumed
+         */
+        synchronized List<InternalBuildTask> drainOrphans() {
+            final List<InternalBuildTask> orphans = new ArrayList<>();
+            for (Iterator<Map.Entry<String, Queue<InternalBuildTask>>> i = waitingTasks.entrySet().iterator(); i.hasNext(); ) {
+                final Map.Entry<String, Queue<InternalBuildTask>> entry = i.next();
+                if (!hasBuilder(entry.getKey())) {
+                    orphans.addAll(entry.getValue());
+                    i.remove();
                 }
+            }
+            return orphans;
+        }
 
-                if (available.isEmpty()) {
-                    try {
-                        wait(CHECK_AVAILABLE_BUILDER_DELAY); // wait and try again
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return null; // expected to get here if task is canceled
-                    }
-                } else {
-                    if (available.size() > 1) {
-                        return builderSelector.select(available);
-                    }
-                    return available.get(0);
+        private List<InternalBuildTask> pollWaitingTasks(String name) {
+            final Queue<InternalBuildTask> queue = waitingTasks.get(name);
+            if (queue == null) {
+                return Collections.emptyList();
+            }
+            final List<InternalBuildTask> resumed = new ArrayList<>();
+            int freeWorkers = getFreeWorkers(name);
+            InternalBuildTask task;
+            while (freeWorkers > 0 && (task = queue.poll()) != null) {
+                // Skip tasks that were cancelled while waiting.
+                if (!task.isDone()) {
+                    resumed.add(task);
+                    freeWorkers--;
                 }
             }
+            if (queue.isEmpty()) {
+                waitingTasks.remove(name);
+            }
+            return resumed;
+        }
+
+        synchronized int getFreeWorkers(String name) {
+            int freeWorkers = 0;
+            for (Map.Entry<RemoteBuilder, int[]> entry : builders.entrySet()) {
+                if (name.equals(entry.getKey().getName()) && entry.getValue()[0] > 0) {
+                    freeWorkers += entry.getValue()[0];
+                }
+            }
+            return freeWorkers;
         }
     }
 
@@ -1039,8 +1424,21 @@ public class BuildQueue {
                         final BuilderEvent.LoggedMessage message = event.getMessage();
                         if (message != null) {
                             bm.setChannel(String.format("builder:output:%d", id));
-                            bm.setBody(String.format("{\"num\":%d, \"line\":%s}",
-                                                     message.getLineNum(), JsonUtils.getJsonString(message.getMessage())));
+                            if (message.getLines() == null) {
+                                bm.setBody(String.format("{\"num\":%d, \"line\":%s}",
+                                                         message.getLineNum(), JsonUtils.getJsonString(message.getMessage())));
+                            } else {
+                                // Frame of few lines, clients get its lines in separate field.
+                                final StringBuilder lines = new StringBuilder();
+                                for (String line : message.getLines()) {
+                                    if (lines.length() > 0) {
+                                        lines.append(',');
+                                    }
+                                    lines.append(JsonUtils.getJsonString(line));
+                                }
+                                bm.setBody(String.format("{\"num\":%d, \"frame\":%d, \"lines\":[%s]}",
+                                                         message.getLineNum(), message.getFrame(), lines));
+                            }
                         }
                         break;
                 }
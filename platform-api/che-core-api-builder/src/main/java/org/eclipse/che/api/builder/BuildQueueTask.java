@@ -272,11 +272,17 @@ public class BuildQueueTask implements Cancellable {
     }
 
     public void readLogs(HttpOutputMessage output) throws BuilderException, IOException, NotFoundException {
+        readLogs(null, -1, false, null, output);
+    }
+
+    /** @see RemoteTask#readLogs(Long, long, boolean, String, HttpOutputMessage) */
+    public void readLogs(Long fromLine, long limit, boolean follow, String range, HttpOutputMessage output)
+            throws BuilderException, IOException, NotFoundException {
         if (isWaiting()) {
             // Logs aren't available until build starts
             throw new BuilderException("Logs are not available. Task is not started yet.");
         }
-        getRemoteTask().readLogs(output);
+        getRemoteTask().readLogs(fromLine, limit, follow, range, output);
     }
 
     public void readReport(HttpOutputMessage output) throws BuilderException, IOException, NotFoundException {
@@ -39,6 +39,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -213,9 +214,16 @@ public class BuilderService extends Service {
                         @PathParam("ws-id") String workspace,
                         @ApiParam(value = "Get build logs", required = true)
                         @PathParam("id") Long id,
+                        @ApiParam(value = "Number of the first line, lines are numbered from 1. Negative value means the last lines")
+                        @QueryParam("fromLine") Long fromLine,
+                        @ApiParam(value = "Max number of lines")
+                        @DefaultValue("-1") @QueryParam("limit") long limit,
+                        @ApiParam(value = "Send new lines while build is running")
+                        @QueryParam("follow") boolean follow,
+                        @HeaderParam("Range") String range,
                         @Context HttpServletResponse httpServletResponse) throws Exception {
         // Response write directly to the servlet request stream
-        buildQueue.getTask(id).readLogs(new HttpServletProxyResponse(httpServletResponse));
+        buildQueue.getTask(id).readLogs(fromLine, limit, follow, range, new HttpServletProxyResponse(httpServletResponse));
     }
 
 
@@ -138,12 +138,49 @@ public class RemoteTask {
      *         if other error occurs
      */
     public void readLogs(HttpOutputMessage output) throws IOException, BuilderException, NotFoundException {
+        readLogs(null, -1, false, null, output);
+    }
+
+    /**
+     * Copy part of logs of build process to specified {@code output}.
+     *
+     * @param fromLine
+     *         number of the first line, lines are numbered from 1. If it is negative then the last {@code -fromLine} lines are copied. If
+     *         it is {@code null} logs are copied from the beginning.
+     * @param limit
+     *         max number of lines, if it is negative then number of lines isn't limited
+     * @param follow
+     *         if {@code true} new lines are copied while build is running
+     * @param range
+     *         value of HTTP header 'Range', it is used if {@code fromLine} isn't set. May be {@code null}.
+     * @param output
+     *         output for logs content
+     * @throws IOException
+     *         if an i/o error occurs
+     * @throws BuilderException
+     *         if other error occurs
+     */
+    public void readLogs(Long fromLine, long limit, boolean follow, String range, HttpOutputMessage output)
+            throws IOException, BuilderException, NotFoundException {
         final BuildTaskDescriptor descriptor = getBuildTaskDescriptor();
         final Link link = descriptor.getLink(Constants.LINK_REL_VIEW_LOG);
         if (link == null) {
             throw new BuilderException("Logs are not available.");
         }
-        readFromUrl(link.getHref(), output);
+        final StringBuilder url = new StringBuilder(link.getHref());
+        char separator = url.indexOf("?") < 0 ? '?' : '&';
+        if (fromLine != null) {
+            url.append(separator).append("fromLine=").append(fromLine);
+            separator = '&';
+        }
+        if (limit >= 0) {
+            url.append(separator).append("limit=").append(limit);
+            separator = '&';
+        }
+        if (follow) {
+            url.append(separator).append("follow=true");
+        }
+        readFromUrl(url.toString(), range, output);
     }
 
     /**
@@ -225,16 +262,28 @@ public class RemoteTask {
     }
 
     private void readFromUrl(String url, final HttpOutputMessage output) throws IOException {
+        readFromUrl(url, null, output);
+    }
+
+    private void readFromUrl(String url, String range, final HttpOutputMessage output) throws IOException {
         final HttpURLConnection conn = (HttpURLConnection)new URL(url).openConnection();
         conn.setConnectTimeout(60 * 1000);
         conn.setReadTimeout(60 * 1000);
         conn.setRequestMethod("GET");
+        if (range != null) {
+            conn.setRequestProperty("Range", range);
+        }
         try {
-            output.setStatus(conn.getResponseCode());
+            final int responseCode = conn.getResponseCode();
+            output.setStatus(responseCode);
             final String contentType = conn.getContentType();
             if (contentType != null) {
                 output.setContentType(contentType);
             }
+            final String contentRange = conn.getHeaderField("Content-Range");
+            if (contentRange != null) {
+                output.addHttpHeader("Content-Range", contentRange);
+            }
             // for download files
             final String contentDisposition = conn.getHeaderField("Content-Disposition");
             if (contentDisposition != null) {
@@ -245,6 +294,10 @@ public class RemoteTask {
             Closer closer = Closer.create();
             try {
                 InputStream errorStream = closer.register(conn.getErrorStream());
+                if (errorStream == null && responseCode >= 400) {
+                    // Error without body, e.g. 416 (Requested Range Not Satisfiable).
+                    return;
+                }
                 InputStream in = errorStream != null ? errorStream : closer.register(conn.getInputStream());
                 ByteStreams.copy(in, closer.register(output.getOutputStream()));
             } catch (Throwable e) {
@@ -11,37 +11,43 @@
 package org.eclipse.che.api.builder.internal;
 
 import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.util.BatchingLineConsumer;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Publishes builder's outputs to the EventService.
+ * Publishes builder's outputs to the EventService. Lines are published in frames in background, see {@link BatchingLineConsumer}. All
+ * lines are written to the delegate logger even if some of them aren't published.
  *
  * @author andrew00x
  */
 class BuildLogsPublisher extends DelegateBuildLogger {
-    private final AtomicInteger lineCounter;
-    private final EventService eventService;
-    private final long         taskId;
-    private final String       workspace;
-    private final String       project;
+    private final BatchingLineConsumer publisher;
 
-    BuildLogsPublisher(BuildLogger delegate, EventService eventService, long taskId, String workspace, String project) {
+    BuildLogsPublisher(BuildLogger delegate, final EventService eventService, final long taskId, final String workspace,
+                       final String project) {
         super(delegate);
-        this.eventService = eventService;
-        this.taskId = taskId;
-        this.workspace = workspace;
-        this.project = project;
-        lineCounter = new AtomicInteger(1);
+        publisher = new BatchingLineConsumer() {
+            @Override
+            protected void publish(Frame frame) {
+                eventService.publish(BuilderEvent.messageLoggedEvent(taskId, workspace, project, new BuilderEvent.LoggedMessage(
+                        frame.getLines(), frame.getFirstLineNum(), frame.getSequenceNumber())));
+            }
+        };
     }
 
     @Override
     public void writeLine(String line) throws IOException {
-        if (line != null) {
-            eventService.publish(BuilderEvent.messageLoggedEvent(taskId, workspace, project,
-                                                                 new BuilderEvent.LoggedMessage(line, lineCounter.getAndIncrement())));
-        }
+        publisher.writeLine(line);
         super.writeLine(line);
     }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            publisher.close();
+        } finally {
+            super.close();
+        }
+    }
 }
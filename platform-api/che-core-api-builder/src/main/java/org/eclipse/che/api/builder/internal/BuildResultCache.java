@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.eclipse.che.api.builder.dto.BaseBuilderRequest;
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.commons.lang.IoUtil;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cache of build results on local disk. Key of result is hash of project sources and build options, so the same sources that are built
+ * in different workspaces, e.g. projects created from the same factory or template, share the result. Cache keeps artifacts of build
+ * with their paths relative to the working directory of build, restored artifacts appear at the same places where build creates them.
+ * <p/>
+ * Total size of cached results is limited, the least recently used results are removed when limit is reached.
+ *
+ * @author andrew00x
+ */
+public class BuildResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(BuildResultCache.class);
+
+    /** Prefix of names of directories that are not complete entries of cache yet or entries that are being removed. */
+    private static final String TEMP_PREFIX = ".";
+
+    private final java.io.File directory;
+    private final long         maxSize;
+
+    // All fields below are guarded by this.
+    /** Sizes of cached results in order of access, the least recently used first. */
+    private final LinkedHashMap<String, Long> entries;
+    private       long                        size;
+    private       long                        hits;
+    private       long                        misses;
+
+    /**
+     * @param directory
+     *         directory for cached results
+     * @param maxSize
+     *         max total size of cached results in bytes
+     */
+    public BuildResultCache(java.io.File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** Loads results that were cached before restart. Incomplete results are removed. */
+    public synchronized void init() throws IOException {
+        if (!(directory.exists() || directory.mkdirs())) {
+            throw new IOException(String.format("Unable create directory %s", directory.getAbsolutePath()));
+        }
+        final java.io.File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final List<java.io.File> cached = new ArrayList<>(files.length);
+        for (java.io.File file : files) {
+            if (file.getName().startsWith(TEMP_PREFIX) || !file.isDirectory()) {
+                delete(file);
+            } else {
+                cached.add(file);
+            }
+        }
+        Collections.sort(cached, new Comparator<java.io.File>() {
+            @Override
+            public int compare(java.io.File o1, java.io.File o2) {
+                final long m1 = o1.lastModified();
+                final long m2 = o2.lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        for (java.io.File file : cached) {
+            final long entrySize = sizeOf(file);
+            entries.put(file.getName(), entrySize);
+            size += entrySize;
+        }
+        delete(evict());
+    }
+
+    /**
+     * Gets key of result of build. Key includes content of all files in working directory of build, name of builder, build targets and
+     * options.
+     *
+     * @return key or {@code null} if result of build can't be cached, e.g. it is not a build of project
+     */
+    public String getKey(BuilderConfiguration configuration) throws IOException {
+        final BaseBuilderRequest request = configuration.getRequest();
+        if (configuration.getTaskType() != BuilderTaskType.DEFAULT || !(request instanceof BuildRequest)) {
+            return null;
+        }
+        final Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putString(request.getBuilder(), Charsets.UTF_8);
+        for (String target : request.getTargets()) {
+            hasher.putString(target, Charsets.UTF_8).putByte((byte)0);
+        }
+        for (Map.Entry<String, String> option : new TreeMap<>(request.getOptions()).entrySet()) {
+            hasher.putString(option.getKey(), Charsets.UTF_8).putByte((byte)0);
+            hasher.putString(String.valueOf(option.getValue()), Charsets.UTF_8).putByte((byte)0);
+        }
+        hasher.putBoolean(((BuildRequest)request).isSkipTest());
+        hasher.putBoolean(request.isIncludeDependencies());
+        final java.io.File workDir = configuration.getWorkDir();
+        for (String path : listFiles(workDir)) {
+            hasher.putString(path, Charsets.UTF_8).putByte((byte)0);
+            hasher.putBytes(com.google.common.io.Files.hash(new java.io.File(workDir, path), Hashing.sha1()).asBytes());
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Copies cached result of build into working directory.
+     *
+     * @return {@code true} if result is restored and {@code false} if there is no result with specified key in cache
+     */
+    public boolean restore(String key, java.io.File workDir) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses++;
+                return false;
+            }
+            hits++;
+        }
+        final java.io.File entry = new java.io.File(directory, key);
+        try {
+            IoUtil.copy(entry, workDir, IoUtil.ANY_FILTER, true);
+        } catch (IOException e) {
+            // Entry might be removed while we copy it. Let build run as usual.
+            LOG.warn("Unable restore result of build {}. {}", key, e.getMessage());
+            return false;
+        }
+        if (!entry.setLastModified(System.currentTimeMillis())) {
+            LOG.debug("Unable update modification date of {}", entry);
+        }
+        return true;
+    }
+
+    /**
+     * Adds result of build to the cache. Files that are not located inside working directory of build are ignored.
+     *
+     * @param key
+     *         key of result
+     * @param workDir
+     *         working directory of build
+     * @param files
+     *         artifacts of build
+     */
+    public void put(String key, java.io.File workDir, List<java.io.File> files) throws IOException {
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+        final Path workDirPath = workDir.toPath().toAbsolutePath().normalize();
+        final java.io.File temp = new java.io.File(directory, TEMP_PREFIX + key + '-' + System.nanoTime());
+        long entrySize = 0;
+        try {
+            for (java.io.File file : files) {
+                final Path filePath = file.toPath().toAbsolutePath().normalize();
+                if (!filePath.startsWith(workDirPath) || !file.isFile()) {
+                    continue;
+                }
+                entrySize += file.length();
+                if (entrySize > maxSize) {
+                    delete(temp);
+                    return;
+                }
+                final Path target = temp.toPath().resolve(workDirPath.relativize(filePath));
+                Files.createDirectories(target.getParent());
+                Files.copy(filePath, target);
+            }
+        } catch (IOException e) {
+            delete(temp);
+            throw e;
+        }
+        if (entrySize == 0) {
+            delete(temp);
+            return;
+        }
+        final List<java.io.File> evicted;
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                evicted = Collections.singletonList(temp);
+            } else {
+                Files.move(temp.toPath(), new java.io.File(directory, key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                entries.put(key, entrySize);
+                size += entrySize;
+                evicted = evict();
+            }
+        }
+        delete(evicted);
+    }
+
+    /** Total size of cached results in bytes. */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /** Number of build results that were restored from cache. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Number of build results that were not found in cache. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Removes the least recently used entries until size of cache exceeds limit. Entries are renamed under lock, so they may be deleted
+     * without lock.
+     */
+    private List<java.io.File> evict() {
+        final List<java.io.File> evicted = new LinkedList<>();
+        for (Iterator<Map.Entry<String, Long>> i = entries.entrySet().iterator(); i.hasNext() && size > maxSize; ) {
+            final Map.Entry<String, Long> entry = i.next();
+            i.remove();
+            size -= entry.getValue();
+            final java.io.File file = new java.io.File(directory, entry.getKey());
+            final java.io.File removed = new java.io.File(directory, TEMP_PREFIX + entry.getKey() + '-' + System.nanoTime());
+            evicted.add(file.renameTo(removed) ? removed : file);
+        }
+        return evicted;
+    }
+
+    private static void delete(List<java.io.File> files) {
+        for (java.io.File file : files) {
+            delete(file);
+        }
+    }
+
+    private static void delete(java.io.File file) {
+        if (file.exists() && !IoUtil.deleteRecursive(file)) {
+            LOG.warn("Unable delete {}", file);
+        }
+    }
+
+    private static long sizeOf(java.io.File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        long size = 0;
+        final java.io.File[] children = file.listFiles();
+        if (children != null) {
+            for (java.io.File child : children) {
+                size += sizeOf(child);
+            }
+        }
+        return size;
+    }
+
+    /** Lists files in directory recursively, paths are relative to directory and sorted to get the same key for the same sources. */
+    private static List<String> listFiles(java.io.File dir) {
+        final List<String> paths = new ArrayList<>();
+        final LinkedList<java.io.File> q = new LinkedList<>();
+        q.add(dir);
+        final Path dirPath = dir.toPath();
+        while (!q.isEmpty()) {
+            final java.io.File[] children = q.pop().listFiles();
+            if (children != null) {
+                for (java.io.File child : children) {
+                    if (child.isDirectory()) {
+                        q.push(child);
+                    } else {
+                        paths.add(dirPath.relativize(child.toPath()).toString().replace('\\', '/'));
+                    }
+                }
+            }
+        }
+        final String[] sorted = paths.toArray(new String[paths.size()]);
+        Arrays.sort(sorted);
+        return Arrays.asList(sorted);
+    }
+}
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.inject.Named;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
@@ -70,6 +71,9 @@ public abstract class Builder {
 
     private static final AtomicLong buildIdSequence = new AtomicLong(1);
 
+    /** Default max size of cache of build results in megabytes. */
+    public static final long DEFAULT_CACHE_MAX_SIZE = 1024;
+
     private final ConcurrentMap<Long, FutureBuildTask> tasks;
     private final java.io.File                         rootDirectory;
     private final Set<BuildListener>                   buildListeners;
@@ -78,12 +82,19 @@ public abstract class Builder {
     private final int                                  queueSize;
     private final int                                  numberOfWorkers;
     private final AtomicBoolean                        started;
+    /** Keys of build results that should be added to the cache when build ends. Key of map is working directory of build. */
+    private final ConcurrentMap<java.io.File, String>  buildResultKeys;
 
     private ThreadPoolExecutor       executor;
     private ScheduledExecutorService scheduler;
     private java.io.File             repository;
     private java.io.File             builds;
     private SourcesManagerImpl       sourcesManager;
+    private BuildResultCache         buildResultCache;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILDER_CACHE_MAX_SIZE)
+    private long cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
 
     public Builder(java.io.File rootDirectory, int numberOfWorkers, int queueSize, int keepResultTime, EventService eventService) {
         this.rootDirectory = rootDirectory;
@@ -95,6 +106,7 @@ public abstract class Builder {
         buildListeners = new CopyOnWriteArraySet<>();
         tasks = new ConcurrentHashMap<>();
         started = new AtomicBoolean(false);
+        buildResultKeys = new ConcurrentHashMap<>();
     }
 
     /**
@@ -159,6 +171,16 @@ public abstract class Builder {
             // TODO: use single instance of SourceManager
             sourcesManager = new SourcesManagerImpl(sources);
             sourcesManager.start(); // TODO: guice must do this
+            if (cacheMaxSize > 0) {
+                // Cache is kept outside of repository that is cleaned up when builder stops.
+                buildResultCache = new BuildResultCache(new java.io.File(rootDirectory, getName() + "-cache"), cacheMaxSize * 1024 * 1024);
+                try {
+                    buildResultCache.init();
+                } catch (IOException e) {
+                    LOG.error(String.format("Unable initialize cache of build results, cache is disabled. %s", e.getMessage()), e);
+                    buildResultCache = null;
+                }
+            }
             executor = new MyThreadPoolExecutor(numberOfWorkers <= 0 ? Runtime.getRuntime().availableProcessors() : numberOfWorkers,
                                                 queueSize);
             scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
@@ -242,6 +264,8 @@ public abstract class Builder {
             }
             tasks.clear();
             buildListeners.clear();
+            buildResultKeys.clear();
+            buildResultCache = null;
             sourcesManager.stop(); // TODO: guice must do this
             if (interrupted) {
                 Thread.currentThread().interrupt();
@@ -261,6 +285,12 @@ public abstract class Builder {
         return builds;
     }
 
+    /** Gets cache of build results or {@code null} if cache is disabled. */
+    public BuildResultCache getBuildResultCache() {
+        checkStarted();
+        return buildResultCache;
+    }
+
     public SourcesManager getSourcesManager() {
         checkStarted();
         return sourcesManager;
@@ -396,13 +426,14 @@ public abstract class Builder {
             @Override
             public void done(BuildTask task) {
                 final BaseBuilderRequest buildRequest = task.getConfiguration().getRequest();
-                eventService.publish(BuilderEvent.doneEvent(buildRequest.getId(), buildRequest.getWorkspace(), buildRequest.getProject()));
+                // Close logger before publishing DONE event to publish all collected lines of output.
                 try {
                     myLogger.close();
                     LOG.debug("Close build logger {}", myLogger);
                 } catch (IOException e) {
                     LOG.error(e.getMessage(), e);
                 }
+                eventService.publish(BuilderEvent.doneEvent(buildRequest.getId(), buildRequest.getWorkspace(), buildRequest.getProject()));
             }
         };
         final FutureBuildTask task = new FutureBuildTask(callable, internalId, commandLine, getName(), configuration, myLogger, callback);
@@ -429,6 +460,12 @@ public abstract class Builder {
                 BaseBuilderRequest request = configuration.getRequest();
                 getSourcesManager()
                         .getSources(logger, request.getWorkspace(), request.getProject(), request.getSourcesUrl(), configuration.getWorkDir());
+                if (restoreBuildResult(configuration, logger)) {
+                    eventService.publish(BuilderEvent.buildTimeStartedEvent(request.getId(), request.getWorkspace(), request.getProject(),
+                                                                            System.currentTimeMillis()));
+                    eventService.publish(BuilderEvent.beginEvent(request.getId(), request.getWorkspace(), request.getProject()));
+                    return true;
+                }
                 // build effectively starts right after sources downloading is done
                 eventService.publish(BuilderEvent.buildTimeStartedEvent(request.getId(), request.getWorkspace(), request.getProject(),
                                                                         System.currentTimeMillis()));
@@ -481,6 +518,63 @@ public abstract class Builder {
         };
     }
 
+    /**
+     * Restores result of build from cache if the same sources were built with the same options before. If result isn't found in cache
+     * key of result is remembered and result is added to the cache when build ends successfully.
+     *
+     * @return {@code true} if result of build is restored from cache and there is no need to run build
+     */
+    private boolean restoreBuildResult(BuilderConfiguration configuration, BuildLogger logger) {
+        final BuildResultCache cache = buildResultCache;
+        if (cache == null) {
+            return false;
+        }
+        final java.io.File workDir = configuration.getWorkDir();
+        final String key;
+        try {
+            key = cache.getKey(configuration);
+        } catch (IOException e) {
+            LOG.warn("Unable calculate key of build result for {}. {}", workDir, e.getMessage());
+            return false;
+        }
+        if (key == null) {
+            return false;
+        }
+        if (cache.restore(key, workDir)) {
+            try {
+                logger.writeLine("[INFO] Build result is restored from cache");
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+            return true;
+        }
+        buildResultKeys.put(workDir, key);
+        return false;
+    }
+
+    /** Adds artifacts and report of successful build to the cache. Builds without artifacts aren't cached. */
+    private void cacheBuildResult(FutureBuildTask task) {
+        final java.io.File workDir = task.getConfiguration().getWorkDir();
+        final String key = buildResultKeys.remove(workDir);
+        final BuildResultCache cache = buildResultCache;
+        if (key == null || cache == null || task.isCancelled()) {
+            return;
+        }
+        try {
+            final BuildResult result = task.getResult();
+            if (result == null || !result.isSuccessful() || result.getResults().isEmpty()) {
+                return;
+            }
+            final List<java.io.File> files = new LinkedList<>(result.getResults());
+            if (result.hasBuildReport()) {
+                files.add(result.getBuildReport());
+            }
+            cache.put(key, workDir, files);
+        } catch (BuilderException | IOException e) {
+            LOG.warn("Unable add result of build {} to the cache. {}", workDir, e.getMessage());
+        }
+    }
+
     /**
      * Cleanup task. Cleanup means removing all local files which were created by build process, e.g logs, sources, build reports, etc.
      * <p/>
@@ -817,6 +911,7 @@ public abstract class Builder {
                     }
                 }
                 futureBuildTask.ended();
+                cacheBuildResult(futureBuildTask);
             }
         }
     }
@@ -12,6 +12,8 @@ package org.eclipse.che.api.builder.internal;
 
 import org.eclipse.che.api.core.notification.EventOrigin;
 
+import java.util.List;
+
 /**
  * @author andrew00x
  */
@@ -55,17 +57,25 @@ public class BuilderEvent {
 
     /*
     Seems we can't guaranty correct order of messages on the client (browser) side, that means we need to wrap each line with simple object
-    that keeps line's number.
+    that keeps line's number. Frame of output has few lines, lineNum is number of the first line and frame is sequence number of frame.
      */
     public static class LoggedMessage {
-        private String message;
-        private int    lineNum;
+        private String       message;
+        private int          lineNum;
+        private List<String> lines;
+        private long         frame;
 
         public LoggedMessage(String message, int lineNum) {
             this.message = message;
             this.lineNum = lineNum;
         }
 
+        public LoggedMessage(List<String> lines, int lineNum, long frame) {
+            this.lines = lines;
+            this.lineNum = lineNum;
+            this.frame = frame;
+        }
+
         public LoggedMessage() {
         }
 
@@ -85,11 +95,30 @@ public class BuilderEvent {
             this.lineNum = lineNum;
         }
 
+        /** Lines of output frame or {@code null} if this message has single line. */
+        public List<String> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<String> lines) {
+            this.lines = lines;
+        }
+
+        public long getFrame() {
+            return frame;
+        }
+
+        public void setFrame(long frame) {
+            this.frame = frame;
+        }
+
         @Override
         public String toString() {
             return "LoggedMessage{" +
                    "message='" + message + '\'' +
                    ", lineNum=" + lineNum +
+                   ", lines=" + lines +
+                   ", frame=" + frame +
                    '}';
         }
     }
@@ -64,6 +64,15 @@ public class Constants {
      * this time build may be terminated.
      */
     public static final String MAX_EXECUTION_TIME         = "builder.max_execution_time";
+    /** Max number of threads that process tasks of build queue. */
+    public static final String BUILDER_QUEUE_MAX_THREADS  = "builder.queue.max_threads";
+    /** Max number of tasks that wait for free thread in build queue. New tasks are rejected if this limit is reached. */
+    public static final String BUILDER_QUEUE_MAX_SIZE     = "builder.queue.max_size";
+    /**
+     * Max size in megabytes of cache of build results on local disk of builder, see {@link BuildResultCache}. Cache is disabled if this
+     * parameter is set to 0.
+     */
+    public static final String BUILDER_CACHE_MAX_SIZE     = "builder.cache.max_size_mb";
 
     /* ================================================= */
 
@@ -76,6 +85,8 @@ public class Constants {
 
     // attributes of workspace which are interested for builder
     public static final String BUILDER_EXECUTION_TIME = "codenvy:builder_execution_time";
+    /** Infrastructure of workspace, e.g. 'paid' or 'always_on'. The same attribute is used by runner. */
+    public static final String BUILDER_INFRA          = "codenvy:runner_infra";
 
     private Constants() {
     }
@@ -10,33 +10,65 @@
  *******************************************************************************/
 package org.eclipse.che.api.builder.internal;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * File based implementation of BuildLogger.
+ * <p/>
+ * Lines are flushed to the file in groups: when line is written at least {@link #FLUSH_INTERVAL} milliseconds after the previous flush,
+ * before any read of logs and when logger is closed. There is no timer, so lines may stay in buffer while there is no new output, but
+ * readers of this logger always see all written lines. Anyone who reads {@link #getFile() file} directly should call {@link #flush()}
+ * first. Logger keeps offset of every {@link #INDEX_INTERVAL}-th line, it allows to read any range of
+ * lines without reading the log from the beginning. Lines are numbered from 1, in the same way as lines in {@link
+ * BuilderEvent#messageLoggedEvent(long, String, String, BuilderEvent.LoggedMessage) events}, {@code null} lines are skipped.
  *
  * @author andrew00x
  */
 public final class DefaultBuildLogger implements BuildLogger {
+    /** Offset of each line with number {@code INDEX_INTERVAL * n + 1} is kept in the index. */
+    static final int  INDEX_INTERVAL = 1000;
+    /** Min time in milliseconds between two flushes caused by writing of lines. */
+    static final long FLUSH_INTERVAL = 500;
+
+    private static final int BUFFER_SIZE = 8192;
+
     private final java.io.File file;
     private final String       contentType;
-    private final Writer       writer;
-    private final boolean      autoFlush;
+    private final Charset      charset;
+    private final OutputStream output;
+
+    // All fields below are guarded by this.
+    private long[]  index;
+    private long    lines;
+    private long    size;
+    private long    flushedLines;
+    private long    flushedSize;
+    private long    lastFlush;
+    private boolean closed;
 
     public DefaultBuildLogger(java.io.File file, String contentType) throws IOException {
         this.file = file;
         this.contentType = contentType;
-        autoFlush = true;
-        writer = Files.newBufferedWriter(file.toPath(), Charset.defaultCharset());
+        charset = Charset.defaultCharset();
+        output = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        index = new long[16];
     }
 
     @Override
     public Reader getReader() throws IOException {
-        return Files.newBufferedReader(file.toPath(), Charset.defaultCharset());
+        flush();
+        return Files.newBufferedReader(file.toPath(), charset);
     }
 
     @Override
@@ -50,19 +82,181 @@ public final class DefaultBuildLogger implements BuildLogger {
     }
 
     @Override
-    public void writeLine(String line) throws IOException {
-        if (line != null) {
-            writer.write(line);
+    public synchronized void writeLine(String line) throws IOException {
+        if (closed) {
+            throw new IOException("Logger is closed");
+        }
+        if (line == null) {
+            // Skip null in the same way as publisher of lines does, otherwise numbers of lines in events and in log are different.
+            return;
         }
-        writer.write('\n');
-        if (autoFlush) {
-            writer.flush();
+        if (lines % INDEX_INTERVAL == 0) {
+            final int i = (int)(lines / INDEX_INTERVAL);
+            if (i == index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[i] = size;
+        }
+        final byte[] bytes = line.getBytes(charset);
+        output.write(bytes);
+        size += bytes.length;
+        output.write('\n');
+        size++;
+        lines++;
+        final long now = System.currentTimeMillis();
+        if (now - lastFlush >= FLUSH_INTERVAL) {
+            doFlush(now);
+        }
+    }
+
+    /** Writes all buffered lines to the file. */
+    public synchronized void flush() throws IOException {
+        if (!closed && flushedSize < size) {
+            doFlush(System.currentTimeMillis());
+        }
+    }
+
+    private void doFlush(long now) throws IOException {
+        output.flush();
+        flushedLines = lines;
+        flushedSize = size;
+        lastFlush = now;
+        notifyAll();
+    }
+
+    /** Gets number of written lines. */
+    public synchronized long getLineCount() {
+        return lines;
+    }
+
+    /** Gets size of log in bytes. */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /** Reports whether logger is closed, no more lines may be written to the closed logger. */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Waits until the logger gets line with specified number or until it is closed.
+     *
+     * @param line
+     *         number of line
+     * @param timeout
+     *         max time to wait in milliseconds
+     * @return {@code true} if line is available and {@code false} if logger is closed without such line or timeout is reached
+     */
+    public synchronized boolean awaitLine(long line, long timeout) throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        long now;
+        // Writer doesn't notify about each line, check for new lines not less frequently than they are flushed.
+        while (lines < line && !closed && (now = System.currentTimeMillis()) < end) {
+            wait(Math.min(end - now, FLUSH_INTERVAL));
+        }
+        return lines >= line;
+    }
+
+    /**
+     * Copies lines to the output.
+     *
+     * @param fromLine
+     *         number of the first line to copy, lines are numbered from 1. If this parameter is negative then the last {@code -fromLine}
+     *         lines are copied.
+     * @param limit
+     *         max number of lines to copy, if this parameter is negative then number of lines isn't limited
+     * @param out
+     *         output
+     * @return number of the line next to the last copied line
+     */
+    public long readLines(long fromLine, long limit, OutputStream out) throws IOException {
+        final long lineCount;
+        final long endOffset;
+        final long startOffset;
+        final long skip;
+        synchronized (this) {
+            flush();
+            lineCount = flushedLines;
+            endOffset = flushedSize;
+            if (fromLine < 0) {
+                fromLine = Math.max(1, lineCount + fromLine + 1);
+            } else if (fromLine == 0) {
+                fromLine = 1;
+            }
+            if (fromLine > lineCount || limit == 0) {
+                return fromLine;
+            }
+            startOffset = index[(int)((fromLine - 1) / INDEX_INTERVAL)];
+            skip = (fromLine - 1) % INDEX_INTERVAL;
+        }
+        final long maxLines = limit < 0 ? lineCount - fromLine + 1 : Math.min(limit, lineCount - fromLine + 1);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = startOffset;
+            long skipped = 0;
+            long copied = 0;
+            while (copied < maxLines && position < endOffset) {
+                buf.clear();
+                buf.limit((int)Math.min(buf.capacity(), endOffset - position));
+                final int read = channel.read(buf, position);
+                if (read < 0) {
+                    break;
+                }
+                final byte[] bytes = buf.array();
+                int from = 0;
+                int i = 0;
+                for (; i < read && copied < maxLines; i++) {
+                    if (bytes[i] == '\n') {
+                        if (skipped < skip) {
+                            skipped++;
+                            from = i + 1;
+                        } else {
+                            copied++;
+                        }
+                    }
+                }
+                if (skipped >= skip && i > from) {
+                    out.write(bytes, from, i - from);
+                }
+                position += i;
+            }
+            return fromLine + copied;
+        }
+    }
+
+    /**
+     * Copies range of bytes to the output.
+     *
+     * @param from
+     *         offset of the first byte to copy
+     * @param to
+     *         offset of the last byte to copy, inclusive
+     * @param out
+     *         output
+     */
+    public void readBytes(long from, long to, OutputStream out) throws IOException {
+        flush();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = from;
+            final long end = to + 1;
+            while (position < end) {
+                final long transferred = channel.transferTo(position, end - position, Channels.newChannel(out));
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
         }
     }
 
     @Override
-    public void close() throws IOException {
-        writer.close();
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            doFlush(System.currentTimeMillis());
+            closed = true;
+            output.close();
+        }
     }
 
     @Override
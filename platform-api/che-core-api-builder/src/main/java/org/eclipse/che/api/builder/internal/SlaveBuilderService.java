@@ -38,6 +38,7 @@ import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -66,6 +67,9 @@ import java.util.Set;
  */
 @Path("internal/builder")
 public final class SlaveBuilderService extends Service {
+    /** Max time in milliseconds to wait for new lines of logs when client follows logs. */
+    private static final long FOLLOW_LOGS_TIMEOUT = 30000;
+
     @Inject
     private BuilderRegistry builders;
 
@@ -145,11 +149,102 @@ public final class SlaveBuilderService extends Service {
         return getDescriptor(task, getServiceContext().getServiceUriBuilder()).withBuildStats(myBuilder.getStats(id));
     }
 
+    /**
+     * Gets logs of build. By default whole log is returned. Part of log may be requested by numbers of lines or with HTTP header
+     * 'Range', e.g. 'Range: bytes=100-'. Lines are numbered from 1 in the same way as lines in websocket messages, so client may get
+     * lines that it missed. If {@code follow} is {@code true} new lines are sent to the client while build is running and there is
+     * output from the build.
+     *
+     * @param fromLine
+     *         number of the first line, if it is negative then the last {@code -fromLine} lines are returned
+     * @param limit
+     *         max number of lines, if it is negative then number of lines isn't limited
+     * @param follow
+     *         wait for new lines
+     */
     @GET
     @Path("logs/{builder}/{id}")
-    public Response getLogs(@PathParam("builder") String builder, @PathParam("id") Long id) throws Exception {
+    public Response getLogs(@PathParam("builder") String builder,
+                            @PathParam("id") Long id,
+                            @QueryParam("fromLine") Long fromLine,
+                            @DefaultValue("-1") @QueryParam("limit") final long limit,
+                            @QueryParam("follow") final boolean follow,
+                            @HeaderParam("Range") String range) throws Exception {
         final BuildLogger logger = getBuilder(builder).getBuildTask(id).getBuildLogger();
-        return Response.ok(logger.getReader(), logger.getContentType()).build();
+        final DefaultBuildLogger log = getDefaultBuildLogger(logger);
+        if (log == null || (fromLine == null && range == null && !follow)) {
+            return Response.ok(logger.getReader(), logger.getContentType()).build();
+        }
+        if (fromLine == null && range != null) {
+            return getLogsRange(log, range);
+        }
+        final long firstLine = fromLine == null ? 1 : fromLine;
+        return Response.ok(new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                long next = log.readLines(firstLine, limit, output);
+                if (!follow) {
+                    return;
+                }
+                long sent = next - firstLine;
+                try {
+                    while ((limit < 0 || sent < limit) && log.awaitLine(next, FOLLOW_LOGS_TIMEOUT)) {
+                        final long last = log.readLines(next, limit < 0 ? -1 : limit - sent, output);
+                        output.flush();
+                        sent += last - next;
+                        next = last;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, logger.getContentType()).build();
+    }
+
+    // Switched to default for test.
+    // private
+    static Response getLogsRange(final DefaultBuildLogger log, String range) throws IOException {
+        final long size = log.getSize();
+        long from = -1;
+        long to = -1;
+        if (range.startsWith("bytes=") && range.indexOf(',') < 0) {
+            final String spec = range.substring("bytes=".length()).trim();
+            final int dash = spec.indexOf('-');
+            try {
+                if (dash == 0) {
+                    from = Math.max(0, size - Long.parseLong(spec.substring(1)));
+                    to = size - 1;
+                } else if (dash > 0) {
+                    from = Long.parseLong(spec.substring(0, dash));
+                    to = dash == spec.length() - 1 ? size - 1 : Math.min(size - 1, Long.parseLong(spec.substring(dash + 1)));
+                }
+            } catch (NumberFormatException ignored) {
+                from = -1;
+            }
+        }
+        if (from < 0 || from > to) {
+            return Response.status(416).header("Content-Range", String.format("bytes */%d", size)).build();
+        }
+        final long start = from;
+        final long end = to;
+        return Response.status(206)
+                       .header("Content-Range", String.format("bytes %d-%d/%d", start, end, size))
+                       .type(log.getContentType())
+                       .entity(new StreamingOutput() {
+                           @Override
+                           public void write(OutputStream output) throws IOException, WebApplicationException {
+                               log.readBytes(start, end, output);
+                           }
+                       })
+                       .build();
+    }
+
+    /** Gets DefaultBuildLogger that stores logs, it may be wrapped with other loggers, e.g. logger that publishes logs as events. */
+    private DefaultBuildLogger getDefaultBuildLogger(BuildLogger logger) {
+        while (logger instanceof DelegateBuildLogger) {
+            logger = ((DelegateBuildLogger)logger).delegate;
+        }
+        return logger instanceof DefaultBuildLogger ? (DefaultBuildLogger)logger : null;
     }
 
     @POST
@@ -15,9 +15,9 @@ import org.eclipse.che.api.core.util.ValueHolder;
 import org.eclipse.che.commons.json.JsonHelper;
 import org.eclipse.che.commons.json.JsonParseException;
 import org.eclipse.che.commons.lang.IoUtil;
-import org.eclipse.che.commons.lang.Pair;
-import org.eclipse.che.commons.lang.ZipUtils;
+import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -26,33 +26,50 @@ import org.everrest.core.impl.header.HeaderParameterParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.StringReader;
 import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * Implementation of SourcesManager that stores sources locally and gets only updated files over virtual file system RESt API.
@@ -69,10 +86,19 @@ public class SourcesManagerImpl implements SourcesManager {
     private final AtomicReference<String>             projectKeyHolder;
     private final Set<SourceManagerListener>          listeners;
     private final ScheduledExecutorService            executor;
+    private final ExecutorService                     hashExecutor;
 
     private static final long KEEP_PROJECT_TIME = TimeUnit.MINUTES.toMillis(30);
     private static final int  CONNECT_TIMEOUT   = (int)TimeUnit.MINUTES.toMillis(4);//This time is chosen empirically and
     private static final int  READ_TIMEOUT      = (int)TimeUnit.MINUTES.toMillis(4);//necessary for some large projects. See IDEX-1957.
+    private static final int  PIPE_SIZE         = 64 * 1024;
+
+    /**
+     * Name of file in directory of sources that contains md5sums of all files together with their sizes and modification dates. It
+     * helps to avoid counting md5sums of files that aren't changed since previous download. The file isn't copied to the build
+     * directory.
+     */
+    static final String MANIFEST_FILE_NAME = ".codenvy.sources.md5";
 
     public SourcesManagerImpl(java.io.File directory) {
         this.directory = directory;
@@ -81,6 +107,8 @@ public class SourcesManagerImpl implements SourcesManager {
         executor = Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder().setNameFormat(getClass().getSimpleName() + "-FileCleaner-%d").setDaemon(true).build());
         listeners = new CopyOnWriteArraySet<>();
+        hashExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder()
+                .setNameFormat(getClass().getSimpleName() + "-Md5Counter-%d").setDaemon(true).build());
     }
 
     public void start() { // TODO: guice must do this
@@ -90,6 +118,7 @@ public class SourcesManagerImpl implements SourcesManager {
     public void stop() { // TODO: guice must do this
         listeners.clear();
         executor.shutdown();
+        hashExecutor.shutdownNow();
     }
 
     public void getSources(BuildLogger logger, BuilderConfiguration configuration) throws IOException {
@@ -152,7 +181,12 @@ public class SourcesManagerImpl implements SourcesManager {
             if (ioError != null) {
                 throw ioError;
             }
-            IoUtil.copy(srcDir, workDir, IoUtil.ANY_FILTER);
+            IoUtil.copy(srcDir, workDir, new FilenameFilter() {
+                @Override
+                public boolean accept(java.io.File dir, String name) {
+                    return !(MANIFEST_FILE_NAME.equals(name) && dir.equals(srcDir));
+                }
+            });
             for (SourceManagerListener listener : listeners) {
                 listener.afterDownload(new SourceManagerEvent(workspace, project, sourcesUrl, workDir));
             }
@@ -186,27 +220,16 @@ public class SourcesManagerImpl implements SourcesManager {
     };
 
     private void download(String downloadUrl, java.io.File downloadTo) throws IOException {
+        final java.io.File manifestFile = new java.io.File(downloadTo, MANIFEST_FILE_NAME);
+        // Manifest is valid only if download completes successfully, remove it until then.
+        final Map<String, ManifestEntry> manifest = readManifest(manifestFile);
+        if (manifestFile.exists() && !manifestFile.delete()) {
+            throw new IOException(String.format("Unable delete %s", manifestFile));
+        }
         HttpURLConnection conn = null;
         try {
-            final LinkedList<java.io.File> q = new LinkedList<>();
-            q.add(downloadTo);
             final long start = System.currentTimeMillis();
-            final List<Pair<String, String>> md5sums = new LinkedList<>();
-            while (!q.isEmpty()) {
-                java.io.File current = q.pop();
-                java.io.File[] list = current.listFiles();
-                if (list != null) {
-                    for (java.io.File f : list) {
-                        if (f.isDirectory()) {
-                            q.push(f);
-                        } else {
-                            md5sums.add(Pair.of(com.google.common.io.Files.hash(f, Hashing.md5()).toString(),
-                                                downloadTo.toPath().relativize(f.toPath()).toString()
-                                                          .replace("\\", "/"))); //Replacing of "\" is need for windows support
-                        }
-                    }
-                }
-            }
+            final Map<String, ManifestEntry> md5sums = countMd5sums(downloadTo, manifest);
             final long end = System.currentTimeMillis();
             if (md5sums.size() > 0) {
                 LOG.debug("count md5sums of {} files, time: {}ms", md5sums.size(), (end - start));
@@ -220,11 +243,11 @@ public class SourcesManagerImpl implements SourcesManager {
                 conn.setRequestProperty("Accept", "multipart/form-data");
                 conn.setDoOutput(true);
                 try (OutputStream output = conn.getOutputStream();
-                     Writer writer = new OutputStreamWriter(output)) {
-                    for (Pair<String, String> pair : md5sums) {
-                        writer.write(pair.first);
+                     Writer writer = new BufferedWriter(new OutputStreamWriter(output))) {
+                    for (Map.Entry<String, ManifestEntry> e : md5sums.entrySet()) {
+                        writer.write(e.getValue().md5);
                         writer.write(' ');
-                        writer.write(pair.second);
+                        writer.write(e.getKey());
                         writer.write('\n');
                     }
                 }
@@ -244,28 +267,7 @@ public class SourcesManagerImpl implements SourcesManager {
                             final List<String> contentDisposition = headers.get("content-disposition");
                             final String name = headerParameterParser.parse(contentDisposition.get(0)).get("name");
                             if ("updates".equals(name)) {
-                                int length = -1;
-                                List<String> contentLengthHeader = headers.get("content-length");
-                                if (contentLengthHeader != null && !contentLengthHeader.isEmpty()) {
-                                    length = Integer.parseInt(contentLengthHeader.get(0));
-                                }
-                                if (length < 0 || length > 204800) {
-                                    java.io.File tmp = java.io.File.createTempFile("tmp", ".zip", directory);
-                                    try {
-                                        try (FileOutputStream fOut = new FileOutputStream(tmp)) {
-                                            multipart.readBodyData(fOut);
-                                        }
-                                        ZipUtils.unzip(tmp, downloadTo);
-                                    } finally {
-                                        if (tmp.exists()) {
-                                            tmp.delete();
-                                        }
-                                    }
-                                } else {
-                                    final ByteArrayOutputStream bOut = new ByteArrayOutputStream(length);
-                                    multipart.readBodyData(bOut);
-                                    ZipUtils.unzip(new ByteArrayInputStream(bOut.toByteArray()), downloadTo);
-                                }
+                                md5sums.putAll(unzip(multipart, downloadTo));
                             } else if ("removed-paths".equals(name)) {
                                 final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
                                 multipart.readBodyData(bOut);
@@ -276,6 +278,7 @@ public class SourcesManagerImpl implements SourcesManager {
                                     if (!f.delete()) {
                                         throw new IOException(String.format("Unable delete %s", path));
                                     }
+                                    md5sums.remove(path);
                                 }
                             } else {
                                 // To /dev/null :)
@@ -286,12 +289,13 @@ public class SourcesManagerImpl implements SourcesManager {
                     }
                 } else {
                     try (InputStream in = conn.getInputStream()) {
-                        ZipUtils.unzip(in, downloadTo);
+                        md5sums.putAll(unzip(in, downloadTo));
                     }
                 }
             } else if (responseCode != HttpURLConnection.HTTP_NO_CONTENT) {
                 throw new IOException(String.format("Invalid response status %d from remote server. ", responseCode));
             }
+            writeManifest(manifestFile, md5sums);
         } catch (ParseException | JsonParseException e) {
             throw new IOException(e.getMessage(), e);
         } finally {
@@ -301,6 +305,210 @@ public class SourcesManagerImpl implements SourcesManager {
         }
     }
 
+    /**
+     * Counts md5sums of all files in directory. Md5sum of file is taken from manifest if size and modification date of file are the
+     * same as in manifest, md5sums of other files are counted in parallel.
+     *
+     * @return md5sums of files, key is path of file relative to the directory
+     */
+    private Map<String, ManifestEntry> countMd5sums(java.io.File dir, Map<String, ManifestEntry> manifest) throws IOException {
+        final Map<String, ManifestEntry> md5sums = new LinkedHashMap<>();
+        final Map<String, Future<ManifestEntry>> counting = new LinkedHashMap<>();
+        final LinkedList<java.io.File> q = new LinkedList<>();
+        q.add(dir);
+        while (!q.isEmpty()) {
+            java.io.File current = q.pop();
+            java.io.File[] list = current.listFiles();
+            if (list != null) {
+                for (final java.io.File f : list) {
+                    if (f.isDirectory()) {
+                        q.push(f);
+                    } else if (!(current.equals(dir) && MANIFEST_FILE_NAME.equals(f.getName()))) {
+                        //Replacing of "\" is need for windows support
+                        final String path = dir.toPath().relativize(f.toPath()).toString().replace("\\", "/");
+                        final ManifestEntry entry = manifest.get(path);
+                        if (entry != null && entry.lastModified == f.lastModified() && entry.length == f.length()) {
+                            md5sums.put(path, entry);
+                        } else {
+                            counting.put(path, hashExecutor.submit(new Callable<ManifestEntry>() {
+                                @Override
+                                public ManifestEntry call() throws IOException {
+                                    final long lastModified = f.lastModified();
+                                    final long length = f.length();
+                                    return new ManifestEntry(com.google.common.io.Files.hash(f, Hashing.md5()).toString(), lastModified,
+                                                             length);
+                                }
+                            }));
+                        }
+                    }
+                }
+            }
+        }
+        try {
+            for (Map.Entry<String, Future<ManifestEntry>> e : counting.entrySet()) {
+                md5sums.put(e.getKey(), e.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while count md5sums");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            for (Future<ManifestEntry> future : counting.values()) {
+                future.cancel(true);
+            }
+        }
+        return md5sums;
+    }
+
+    /**
+     * Unpacks part of multipart response directly from stream of response. MultipartStream may only write body of part to the
+     * OutputStream, so content of part is passed to the unpacking thread through the pipe.
+     */
+    private Map<String, ManifestEntry> unzip(MultipartStream multipart, final java.io.File targetDir) throws IOException {
+        final PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+        final PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        final Future<Map<String, ManifestEntry>> future = hashExecutor.submit(new Callable<Map<String, ManifestEntry>>() {
+            @Override
+            public Map<String, ManifestEntry> call() throws IOException {
+                try (InputStream in = pipeIn) {
+                    final Map<String, ManifestEntry> unzipped = unzip(in, targetDir);
+                    // Read the rest of zip, e.g. central directory, otherwise writer is blocked.
+                    ByteStreams.copy(in, DEV_NULL);
+                    return unzipped;
+                }
+            }
+        });
+        IOException writeError = null;
+        try {
+            try (OutputStream out = pipeOut) {
+                multipart.readBodyData(out);
+            } catch (IOException e) {
+                writeError = e;
+            }
+            // If pipe is closed by unpacking thread because of error, its error is more informative.
+            final Map<String, ManifestEntry> unzipped = future.get();
+            if (writeError != null) {
+                throw writeError;
+            }
+            return unzipped;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while unpack sources");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    /** Unpacks zip and counts md5sums of unpacked files. */
+    private static Map<String, ManifestEntry> unzip(InputStream in, java.io.File targetDir) throws IOException {
+        final Map<String, ManifestEntry> unzipped = new HashMap<>();
+        final ZipInputStream zipIn = new ZipInputStream(in);
+        final byte[] b = new byte[8192];
+        final Path targetPath = targetDir.toPath().toAbsolutePath().normalize();
+        ZipEntry zipEntry;
+        while ((zipEntry = zipIn.getNextEntry()) != null) {
+            final Path path = targetPath.resolve(zipEntry.getName()).normalize();
+            if (!path.startsWith(targetPath)) {
+                throw new IOException(String.format("Invalid zip entry %s", zipEntry.getName()));
+            }
+            final java.io.File file = path.toFile();
+            if (!zipEntry.isDirectory()) {
+                final java.io.File parent = file.getParentFile();
+                if (!(parent.exists() || parent.mkdirs())) {
+                    throw new IOException(String.format("Unable create directory %s", parent));
+                }
+                final MessageDigest md5 = newMd5();
+                try (OutputStream out = new DigestOutputStream(new FileOutputStream(file), md5)) {
+                    int r;
+                    while ((r = zipIn.read(b)) != -1) {
+                        out.write(b, 0, r);
+                    }
+                }
+                unzipped.put(targetPath.relativize(path).toString().replace("\\", "/"),
+                             new ManifestEntry(HashCode.fromBytes(md5.digest()).toString(), file.lastModified(), file.length()));
+            } else if (!(file.exists() || file.mkdirs())) {
+                throw new IOException(String.format("Unable create directory %s", file));
+            }
+            zipIn.closeEntry();
+        }
+        return unzipped;
+    }
+
+    private static MessageDigest newMd5() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /** Reads manifest of sources. Broken or missed manifest is treated as empty, in this case md5sums of all files are counted again. */
+    private static Map<String, ManifestEntry> readManifest(java.io.File manifestFile) {
+        final Map<String, ManifestEntry> manifest = new HashMap<>();
+        if (!manifestFile.exists()) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // md5 lastModified length path
+                final String[] parts = line.split(" ", 4);
+                if (parts.length != 4) {
+                    LOG.warn("Invalid manifest of sources {}", manifestFile);
+                    manifest.clear();
+                    break;
+                }
+                manifest.put(parts[3], new ManifestEntry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Unable read manifest of sources {}. {}", manifestFile, e.getMessage());
+            manifest.clear();
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(java.io.File manifestFile, Map<String, ManifestEntry> manifest) throws IOException {
+        final java.io.File tmp = new java.io.File(manifestFile.getParentFile(), manifestFile.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, ManifestEntry> e : manifest.entrySet()) {
+                final ManifestEntry entry = e.getValue();
+                writer.write(entry.md5);
+                writer.write(' ');
+                writer.write(Long.toString(entry.lastModified));
+                writer.write(' ');
+                writer.write(Long.toString(entry.length));
+                writer.write(' ');
+                writer.write(e.getKey());
+                writer.write('\n');
+            }
+        }
+        Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Md5sum of file together with size and modification date of file at the moment when md5sum was counted. */
+    private static class ManifestEntry {
+        final String md5;
+        final long   lastModified;
+        final long   length;
+
+        ManifestEntry(String md5, long lastModified, long length) {
+            this.md5 = md5;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
     private Map<String, List<String>> parseChunkHeader(List<String> rawHeaders) throws IOException {
         final Map<String, List<String>> headers = new HashMap<>();
         for (String field : rawHeaders) {
@@ -10,8 +10,192 @@
  *******************************************************************************/
 package org.eclipse.che.api.builder;
 
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.api.builder.dto.BuildTaskDescriptor;
+import org.eclipse.che.api.builder.dto.BuilderDescriptor;
+import org.eclipse.che.api.builder.dto.BuilderState;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.rest.shared.dto.Link;
+import org.eclipse.che.dto.server.DtoFactory;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author andrew00x
  */
 public class BuildQueueTest {
+    private static final long TIMEOUT = 10000;
+
+    private BuildQueue     queue;
+    private TestBuilder    builder;
+    private BuildRequest   request;
+    private CountDownLatch performStarted;
+    private CountDownLatch performProceed;
+    private CountDownLatch remoteTaskCancelled;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        queue = new BuildQueue(null, null, 60, 60, 60, new LastInUseBuilderSelectionStrategy(), new EventService());
+        // Builders state is updated explicitly in tests.
+        queue.checkBuilderStatePeriod = TimeUnit.HOURS.toMillis(1);
+        queue.start();
+        builder = new TestBuilder();
+        queue.doRegisterBuilderServer(new RemoteBuilderServer("http://localhost/builder") {
+            @Override
+            public List<RemoteBuilder> getRemoteBuilders() {
+                return Collections.<RemoteBuilder>singletonList(builder);
+            }
+        });
+        request = DtoFactory.getInstance().createDto(BuildRequest.class)
+                            .withBuilder("test")
+                            .withWorkspace("my-ws")
+                            .withProject("my-project");
+        performStarted = new CountDownLatch(1);
+        performProceed = new CountDownLatch(1);
+        remoteTaskCancelled = new CountDownLatch(1);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        queue.stop();
+    }
+
+    @Test
+    public void testWorkerReleasedWhenRequestIsNotAccepted() throws Exception {
+        builder.fail = true;
+        performProceed.countDown();
+        try {
+            queue.createTaskFor(request).call();
+            Assert.fail("BuilderException expected");
+        } catch (BuilderException expected) {
+        }
+        Assert.assertEquals(getBuilderList().getFreeWorkers("test"), 1);
+    }
+
+    @Test
+    public void testWorkerStaysBusyWhenRequestIsAccepted() throws Exception {
+        performProceed.countDown();
+        Assert.assertNotNull(queue.createTaskFor(request).call());
+        Assert.assertEquals(getBuilderList().getFreeWorkers("test"), 0);
+        getBuilderList().releaseWorker(builder.getBaseUrl(), builder.getName());
+        Assert.assertEquals(getBuilderList().getFreeWorkers("test"), 1);
+    }
+
+    @Test
+    public void testWorkerReleasedWhenTaskIsCancelledWhileRequestIsSent() throws Exception {
+        final BuildQueue.InternalBuildTask task =
+                new BuildQueue.InternalBuildTask(queue.createTaskFor(request), 1L, "my-ws", "my-project", false, 0);
+        queue.execute(task);
+        Assert.assertTrue(performStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(getBuilderList().getFreeWorkers("test"), 0);
+        task.cancel(false);
+        performProceed.countDown();
+        // Remote builder started task but nobody gets its result.
+        Assert.assertTrue(remoteTaskCancelled.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (getBuilderList().getFreeWorkers("test") == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "Worker isn't released");
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(getBuilderList().getFreeWorkers("test"), 1);
+    }
+
+    @Test
+    public void testTaskWaitsWhenBusyBuilderRejectsRequest() throws Exception {
+        // Builder list still counts free worker but remote builder is busy already.
+        builder.freeWorkers = 0;
+        builder.fail = true;
+        performProceed.countDown();
+        final BuildQueue.InternalBuildTask task =
+                new BuildQueue.InternalBuildTask(queue.createTaskFor(request), 1L, "my-ws", "my-project", false, 0);
+        queue.execute(task);
+        Assert.assertTrue(performStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        final BuildQueue.BuilderList builderList = getBuilderList();
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!isWaiting(builderList)) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "Task doesn't wait for free builder");
+            Thread.sleep(10);
+        }
+        // Build isn't failed, state of builder is updated immediately.
+        Assert.assertFalse(task.isDone());
+        Assert.assertEquals(builderList.getFreeWorkers("test"), 0);
+
+        builder.fail = false;
+        builder.freeWorkers = 1;
+        final List<BuildQueue.InternalBuildTask> resumed = builderList.setFreeWorkers(builder, 1);
+        Assert.assertEquals(resumed, Collections.singletonList(task));
+        queue.execute(task);
+        Assert.assertNotNull(task.get(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(builderList.getFreeWorkers("test"), 0);
+    }
+
+    @Test
+    public void testRefreshedStateKeepsReservedWorkers() throws Exception {
+        builder.freeWorkers = 2;
+        final BuildQueue.BuilderList builderList = getBuilderList();
+        builderList.setFreeWorkers(builder, 2);
+        Assert.assertSame(builderList.getBuilder(request), builder);
+        Assert.assertEquals(builderList.getFreeWorkers("test"), 1);
+        // Remote builder doesn't know about reserved worker yet.
+        builderList.setFreeWorkers(builder, 2);
+        Assert.assertEquals(builderList.getFreeWorkers("test"), 1);
+        // Request is accepted, now remote builder counts it.
+        builderList.releaseReservation(builder, true);
+        builderList.setFreeWorkers(builder, 1);
+        Assert.assertEquals(builderList.getFreeWorkers("test"), 1);
+    }
+
+    private BuildQueue.BuilderList getBuilderList() {
+        return queue.getBuilderList("my-ws", "my-project");
+    }
+
+    private boolean isWaiting(BuildQueue.BuilderList builderList) {
+        synchronized (builderList) {
+            return builderList.waitingTasks.containsKey("test");
+        }
+    }
+
+    private class TestBuilder extends RemoteBuilder {
+        volatile int     freeWorkers = 1;
+        volatile boolean fail;
+
+        TestBuilder() {
+            super("http://localhost/builder",
+                  DtoFactory.getInstance().createDto(BuilderDescriptor.class).withName("test"),
+                  Collections.<Link>emptyList());
+        }
+
+        @Override
+        public BuilderState getBuilderState() {
+            return DtoFactory.getInstance().createDto(BuilderState.class).withFreeWorkers(freeWorkers);
+        }
+
+        @Override
+        public RemoteTask perform(BuildRequest request) throws BuilderException {
+            performStarted.countDown();
+            try {
+                performProceed.await();
+            } catch (InterruptedException e) {
+                throw new BuilderException(e);
+            }
+            if (fail) {
+                throw new BuilderException("Request isn't accepted");
+            }
+            return new RemoteTask(getBaseUrl(), getName(), 1L) {
+                @Override
+                public BuildTaskDescriptor cancel() {
+                    remoteTaskCancelled.countDown();
+                    return null;
+                }
+            };
+        }
+    }
 }
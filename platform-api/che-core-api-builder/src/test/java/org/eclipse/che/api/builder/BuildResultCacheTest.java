@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder;
+
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.api.builder.internal.BuildResultCache;
+import org.eclipse.che.api.builder.internal.BuilderConfiguration;
+import org.eclipse.che.api.builder.internal.BuilderTaskType;
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.dto.server.DtoFactory;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+/** @author andrew00x */
+public class BuildResultCacheTest {
+    private java.io.File     root;
+    private java.io.File     cacheDir;
+    private BuildResultCache cache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("build-result-cache").toFile();
+        cacheDir = new java.io.File(root, "cache");
+        cache = new BuildResultCache(cacheDir, 100);
+        cache.init();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void testSameSourcesHaveSameKey() throws Exception {
+        java.io.File workDir1 = createSources("ws1", "hello");
+        java.io.File workDir2 = createSources("ws2", "hello");
+        java.io.File workDir3 = createSources("ws3", "hello world");
+        String key = cache.getKey(configuration(workDir1, false));
+        Assert.assertNotNull(key);
+        Assert.assertEquals(cache.getKey(configuration(workDir2, false)), key);
+        Assert.assertFalse(key.equals(cache.getKey(configuration(workDir2, true))));
+        Assert.assertFalse(key.equals(cache.getKey(configuration(workDir3, false))));
+    }
+
+    @Test
+    public void testRestoreResult() throws Exception {
+        java.io.File workDir1 = createSources("ws1", "hello");
+        java.io.File workDir2 = createSources("ws2", "hello");
+        String key = cache.getKey(configuration(workDir1, false));
+        Assert.assertFalse(cache.restore(key, workDir2));
+
+        java.io.File artifact = createArtifact(workDir1, "app.jar", 10);
+        cache.put(key, workDir1, Collections.singletonList(artifact));
+        Assert.assertTrue(cache.restore(key, workDir2));
+        Assert.assertEquals(Files.readAllBytes(new java.io.File(workDir2, "target/app.jar").toPath()),
+                            Files.readAllBytes(artifact.toPath()));
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+
+        // Entries survive restart.
+        cache = new BuildResultCache(cacheDir, 100);
+        cache.init();
+        Assert.assertEquals(cache.getSize(), 10);
+        Assert.assertTrue(cache.restore(key, createSources("ws3", "hello")));
+    }
+
+    @Test
+    public void testRemoveLeastRecentlyUsed() throws Exception {
+        java.io.File workDir = createSources("ws1", "hello");
+        cache.put("a", workDir, Collections.singletonList(createArtifact(workDir, "a.jar", 40)));
+        cache.put("b", workDir, Collections.singletonList(createArtifact(workDir, "b.jar", 40)));
+        Assert.assertTrue(cache.restore("a", createSources("ws2", "hello")));
+        cache.put("c", workDir, Collections.singletonList(createArtifact(workDir, "c.jar", 40)));
+        Assert.assertEquals(cache.getSize(), 80);
+        Assert.assertTrue(cache.restore("a", createSources("ws3", "hello")));
+        Assert.assertFalse(cache.restore("b", createSources("ws4", "hello")));
+        Assert.assertTrue(cache.restore("c", createSources("ws5", "hello")));
+        Assert.assertFalse(new java.io.File(cacheDir, "b").exists());
+
+        // Result that is larger than cache is never added.
+        cache.put("d", workDir, Arrays.asList(createArtifact(workDir, "d.jar", 101)));
+        Assert.assertFalse(cache.restore("d", createSources("ws6", "hello")));
+        Assert.assertEquals(cache.getSize(), 80);
+    }
+
+    private java.io.File createSources(String name, String content) throws Exception {
+        java.io.File workDir = new java.io.File(root, name);
+        java.io.File src = new java.io.File(workDir, "src");
+        Assert.assertTrue(src.mkdirs());
+        Files.write(new java.io.File(src, "Hello.java").toPath(), content.getBytes());
+        return workDir;
+    }
+
+    private java.io.File createArtifact(java.io.File workDir, String name, int size) throws Exception {
+        java.io.File target = new java.io.File(workDir, "target");
+        if (!target.exists()) {
+            Assert.assertTrue(target.mkdirs());
+        }
+        java.io.File artifact = new java.io.File(target, name);
+        Files.write(artifact.toPath(), new byte[size]);
+        return artifact;
+    }
+
+    private BuilderConfiguration configuration(java.io.File workDir, boolean skipTest) {
+        BuildRequest request = DtoFactory.getInstance().createDto(BuildRequest.class).withBuilder("my").withSkipTest(skipTest);
+        return new BuilderConfiguration(new java.io.File(root, "builds"), workDir, BuilderTaskType.DEFAULT, request);
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder;
+
+import org.eclipse.che.api.builder.dto.BuildTaskDescriptor;
+import org.eclipse.che.api.builder.internal.Constants;
+import org.eclipse.che.api.core.rest.HttpOutputMessage;
+import org.eclipse.che.api.core.rest.shared.dto.Link;
+import org.eclipse.che.dto.server.DtoFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that range of logs requested from master builder service is forwarded to the slave builder and status and 'Content-Range' of
+ * slave's response are sent back.
+ *
+ * @author andrew00x
+ */
+public class RemoteTaskTest {
+    private static final String LOG = "line1\nline2\n";
+
+    private HttpServer server;
+    private RemoteTask remoteTask;
+
+    private volatile String forwardedRange;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final String baseUrl = "http://localhost:" + server.getAddress().getPort() + "/builder";
+        final Link logsLink = DtoFactory.getInstance().createDto(Link.class)
+                                        .withRel(Constants.LINK_REL_VIEW_LOG)
+                                        .withHref(baseUrl + "/logs/test/1")
+                                        .withMethod("GET");
+        final byte[] status = DtoFactory.getInstance().toJson(DtoFactory.getInstance().createDto(BuildTaskDescriptor.class)
+                                                                        .withTaskId(1L)
+                                                                        .withLinks(Collections.singletonList(logsLink)))
+                                        .getBytes(StandardCharsets.UTF_8);
+        server.createContext("/builder/status/test/1", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, status.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(status);
+                }
+            }
+        });
+        // Slave builder that supports only one range of bytes.
+        server.createContext("/builder/logs/test/1", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                forwardedRange = exchange.getRequestHeaders().getFirst("Range");
+                if ("bytes=6-".equals(forwardedRange)) {
+                    final byte[] body = LOG.substring(6).getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                    exchange.getResponseHeaders().set("Content-Range", "bytes 6-11/12");
+                    exchange.sendResponseHeaders(206, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } else if (forwardedRange != null) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */12");
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                } else {
+                    final byte[] body = LOG.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            }
+        });
+        server.start();
+        remoteTask = new RemoteTask(baseUrl, "test", 1L);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    public void testReadLogs() throws Exception {
+        final MyHttpOutputMessage output = new MyHttpOutputMessage();
+        remoteTask.readLogs(output);
+        Assert.assertNull(forwardedRange);
+        Assert.assertEquals(output.status, 200);
+        Assert.assertNull(output.headers.get("Content-Range"));
+        Assert.assertEquals(output.getBody(), LOG);
+    }
+
+    @Test
+    public void testReadLogsRange() throws Exception {
+        final MyHttpOutputMessage output = new MyHttpOutputMessage();
+        remoteTask.readLogs(null, -1, false, "bytes=6-", output);
+        Assert.assertEquals(forwardedRange, "bytes=6-");
+        Assert.assertEquals(output.status, 206);
+        Assert.assertEquals(output.headers.get("Content-Range"), "bytes 6-11/12");
+        Assert.assertEquals(output.getBody(), "line2\n");
+    }
+
+    @Test
+    public void testReadLogsUnsatisfiableRange() throws Exception {
+        final MyHttpOutputMessage output = new MyHttpOutputMessage();
+        remoteTask.readLogs(null, -1, false, "bytes=12-", output);
+        Assert.assertEquals(forwardedRange, "bytes=12-");
+        Assert.assertEquals(output.status, 416);
+        Assert.assertEquals(output.headers.get("Content-Range"), "bytes */12");
+        Assert.assertEquals(output.getBody(), "");
+    }
+
+    private static class MyHttpOutputMessage implements HttpOutputMessage {
+        final Map<String, String>   headers = new HashMap<>();
+        final ByteArrayOutputStream body    = new ByteArrayOutputStream();
+
+        int status;
+
+        @Override
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public void setContentType(String contentType) {
+            headers.put("Content-Type", contentType);
+        }
+
+        @Override
+        public void addHttpHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public void setHttpHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return body;
+        }
+
+        String getBody() {
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
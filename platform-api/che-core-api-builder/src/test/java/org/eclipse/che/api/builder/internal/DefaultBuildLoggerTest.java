@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** @author andrew00x */
+public class DefaultBuildLoggerTest {
+    private static final long TIMEOUT = 10000;
+
+    private java.io.File       file;
+    private DefaultBuildLogger logger;
+    private ExecutorService    executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = Files.createTempFile("build-logger", ".log").toFile();
+        logger = new DefaultBuildLogger(file, "text/plain");
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        logger.close();
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void testReadLinesFromOffset() throws Exception {
+        writeLines(10);
+        Assert.assertEquals(readLines(3, 2, 5), "line3\nline4\n");
+        Assert.assertEquals(readLines(8, -1, 11), "line8\nline9\nline10\n");
+        // The last lines.
+        Assert.assertEquals(readLines(-2, -1, 11), "line9\nline10\n");
+        Assert.assertEquals(readLines(-20, 1, 2), "line1\n");
+        // Nothing after the last line.
+        Assert.assertEquals(readLines(11, -1, 11), "");
+    }
+
+    @Test
+    public void testReadLinesAroundIndexedLines() throws Exception {
+        writeLines(DefaultBuildLogger.INDEX_INTERVAL * 2 + 500);
+        // Lines 1001 and 2001 are the first lines of blocks of index.
+        Assert.assertEquals(readLines(1000, 2, 1002), "line1000\nline1001\n");
+        Assert.assertEquals(readLines(1001, 1, 1002), "line1001\n");
+        Assert.assertEquals(readLines(2000, 3, 2003), "line2000\nline2001\nline2002\n");
+        Assert.assertEquals(readLines(2001, 1, 2002), "line2001\n");
+        Assert.assertEquals(readLines(-1, -1, 2501), "line2500\n");
+    }
+
+    @Test
+    public void testNullLineIsSkipped() throws Exception {
+        logger.writeLine("line1");
+        logger.writeLine(null);
+        logger.writeLine("line2");
+        Assert.assertEquals(logger.getLineCount(), 2);
+        Assert.assertEquals(readLines(2, -1, 3), "line2\n");
+    }
+
+    @Test
+    public void testReadLinesSeesBufferedLines() throws Exception {
+        logger.writeLine("line1");
+        Assert.assertEquals(readLines(1, -1, 2), "line1\n");
+        logger.writeLine("line2");
+        Assert.assertEquals(readLines(2, -1, 3), "line2\n");
+    }
+
+    @Test
+    public void testAwaitLine() throws Exception {
+        writeLines(2);
+        Assert.assertTrue(logger.awaitLine(2, 0));
+        Assert.assertFalse(logger.awaitLine(3, 10));
+        final Future<Boolean> waiter = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return logger.awaitLine(3, TIMEOUT);
+            }
+        });
+        logger.writeLine("line3");
+        Assert.assertTrue(waiter.get(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testAwaitLineReturnsWhenLoggerIsClosed() throws Exception {
+        writeLines(2);
+        final Future<Boolean> waiter = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return logger.awaitLine(3, TIMEOUT);
+            }
+        });
+        logger.close();
+        Assert.assertFalse(waiter.get(TIMEOUT / 2, TimeUnit.MILLISECONDS));
+    }
+
+    private void writeLines(int num) throws Exception {
+        for (int i = 1; i <= num; i++) {
+            logger.writeLine("line" + i);
+        }
+    }
+
+    private String readLines(long fromLine, long limit, long expectedNextLine) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(logger.readLines(fromLine, limit, out), expectedNextLine);
+        return out.toString();
+    }
+}
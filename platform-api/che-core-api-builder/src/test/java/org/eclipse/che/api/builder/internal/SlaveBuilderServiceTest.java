@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.everrest.core.impl.RuntimeDelegateImpl;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.RuntimeDelegate;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+
+/** @author andrew00x */
+public class SlaveBuilderServiceTest {
+    private java.io.File       file;
+    private DefaultBuildLogger logger;
+
+    @BeforeClass
+    public void init() {
+        RuntimeDelegate.setInstance(new RuntimeDelegateImpl());
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = Files.createTempFile("build-logger", ".log").toFile();
+        logger = new DefaultBuildLogger(file, "text/plain");
+        // 12 bytes
+        logger.writeLine("line1");
+        logger.writeLine("line2");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        logger.close();
+        Assert.assertTrue(file.delete());
+    }
+
+    @Test
+    public void testLogsRange() throws Exception {
+        final Response response = SlaveBuilderService.getLogsRange(logger, "bytes=0-4");
+        Assert.assertEquals(response.getStatus(), 206);
+        Assert.assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes 0-4/12");
+        Assert.assertEquals(read(response), "line1");
+    }
+
+    @Test
+    public void testLogsRangeEndIsLimitedBySize() throws Exception {
+        final Response response = SlaveBuilderService.getLogsRange(logger, "bytes=6-100");
+        Assert.assertEquals(response.getStatus(), 206);
+        Assert.assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes 6-11/12");
+        Assert.assertEquals(read(response), "line2\n");
+    }
+
+    @Test
+    public void testOpenEndedLogsRange() throws Exception {
+        final Response response = SlaveBuilderService.getLogsRange(logger, "bytes=6-");
+        Assert.assertEquals(response.getStatus(), 206);
+        Assert.assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes 6-11/12");
+        Assert.assertEquals(read(response), "line2\n");
+    }
+
+    @Test
+    public void testSuffixLogsRange() throws Exception {
+        final Response response = SlaveBuilderService.getLogsRange(logger, "bytes=-6");
+        Assert.assertEquals(response.getStatus(), 206);
+        Assert.assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes 6-11/12");
+        Assert.assertEquals(read(response), "line2\n");
+    }
+
+    @Test
+    public void testUnsatisfiableLogsRange() throws Exception {
+        for (String range : new String[]{"bytes=12-", "bytes=5-2", "bytes=a-b", "bytes=0-1,4-5", "lines=1-2"}) {
+            final Response response = SlaveBuilderService.getLogsRange(logger, range);
+            Assert.assertEquals(response.getStatus(), 416, range);
+            Assert.assertEquals(response.getMetadata().getFirst("Content-Range"), "bytes */12", range);
+            Assert.assertNull(response.getEntity(), range);
+        }
+    }
+
+    private String read(Response response) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput)response.getEntity()).write(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** @author andrew00x */
+public class SourcesManagerImplTest {
+    private static final String BOUNDARY = "sources-boundary";
+
+    private java.io.File       root;
+    private java.io.File       srcDir;
+    private SourcesManagerImpl sourcesManager;
+    private HttpServer         server;
+    private String             sourcesUrl;
+    private int                workDirs;
+
+    private volatile String responseType;
+    private volatile byte[] responseBody;
+    private volatile String requestMethod;
+    private volatile String requestBody;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("sources-manager").toFile();
+        final java.io.File directory = new java.io.File(root, "sources");
+        srcDir = new java.io.File(directory, "my-ws" + java.io.File.separatorChar + "my-project");
+        sourcesManager = new SourcesManagerImpl(directory);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sources", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestMethod = exchange.getRequestMethod();
+                requestBody = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                final byte[] body = responseBody;
+                if (body == null) {
+                    exchange.sendResponseHeaders(204, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Type", responseType);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        sourcesUrl = "http://localhost:" + server.getAddress().getPort() + "/sources";
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        server.stop(0);
+        sourcesManager.stop();
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void testDownloadSources() throws Exception {
+        respondZip(zip("a.txt", "hello", "dir/b.txt", "world"));
+        final java.io.File workDir = getSources();
+        Assert.assertEquals(requestMethod, "GET");
+        Assert.assertEquals(read(workDir, "a.txt"), "hello");
+        Assert.assertEquals(read(workDir, "dir/b.txt"), "world");
+        Assert.assertFalse(new java.io.File(workDir, SourcesManagerImpl.MANIFEST_FILE_NAME).exists());
+    }
+
+    @Test
+    public void testUnchangedSourcesAreNotDownloaded() throws Exception {
+        respondZip(zip("a.txt", "hello", "dir/b.txt", "world"));
+        getSources();
+        final long lastModified = new java.io.File(srcDir, "a.txt").lastModified();
+
+        respondNoContent();
+        final java.io.File workDir = getSources();
+        Assert.assertEquals(requestMethod, "POST");
+        Assert.assertEquals(lines(requestBody), Sets.newHashSet(md5("hello") + " a.txt", md5("world") + " dir/b.txt"));
+        Assert.assertEquals(new java.io.File(srcDir, "a.txt").lastModified(), lastModified);
+        Assert.assertEquals(read(workDir, "a.txt"), "hello");
+        Assert.assertEquals(read(workDir, "dir/b.txt"), "world");
+    }
+
+    @Test
+    public void testChangedFile() throws Exception {
+        respondZip(zip("a.txt", "hello", "dir/b.txt", "world"));
+        getSources();
+        Files.write(new java.io.File(srcDir, "a.txt").toPath(), "hello world".getBytes(StandardCharsets.UTF_8));
+
+        // Server restores changed file and removes file that isn't in project any more.
+        respondMultipart(zip("a.txt", "hello"), "[\"dir/b.txt\"]");
+        java.io.File workDir = getSources();
+        Assert.assertEquals(lines(requestBody), Sets.newHashSet(md5("hello world") + " a.txt", md5("world") + " dir/b.txt"));
+        Assert.assertEquals(read(workDir, "a.txt"), "hello");
+        Assert.assertFalse(new java.io.File(workDir, "dir/b.txt").exists());
+
+        // Md5sums of unpacked files are up to date.
+        respondNoContent();
+        workDir = getSources();
+        Assert.assertEquals(lines(requestBody), Sets.newHashSet(md5("hello") + " a.txt"));
+        Assert.assertEquals(read(workDir, "a.txt"), "hello");
+    }
+
+    @Test
+    public void testRejectZipEntryOutsideOfSourcesDirectory() throws Exception {
+        respondZip(zip("a.txt", "hello", "../evil.txt", "evil"));
+        try {
+            getSources();
+            Assert.fail("IOException expected");
+        } catch (IOException expected) {
+        }
+        Assert.assertFalse(new java.io.File(srcDir.getParentFile(), "evil.txt").exists());
+    }
+
+    private java.io.File getSources() throws IOException {
+        final java.io.File workDir = new java.io.File(root, "work" + (workDirs++));
+        sourcesManager.getSources(BuildLogger.DUMMY, "my-ws", "my-project", sourcesUrl, workDir);
+        return workDir;
+    }
+
+    private void respondNoContent() {
+        responseType = null;
+        responseBody = null;
+    }
+
+    private void respondZip(byte[] zip) {
+        responseType = "application/zip";
+        responseBody = zip;
+    }
+
+    private void respondMultipart(byte[] updates, String removed) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"updates\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(updates);
+        body.write(("\r\n--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"removed-paths\"\r\n\r\n" + removed
+                    + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        responseType = "multipart/form-data; boundary=" + BOUNDARY;
+        responseBody = body.toByteArray();
+    }
+
+    /** Creates zip from pairs of path and content. */
+    private static byte[] zip(String... entries) throws IOException {
+        final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bOut)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zipOut.putNextEntry(new ZipEntry(entries[i]));
+                zipOut.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return bOut.toByteArray();
+    }
+
+    private static String read(java.io.File dir, String path) throws IOException {
+        return new String(Files.readAllBytes(new java.io.File(dir, path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static String md5(String content) {
+        return Hashing.md5().hashBytes(content.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static Set<String> lines(String text) {
+        final Set<String> lines = new HashSet<>(Arrays.asList(text.split("\n")));
+        lines.remove("");
+        return lines;
+    }
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.notification;
+
+/**
+ * Describes asynchronous delivery of events to subscriber, see {@link EventService#subscribe(EventSubscriber, AsyncDispatch)}.
+ * Published events are put in the queue of subscriber and delivered by threads of {@code EventService} in the order they were
+ * published. Subscriber is never called concurrently.
+ *
+ * @author andrew00x
+ */
+public final class AsyncDispatch {
+    /** What to do if queue of subscriber is full. */
+    public enum Overflow {
+        /** Publisher waits until there is space in queue. */
+        BLOCK,
+        /** Oldest event in queue is dropped. */
+        DROP_OLDEST,
+        /** Published event is dropped. */
+        DROP_NEWEST
+    }
+
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private final int      queueSize;
+    private final Overflow overflow;
+    private final int      batchSize;
+
+    /** Queue of {@link #DEFAULT_QUEUE_SIZE} events, publisher is blocked if queue is full, events are delivered one by one. */
+    public AsyncDispatch() {
+        this(DEFAULT_QUEUE_SIZE, Overflow.BLOCK, 1);
+    }
+
+    /**
+     * @param queueSize
+     *         max number of events that are published but not delivered to subscriber yet
+     * @param overflow
+     *         what to do if queue is full
+     * @param batchSize
+     *         max number of events that are delivered to {@link BatchEventSubscriber} at once, it is ignored for other subscribers
+     */
+    public AsyncDispatch(int queueSize, Overflow overflow, int batchSize) {
+        if (queueSize < 1 || batchSize < 1 || overflow == null) {
+            throw new IllegalArgumentException();
+        }
+        this.queueSize = queueSize;
+        this.overflow = overflow;
+        this.batchSize = batchSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncDispatch{" +
+               "queueSize=" + queueSize +
+               ", overflow=" + overflow +
+               ", batchSize=" + batchSize +
+               '}';
+    }
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.notification;
+
+import java.util.List;
+
+/**
+ * Subscriber that is able to process few events at once. If subscriber is registered for asynchronous delivery, see {@link
+ * AsyncDispatch}, then events that are accumulated in its queue are delivered with method {@link #onEvents(List)}. Method {@link
+ * #onEvent(Object)} is used for synchronous delivery.
+ *
+ * @author andrew00x
+ */
+public interface BatchEventSubscriber<T> extends EventSubscriber<T> {
+    /**
+     * Receives events in the order they were published. If the method throws an unchecked exception it is ignored.
+     */
+    void onEvents(List<T> events);
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.notification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistic of delivery of events to one subscriber. Latency is time from publishing of event till the subscriber returns from
+ * processing of it, for asynchronous subscribers it includes time that event spends in the queue.
+ *
+ * @author andrew00x
+ */
+public final class DispatchStats {
+    private final String        subscriber;
+    private final AsyncDispatch asyncDispatch;
+    private final AtomicLong    delivered;
+    private final AtomicLong    dropped;
+    private final AtomicLong    totalLatency;
+    private final AtomicLong    maxLatency;
+
+    DispatchStats(String subscriber, AsyncDispatch asyncDispatch) {
+        this.subscriber = subscriber;
+        this.asyncDispatch = asyncDispatch;
+        delivered = new AtomicLong();
+        dropped = new AtomicLong();
+        totalLatency = new AtomicLong();
+        maxLatency = new AtomicLong();
+    }
+
+    void delivered(long latencyNanos) {
+        delivered.incrementAndGet();
+        totalLatency.addAndGet(latencyNanos);
+        long max;
+        while ((max = maxLatency.get()) < latencyNanos && !maxLatency.compareAndSet(max, latencyNanos)) {
+        }
+    }
+
+    void dropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** Description of subscriber. */
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    /** Configuration of asynchronous delivery or {@code null} if events are delivered synchronously. */
+    public AsyncDispatch getAsyncDispatch() {
+        return asyncDispatch;
+    }
+
+    /** Number of events delivered to subscriber. */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /** Number of events dropped because queue of subscriber was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getAverageLatency(TimeUnit unit) {
+        final long count = delivered.get();
+        return count == 0 ? 0 : unit.convert(totalLatency.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchStats{" +
+               "subscriber='" + subscriber + '\'' +
+               ", asyncDispatch=" + asyncDispatch +
+               ", delivered=" + delivered +
+               ", dropped=" + dropped +
+               ", averageLatencyMicros=" + getAverageLatency(TimeUnit.MICROSECONDS) +
+               ", maxLatencyMicros=" + getMaxLatency(TimeUnit.MICROSECONDS) +
+               '}';
+    }
+}
@@ -11,22 +11,35 @@
 package org.eclipse.che.api.core.notification;
 
 import org.eclipse.che.commons.lang.cache.Cache;
-import org.eclipse.che.commons.lang.cache.LoadingValueSLRUCache;
-import org.eclipse.che.commons.lang.cache.SynchronizedCache;
+import org.eclipse.che.commons.lang.cache.ConcurrentLoadingCache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Dispatchers events to listeners. Usage example:
@@ -40,6 +53,9 @@ import java.util.concurrent.CopyOnWriteArraySet;
  *     });
  *     bus.publish(new MyEvent());
  * </pre>
+ * By default subscriber is called synchronously in the thread that publishes event. Subscriber that is slow, e.g. does network I/O,
+ * should be registered with {@link #subscribe(EventSubscriber, AsyncDispatch)}, then it gets events asynchronously from threads of
+ * EventService and publisher doesn't wait for it.
  *
  * @author andrew00x
  */
@@ -47,40 +63,50 @@ import java.util.concurrent.CopyOnWriteArraySet;
 public class EventService {
     private static final Logger LOG = LoggerFactory.getLogger(EventService.class);
 
-    private static final int CACHE_NUM  = 1 << 2;
-    private static final int CACHE_MASK = CACHE_NUM - 1;
-    private static final int SEG_SIZE   = 32;
+    private static final int CACHE_SIZE = 1 << 8;
 
-    private final Cache<Class<?>, Set<Class<?>>>[]              typeCache;
-    private final ConcurrentMap<Class<?>, Set<EventSubscriber>> subscribersByEventType;
+    /** Helps to detect that event is published from thread that delivers events asynchronously. */
+    private static final ThreadLocal<Boolean> DISPATCH_THREAD = new ThreadLocal<>();
+
+    private final Cache<Class<?>, Set<Class<?>>>           typeCache;
+    private final ConcurrentMap<Class<?>, Set<Dispatcher>> subscribersByEventType;
+    private final int                                      dispatchThreads;
+
+    private ExecutorService executor;
+    private boolean         stopped;
 
-    @SuppressWarnings("unchecked")
     public EventService() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param dispatchThreads
+     *         max number of threads that deliver events to subscribers registered with {@link AsyncDispatch}
+     */
+    public EventService(int dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
         subscribersByEventType = new ConcurrentHashMap<>();
-        typeCache = new Cache[CACHE_NUM];
-        for (int i = 0; i < CACHE_NUM; i++) {
-            typeCache[i] = new SynchronizedCache<>(new LoadingValueSLRUCache<Class<?>, Set<Class<?>>>(SEG_SIZE, SEG_SIZE) {
-                @Override
-                protected Set<Class<?>> loadValue(Class<?> eventClass) throws RuntimeException {
-                    LinkedList<Class<?>> parents = new LinkedList<>();
-                    Set<Class<?>> classes = new HashSet<>();
-                    parents.add(eventClass);
-                    while (!parents.isEmpty()) {
-                        Class<?> clazz = parents.pop();
-                        classes.add(clazz);
-                        Class<?> parent = clazz.getSuperclass();
-                        if (parent != null) {
-                            parents.add(parent);
-                        }
-                        Class<?>[] interfaces = clazz.getInterfaces();
-                        if (interfaces.length > 0) {
-                            Collections.addAll(parents, interfaces);
-                        }
+        typeCache = new ConcurrentLoadingCache<Class<?>, Set<Class<?>>>(CACHE_SIZE) {
+            @Override
+            protected Set<Class<?>> loadValue(Class<?> eventClass) throws RuntimeException {
+                LinkedList<Class<?>> parents = new LinkedList<>();
+                Set<Class<?>> classes = new HashSet<>();
+                parents.add(eventClass);
+                while (!parents.isEmpty()) {
+                    Class<?> clazz = parents.pop();
+                    classes.add(clazz);
+                    Class<?> parent = clazz.getSuperclass();
+                    if (parent != null) {
+                        parents.add(parent);
+                    }
+                    Class<?>[] interfaces = clazz.getInterfaces();
+                    if (interfaces.length > 0) {
+                        Collections.addAll(parents, interfaces);
                     }
-                    return classes;
                 }
-            });
-        }
+                return classes;
+            }
+        };
     }
 
     /**
@@ -95,37 +121,51 @@ public class EventService {
             throw new IllegalArgumentException("Null event.");
         }
         final Class<?> eventClass = event.getClass();
-        for (Class<?> clazz : typeCache[eventClass.hashCode() & CACHE_MASK].get(eventClass)) {
-            final Set<EventSubscriber> eventSubscribers = subscribersByEventType.get(clazz);
-            if (eventSubscribers != null && !eventSubscribers.isEmpty()) {
-                for (EventSubscriber eventSubscriber : eventSubscribers) {
-                    try {
-                        eventSubscriber.onEvent(event);
-                    } catch (RuntimeException e) {
-                        LOG.error(e.getMessage(), e);
-                    }
+        final long publishTime = System.nanoTime();
+        for (Class<?> clazz : typeCache.get(eventClass)) {
+            final Set<Dispatcher> dispatchers = subscribersByEventType.get(clazz);
+            if (dispatchers != null && !dispatchers.isEmpty()) {
+                for (Dispatcher dispatcher : dispatchers) {
+                    dispatcher.dispatch(event, publishTime);
                 }
             }
         }
     }
 
     /**
-     * Subscribe event listener.
+     * Subscribe event listener. Listener is called synchronously in the thread that publishes event.
      *
      * @param subscriber
      *         event subscriber
      */
     public void subscribe(EventSubscriber<?> subscriber) {
+        subscribe(subscriber, null);
+    }
+
+    /**
+     * Subscribe event listener.
+     *
+     * @param subscriber
+     *         event subscriber
+     * @param asyncDispatch
+     *         configuration of asynchronous delivery of events to subscriber, if {@code null} then subscriber is called synchronously
+     *         in the thread that publishes event
+     */
+    public void subscribe(EventSubscriber<?> subscriber, AsyncDispatch asyncDispatch) {
         final Class<?> eventType = getEventType(subscriber);
-        Set<EventSubscriber> entries = subscribersByEventType.get(eventType);
+        Set<Dispatcher> entries = subscribersByEventType.get(eventType);
         if (entries == null) {
-            Set<EventSubscriber> newEntries = new CopyOnWriteArraySet<>();
+            Set<Dispatcher> newEntries = new CopyOnWriteArraySet<>();
             entries = subscribersByEventType.putIfAbsent(eventType, newEntries);
             if (entries == null) {
                 entries = newEntries;
             }
         }
-        entries.add(subscriber);
+        if (asyncDispatch == null) {
+            entries.add(new Dispatcher(subscriber));
+        } else {
+            entries.add(new AsyncDispatcher(subscriber, asyncDispatch));
+        }
     }
 
     /**
@@ -136,9 +176,10 @@ public class EventService {
      */
     public void unsubscribe(EventSubscriber<?> subscriber) {
         final Class<?> eventType = getEventType(subscriber);
-        final Set<EventSubscriber> entries = subscribersByEventType.get(eventType);
+        final Set<Dispatcher> entries = subscribersByEventType.get(eventType);
         if (entries != null && !entries.isEmpty()) {
-            boolean changed = entries.remove(subscriber);
+            // Dispatchers are equal if they deliver events to the same subscriber.
+            boolean changed = entries.remove(new Dispatcher(subscriber));
             if (changed) {
                 if (entries.isEmpty()) {
                     subscribersByEventType.remove(eventType);
@@ -147,6 +188,41 @@ public class EventService {
         }
     }
 
+    /** Gets statistic of delivery of events for each subscriber. */
+    public List<DispatchStats> getDispatchStats() {
+        final List<DispatchStats> stats = new ArrayList<>();
+        for (Set<Dispatcher> dispatchers : subscribersByEventType.values()) {
+            for (Dispatcher dispatcher : dispatchers) {
+                stats.add(dispatcher.stats);
+            }
+        }
+        return stats;
+    }
+
+    /** Stops threads that deliver events asynchronously. Events that are not delivered yet are discarded. */
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (stopped) {
+            throw new RejectedExecutionException("EventService is stopped. ");
+        }
+        if (executor == null) {
+            final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("EventService-%d").setDaemon(true).build();
+            final ThreadPoolExecutor myExecutor = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                                                                         new LinkedBlockingQueue<Runnable>(), threadFactory);
+            // Don't keep threads if there are no events.
+            myExecutor.allowCoreThreadTimeOut(true);
+            executor = myExecutor;
+        }
+        return executor;
+    }
+
     private Class<?> getEventType(EventSubscriber<?> subscriber) {
         Class<?> eventType = null;
         Class<?> clazz = subscriber.getClass();
@@ -155,7 +231,7 @@ public class EventService {
                 if (type instanceof ParameterizedType) {
                     final ParameterizedType parameterizedType = (ParameterizedType)type;
                     final Type rawType = parameterizedType.getRawType();
-                    if (EventSubscriber.class == rawType) {
+                    if (EventSubscriber.class == rawType || BatchEventSubscriber.class == rawType) {
                         final Type[] typeArguments = parameterizedType.getActualTypeArguments();
                         if (typeArguments.length == 1) {
                             if (typeArguments[0] instanceof Class) {
@@ -172,4 +248,181 @@ public class EventService {
         }
         return eventType;
     }
+
+    /** Delivers events to subscriber synchronously. */
+    private static class Dispatcher {
+        final EventSubscriber subscriber;
+        final DispatchStats   stats;
+
+        Dispatcher(EventSubscriber subscriber) {
+            this(subscriber, null);
+        }
+
+        Dispatcher(EventSubscriber subscriber, AsyncDispatch asyncDispatch) {
+            this.subscriber = subscriber;
+            stats = new DispatchStats(subscriber.toString(), asyncDispatch);
+        }
+
+        @SuppressWarnings("unchecked")
+        void dispatch(Object event, long publishTime) {
+            try {
+                subscriber.onEvent(event);
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+            stats.delivered(System.nanoTime() - publishTime);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Dispatcher && subscriber.equals(((Dispatcher)o).subscriber);
+        }
+
+        @Override
+        public int hashCode() {
+            return subscriber.hashCode();
+        }
+    }
+
+    /**
+     * Delivers events to subscriber asynchronously. Events are kept in the queue of subscriber. At most one task that delivers
+     * events of the queue runs at the same time, so events are delivered in the order they were published.
+     */
+    private class AsyncDispatcher extends Dispatcher {
+        final AsyncDispatch                asyncDispatch;
+        final ReentrantLock                lock;
+        final Condition                    notFull;
+        // All fields below are guarded by lock.
+        final ArrayDeque<PublishedEvent>   queue;
+        boolean                            running;
+
+        AsyncDispatcher(EventSubscriber subscriber, AsyncDispatch asyncDispatch) {
+            super(subscriber, asyncDispatch);
+            this.asyncDispatch = asyncDispatch;
+            lock = new ReentrantLock();
+            notFull = lock.newCondition();
+            queue = new ArrayDeque<>();
+        }
+
+        @Override
+        void dispatch(Object event, long publishTime) {
+            boolean startTask = false;
+            lock.lock();
+            try {
+                if (queue.size() >= asyncDispatch.getQueueSize()) {
+                    AsyncDispatch.Overflow overflow = asyncDispatch.getOverflow();
+                    if (overflow == AsyncDispatch.Overflow.BLOCK && DISPATCH_THREAD.get() != null) {
+                        // Event is published by subscriber, waiting for space in queue may block all threads of EventService.
+                        overflow = AsyncDispatch.Overflow.DROP_OLDEST;
+                    }
+                    switch (overflow) {
+                        case BLOCK:
+                            while (queue.size() >= asyncDispatch.getQueueSize() && running) {
+                                notFull.awaitUninterruptibly();
+                            }
+                            break;
+                        case DROP_OLDEST:
+                            queue.poll();
+                            stats.dropped();
+                            break;
+                        case DROP_NEWEST:
+                            stats.dropped();
+                            return;
+                    }
+                }
+                queue.add(new PublishedEvent(event, publishTime));
+                if (!running) {
+                    running = true;
+                    startTask = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (startTask) {
+                startTask();
+            }
+        }
+
+        void startTask() {
+            try {
+                getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        DISPATCH_THREAD.set(Boolean.TRUE);
+                        try {
+                            deliverQueued();
+                        } finally {
+                            DISPATCH_THREAD.remove();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOG.error("Unable deliver events to {}. {}", subscriber, e.getMessage());
+                lock.lock();
+                try {
+                    for (int i = queue.size(); i > 0; i--) {
+                        stats.dropped();
+                    }
+                    queue.clear();
+                    running = false;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliverQueued() {
+            final boolean batch = subscriber instanceof BatchEventSubscriber && asyncDispatch.getBatchSize() > 1;
+            final List<PublishedEvent> events = new ArrayList<>(batch ? asyncDispatch.getBatchSize() : 1);
+            final List<Object> batchEvents = batch ? new ArrayList<>(asyncDispatch.getBatchSize()) : null;
+            for (; ; ) {
+                lock.lock();
+                try {
+                    if (queue.isEmpty()) {
+                        running = false;
+                        notFull.signalAll();
+                        return;
+                    }
+                    for (int i = batch ? asyncDispatch.getBatchSize() : 1; i > 0 && !queue.isEmpty(); i--) {
+                        events.add(queue.poll());
+                    }
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    if (batch) {
+                        for (PublishedEvent event : events) {
+                            batchEvents.add(event.event);
+                        }
+                        ((BatchEventSubscriber)subscriber).onEvents(batchEvents);
+                    } else {
+                        subscriber.onEvent(events.get(0).event);
+                    }
+                } catch (RuntimeException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+                final long now = System.nanoTime();
+                for (PublishedEvent event : events) {
+                    stats.delivered(now - event.publishTime);
+                }
+                events.clear();
+                if (batchEvents != null) {
+                    batchEvents.clear();
+                }
+            }
+        }
+    }
+
+    private static class PublishedEvent {
+        final Object event;
+        final long   publishTime;
+
+        PublishedEvent(Object event, long publishTime) {
+            this.event = event;
+            this.publishTime = publishTime;
+        }
+    }
 }
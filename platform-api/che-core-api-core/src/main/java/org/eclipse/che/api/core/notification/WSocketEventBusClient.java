@@ -84,12 +84,13 @@ public final class WSocketEventBusClient {
     void start() {
         if (start.compareAndSet(false, true)) {
             if (policy != null) {
+                // Sending of messages over network must not slow down threads that publish events.
                 eventService.subscribe(new EventSubscriber<Object>() {
                     @Override
                     public void onEvent(Object event) {
                         propagate(event);
                     }
-                });
+                }, new AsyncDispatch());
             }
             if (eventSubscriptions != null) {
                 final Map<URI, Set<String>> cfg = new HashMap<>();
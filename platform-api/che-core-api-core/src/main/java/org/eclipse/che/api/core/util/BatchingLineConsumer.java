@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Groups lines into frames before publishing them, e.g. as events that are sent to the client over websocket. Lines are put in the
+ * bounded queue and frames are published by background threads, so thread that writes lines never waits while lines are published. Frame
+ * is published when it reaches max number of lines or max size, or when its first line waits longer than max delay. Frames of one
+ * consumer are published one by one and in the same order as lines are written, so slow publishing of one consumer occupies at most one
+ * background thread.
+ * <p/>
+ * Each frame gets sequence number and each line gets line number, frame contains lines with consecutive numbers. If lines come faster
+ * than they are published and queue is full, or if line is skipped with {@link #skipLine()}, the line is dropped, but it still gets
+ * number, so client sees gap in numbering. Number of dropped lines is reported in the line that takes number of the last dropped line, so
+ * numbers of all other lines are the same as if nothing is dropped.
+ *
+ * @author andrew00x
+ */
+public abstract class BatchingLineConsumer implements LineConsumer {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingLineConsumer.class);
+
+    public static final long DEFAULT_MAX_DELAY        = 200;
+    public static final int  DEFAULT_MAX_LINES        = 200;
+    public static final int  DEFAULT_MAX_SIZE         = 32 * 1024;
+    public static final int  DEFAULT_MAX_QUEUED_LINES = 10000;
+
+    private static final int                      FLUSHER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ScheduledExecutorService FLUSHER         = Executors.newScheduledThreadPool(
+            FLUSHER_THREADS, new ThreadFactoryBuilder().setNameFormat("BatchingLineConsumer-Flusher-%d").setDaemon(true).build());
+
+    private final long              maxDelay;
+    private final int               maxLines;
+    private final int               maxSize;
+    private final int               maxQueuedLines;
+    private final ArrayDeque<Frame> queue;
+    /** Keeps frames in order if they are published by background threads and by {@link #close()} at the same time. */
+    private final ReentrantLock     publishLock;
+    private final Runnable          publishTask;
+    private final Runnable          delayedPublishTask;
+
+    private long    nextSequenceNumber;
+    private int     nextLineNum;
+    private int     queuedLines;
+    private int     dropped;
+    private boolean delayedPublishScheduled;
+    private boolean closed;
+
+    /**
+     * @param maxDelay
+     *         max time in milliseconds that line may wait in queue before it is published
+     * @param maxLines
+     *         max number of lines in frame
+     * @param maxSize
+     *         max number of characters in frame
+     * @param maxQueuedLines
+     *         max number of lines that wait for publishing, lines over this limit are dropped
+     */
+    public BatchingLineConsumer(long maxDelay, int maxLines, int maxSize, int maxQueuedLines) {
+        this.maxDelay = maxDelay;
+        this.maxLines = maxLines;
+        this.maxSize = maxSize;
+        this.maxQueuedLines = maxQueuedLines;
+        queue = new ArrayDeque<>();
+        publishLock = new ReentrantLock();
+        nextLineNum = 1;
+        publishTask = new Runnable() {
+            @Override
+            public void run() {
+                publishQueued(true);
+            }
+        };
+        delayedPublishTask = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (BatchingLineConsumer.this) {
+                    delayedPublishScheduled = false;
+                }
+                publishQueued(false);
+            }
+        };
+    }
+
+    public BatchingLineConsumer(long maxDelay, int maxLines, int maxQueuedLines) {
+        this(maxDelay, maxLines, DEFAULT_MAX_SIZE, maxQueuedLines);
+    }
+
+    public BatchingLineConsumer() {
+        this(DEFAULT_MAX_DELAY, DEFAULT_MAX_LINES, DEFAULT_MAX_SIZE, DEFAULT_MAX_QUEUED_LINES);
+    }
+
+    /**
+     * Publishes frame.
+     *
+     * @param frame
+     *         frame of lines
+     */
+    protected abstract void publish(Frame frame) throws IOException;
+
+    @Override
+    public synchronized void writeLine(String line) throws IOException {
+        if (closed || line == null) {
+            return;
+        }
+        // Report about dropped lines only if there is space for report and the current line.
+        if (dropped > 0 && queuedLines + 2 <= maxQueuedLines) {
+            addDroppedLinesReport();
+        }
+        if (dropped > 0 || queuedLines >= maxQueuedLines) {
+            dropped++;
+            nextLineNum++;
+            return;
+        }
+        add(nextLineNum++, line);
+    }
+
+    /**
+     * Drops the next line, e.g. if output rate is over limit. Line gets number and it is reported together with lines that are dropped
+     * because queue is full.
+     */
+    public synchronized void skipLine() {
+        if (closed) {
+            return;
+        }
+        dropped++;
+        nextLineNum++;
+    }
+
+    /** Publishes all queued frames and report about dropped lines if any. Lines written after closing are ignored. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            addDroppedLinesReport();
+        }
+        publishLock.lock();
+        try {
+            final List<Frame> frames;
+            synchronized (this) {
+                frames = new ArrayList<>(queue);
+                queue.clear();
+                queuedLines = 0;
+            }
+            for (Frame frame : frames) {
+                publish(frame);
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /** Number of lines that were dropped since the last report. */
+    public synchronized int getDroppedLines() {
+        return dropped;
+    }
+
+    /**
+     * Publishes one frame in background thread.
+     *
+     * @param full
+     *         if {@code true} frame is published only if it can't get more lines, otherwise it waits for delayed publishing
+     */
+    private void publishQueued(boolean full) {
+        // Don't block background thread that is shared by all consumers. If lock is held by another thread it publishes the next frames.
+        if (!publishLock.tryLock()) {
+            return;
+        }
+        try {
+            final Frame frame;
+            synchronized (this) {
+                frame = !full || isHeadComplete() ? queue.poll() : null;
+                if (frame != null) {
+                    queuedLines -= frame.lines.size();
+                }
+            }
+            if (frame != null) {
+                publish(frame);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+        } finally {
+            publishLock.unlock();
+        }
+        synchronized (this) {
+            if (isHeadComplete()) {
+                FLUSHER.execute(publishTask);
+            } else if (!queue.isEmpty() && !delayedPublishScheduled) {
+                delayedPublishScheduled = true;
+                FLUSHER.schedule(delayedPublishTask, maxDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Adds line to the last frame or starts new frame if last frame is complete or line doesn't follow the last line of frame. */
+    private void add(int lineNum, String line) {
+        Frame last = queue.peekLast();
+        if (last == null || last.getNextLineNum() != lineNum || isComplete(last)) {
+            last = new Frame(nextSequenceNumber++, lineNum);
+            queue.add(last);
+        }
+        last.lines.add(line);
+        last.size += line.length();
+        queuedLines++;
+        if (isComplete(last)) {
+            FLUSHER.execute(publishTask);
+        } else if (!delayedPublishScheduled) {
+            delayedPublishScheduled = true;
+            FLUSHER.schedule(delayedPublishTask, maxDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Tells whether the first queued frame doesn't get more lines. Frame that is followed by other frame doesn't get lines anymore. */
+    private boolean isHeadComplete() {
+        final Frame head = queue.peek();
+        return head != null && (queue.size() > 1 || isComplete(head));
+    }
+
+    private boolean isComplete(Frame frame) {
+        return frame.lines.size() >= maxLines || frame.size >= maxSize;
+    }
+
+    private void addDroppedLinesReport() {
+        if (dropped > 0) {
+            final String report = String.format("[WARNING] %d lines of output are skipped because output is produced faster than it may be"
+                                                + " delivered.", dropped);
+            dropped = 0;
+            add(nextLineNum - 1, report);
+        }
+    }
+
+    /** Group of lines with consecutive numbers that are published together. */
+    public static final class Frame {
+        private final long         sequenceNumber;
+        private final int          firstLineNum;
+        private final List<String> lines;
+
+        private int size;
+
+        Frame(long sequenceNumber, int firstLineNum) {
+            this.sequenceNumber = sequenceNumber;
+            this.firstLineNum = firstLineNum;
+            lines = new ArrayList<>();
+        }
+
+        /** Sequence number of frame, the first frame of consumer has number 0. */
+        public long getSequenceNumber() {
+            return sequenceNumber;
+        }
+
+        /** Number of the first line of frame, the first line of consumer has number 1. */
+        public int getFirstLineNum() {
+            return firstLineNum;
+        }
+
+        /** Number of the line that follows the last line of frame. */
+        public int getNextLineNum() {
+            return firstLineNum + lines.size();
+        }
+
+        public List<String> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+
+        @Override
+        public String toString() {
+            return "Frame{" +
+                   "sequenceNumber=" + sequenceNumber +
+                   ", firstLineNum=" + firstLineNum +
+                   ", lines=" + lines.size() +
+                   '}';
+        }
+    }
+}
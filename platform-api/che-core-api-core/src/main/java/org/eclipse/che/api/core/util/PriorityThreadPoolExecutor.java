@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread pool with limited number of threads and queue of waiting tasks ordered by priority. Tasks with higher priority are taken
+ * from the queue first, tasks with the same priority are taken in order of their {@code order} key, by default it is order in which
+ * tasks are added to the queue.
+ * <p/>
+ * Task that can't continue its work right now, e.g. waits for free resources, should not block thread of pool. Instead it may be
+ * added to the queue again after some delay with method {@link #schedule(Runnable, int, long, long, TimeUnit)}. Delayed tasks
+ * don't hold any thread of pool.
+ *
+ * @author andrew00x
+ */
+public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+    public static final int NORMAL_PRIORITY = 0;
+
+    private final int                      maxQueueSize;
+    private final ScheduledExecutorService delayer;
+    private final AtomicLong               sequence;
+    private final AtomicInteger            delayed;
+    private final AtomicLong               rejected;
+    private final AtomicLong               started;
+    private final AtomicLong               totalWaitTime;
+    private final AtomicLong               maxWaitTime;
+
+    /**
+     * @param name
+     *         name of pool, it is used as prefix of names of threads
+     * @param maxThreads
+     *         max number of threads in pool. Threads are started on demand and stopped if they are idle more than one minute.
+     * @param maxQueueSize
+     *         max number of tasks that wait for free thread, new task is rejected if number of waiting tasks reaches this limit
+     */
+    public PriorityThreadPoolExecutor(String name, int maxThreads, int maxQueueSize) {
+        super(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+              new ThreadFactoryBuilder().setNameFormat(name + "-[%d]").setDaemon(true).build());
+        if (maxQueueSize < 1) {
+            throw new IllegalArgumentException("Invalid max size of queue " + maxQueueSize);
+        }
+        this.maxQueueSize = maxQueueSize;
+        allowCoreThreadTimeOut(true);
+        delayer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(name + "-Delayer")
+                                                                                       .setDaemon(true).build());
+        sequence = new AtomicLong();
+        delayed = new AtomicInteger();
+        rejected = new AtomicLong();
+        started = new AtomicLong();
+        totalWaitTime = new AtomicLong();
+        maxWaitTime = new AtomicLong();
+        setRejectedExecutionHandler(new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(String.format("Task %s rejected from %s", task, executor));
+            }
+        });
+    }
+
+    /** Executes task with {@link #NORMAL_PRIORITY}. */
+    @Override
+    public void execute(Runnable task) {
+        execute(task, NORMAL_PRIORITY);
+    }
+
+    /**
+     * Executes task with specified priority. Tasks with the same priority are executed in the order they are added.
+     *
+     * @throws RejectedExecutionException
+     *         if queue of waiting tasks is full or executor is shut down
+     */
+    public void execute(Runnable task, int priority) {
+        execute(task, priority, sequence.getAndIncrement());
+    }
+
+    /**
+     * Executes task with specified priority. Tasks with the same priority are executed in the order of {@code order} key, task
+     * with lower key is executed first. Key helps to keep place of task in the queue when the same task is added to the queue
+     * several times.
+     *
+     * @throws RejectedExecutionException
+     *         if queue of waiting tasks is full or executor is shut down
+     */
+    public void execute(Runnable task, int priority, long order) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (getQueue().size() >= maxQueueSize) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(String.format("Task %s rejected, max number of waiting tasks %d is reached",
+                                                               task, maxQueueSize));
+        }
+        super.execute(new PrioritizedTask(task, priority, order));
+    }
+
+    /**
+     * Adds task to the queue after specified delay. Task doesn't hold any thread of pool while waiting. Limit of queue size isn't
+     * applied to delayed tasks, they are expected to be tasks that were accepted by this executor before.
+     *
+     * @throws RejectedExecutionException
+     *         if executor is shut down
+     */
+    public void schedule(final Runnable task, final int priority, final long order, long delay, TimeUnit unit) {
+        if (isShutdown()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(String.format("Task %s rejected, executor is shut down", task));
+        }
+        delayed.incrementAndGet();
+        delayer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                delayed.decrementAndGet();
+                try {
+                    PriorityThreadPoolExecutor.super.execute(new PrioritizedTask(task, priority, order));
+                } catch (RejectedExecutionException ignored) {
+                    // Executor is shut down, counted in statistic.
+                }
+            }
+        }, delay, unit);
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        super.beforeExecute(thread, runnable);
+        final long waitTime = System.nanoTime() - ((PrioritizedTask)runnable).queued;
+        started.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        long max;
+        while ((max = maxWaitTime.get()) < waitTime && !maxWaitTime.compareAndSet(max, waitTime)) {
+        }
+    }
+
+    @Override
+    protected final void afterExecute(Runnable runnable, Throwable error) {
+        super.afterExecute(runnable, error);
+        afterTaskExecute(((PrioritizedTask)runnable).task, error);
+    }
+
+    /**
+     * Method invoked upon completion of execution of the given task. Unlike {@link #afterExecute(Runnable, Throwable)} it gets task as
+     * it was passed to this executor.
+     *
+     * @see ThreadPoolExecutor#afterExecute(Runnable, Throwable)
+     */
+    protected void afterTaskExecute(Runnable task, Throwable error) {
+    }
+
+    @Override
+    public void shutdown() {
+        delayer.shutdownNow();
+        super.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        delayer.shutdownNow();
+        return super.shutdownNow();
+    }
+
+    /** Gets snapshot of statistic of this executor. */
+    public Stats getStats() {
+        final long startedNum = started.get();
+        return new Stats(getMaximumPoolSize(),
+                         getPoolSize(),
+                         getActiveCount(),
+                         getQueue().size(),
+                         delayed.get(),
+                         getCompletedTaskCount(),
+                         rejected.get(),
+                         startedNum == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get() / startedNum),
+                         TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get()));
+    }
+
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        final Runnable task;
+        final int      priority;
+        final long     order;
+        final long     queued;
+
+        PrioritizedTask(Runnable task, int priority, long order) {
+            this.task = task;
+            this.priority = priority;
+            this.order = order;
+            queued = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    /** Statistic of {@link PriorityThreadPoolExecutor}. */
+    public static final class Stats {
+        private final int  maxThreads;
+        private final int  threads;
+        private final int  activeThreads;
+        private final int  queueSize;
+        private final int  delayedTasks;
+        private final long completedTasks;
+        private final long rejectedTasks;
+        private final long averageWaitTime;
+        private final long maxWaitTime;
+
+        Stats(int maxThreads, int threads, int activeThreads, int queueSize, int delayedTasks, long completedTasks, long rejectedTasks,
+              long averageWaitTime, long maxWaitTime) {
+            this.maxThreads = maxThreads;
+            this.threads = threads;
+            this.activeThreads = activeThreads;
+            this.queueSize = queueSize;
+            this.delayedTasks = delayedTasks;
+            this.completedTasks = completedTasks;
+            this.rejectedTasks = rejectedTasks;
+            this.averageWaitTime = averageWaitTime;
+            this.maxWaitTime = maxWaitTime;
+        }
+
+        /** Max number of threads in pool. */
+        public int getMaxThreads() {
+            return maxThreads;
+        }
+
+        /** Current number of threads in pool. */
+        public int getThreads() {
+            return threads;
+        }
+
+        /** Number of threads that execute tasks. */
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        /** Number of tasks that wait for free thread. */
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        /** Number of tasks that will be added to the queue after delay. */
+        public int getDelayedTasks() {
+            return delayedTasks;
+        }
+
+        /** Number of completed tasks. */
+        public long getCompletedTasks() {
+            return completedTasks;
+        }
+
+        /** Number of rejected tasks. */
+        public long getRejectedTasks() {
+            return rejectedTasks;
+        }
+
+        /** Average time in milliseconds that task spends in the queue before it is started. */
+        public long getAverageWaitTime() {
+            return averageWaitTime;
+        }
+
+        /** Max time in milliseconds that task spent in the queue before it was started. */
+        public long getMaxWaitTime() {
+            return maxWaitTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                   "maxThreads=" + maxThreads +
+                   ", threads=" + threads +
+                   ", activeThreads=" + activeThreads +
+                   ", queueSize=" + queueSize +
+                   ", delayedTasks=" + delayedTasks +
+                   ", completedTasks=" + completedTasks +
+                   ", rejectedTasks=" + rejectedTasks +
+                   ", averageWaitTime=" + averageWaitTime +
+                   ", maxWaitTime=" + maxWaitTime +
+                   '}';
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.eclipse.che.inject.DynaModule;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.AbstractModule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Supervises processes with the fixed number of threads regardless of number of processes. Output of all processes is read by the
+ * small shared pool of threads and timeouts of all processes are served by single {@link TimerWheel}.
+ * <p/>
+ * Streams of {@link Process} can't be used with selector, so each stream is polled: it is read only when it has available bytes, if
+ * stream has nothing to read it is checked again after short delay that grows up to {@link #MAX_POLL_DELAY} while the stream is idle.
+ * Output is split into lines directly in byte buffer of the stream, the only object that is created per line is the {@code String}
+ * that is passed to {@link LineConsumer}. Lines are put in the bounded queue of the process and passed to {@code LineConsumer} by the
+ * bounded pool of threads, so slow consumer of one process doesn't delay reading of output of other processes. When process is terminated
+ * the rest of its output is read while stream has something to read. Stream of terminated process is never read when it has nothing
+ * available, because such read may block forever if children of process keep the stream open, instead reading is done when stream
+ * doesn't get new bytes for {@link #READ_TO_END_TIMEOUT} milliseconds.
+ * <p/>
+ * In environments with multiple class loaders, {@code ProcessSupervisor} should be stopped if it isn't needed. In Codenvy environment
+ * it is stopped automatically by {@link ProcessSupervisorModule}.
+ *
+ * @author andrew00x
+ */
+public class ProcessSupervisor {
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+    /** Max delay in milliseconds between two checks of the stream that doesn't have anything to read. */
+    static final long MAX_POLL_DELAY       = 50;
+    /** Lines that are longer than this limit are split. */
+    static final int  MAX_LINE_LENGTH      = 64 * 1024;
+    /** Max number of lines of single process that wait for consumer. Output isn't read while so many lines are queued. */
+    static final int  MAX_QUEUED_LINES     = 1000;
+    /** Time in milliseconds that stream of terminated process may stay without new bytes before reading is done. */
+    static final long READ_TO_END_TIMEOUT  = 500;
+    /** Max number of threads that pass lines to consumers. */
+    static final int  MAX_CONSUMER_THREADS = 32;
+
+    private static final int  BUFFER_SIZE    = 8192;
+    private static final long MIN_POLL_DELAY = 1;
+
+    private static final ScheduledThreadPoolExecutor pumps;
+    private static final ThreadPoolExecutor          consumers;
+    private static final TimerWheel                  timer;
+
+    static {
+        final int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        pumps = new ScheduledThreadPoolExecutor(threads, new ThreadFactoryBuilder().setNameFormat("ProcessSupervisor-Pump-%d")
+                                                                                   .setDaemon(true).build());
+        pumps.setRemoveOnCancelPolicy(true);
+        // Consumers of output may block, e.g. while they send lines over network, so they get lines in separate threads. Each process
+        // occupies at most one thread at a time, processes over the limit wait in queue.
+        consumers = new ThreadPoolExecutor(MAX_CONSUMER_THREADS, MAX_CONSUMER_THREADS, 60L, TimeUnit.SECONDS,
+                                           new LinkedBlockingQueue<Runnable>(),
+                                           new ThreadFactoryBuilder().setNameFormat("ProcessSupervisor-Consumer-%d").setDaemon(true).build());
+        consumers.allowCoreThreadTimeOut(true);
+        // Expired tasks, e.g. killing of process, are run with pool of pumps to keep timer exact.
+        timer = new TimerWheel("ProcessSupervisor-Timer", 100, TimeUnit.MILLISECONDS, 512, pumps);
+    }
+
+    /**
+     * Starts reading of output of process. Output is read until process ends and all its output is consumed, or until pumping is
+     * stopped with {@link Pump#stop()}.
+     *
+     * @param process
+     *         process
+     * @param consumer
+     *         consumer for output of process
+     * @param callback
+     *         callback that is notified when reading is done, may be {@code null}
+     * @return pump that reads output of process
+     */
+    public static Pump pump(Process process, LineConsumer consumer, PumpCallback callback) {
+        final Pump pump = new Pump(process, process.getInputStream(), consumer, callback);
+        pumps.execute(pump);
+        return pump;
+    }
+
+    /**
+     * Runs task after specified delay. All tasks share single timer thread.
+     *
+     * @return timeout that may be used to cancel task
+     */
+    public static TimerWheel.Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return timer.schedule(task, delay, unit);
+    }
+
+    /** Stops ProcessSupervisor. */
+    public static void stop() {
+        timer.stop();
+        pumps.shutdownNow();
+        consumers.shutdownNow();
+        try {
+            pumps.awaitTermination(3, TimeUnit.SECONDS);
+            consumers.awaitTermination(3, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+        LOG.info("Process supervisor is stopped");
+    }
+
+    /** Callback of {@link Pump}. */
+    public interface PumpCallback {
+        /**
+         * Notified when pump stops reading.
+         *
+         * @param error
+         *         error that stopped reading or {@code null} if all output is consumed or pump is stopped
+         */
+        void done(Exception error);
+    }
+
+    /** Reads output of single process. */
+    public static final class Pump implements Runnable {
+        private final Process            process;
+        private final InputStream        input;
+        private final LineConsumer       consumer;
+        private final PumpCallback       callback;
+        private final Charset            charset;
+        private final ArrayDeque<String> lines;
+        private final Runnable           deliverTask;
+
+        // Accessed by single thread at a time.
+        private byte[] buf;
+        private int    length;
+        private long   delay;
+        /** Time when stream of terminated process was found without bytes to read, {@code 0} if stream isn't idle. */
+        private long   idleSince;
+
+        // Guarded by this.
+        private boolean   delivering;
+        private boolean   finished;
+        private boolean   done;
+        private Exception error;
+
+        private volatile boolean stopped;
+
+        private Pump(Process process, InputStream input, LineConsumer consumer, PumpCallback callback) {
+            this.process = process;
+            this.input = input;
+            this.consumer = consumer;
+            this.callback = callback;
+            charset = Charset.defaultCharset();
+            lines = new ArrayDeque<>();
+            buf = new byte[BUFFER_SIZE];
+            delay = MIN_POLL_DELAY;
+            deliverTask = new Runnable() {
+                @Override
+                public void run() {
+                    deliver();
+                }
+            };
+        }
+
+        /** Stops reading and closes stream. Lines that are already read are passed to consumer. */
+        public void stop() {
+            stopped = true;
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        /** NOTE: Not expected to call directly by regular users of this class. */
+        @Override
+        public void run() {
+            if (stopped) {
+                finish(null);
+                return;
+            }
+            try {
+                if (isQueueFull()) {
+                    // Consumer is slow, don't read more until it takes queued lines. Process is blocked when pipe is full.
+                    reschedule(MAX_POLL_DELAY);
+                    return;
+                }
+                // Check process before stream. Everything that process wrote before termination is in the stream at this point.
+                final boolean terminated = isTerminated();
+                int available = input.available();
+                if (available > 0) {
+                    do {
+                        read(available);
+                    } while (!stopped && !isQueueFull() && (available = input.available()) > 0);
+                    delay = MIN_POLL_DELAY;
+                    idleSince = 0;
+                    reschedule(0);
+                } else if (terminated) {
+                    // Output may still come, e.g. from children of process that use the same stream, wait for it a bit.
+                    final long now = System.currentTimeMillis();
+                    if (idleSince == 0) {
+                        idleSince = now;
+                    }
+                    if (now - idleSince >= READ_TO_END_TIMEOUT) {
+                        if (length > 0) {
+                            writeLine(0, length);
+                            length = 0;
+                        }
+                        finish(null);
+                    } else {
+                        reschedule(delay);
+                        delay = Math.min(delay * 2, MAX_POLL_DELAY);
+                    }
+                } else {
+                    reschedule(delay);
+                    delay = Math.min(delay * 2, MAX_POLL_DELAY);
+                }
+            } catch (IOException | RuntimeException e) {
+                finish(stopped ? null : e);
+            }
+        }
+
+        /** Reads at most {@code max} bytes, returns number of read bytes or {@code -1} if end of stream is reached. */
+        private int read(int max) throws IOException {
+            if (length == buf.length) {
+                if (buf.length < MAX_LINE_LENGTH) {
+                    final byte[] newBuf = new byte[Math.min(buf.length * 2, MAX_LINE_LENGTH)];
+                    System.arraycopy(buf, 0, newBuf, 0, length);
+                    buf = newBuf;
+                } else {
+                    // Too long line, split it.
+                    writeLine(0, length);
+                    length = 0;
+                }
+            }
+            final int read = input.read(buf, length, Math.min(max, buf.length - length));
+            if (read <= 0) {
+                return read;
+            }
+            final int scanFrom = length;
+            length += read;
+            int lineStart = 0;
+            for (int i = scanFrom; i < length; i++) {
+                if (buf[i] == '\n') {
+                    writeLine(lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart > 0) {
+                length -= lineStart;
+                System.arraycopy(buf, lineStart, buf, 0, length);
+            }
+            return read;
+        }
+
+        private void writeLine(int start, int end) {
+            if (end > start && buf[end - 1] == '\r') {
+                end--;
+            }
+            final String line = new String(buf, start, end - start, charset);
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                lines.add(line);
+                startDelivery();
+            }
+        }
+
+        /** Called when nothing more is read. Callback is notified when all queued lines are passed to consumer. */
+        private synchronized void finish(Exception error) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            this.error = error;
+            startDelivery();
+        }
+
+        private synchronized boolean isQueueFull() {
+            return lines.size() >= MAX_QUEUED_LINES;
+        }
+
+        private void startDelivery() {
+            if (!delivering) {
+                delivering = true;
+                try {
+                    consumers.execute(deliverTask);
+                } catch (RejectedExecutionException e) {
+                    // ProcessSupervisor is stopped, queued lines can't be delivered.
+                    delivering = false;
+                    lines.clear();
+                    finished = true;
+                    done(null);
+                }
+            }
+        }
+
+        /**
+         * Passes queued lines to consumer in thread of pool of consumers, so slow consumer doesn't hold pump threads that are shared by
+         * all processes. Only one thread delivers lines of process at a time, so consumer gets lines in the same order as they are read.
+         */
+        private void deliver() {
+            for (; ; ) {
+                final String line;
+                final Exception finishError;
+                synchronized (this) {
+                    line = lines.poll();
+                    if (line == null) {
+                        delivering = false;
+                        if (!finished) {
+                            return;
+                        }
+                        finishError = error;
+                    } else {
+                        finishError = null;
+                    }
+                }
+                if (line == null) {
+                    done(finishError);
+                    return;
+                }
+                try {
+                    consumer.writeLine(line);
+                } catch (IOException | RuntimeException e) {
+                    stopped = true;
+                    synchronized (this) {
+                        lines.clear();
+                        if (!finished) {
+                            finished = true;
+                            error = e;
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean isTerminated() {
+            try {
+                process.exitValue();
+                return true;
+            } catch (IllegalThreadStateException e) {
+                return false;
+            }
+        }
+
+        private void reschedule(long delayMillis) {
+            try {
+                if (delayMillis == 0) {
+                    pumps.execute(this);
+                } else {
+                    pumps.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                finish(null);
+            }
+        }
+
+        private void done(Exception error) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            if (callback != null) {
+                try {
+                    callback.done(error);
+                } catch (RuntimeException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /** Guice module that stops ProcessSupervisor when Guice container destroyed. */
+    @DynaModule
+    public static class ProcessSupervisorModule extends AbstractModule {
+        @Override
+        protected void configure() {
+            bind(Finalizer.class).asEagerSingleton();
+        }
+    }
+
+    /** Helper component that stops ProcessSupervisor. */
+    static class Finalizer {
+        @PreDestroy
+        void stop() {
+            ProcessSupervisor.stop();
+        }
+    }
+
+    private ProcessSupervisor() {
+    }
+}
@@ -10,32 +10,26 @@
  *******************************************************************************/
 package org.eclipse.che.api.core.util;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-
-/** @author andrew00x */
-public final class StreamPump implements Runnable {
+/**
+ * Reads output of process and passes it to {@code LineConsumer} line by line. Output is read with the shared pool of threads of
+ * {@link ProcessSupervisor}, so it doesn't need separate thread for each process.
+ *
+ * @author andrew00x
+ */
+public final class StreamPump implements ProcessSupervisor.PumpCallback {
 
-    private BufferedReader bufferedReader;
-    private LineConsumer   lineConsumer;
+    private ProcessSupervisor.Pump pump;
 
     private Exception exception;
     private boolean   done;
 
     public synchronized void start(Process process, LineConsumer lineConsumer) {
-        this.lineConsumer = lineConsumer;
-        bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        final Thread t = new Thread(this, "StreamPump");
-        t.setDaemon(true);
-        t.start();
+        pump = ProcessSupervisor.pump(process, lineConsumer, this);
     }
 
     public synchronized void stop() {
-        // Not clear do we need close original stream, but since it was wrapped by BufferedReader close it anyway.
-        try {
-            bufferedReader.close();
-        } catch (IOException ignored) {
+        if (pump != null) {
+            pump.stop();
         }
     }
 
@@ -49,28 +43,19 @@ public final class StreamPump implements Runnable {
         return done;
     }
 
-    public boolean hasError() {
+    public synchronized boolean hasError() {
         return null != exception;
     }
 
-    public Exception getException() {
+    public synchronized Exception getException() {
         return exception;
     }
 
+    /** NOTE: Not expected to call directly by regular users of this class. */
     @Override
-    public void run() {
-        String line;
-        try {
-            while ((line = bufferedReader.readLine()) != null) {
-                lineConsumer.writeLine(line);
-            }
-        } catch (IOException e) {
-            exception = e;
-        } finally {
-            synchronized (this) {
-                done = true;
-                notifyAll();
-            }
-        }
+    public synchronized void done(Exception error) {
+        exception = error;
+        done = true;
+        notifyAll();
     }
 }
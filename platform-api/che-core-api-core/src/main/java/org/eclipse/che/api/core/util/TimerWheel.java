@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel. All timeouts are served by single thread that wakes up once per tick, so any number of timeouts doesn't need any
+ * additional threads. Timeouts are expired with precision of one tick, that is good enough for watchdogs, lifetime of processes, etc.
+ * <p/>
+ * Expired tasks are run with executor that is passed to the constructor, or in the thread of timer if executor isn't set. In latter
+ * case tasks must be short.
+ *
+ * @author andrew00x
+ */
+public final class TimerWheel {
+    private static final Logger LOG = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final String          name;
+    private final long            tickNanos;
+    private final List<Timeout>[] wheel;
+    private final int             mask;
+    private final Executor        executor;
+    private final Queue<Timeout>  pending;
+    private final AtomicInteger   size;
+
+    private Thread  worker;
+    private boolean stopped;
+
+    /**
+     * @param name
+     *         name of timer thread
+     * @param tickDuration
+     *         duration of tick
+     * @param unit
+     *         unit of {@code tickDuration}
+     * @param wheelSize
+     *         number of buckets of wheel, it is rounded up to the power of two
+     * @param executor
+     *         executor for expired tasks, may be {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException(String.format("Invalid tick duration: %d", tickDuration));
+        }
+        if (wheelSize < 1 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException(String.format("Invalid size of wheel: %d", wheelSize));
+        }
+        this.name = name;
+        this.executor = executor;
+        tickNanos = unit.toNanos(tickDuration);
+        int n = 1;
+        while (n < wheelSize) {
+            n <<= 1;
+        }
+        wheel = new List[n];
+        for (int i = 0; i < n; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        mask = n - 1;
+        pending = new ConcurrentLinkedQueue<>();
+        size = new AtomicInteger();
+    }
+
+    /**
+     * Runs task after specified delay.
+     *
+     * @return timeout that may be used to cancel task
+     * @throws RejectedExecutionException
+     *         if timer is stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        final Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        synchronized (this) {
+            if (stopped) {
+                throw new RejectedExecutionException(String.format("Timer %s is stopped", name));
+            }
+            if (worker == null) {
+                worker = new Thread(new Worker(), name);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        size.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /** Gets number of scheduled and not expired yet timeouts, including cancelled timeouts that aren't removed yet. */
+    public int size() {
+        return size.get();
+    }
+
+    /** Stops timer. Not expired timeouts are never run. */
+    public synchronized void stop() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final long start = System.nanoTime();
+        private long tick;
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long deadline = start + (tick + 1) * tickNanos;
+                long sleepNanos;
+                while ((sleepNanos = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                transferPending();
+                expire(wheel[(int)(tick & mask)], deadline);
+                tick++;
+            }
+        }
+
+        private void transferPending() {
+            Timeout timeout;
+            while ((timeout = pending.poll()) != null) {
+                if (timeout.state.get() != Timeout.INIT) {
+                    size.decrementAndGet();
+                    continue;
+                }
+                // Timeout that is already expired goes to the current bucket.
+                final long ticks = Math.max((timeout.deadline - start) / tickNanos, tick);
+                timeout.rounds = (ticks - tick) / wheel.length;
+                wheel[(int)(ticks & mask)].add(timeout);
+            }
+        }
+
+        private void expire(List<Timeout> bucket, long deadline) {
+            for (Iterator<Timeout> i = bucket.iterator(); i.hasNext(); ) {
+                final Timeout timeout = i.next();
+                if (timeout.state.get() != Timeout.INIT) {
+                    i.remove();
+                    size.decrementAndGet();
+                } else if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                    i.remove();
+                    size.decrementAndGet();
+                    if (timeout.state.compareAndSet(Timeout.INIT, Timeout.EXPIRED)) {
+                        run(timeout.task);
+                    }
+                } else {
+                    timeout.rounds--;
+                }
+            }
+        }
+
+        private void run(Runnable task) {
+            try {
+                if (executor != null) {
+                    executor.execute(task);
+                } else {
+                    task.run();
+                }
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Handle of task scheduled with {@link TimerWheel}. */
+    public static final class Timeout {
+        private static final int INIT      = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED   = 2;
+
+        private final Runnable      task;
+        private final long          deadline;
+        private final AtomicInteger state;
+
+        // Accessed only by timer thread.
+        private long rounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            state = new AtomicInteger(INIT);
+        }
+
+        /**
+         * Cancels task.
+         *
+         * @return {@code true} if task is cancelled and {@code false} if task is already expired or cancelled
+         */
+        public boolean cancel() {
+            return state.compareAndSet(INIT, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
@@ -11,12 +11,17 @@
 package org.eclipse.che.api.core.notification;
 
 import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author andrew00x
@@ -29,6 +34,11 @@ public class EventServiceTest {
         bus = new EventService();
     }
 
+    @AfterMethod
+    public void tearDown() {
+        bus.stop();
+    }
+
     @Test
     public void testSimpleEvent() {
         final List<Object> events = new ArrayList<>();
@@ -157,4 +167,161 @@ public class EventServiceTest {
         bus.publish(new Event());
         Assert.assertEquals(events.size(), 0);
     }
+
+    @Test
+    public void testAsyncDispatchKeepsOrder() throws Exception {
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(1000);
+        bus.subscribe(new EventSubscriber<Integer>() {
+            @Override
+            public void onEvent(Integer event) {
+                events.add(event);
+                done.countDown();
+            }
+        }, new AsyncDispatch());
+        final List<Integer> expected = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            bus.publish(i);
+            expected.add(i);
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(events, expected);
+    }
+
+    @Test
+    public void testPublisherNotBlockedBySlowSubscriber() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribe(new EventSubscriber<Event>() {
+            @Override
+            public void onEvent(Event event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.countDown();
+            }
+        }, new AsyncDispatch());
+        // Returns without waiting for subscriber.
+        bus.publish(new Event());
+        Assert.assertEquals(delivered.getCount(), 1);
+        release.countDown();
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBatchDispatch() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(10);
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+        bus.subscribe(new BatchEventSubscriber<String>() {
+            @Override
+            public void onEvents(List<String> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                batches.add(new ArrayList<>(events));
+                for (int i = 0; i < events.size(); i++) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void onEvent(String event) {
+                onEvents(Collections.singletonList(event));
+            }
+        }, new AsyncDispatch(100, AsyncDispatch.Overflow.BLOCK, 4));
+        for (int i = 0; i < 10; i++) {
+            bus.publish(Integer.toString(i));
+        }
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        final List<String> events = new ArrayList<>();
+        for (List<String> batch : batches) {
+            Assert.assertTrue(batch.size() <= 4);
+            events.addAll(batch);
+        }
+        Assert.assertTrue(batches.size() < 10);
+        Assert.assertEquals(events, Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"));
+    }
+
+    @Test
+    public void testDropNewestOnOverflow() throws Exception {
+        final List<String> events = checkOverflow(AsyncDispatch.Overflow.DROP_NEWEST);
+        // First event is taken by the dispatch thread, next two are in the queue, others are dropped.
+        Assert.assertEquals(events, Arrays.asList("0", "1", "2"));
+    }
+
+    @Test
+    public void testDropOldestOnOverflow() throws Exception {
+        final List<String> events = checkOverflow(AsyncDispatch.Overflow.DROP_OLDEST);
+        Assert.assertEquals(events, Arrays.asList("0", "8", "9"));
+    }
+
+    private List<String> checkOverflow(AsyncDispatch.Overflow overflow) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        bus.subscribe(new EventSubscriber<String>() {
+            @Override
+            public void onEvent(String event) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add(event);
+            }
+        }, new AsyncDispatch(2, overflow, 1));
+        bus.publish("0");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            bus.publish(Integer.toString(i));
+        }
+        release.countDown();
+        final DispatchStats stats = bus.getDispatchStats().get(0);
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (stats.getDelivered() < 3 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(stats.getDelivered(), 3);
+        Assert.assertEquals(stats.getDropped(), 7);
+        return events;
+    }
+
+    @Test
+    public void testDispatchStats() throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        bus.subscribe(new EventSubscriber<Event>() {
+            @Override
+            public void onEvent(Event event) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        }, new AsyncDispatch());
+        bus.publish(new Event());
+        bus.publish(new Event());
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        final List<DispatchStats> allStats = bus.getDispatchStats();
+        Assert.assertEquals(allStats.size(), 1);
+        final DispatchStats stats = allStats.get(0);
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (stats.getDelivered() < 2 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(stats.getDelivered(), 2);
+        Assert.assertEquals(stats.getDropped(), 0);
+        Assert.assertNotNull(stats.getAsyncDispatch());
+        // Second event waits in the queue while subscriber processes the first one.
+        Assert.assertTrue(stats.getMaxLatency(TimeUnit.MILLISECONDS) >= 100);
+        Assert.assertTrue(stats.getAverageLatency(TimeUnit.MILLISECONDS) >= 50);
+    }
 }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** @author andrew00x */
+public class BatchingLineConsumerTest {
+    private static final long TIMEOUT = 5000;
+
+    private List<String>                     lines;
+    private List<BatchingLineConsumer.Frame> frames;
+    private CountDownLatch                   publishStarted;
+    private CountDownLatch                   publishAllowed;
+
+    @BeforeMethod
+    public void setUp() {
+        lines = new CopyOnWriteArrayList<>();
+        frames = new CopyOnWriteArrayList<>();
+        publishStarted = new CountDownLatch(1);
+        publishAllowed = new CountDownLatch(0);
+    }
+
+    @Test
+    public void testBatchIsPublishedWhenItIsFull() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 3, 100);
+        for (int i = 1; i <= 7; i++) {
+            consumer.writeLine("line" + i);
+        }
+        waitForLines(6);
+        Assert.assertEquals(lines, Arrays.asList("1:line1", "2:line2", "3:line3", "4:line4", "5:line5", "6:line6"));
+        consumer.close();
+        Assert.assertEquals(lines.size(), 7);
+        Assert.assertEquals(lines.get(6), "7:line7");
+        consumer.writeLine("ignored");
+        consumer.close();
+        Assert.assertEquals(lines.size(), 7);
+    }
+
+    @Test
+    public void testBatchIsPublishedAfterDelay() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(50, 100, 100);
+        consumer.writeLine("line1");
+        consumer.writeLine("line2");
+        Assert.assertTrue(lines.isEmpty());
+        waitForLines(2);
+        Assert.assertEquals(lines, Arrays.asList("1:line1", "2:line2"));
+    }
+
+    @Test(timeOut = 10000)
+    public void testWriterIsNotBlockedWhilePublishing() throws Exception {
+        publishAllowed = new CountDownLatch(1);
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 1, 3);
+        consumer.writeLine("line1");
+        Assert.assertTrue(publishStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        // line1 is being published, line2 - line4 fill queue, line5 - line7 are dropped.
+        for (int i = 2; i <= 7; i++) {
+            consumer.writeLine("line" + i);
+        }
+        Assert.assertEquals(consumer.getDroppedLines(), 3);
+        publishAllowed.countDown();
+        consumer.close();
+        Assert.assertEquals(lines.size(), 5);
+        Assert.assertEquals(lines.subList(0, 4), Arrays.asList("1:line1", "2:line2", "3:line3", "4:line4"));
+        Assert.assertTrue(lines.get(4).startsWith("7:[WARNING] 3 lines of output are skipped"), lines.get(4));
+    }
+
+    @Test
+    public void testDroppedLinesAreReported() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 100, 3);
+        for (int i = 1; i <= 5; i++) {
+            consumer.writeLine("line" + i);
+        }
+        Assert.assertEquals(consumer.getDroppedLines(), 2);
+        consumer.close();
+        Assert.assertEquals(lines.size(), 4);
+        Assert.assertEquals(lines.subList(0, 3), Arrays.asList("1:line1", "2:line2", "3:line3"));
+        Assert.assertTrue(lines.get(3).startsWith("5:[WARNING] 2 lines of output are skipped"), lines.get(3));
+    }
+
+    @Test
+    public void testLinesArePublishedInFrames() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 3, 100);
+        for (int i = 1; i <= 7; i++) {
+            consumer.writeLine("line" + i);
+        }
+        consumer.close();
+        Assert.assertEquals(frames.size(), 3);
+        for (int i = 0; i < 3; i++) {
+            BatchingLineConsumer.Frame frame = frames.get(i);
+            Assert.assertEquals(frame.getSequenceNumber(), i);
+            Assert.assertEquals(frame.getFirstLineNum(), i * 3 + 1);
+        }
+        Assert.assertEquals(frames.get(0).getLines(), Arrays.asList("line1", "line2", "line3"));
+        Assert.assertEquals(frames.get(2).getLines(), Arrays.asList("line7"));
+    }
+
+    @Test
+    public void testFrameIsPublishedWhenItReachesMaxSize() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 100, 10, 100);
+        consumer.writeLine("12345");
+        consumer.writeLine("67890");
+        consumer.writeLine("next");
+        waitForLines(2);
+        Assert.assertEquals(lines, Arrays.asList("1:12345", "2:67890"));
+        Assert.assertEquals(frames.size(), 1);
+        consumer.close();
+        Assert.assertEquals(frames.size(), 2);
+        Assert.assertEquals(frames.get(1).getFirstLineNum(), 3);
+    }
+
+    @Test
+    public void testSkippedLinesAreReported() throws Exception {
+        BatchingLineConsumer consumer = new MyBatchingLineConsumer(60000, 100, 100);
+        consumer.writeLine("line1");
+        consumer.skipLine();
+        consumer.skipLine();
+        consumer.writeLine("line4");
+        consumer.close();
+        Assert.assertEquals(lines.size(), 3);
+        Assert.assertEquals(lines.get(0), "1:line1");
+        Assert.assertTrue(lines.get(1).startsWith("3:[WARNING] 2 lines of output are skipped"), lines.get(1));
+        Assert.assertEquals(lines.get(2), "4:line4");
+        // Numbers of lines in frame are consecutive, line after gap starts new frame.
+        Assert.assertEquals(frames.size(), 2);
+        Assert.assertEquals(frames.get(1).getFirstLineNum(), 3);
+    }
+
+    @Test(timeOut = 10000)
+    public void testSlowConsumerDoesNotBlockOtherConsumers() throws Exception {
+        publishAllowed = new CountDownLatch(1);
+        BatchingLineConsumer slow = new MyBatchingLineConsumer(60000, 1, 100);
+        slow.writeLine("slow");
+        Assert.assertTrue(publishStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        final List<String> published = new CopyOnWriteArrayList<>();
+        BatchingLineConsumer fast = new BatchingLineConsumer(60000, 1, 100) {
+            @Override
+            protected void publish(Frame frame) {
+                published.addAll(frame.getLines());
+            }
+        };
+        fast.writeLine("fast");
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while (published.isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(published, Arrays.asList("fast"));
+        publishAllowed.countDown();
+        slow.close();
+        Assert.assertEquals(lines, Arrays.asList("1:slow"));
+    }
+
+    private void waitForLines(int num) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while (lines.size() < num && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    private class MyBatchingLineConsumer extends BatchingLineConsumer {
+        MyBatchingLineConsumer(long maxDelay, int maxLines, int maxQueuedLines) {
+            super(maxDelay, maxLines, maxQueuedLines);
+        }
+
+        MyBatchingLineConsumer(long maxDelay, int maxLines, int maxSize, int maxQueuedLines) {
+            super(maxDelay, maxLines, maxSize, maxQueuedLines);
+        }
+
+        @Override
+        protected void publish(Frame frame) {
+            publishStarted.countDown();
+            try {
+                publishAllowed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            frames.add(frame);
+            int lineNum = frame.getFirstLineNum();
+            for (String line : frame.getLines()) {
+                lines.add(lineNum++ + ":" + line);
+            }
+        }
+    }
+}
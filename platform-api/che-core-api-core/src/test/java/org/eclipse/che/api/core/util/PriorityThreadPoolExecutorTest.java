@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** @author andrew00x */
+public class PriorityThreadPoolExecutorTest {
+    private PriorityThreadPoolExecutor executor;
+    private CountDownLatch             blocker;
+    private List<String>               executed;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = new PriorityThreadPoolExecutor("PriorityThreadPoolExecutorTest", 1, 3);
+        blocker = new CountDownLatch(1);
+        executed = new CopyOnWriteArrayList<>();
+        // Keep the single thread of pool busy until test releases it.
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        blocker.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testHigherPriorityFirstAndFifoInsidePriority() throws Exception {
+        executor.execute(task("normal-1"));
+        executor.execute(task("high"), PriorityThreadPoolExecutor.NORMAL_PRIORITY + 1);
+        executor.execute(task("normal-2"));
+        blocker.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(executed, Arrays.asList("high", "normal-1", "normal-2"));
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        executor.execute(task("1"));
+        executor.execute(task("2"));
+        executor.execute(task("3"));
+        try {
+            executor.execute(task("4"));
+            Assert.fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException e) {
+            // ok
+        }
+        PriorityThreadPoolExecutor.Stats stats = executor.getStats();
+        Assert.assertEquals(stats.getQueueSize(), 3);
+        Assert.assertEquals(stats.getRejectedTasks(), 1);
+    }
+
+    @Test
+    public void testDelayedTaskKeepsItsOrder() throws Exception {
+        executor.schedule(task("delayed"), PriorityThreadPoolExecutor.NORMAL_PRIORITY, 0, 100, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(executor.getStats().getDelayedTasks(), 1);
+        executor.execute(task("normal"), PriorityThreadPoolExecutor.NORMAL_PRIORITY, 1);
+        long end = System.currentTimeMillis() + 5000;
+        while (executor.getQueue().size() < 2 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(executor.getStats().getDelayedTasks(), 0);
+        blocker.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(executed, Arrays.asList("delayed", "normal"));
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                executed.add(name);
+            }
+        };
+    }
+}
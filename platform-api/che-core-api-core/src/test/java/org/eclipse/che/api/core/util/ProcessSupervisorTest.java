@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** @author andrew00x */
+public class ProcessSupervisorTest {
+    private static final long TIMEOUT = 20;
+
+    @Test
+    public void testAllOutputIsConsumedBeforeCallback() throws Exception {
+        final MyPumpCallback callback = pump("seq 1 20000", null);
+        Assert.assertTrue(callback.done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertNull(callback.error);
+        Assert.assertEquals(callback.linesWhenDone, 20000);
+        Assert.assertEquals(callback.lines.get(0), "1");
+        Assert.assertEquals(callback.lines.get(19999), "20000");
+    }
+
+    @Test
+    public void testLastLineWithoutLineSeparator() throws Exception {
+        final MyPumpCallback callback = pump("printf 'line1\\nline2'", null);
+        Assert.assertTrue(callback.done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(callback.lines, Arrays.asList("line1", "line2"));
+    }
+
+    @Test
+    public void testChildProcessKeepsOutputOpen() throws Exception {
+        // Child process holds the stream of output after its parent is terminated, pump must not wait for the child.
+        final MyPumpCallback callback = pump("echo line1; sleep 30 & echo line2", null);
+        Assert.assertTrue(callback.done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(callback.lines, Arrays.asList("line1", "line2"));
+    }
+
+    @Test
+    public void testBlockedConsumersDoNotStopReadingOfOtherProcesses() throws Exception {
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final List<MyPumpCallback> blocked = new ArrayList<>();
+        // More processes than pump threads.
+        for (int i = 0; i < 8; i++) {
+            blocked.add(pump("seq 1 5000", unblock));
+        }
+        final MyPumpCallback callback = pump("seq 1 3000", null);
+        Assert.assertTrue(callback.done.await(TIMEOUT, TimeUnit.SECONDS));
+        Assert.assertEquals(callback.linesWhenDone, 3000);
+        unblock.countDown();
+        for (MyPumpCallback blockedCallback : blocked) {
+            Assert.assertTrue(blockedCallback.done.await(TIMEOUT, TimeUnit.SECONDS));
+            Assert.assertEquals(blockedCallback.linesWhenDone, 5000);
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final Process process = Runtime.getRuntime().exec(new String[]{"/bin/bash", "-c", "sleep 10"});
+        try {
+            final MyPumpCallback callback = new MyPumpCallback(null);
+            final ProcessSupervisor.Pump pump = ProcessSupervisor.pump(process, callback, callback);
+            pump.stop();
+            Assert.assertTrue(callback.done.await(TIMEOUT, TimeUnit.SECONDS));
+            Assert.assertNull(callback.error);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private MyPumpCallback pump(String command, CountDownLatch unblock) throws IOException {
+        final Process process = Runtime.getRuntime().exec(new String[]{"/bin/bash", "-c", command});
+        final MyPumpCallback callback = new MyPumpCallback(unblock);
+        ProcessSupervisor.pump(process, callback, callback);
+        return callback;
+    }
+
+    private static class MyPumpCallback implements LineConsumer, ProcessSupervisor.PumpCallback {
+        final List<String>   lines = new CopyOnWriteArrayList<>();
+        final CountDownLatch done  = new CountDownLatch(1);
+        final CountDownLatch unblock;
+
+        volatile int       linesWhenDone;
+        volatile Exception error;
+
+        MyPumpCallback(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void writeLine(String line) throws IOException {
+            if (unblock != null) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lines.add(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public void done(Exception error) {
+            this.error = error;
+            linesWhenDone = lines.size();
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.core.util;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** @author andrew00x */
+public class TimerWheelTest {
+    private TimerWheel timer;
+
+    @BeforeMethod
+    public void setUp() {
+        // Small wheel to check timeouts that are longer than one round of wheel.
+        timer = new TimerWheel("TimerWheelTest", 10, TimeUnit.MILLISECONDS, 8, null);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        final long start = System.currentTimeMillis();
+        TimerWheel.Timeout short1 = timer.schedule(task, 20, TimeUnit.MILLISECONDS);
+        TimerWheel.Timeout long1 = timer.schedule(task, 300, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 300);
+        Assert.assertTrue(short1.isExpired());
+        Assert.assertTrue(long1.isExpired());
+        Assert.assertFalse(long1.cancel());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertFalse(latch.await(300, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(timer.size(), 0);
+    }
+
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public void testScheduleAfterStop() {
+        timer.stop();
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+    }
+}
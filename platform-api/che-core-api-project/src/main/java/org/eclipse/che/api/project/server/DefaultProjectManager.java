@@ -14,8 +14,9 @@ import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.AsyncDispatch;
+import org.eclipse.che.api.core.notification.BatchEventSubscriber;
 import org.eclipse.che.api.core.notification.EventService;
-import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.project.server.handlers.CreateModuleHandler;
 import org.eclipse.che.api.project.server.handlers.CreateProjectHandler;
 import org.eclipse.che.api.project.server.handlers.ProjectHandlerRegistry;
@@ -46,10 +47,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -64,14 +68,17 @@ public final class DefaultProjectManager implements ProjectManager {
     private static final int CACHE_MASK = CACHE_NUM - 1;
     private static final int SEG_SIZE   = 32;
 
+    // Max number of events of virtual file system that are processed at once.
+    private static final int VFS_EVENTS_BATCH_SIZE = 500;
+
     private final Lock[]                                     miscLocks;
     private final Cache<Pair<String, String>, ProjectMisc>[] miscCaches;
 
-    private final VirtualFileSystemRegistry         fileSystemRegistry;
-    private final EventService                      eventService;
-    private final EventSubscriber<VirtualFileEvent> vfsSubscriber;
-    private final ProjectTypeRegistry               projectTypeRegistry;
-    private final ProjectHandlerRegistry            handlers;
+    private final VirtualFileSystemRegistry              fileSystemRegistry;
+    private final EventService                           eventService;
+    private final BatchEventSubscriber<VirtualFileEvent> vfsSubscriber;
+    private final ProjectTypeRegistry                    projectTypeRegistry;
+    private final ProjectHandlerRegistry                 handlers;
 
 
     @Inject
@@ -111,33 +118,45 @@ public final class DefaultProjectManager implements ProjectManager {
             };
         }
 
-        vfsSubscriber = new EventSubscriber<VirtualFileEvent>() {
+        vfsSubscriber = new BatchEventSubscriber<VirtualFileEvent>() {
             @Override
             public void onEvent(VirtualFileEvent event) {
-                final String workspace = event.getWorkspaceId();
-                final String path = event.getPath();
-                if (path.endsWith(Constants.CODENVY_DIR + "/misc.xml")) {
-                    return;
-                }
-                switch (event.getType()) {
-                    case CONTENT_UPDATED:
-                    case CREATED:
-                    case DELETED:
-                    case MOVED:
-                    case RENAMED: {
-                        final int length = path.length();
-                        for (int i = 1; i < length && (i = path.indexOf('/', i)) > 0; i++) {
-                            final String projectPath = path.substring(0, i);
-                            try {
-                                final Project project = getProject(workspace, projectPath);
-                                if (project != null) {
-                                    getProjectMisc(project).setModificationDate(System.currentTimeMillis());
-                                }
-                            } catch (Exception e) {
-                                LOG.error(e.getMessage(), e);
+                onEvents(Collections.singletonList(event));
+            }
+
+            @Override
+            public void onEvents(List<VirtualFileEvent> events) {
+                // Usually many files of the same project are changed together. Each folder that may be project is checked once for all
+                // of them.
+                final Set<Pair<String, String>> projectPaths = new LinkedHashSet<>();
+                for (VirtualFileEvent event : events) {
+                    final String path = event.getPath();
+                    if (path.endsWith(Constants.CODENVY_DIR + "/misc.xml")) {
+                        continue;
+                    }
+                    switch (event.getType()) {
+                        case CONTENT_UPDATED:
+                        case CREATED:
+                        case DELETED:
+                        case MOVED:
+                        case RENAMED: {
+                            final int length = path.length();
+                            for (int i = 1; i < length && (i = path.indexOf('/', i)) > 0; i++) {
+                                projectPaths.add(Pair.of(event.getWorkspaceId(), path.substring(0, i)));
                             }
+                            break;
+                        }
+                    }
+                }
+                final long modificationDate = System.currentTimeMillis();
+                for (Pair<String, String> projectPath : projectPaths) {
+                    try {
+                        final Project project = getProject(projectPath.first, projectPath.second);
+                        if (project != null) {
+                            getProjectMisc(project).setModificationDate(modificationDate);
                         }
-                        break;
+                    } catch (Exception e) {
+                        LOG.error(e.getMessage(), e);
                     }
                 }
             }
@@ -455,7 +474,9 @@ public final class DefaultProjectManager implements ProjectManager {
 
     @PostConstruct
     void start() {
-        eventService.subscribe(vfsSubscriber);
+        // Events are processed in the threads of EventService, operations of virtual file system do not wait for it.
+        eventService.subscribe(vfsSubscriber,
+                               new AsyncDispatch(AsyncDispatch.DEFAULT_QUEUE_SIZE, AsyncDispatch.Overflow.BLOCK, VFS_EVENTS_BATCH_SIZE));
     }
 
     @PreDestroy
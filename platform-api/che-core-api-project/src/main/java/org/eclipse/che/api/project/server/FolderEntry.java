@@ -18,6 +18,7 @@ import org.eclipse.che.api.vfs.server.LazyIterator;
 import org.eclipse.che.api.vfs.server.MountPoint;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -116,6 +117,18 @@ public class FolderEntry extends VirtualFileEntry {
         return children;
     }
 
+    /**
+     * Walks through child folders of this folder up to {@code depth} levels below this folder. Visitor is notified about this folder
+     * as well. If current user doesn't have read access to some folder neither it nor its children are visited.
+     *
+     * @throws ServerException
+     *         if an error occurs
+     * @see org.eclipse.che.api.vfs.server.VirtualFile#walk(VirtualFileFilter, int, VirtualFileTreeVisitor)
+     */
+    public void walkFolders(int depth, VirtualFileTreeVisitor visitor) throws ServerException {
+        getVirtualFile().walk(FOLDER_FILTER, depth, visitor);
+    }
+
     List<VirtualFileEntry> getChildren(VirtualFileFilter filter) throws ServerException {
         final LazyIterator<VirtualFile> vfChildren = getVirtualFile().getChildren(filter);
         final List<VirtualFileEntry> children = new ArrayList<>();
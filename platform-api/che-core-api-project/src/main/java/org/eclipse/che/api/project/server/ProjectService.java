@@ -51,7 +51,9 @@ import org.eclipse.che.api.project.shared.dto.TreeElement;
 import org.eclipse.che.api.vfs.server.ContentStream;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemImpl;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
 import org.eclipse.che.api.vfs.server.search.QueryExpression;
+import org.eclipse.che.api.vfs.server.search.SearchResult;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
@@ -86,10 +88,16 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -155,6 +163,54 @@ public class ProjectService extends Service {
         }
     }
 
+    /** Writes JSON representation of {@link TreeElement} for each folder while tree of folders is walked. */
+    private static class TreeElementWriter implements VirtualFileTreeVisitor {
+        private final String     workspace;
+        private final UriBuilder uriBuilder;
+        private final Writer     writer;
+        private final DtoFactory dtoFactory;
+
+        /** {@code true} if nothing is written in the current list of children yet. */
+        private boolean first;
+
+        TreeElementWriter(String workspace, UriBuilder uriBuilder, Writer writer) {
+            this.workspace = workspace;
+            this.uriBuilder = uriBuilder;
+            this.writer = writer;
+            dtoFactory = DtoFactory.getInstance();
+            first = true;
+        }
+
+        @Override
+        public boolean preVisitFolder(VirtualFile folder) throws ServerException {
+            final ItemReference node = DtoConverter.toItemReferenceDto(new FolderEntry(workspace, folder), uriBuilder.clone());
+            write(first ? "{\"node\":" : ",{\"node\":");
+            write(dtoFactory.toJson(node));
+            write(",\"children\":[");
+            first = true;
+            return true;
+        }
+
+        @Override
+        public void visitFile(VirtualFile file) {
+            // Tree contains folders only.
+        }
+
+        @Override
+        public void postVisitFolder(VirtualFile folder) throws ServerException {
+            write("]}");
+            first = false;
+        }
+
+        private void write(String str) throws ServerException {
+            try {
+                writer.write(str);
+            } catch (IOException e) {
+                throw new ServerException(e);
+            }
+        }
+    }
+
     @ApiOperation(value = "Gets list of projects in root folder",
                   response = ProjectReference.class,
                   responseContainer = "List",
@@ -1201,19 +1257,32 @@ public class ProjectService extends Service {
     @GET
     @Path("/tree/{parent:.*}")
     @Produces(MediaType.APPLICATION_JSON)
-    public TreeElement getTree(@ApiParam(value = "Workspace ID", required = true)
-                               @PathParam("ws-id") String workspace,
-                               @ApiParam(value = "Path to resource. Can be project or its folders", required = true)
-                               @PathParam("parent") String path,
-                               @ApiParam(value = "Tree depth. This parameter can be dropped. If not specified ?depth=1 is used by default")
-                               @DefaultValue("1") @QueryParam("depth") int depth)
+    public StreamingOutput getTree(@ApiParam(value = "Workspace ID", required = true)
+                                   @PathParam("ws-id") final String workspace,
+                                   @ApiParam(value = "Path to resource. Can be project or its folders", required = true)
+                                   @PathParam("parent") String path,
+                                   @ApiParam(value = "Tree depth. This parameter can be dropped. " +
+                                                     "If not specified ?depth=1 is used by default")
+                                   @DefaultValue("1") @QueryParam("depth") final int depth)
             throws NotFoundException, ForbiddenException, ServerException {
         final FolderEntry folder = asFolder(workspace, path);
         final UriBuilder uriBuilder = getServiceContext().getServiceUriBuilder();
-        final DtoFactory dtoFactory = DtoFactory.getInstance();
-        return dtoFactory.createDto(TreeElement.class)
-                         .withNode(DtoConverter.toItemReferenceDto(folder, uriBuilder.clone()))
-                         .withChildren(getTree(folder, depth, uriBuilder, dtoFactory));
+        // Tree is written while it is walked, whole tree is never kept in memory.
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                try {
+                    folder.walkFolders(depth, new TreeElementWriter(workspace, uriBuilder, writer));
+                } catch (ServerException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException)e.getCause();
+                    }
+                    throw new IOException(e.getMessage(), e);
+                }
+                writer.flush();
+            }
+        };
     }
 
     @ApiOperation(value = "Get file or folder",
@@ -1249,20 +1318,6 @@ public class ProjectService extends Service {
         return item;
     }
 
-    private List<TreeElement> getTree(FolderEntry folder, int depth, UriBuilder uriBuilder, DtoFactory dtoFactory) throws ServerException {
-        if (depth == 0) {
-            return null;
-        }
-        final List<FolderEntry> childFolders = folder.getChildFolders();
-        final List<TreeElement> nodes = new ArrayList<>(childFolders.size());
-        for (FolderEntry childFolder : childFolders) {
-            nodes.add(dtoFactory.createDto(TreeElement.class)
-                                .withNode(DtoConverter.toItemReferenceDto(childFolder, uriBuilder.clone()))
-                                .withChildren(getTree(childFolder, depth - 1, uriBuilder, dtoFactory)));
-        }
-        return nodes;
-    }
-
     @ApiOperation(value = "Search for resources",
                   notes = "Search for resources applying a number of search filters as query parameters",
                   response = ItemReference.class,
@@ -1287,7 +1342,7 @@ public class ProjectService extends Service {
                                       @QueryParam("mediatype") String mediatype,
                                       @ApiParam(value = "Search keywords")
                                       @QueryParam("text") String text,
-                                      @ApiParam(value = "Maximum items to display. If this parameter is dropped, there are no limits")
+                                      @ApiParam(value = "Maximum items to display, 1000 if this parameter is dropped")
                                       @QueryParam("maxItems") @DefaultValue("-1") int maxItems,
                                       @ApiParam(value = "Skip count")
                                       @QueryParam("skipCount") int skipCount)
@@ -1304,24 +1359,26 @@ public class ProjectService extends Service {
                     .setPath(path.startsWith("/") ? path : ('/' + path))
                     .setName(name)
                     .setMediaType(mediatype)
-                    .setText(text);
+                    .setText(text)
+                    .setSkipCount(skipCount)
+                    .setMaxItems(maxItems);
 
-            final String[] result = searcherProvider.getSearcher(folder.getVirtualFile().getMountPoint(), true).search(expr);
+            final SearchResult result = searcherProvider.getSearcher(folder.getVirtualFile().getMountPoint(), true).search(expr);
             if (skipCount > 0) {
-                if (skipCount > result.length) {
+                if (skipCount > result.getTotalHits()) {
                     throw new ConflictException(
                             String.format("'skipCount' parameter: %d is greater then total number of items in result: %d.",
-                                          skipCount, result.length));
+                                          skipCount, result.getTotalHits()));
                 }
             }
-            final int length = maxItems > 0 ? Math.min(result.length, maxItems) : result.length;
-            final List<ItemReference> items = new ArrayList<>(length);
+            final String[] paths = result.getFilePaths();
+            final List<ItemReference> items = new ArrayList<>(paths.length);
             final FolderEntry root = projectManager.getProjectsRoot(workspace);
             final UriBuilder uriBuilder = getServiceContext().getServiceUriBuilder();
-            for (int i = skipCount; i < length; i++) {
+            for (String filePath : paths) {
                 VirtualFileEntry child = null;
                 try {
-                    child = root.getChild(result[i]);
+                    child = root.getChild(filePath);
                 } catch (ForbiddenException ignored) {
                     // Ignore item that user can't access
                 }
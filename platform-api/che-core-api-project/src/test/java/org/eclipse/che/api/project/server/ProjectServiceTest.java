@@ -1937,11 +1937,12 @@ public class ProjectServiceTest {
         a.createFolder("b/c");
         a.createFolder("x/y");
         a.createFile("test.txt", "test".getBytes(), "text/plain");
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
         ContainerResponse response = launcher.service("GET",
                                                       String.format("http://localhost:8080/api/project/%s/tree/my_project/a", workspace),
-                                                      "http://localhost:8080/api", null, null, null);
+                                                      "http://localhost:8080/api", null, null, writer, null);
         assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
-        TreeElement tree = (TreeElement)response.getEntity();
+        TreeElement tree = DtoFactory.getInstance().createDtoFromJson(new String(writer.getBody()), TreeElement.class);
         ItemReference a_node = tree.getNode();
         assertEquals(a_node.getName(), "a");
         validateFolderLinks(a_node);
@@ -1966,12 +1967,13 @@ public class ProjectServiceTest {
         a.createFolder("b/c");
         a.createFolder("x/y");
         a.createFile("test.txt", "test".getBytes(), "text/plain");
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
         ContainerResponse response = launcher.service("GET",
                                                       String.format("http://localhost:8080/api/project/%s/tree/my_project/a?depth=2",
                                                                     workspace),
-                                                      "http://localhost:8080/api", null, null, null);
+                                                      "http://localhost:8080/api", null, null, writer, null);
         assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
-        TreeElement tree = (TreeElement)response.getEntity();
+        TreeElement tree = DtoFactory.getInstance().createDtoFromJson(new String(writer.getBody()), TreeElement.class);
         ItemReference a_node = tree.getNode();
         assertEquals(a_node.getName(), "a");
         List<TreeElement> children = tree.getChildren();
@@ -203,7 +203,12 @@ public class ProjectTest {
         long modificationDate1 = myProject.getModificationDate();
         Thread.sleep(1000);
         myProject.getBaseFolder().createFile("test.txt", "test".getBytes(), "text/plain");
+        // Events of virtual file system are delivered asynchronously.
         long modificationDate2 = myProject.getModificationDate();
+        for (int i = 0; i < 100 && modificationDate2 == modificationDate1; i++) {
+            Thread.sleep(50);
+            modificationDate2 = myProject.getModificationDate();
+        }
         Assert.assertTrue(modificationDate2 > modificationDate1);
     }
 
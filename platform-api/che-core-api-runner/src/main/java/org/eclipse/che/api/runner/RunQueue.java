@@ -18,6 +18,7 @@ import org.eclipse.che.api.builder.BuildStatus;
 import org.eclipse.che.api.builder.BuilderService;
 import org.eclipse.che.api.builder.dto.BuildOptions;
 import org.eclipse.che.api.builder.dto.BuildTaskDescriptor;
+import org.eclipse.che.api.builder.internal.BuilderEvent;
 import org.eclipse.che.api.core.ConflictException;
 import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
@@ -29,6 +30,7 @@ import org.eclipse.che.api.core.rest.HttpJsonHelper;
 import org.eclipse.che.api.core.rest.RemoteServiceDescriptor;
 import org.eclipse.che.api.core.rest.ServiceContext;
 import org.eclipse.che.api.core.rest.shared.dto.Link;
+import org.eclipse.che.api.core.util.PriorityThreadPoolExecutor;
 import org.eclipse.che.api.core.util.ValueHolder;
 import org.eclipse.che.api.project.server.ProjectService;
 import org.eclipse.che.api.project.shared.EnvironmentId;
@@ -74,9 +76,10 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -87,12 +90,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -107,9 +108,16 @@ import java.util.concurrent.locks.ReentrantLock;
 public class RunQueue {
     private static final Logger LOG = LoggerFactory.getLogger(RunQueue.class);
 
-    /** Pause in milliseconds for checking the result of build process. */
-    private static final long CHECK_BUILD_RESULT_PERIOD     = 2000;
+    /**
+     * Pause in milliseconds for checking the result of build process if builder doesn't send any events about it. Normally run task
+     * gets notification about end of build with {@link BuilderEvent}.
+     */
+    private static final long CHECK_BUILD_RESULT_PERIOD     = 30000;
     private static final long CHECK_AVAILABLE_RUNNER_PERIOD = 2000;
+    private static final long RUNNER_STATE_MAX_AGE          = 5000;
+
+    /** Refresh of runner state is short and may unblock many waiting tasks. */
+    private static final int REFRESH_RUNNER_STATE_PRIORITY = PriorityThreadPoolExecutor.NORMAL_PRIORITY + 10;
 
     private static final long PROCESS_CLEANER_PERIOD = TimeUnit.MINUTES.toMillis(1);
 
@@ -118,12 +126,21 @@ public class RunQueue {
     private static final int APPLICATION_CHECK_URL_TIMEOUT = 2000;
     private static final int APPLICATION_CHECK_URL_COUNT   = 30;
 
+    private static final int DEFAULT_MAX_THREADS    = 100;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
     private static final AtomicLong sequence = new AtomicLong(1);
 
     private final ConcurrentMap<String, RemoteRunnerServer>       runnerServers;
     private final RunnerSelectionStrategy                         runnerSelector;
     private final ConcurrentMap<RunnerListKey, Set<RemoteRunner>> runnerListMapping;
     private final ConcurrentMap<Long, RunQueueTask>               tasks;
+    // Run tasks that wait for end of build. Waiters are mapped to URL of builder API and id of build task to find them quickly when
+    // get BuilderEvent. Different builder APIs may use the same ids of tasks.
+    private final Set<BuildWaiter>                                buildWaiters;
+    private final ConcurrentMap<BuildWaiterKey, BuildWaiter>      buildWaitersByTaskId;
+    // URLs of builder APIs that were used for builds. Event of builder doesn't contain such URL, waiter is looked up with each of them.
+    private final Set<String>                                     builderUrls;
     private final int                                             defMemSize;
     private final EventService                                    eventService;
     private final String                                          baseWorkspaceApiUrl;
@@ -136,9 +153,10 @@ public class RunQueue {
     // Helps to reduce lock contentions when check available resources.
     private final Lock[]                                          resourceCheckerLocks;
     private final int                                             resourceCheckerMask;
+    private final ConcurrentMap<RemoteRunner, RemoteRunnerState>  runnerStates;
 
-    private ExecutorService          executor;
-    private ScheduledExecutorService cleanScheduler;
+    private PriorityThreadPoolExecutor executor;
+    private ScheduledExecutorService   cleanScheduler;
 
     /** Optional pre-configured slave runners. */
     @com.google.inject.Inject(optional = true)
@@ -159,6 +177,14 @@ public class RunQueue {
     @Named(Constants.RUNNER_WS_MAX_MEMORY_SIZE)
     private int defMaxMemorySize = DEFAULT_MAX_MEMORY_SIZE;
 
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.RUNNER_QUEUE_MAX_THREADS)
+    private int maxThreads = DEFAULT_MAX_THREADS;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.RUNNER_QUEUE_MAX_SIZE)
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
     // Switched to default for test.
     // private
     long cleanerPeriod              = PROCESS_CLEANER_PERIOD;
@@ -167,6 +193,9 @@ public class RunQueue {
     long checkAvailableRunnerPeriod = CHECK_AVAILABLE_RUNNER_PERIOD;
     // Switched to default for test.
     // private
+    long runnerStateMaxAge          = RUNNER_STATE_MAX_AGE;
+    // Switched to default for test.
+    // private
     long checkBuildResultPeriod     = CHECK_BUILD_RESULT_PERIOD;
 
     /**
@@ -217,7 +246,11 @@ public class RunQueue {
 
         runnerServers = new ConcurrentHashMap<>();
         tasks = new ConcurrentHashMap<>();
+        buildWaiters = Collections.newSetFromMap(new ConcurrentHashMap<BuildWaiter, Boolean>());
+        buildWaitersByTaskId = new ConcurrentHashMap<>();
+        builderUrls = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         runnerListMapping = new ConcurrentHashMap<>();
+        runnerStates = new ConcurrentHashMap<>();
         started = new AtomicBoolean(false);
         final int partitions = 1 << 4;
         resourceCheckerMask = partitions - 1;
@@ -240,18 +273,36 @@ public class RunQueue {
         return new ArrayList<>(tasks.values());
     }
 
+    /** Gets statistic of pool that executes run tasks. */
+    public PriorityThreadPoolExecutor.Stats getExecutorStats() {
+        checkStarted();
+        return executor.getStats();
+    }
+
     @PostConstruct
     public void start() {
         if (started.compareAndSet(false, true)) {
-            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
-                                              new ThreadFactoryBuilder().setNameFormat("RunQueue-[%d]").setDaemon(true).build()) {
+            executor = new PriorityThreadPoolExecutor("RunQueue", maxThreads, maxQueueSize) {
                 @Override
-                protected void afterExecute(Runnable runnable, Throwable error) {
+                protected void afterTaskExecute(Runnable runnable, Throwable error) {
                     boolean isInterrupted = Thread.interrupted();
                     try {
-                        super.afterExecute(runnable, error);
                         if (runnable instanceof InternalRunTask) {
                             final InternalRunTask internalRunTask = (InternalRunTask)runnable;
+                            if (internalRunTask.retry) {
+                                // There is no runner with enough resources, try again later. Task doesn't hold thread while waiting.
+                                internalRunTask.retry = false;
+                                try {
+                                    schedule(internalRunTask, internalRunTask.priority, internalRunTask.id,
+                                             checkAvailableRunnerPeriod, TimeUnit.MILLISECONDS);
+                                } catch (RejectedExecutionException e) {
+                                    internalRunTask.cancel(false);
+                                }
+                                return;
+                            }
+                            if (!internalRunTask.isDone()) {
+                                return;
+                            }
                             if (error == null) {
                                 try {
                                     internalRunTask.get();
@@ -352,6 +403,20 @@ public class RunQueue {
                     }
                 }
             }, cleanerPeriod, cleanerPeriod, TimeUnit.MILLISECONDS);
+            // Check status of builds that didn't send any events since the previous check.
+            cleanScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    for (BuildWaiter waiter : buildWaiters) {
+                        if (!waiter.eventReceived.getAndSet(false)) {
+                            waiter.checkBuild();
+                        }
+                    }
+                }
+            }, checkBuildResultPeriod, checkBuildResultPeriod, TimeUnit.MILLISECONDS);
+
+            // Run tasks that wait for build are continued when builder notifies about end of build.
+            eventService.subscribe(new BuildCompletionListener());
 
             // sending message by websocket connection for notice about used memory size changing
             eventService.subscribe(new ResourcesChangesMessenger());
@@ -405,7 +470,11 @@ public class RunQueue {
                 executor.shutdownNow();
             }
             tasks.clear();
+            buildWaiters.clear();
+            buildWaitersByTaskId.clear();
+            builderUrls.clear();
             runnerListMapping.clear();
+            runnerStates.clear();
             if (interrupted) {
                 Thread.currentThread().interrupt();
             }
@@ -531,6 +600,7 @@ public class RunQueue {
         // Options for web shell that runner may provide to the server with running application.
         request.setShellOptions(runOptions.getShellOptions());
         final ValueHolder<BuildTaskDescriptor> buildTaskHolder = new ValueHolder<>();
+        String builderUrl = null;
         // Sometime user may request to skip build of project before run.
         final boolean skipBuild = runOptions.getSkipBuild();
         BuildOptions buildOptions = runOptions.getBuildOptions();
@@ -546,12 +616,18 @@ public class RunQueue {
             buildOptions.setIncludeDependencies(true);
             buildOptions.setSkipTest(true);
             final RemoteServiceDescriptor builderService = getBuilderServiceDescriptor(workspace, serviceContext);
+            builderUrl = builderService.getBaseUrl();
             // schedule build
-            buildTaskHolder.set(startBuild(builderService, project, buildOptions));
+            final BuildTaskDescriptor buildDescriptor = startBuild(builderService, project, buildOptions);
+            if (buildDescriptor.getLink(org.eclipse.che.api.builder.internal.Constants.LINK_REL_GET_STATUS) == null) {
+                throw new RunnerException("Invalid response from builder service. Unable get URL for checking build status");
+            }
+            buildTaskHolder.set(buildDescriptor);
         }
         final Callable<RemoteRunnerProcess> callable = createTaskFor(matchedRunners, request, buildTaskHolder);
         final Long id = sequence.getAndIncrement();
-        final InternalRunTask future = new InternalRunTask(ThreadLocalPropagateContext.wrap(callable), id, workspace, project);
+        final InternalRunTask future = new InternalRunTask(ThreadLocalPropagateContext.wrap(callable), id, workspace, project,
+                                                           getPriority(infra));
         request.setId(id); // for getting callback events from remote runner
         final RunQueueTask task = new RunQueueTask(id,
                                                    request,
@@ -563,7 +639,17 @@ public class RunQueue {
                                                    serviceContext.getServiceUriBuilder());
         tasks.put(id, task);
         eventService.publish(RunnerEvent.queueStartedEvent(id, workspace, project));
-        executor.execute(future);
+        if (buildTaskHolder.get() == null) {
+            try {
+                executor.execute(future, future.priority, id);
+            } catch (RejectedExecutionException e) {
+                tasks.remove(id);
+                throw new RunnerException("Too many tasks in run queue, try again later. ");
+            }
+        } else {
+            // Task doesn't hold any thread while build is in progress, it is started when build is done.
+            waitForBuild(new BuildWaiter(future, request, builderUrl, buildTaskHolder));
+        }
         return task;
     }
 
@@ -798,6 +884,39 @@ public class RunQueue {
         return buildDescriptor;
     }
 
+    private void waitForBuild(BuildWaiter waiter) {
+        final BuildTaskDescriptor buildDescriptor = waiter.buildTaskHolder.get();
+        waiter.future.buildWaiter = waiter;
+        buildWaiters.add(waiter);
+        builderUrls.add(waiter.key.builderUrl);
+        buildWaitersByTaskId.put(waiter.key, waiter);
+        if (isBuildEnded(buildDescriptor.getStatus())) {
+            waiter.startRun();
+        } else if (waiter.future.isCancelled()) {
+            waiter.cancelBuild();
+        }
+    }
+
+    /** Runs on 'always_on' and 'paid' infra are taken from queue before runs on other infra. */
+    private static int getPriority(String infra) {
+        if ("always_on".equals(infra)) {
+            return PriorityThreadPoolExecutor.NORMAL_PRIORITY + 2;
+        }
+        if ("paid".equals(infra)) {
+            return PriorityThreadPoolExecutor.NORMAL_PRIORITY + 1;
+        }
+        return PriorityThreadPoolExecutor.NORMAL_PRIORITY;
+    }
+
+    private static boolean isBuildEnded(BuildStatus buildStatus) {
+        return buildStatus == BuildStatus.SUCCESSFUL || buildStatus == BuildStatus.CANCELLED || buildStatus == BuildStatus.FAILED;
+    }
+
+    /** Gets number of run tasks that wait for end of build. */
+    public int getWaitingForBuildTasksNumber() {
+        return buildWaiters.size();
+    }
+
     protected Callable<RemoteRunnerProcess> createTaskFor(final List<RemoteRunner> matched,
                                                           final RunRequest request,
                                                           final ValueHolder<BuildTaskDescriptor> buildTaskHolder) {
@@ -946,9 +1065,50 @@ public class RunQueue {
                 i.remove();
             }
         }
+        for (Iterator<RemoteRunner> i = runnerStates.keySet().iterator(); i.hasNext(); ) {
+            if (url.equals(i.next().getBaseUrl())) {
+                i.remove();
+            }
+        }
         return modified;
     }
 
+    /**
+     * Gets cached state of remote runner. State is loaded synchronously if it isn't loaded yet. If state is older than {@code
+     * runnerStateMaxAge} it is refreshed asynchronously and caller gets current state.
+     */
+    private RemoteRunnerState getRunnerState(RemoteRunner runner) {
+        RemoteRunnerState runnerState = runnerStates.get(runner);
+        if (runnerState == null) {
+            final RemoteRunnerState newRunnerState = new RemoteRunnerState(runner);
+            runnerState = runnerStates.putIfAbsent(runner, newRunnerState);
+            if (runnerState == null) {
+                runnerState = newRunnerState;
+            }
+        }
+        if (!runnerState.awaitLoaded()) {
+            if (runnerState.beginRefresh()) {
+                runnerState.load();
+            } else {
+                runnerState.awaitLoaded();
+            }
+        } else if (runnerState.beginRefresh(runnerStateMaxAge)) {
+            final RemoteRunnerState myRunnerState = runnerState;
+            try {
+                executor.execute(ThreadLocalPropagateContext.wrap(new Runnable() {
+                    @Override
+                    public void run() {
+                        myRunnerState.load();
+                    }
+                }), REFRESH_RUNNER_STATE_PRIORITY);
+            } catch (RejectedExecutionException e) {
+                // Try next time.
+                runnerState.abortRefresh();
+            }
+        }
+        return runnerState;
+    }
+
     private String getUserToken() {
         User user = EnvironmentContext.getCurrent().getUser();
         if (user != null) {
@@ -1025,142 +1185,235 @@ public class RunQueue {
         private final ValueHolder<BuildTaskDescriptor> buildTaskHolder;
         private final RunRequest                       request;
         private final List<RemoteRunner>               matchedRunners;
-        private final Set<Pair<String, String>>        lowDiskSpaceRunners;
-        private final Set<Pair<String, String>>        criticalDiskSpaceRunners;
 
         public RemoteRunnerProcessCallable(ValueHolder<BuildTaskDescriptor> buildTaskHolder, RunRequest request,
                                            List<RemoteRunner> matchedRunners) {
             this.buildTaskHolder = buildTaskHolder;
             this.request = request;
             this.matchedRunners = matchedRunners;
-            lowDiskSpaceRunners = new HashSet<>();
-            criticalDiskSpaceRunners = new HashSet<>();
         }
 
         @Override
         public RemoteRunnerProcess call() throws Exception {
-            BuildTaskDescriptor buildDescriptor = buildTaskHolder.get();
+            // Task is started when build is done, see BuildWaiter.
+            final BuildTaskDescriptor buildDescriptor = buildTaskHolder.get();
             if (buildDescriptor != null) {
-                final Link buildStatusLink = buildDescriptor.getLink(org.eclipse.che.api.builder.internal.Constants.LINK_REL_GET_STATUS);
-                if (buildStatusLink == null) {
-                    throw new RunnerException("Invalid response from builder service. Unable get URL for checking build status");
-                }
-                for (; ; ) {
-                    if (Thread.currentThread().isInterrupted()) {
-                        // Expected to get here if task is canceled. Try to cancel related runner process.
-                        tryCancelBuild(buildDescriptor);
-                        return null;
-                    }
-                    synchronized (this) {
-                        try {
-                            wait(checkBuildResultPeriod);
-                        } catch (InterruptedException e) {
-                            // Expected to get here if task is canceled. Try to cancel related build process.
-                            tryCancelBuild(buildDescriptor);
-                            return null;
-                        }
-                    }
-                    buildDescriptor = HttpJsonHelper.request(BuildTaskDescriptor.class, DtoFactory.getInstance().clone(buildStatusLink));
-                    // to be able show current state of build process with RunQueueTask.
-                    buildTaskHolder.set(buildDescriptor);
-                    final BuildStatus buildStatus = buildDescriptor.getStatus();
-                    if (buildStatus == BuildStatus.SUCCESSFUL) {
-                        request.withBuildTaskDescriptor(buildDescriptor);
-                        break; // get out from loop
-                    } else if (buildStatus == BuildStatus.CANCELLED || buildStatus == BuildStatus.FAILED) {
-                        String msg = "Unable start application. Build of application is failed or cancelled.";
-                        final Link logLink = buildDescriptor.getLink(org.eclipse.che.api.builder.internal.Constants.LINK_REL_VIEW_LOG);
-                        if (logLink != null) {
-                            msg += (" Build logs: " + logLink.getHref());
-                        }
-                        throw new RunnerException(msg);
-                    } else if (buildStatus == BuildStatus.IN_PROGRESS || buildStatus == BuildStatus.IN_QUEUE) {
-                        // wait
-                        LOG.debug("Build in of project '{}' from workspace '{}' is progress", request.getProject(), request.getWorkspace());
+                final BuildStatus buildStatus = buildDescriptor.getStatus();
+                if (buildStatus == BuildStatus.SUCCESSFUL) {
+                    request.withBuildTaskDescriptor(buildDescriptor);
+                } else {
+                    String msg = "Unable start application. Build of application is failed or cancelled.";
+                    final Link logLink = buildDescriptor.getLink(org.eclipse.che.api.builder.internal.Constants.LINK_REL_VIEW_LOG);
+                    if (logLink != null) {
+                        msg += (" Build logs: " + logLink.getHref());
                     }
+                    throw new RunnerException(msg);
                 }
             }
 
-            // List of runners that have enough resources for launch application.
-            final List<RemoteRunner> available = new LinkedList<>();
-            for (; ; ) {
-                for (RemoteRunner runner : matchedRunners) {
-                    if (Thread.currentThread().isInterrupted()) {
-                        // Expected to get here if task is canceled. Stop immediately.
-                        return null;
-                    }
-                    RunnerState runnerState;
-                    try {
-                        runnerState = runner.getRemoteRunnerState();
-                    } catch (Exception e) {
-                        LOG.error(e.getMessage(), e);
-                        continue;
-                    }
-                    if (runnerState.getServerState().getFreeMemory() >= request.getMemorySize()
-                        && hasEnoughSpaceOnDisk(runner.getName(), runner.getBaseUrl(), runnerState)) {
-
-                        available.add(runner);
-                    }
+            // List of runners that have enough resources for launch application. Runners are selected with cached state, no remote
+            // calls here.
+            final Map<RemoteRunner, RemoteRunnerState> available = new LinkedHashMap<>();
+            for (RemoteRunner runner : matchedRunners) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Expected to get here if task is canceled. Stop immediately.
+                    return null;
                 }
-                if (available.isEmpty()) {
-                    synchronized (this) {
-                        try {
-                            // Wait and try again.
-                            wait(checkAvailableRunnerPeriod);
-                        } catch (InterruptedException e) {
-                            // Expected to get here if task is canceled.
-                            Thread.currentThread().interrupt();
-                            return null;
-                        }
+                final RemoteRunnerState runnerState = getRunnerState(runner);
+                if (runnerState.hasEnoughResources(request.getMemorySize())) {
+                    available.put(runner, runnerState);
+                }
+            }
+            while (!available.isEmpty()) {
+                final List<RemoteRunner> candidates = new ArrayList<>(available.keySet());
+                final RemoteRunner runner = candidates.size() > 1 ? runnerSelector.select(candidates) : candidates.get(0);
+                final RemoteRunnerState runnerState = available.remove(runner);
+                // Memory might be reserved by concurrent task since we checked it.
+                final RemoteRunnerState.Reservation reservation = runnerState.reserve(request.getMemorySize());
+                if (reservation == null) {
+                    continue;
+                }
+                LOG.info("Use runner '{}' at '{}'", runner.getName(), runner.getBaseUrl());
+                boolean processStarted = false;
+                try {
+                    final RemoteRunnerProcess process = runner.run(request);
+                    processStarted = true;
+                    return process;
+                } finally {
+                    if (processStarted) {
+                        runnerState.commit(reservation);
+                    } else {
+                        runnerState.cancel(reservation);
                     }
-                } else {
-                    final RemoteRunner runner = available.size() > 1 ? runnerSelector.select(available) : available.get(0);
-                    LOG.info("Use runner '{}' at '{}'", runner.getName(), runner.getBaseUrl());
-                    return runner.run(request);
                 }
             }
+            // Task is run again later, see InternalRunTask.
+            throw new NoAvailableRunnerException();
         }
+    }
 
-        private boolean hasEnoughSpaceOnDisk(String name, String baseUrl, RunnerState runnerState) {
-            final long diskSpace = getTotalDiskSpace(runnerState);
-            if (diskSpace > 0) {
-                final long usedDiskSpace = getUsedDiskSpace(runnerState);
-                if (usedDiskSpace > 0) {
-                    final long freePercent = (long)((((double)diskSpace - usedDiskSpace) / diskSpace) * 100);
-                    if (freePercent < 5) {
-                        if (criticalDiskSpaceRunners.add(Pair.of(name, baseUrl))) {
-                            // In production error messages cause sending email with SMTPAppender.
-                            // Need remember runners with low disk space to avoid sending multiple emails.
-                            LOG.error("Skip runner '{}' at '{}' because of low disk space, {}% left", name, baseUrl, freePercent);
-                        }
-                        return false;
-                    } else if (freePercent < 10) {
-                        if (lowDiskSpaceRunners.add(Pair.of(name, baseUrl))) {
-                            // In production error messages cause sending email with SMTPAppender.
-                            // Need remember runners with low disk space to avoid sending multiple emails.
-                            LOG.error("Runner '{}' at '{}' is running out of disk space, {}% left.", name, baseUrl, freePercent);
+    /**
+     * Cached state of remote runner. Values of metrics are parsed once when state is loaded. Memory that is needed for starting new
+     * application is reserved atomically when runner is selected, so concurrent tasks can't overbook the same runner. Reservation is
+     * taken into account until state that is loaded after start of application is received from remote runner.
+     */
+    private static class RemoteRunnerState {
+        static class Reservation {
+            final int memory;
+            long committed = -1;
+
+            Reservation(int memory) {
+                this.memory = memory;
+            }
+        }
+
+        final RemoteRunner      runner;
+        final List<Reservation> reservations;
+
+        // All fields below are guarded by this.
+        private boolean loaded;
+        private boolean refreshing;
+        private boolean available;
+        private long    freeMemory;
+        private boolean criticalDiskSpace;
+        private boolean lowDiskSpace;
+        private long    updated;
+        private long    clock;
+        private long    refreshClock;
+
+        RemoteRunnerState(RemoteRunner runner) {
+            this.runner = runner;
+            reservations = new LinkedList<>();
+        }
+
+        /**
+         * Marks state as refreshing. Caller that gets {@code true} must call {@link #load()} or {@link #abortRefresh()}.
+         *
+         * @return {@code false} if state is refreshing by other thread at the moment
+         */
+        synchronized boolean beginRefresh() {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            refreshClock = ++clock;
+            return true;
+        }
+
+        /** The same as {@link #beginRefresh()} but does nothing if state isn't older than specified age in milliseconds. */
+        synchronized boolean beginRefresh(long maxAge) {
+            return System.currentTimeMillis() - updated > maxAge && beginRefresh();
+        }
+
+        synchronized void abortRefresh() {
+            refreshing = false;
+            notifyAll();
+        }
+
+        /** Loads state of remote runner. */
+        void load() {
+            RunnerState runnerState = null;
+            try {
+                runnerState = runner.getRemoteRunnerState();
+            } catch (Exception e) {
+                LOG.error(e.getMessage(), e);
+            }
+            synchronized (this) {
+                refreshing = false;
+                loaded = true;
+                updated = System.currentTimeMillis();
+                available = runnerState != null && runnerState.getServerState() != null;
+                if (available) {
+                    freeMemory = runnerState.getServerState().getFreeMemory();
+                    updateDiskSpace(getMetric(runnerState, RunnerMetric.DISK_SPACE_TOTAL),
+                                    getMetric(runnerState, RunnerMetric.DISK_SPACE_USED));
+                    // Remote runner already knows about applications started before this refresh.
+                    for (Iterator<Reservation> i = reservations.iterator(); i.hasNext(); ) {
+                        final Reservation reservation = i.next();
+                        if (reservation.committed >= 0 && reservation.committed < refreshClock) {
+                            i.remove();
                         }
                     }
                 }
+                notifyAll();
             }
-            // If don't have information about disk status let application run.
-            return true;
         }
 
-        /** Gets total disk space available for running application in bytes or {@code -1} if this operation is not supported. */
-        private long getTotalDiskSpace(RunnerState runnerState) {
-            for (RunnerMetric metric : runnerState.getStats()) {
-                if (RunnerMetric.DISK_SPACE_TOTAL.equals(metric.getName())) {
-                    return Size.parseSize(metric.getValue());
+        /**
+         * Waits while state is loading by other thread if it isn't loaded yet.
+         *
+         * @return {@code true} if state is loaded and {@code false} if state isn't loaded and nobody loads it
+         */
+        synchronized boolean awaitLoaded() {
+            while (!loaded && refreshing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return loaded;
                 }
             }
-            return -1;
+            return loaded;
         }
 
-        /** Gets disk space used for running application in bytes or {@code -1} if this operation is not supported. */
-        private long getUsedDiskSpace(RunnerState runnerState) {
+        synchronized boolean hasEnoughResources(int memory) {
+            return available && !criticalDiskSpace && getFreeMemory() >= memory;
+        }
+
+        /** Reserves memory for new application. Returns {@code null} if runner doesn't have enough resources. */
+        synchronized Reservation reserve(int memory) {
+            if (!hasEnoughResources(memory)) {
+                return null;
+            }
+            final Reservation reservation = new Reservation(memory);
+            reservations.add(reservation);
+            return reservation;
+        }
+
+        /** Application is started. Keep reservation until remote runner reports state that includes this application. */
+        synchronized void commit(Reservation reservation) {
+            reservation.committed = ++clock;
+        }
+
+        /** Application isn't started, release reserved memory. */
+        synchronized void cancel(Reservation reservation) {
+            reservations.remove(reservation);
+        }
+
+        private long getFreeMemory() {
+            long free = freeMemory;
+            for (Reservation reservation : reservations) {
+                free -= reservation.memory;
+            }
+            return free;
+        }
+
+        private void updateDiskSpace(long diskSpace, long usedDiskSpace) {
+            boolean critical = false;
+            boolean low = false;
+            if (diskSpace > 0 && usedDiskSpace > 0) {
+                final long freePercent = (long)((((double)diskSpace - usedDiskSpace) / diskSpace) * 100);
+                critical = freePercent < 5;
+                low = !critical && freePercent < 10;
+                // In production error messages cause sending email with SMTPAppender.
+                // Report only changes of disk state to avoid sending multiple emails.
+                if (critical && !criticalDiskSpace) {
+                    LOG.error("Skip runner '{}' at '{}' because of low disk space, {}% left", runner.getName(), runner.getBaseUrl(),
+                              freePercent);
+                } else if (low && !lowDiskSpace) {
+                    LOG.error("Runner '{}' at '{}' is running out of disk space, {}% left.", runner.getName(), runner.getBaseUrl(),
+                              freePercent);
+                }
+            }
+            // If don't have information about disk status let application run.
+            criticalDiskSpace = critical;
+            lowDiskSpace = low;
+        }
+
+        /** Gets value of metric in bytes or {@code -1} if this metric is not supported. */
+        private static long getMetric(RunnerState runnerState, String name) {
             for (RunnerMetric metric : runnerState.getStats()) {
-                if (RunnerMetric.DISK_SPACE_USED.equals(metric.getName())) {
+                if (name.equals(metric.getName())) {
                     return Size.parseSize(metric.getValue());
                 }
             }
@@ -1173,12 +1426,219 @@ public class RunQueue {
         final Long   id;
         final String workspace;
         final String project;
+        final int    priority;
 
-        InternalRunTask(Callable<RemoteRunnerProcess> callable, Long id, String workspace, String project) {
+        volatile BuildWaiter buildWaiter;
+        volatile boolean     retry;
+
+        InternalRunTask(Callable<RemoteRunnerProcess> callable, Long id, String workspace, String project, int priority) {
             super(callable);
             this.id = id;
             this.workspace = workspace;
             this.project = project;
+            this.priority = priority;
+        }
+
+        @Override
+        protected void setException(Throwable error) {
+            if (error instanceof NoAvailableRunnerException) {
+                // Don't complete task, it may be run again when some runner has enough resources.
+                retry = true;
+            } else {
+                super.setException(error);
+            }
+        }
+
+        @Override
+        protected void done() {
+            final BuildWaiter myBuildWaiter = buildWaiter;
+            if (myBuildWaiter != null && isCancelled()) {
+                // Task is canceled while waiting for build. Try to cancel related build process.
+                myBuildWaiter.cancelBuild();
+            }
+        }
+    }
+
+    /** Thrown if there is no runner that has enough resources to run application. */
+    private static class NoAvailableRunnerException extends RunnerException {
+        NoAvailableRunnerException() {
+            super("There is no runner with enough resources. ");
+        }
+    }
+
+    /**
+     * Run task that waits for end of build. Status of build is requested only when builder notifies about end of build or if builder
+     * doesn't send any events during {@code checkBuildResultPeriod}. Run task is passed to the executor when build is done.
+     */
+    private class BuildWaiter {
+        final InternalRunTask                  future;
+        final RunRequest                       request;
+        final ValueHolder<BuildTaskDescriptor> buildTaskHolder;
+        final BuildWaiterKey                   key;
+        final AtomicBoolean                    eventReceived;
+        final AtomicBoolean                    checking;
+        // Status of build must be requested again when current request is completed, e.g. builder notified about end of build while
+        // request was in progress and status of build in response may be outdated.
+        final AtomicBoolean                    recheck;
+        final AtomicBoolean                    finished;
+        // Requests to builder API are sent with context of user who started the run.
+        final Runnable                         checkTask;
+        final Runnable                         cancelTask;
+
+        BuildWaiter(InternalRunTask future, RunRequest request, String builderUrl, ValueHolder<BuildTaskDescriptor> buildTaskHolder) {
+            this.future = future;
+            this.request = request;
+            this.buildTaskHolder = buildTaskHolder;
+            key = new BuildWaiterKey(builderUrl, buildTaskHolder.get().getTaskId());
+            eventReceived = new AtomicBoolean();
+            checking = new AtomicBoolean();
+            recheck = new AtomicBoolean();
+            finished = new AtomicBoolean();
+            checkTask = ThreadLocalPropagateContext.wrap(new Runnable() {
+                @Override
+                public void run() {
+                    recheck.set(false);
+                    try {
+                        doCheckBuild();
+                    } finally {
+                        checking.set(false);
+                        if (recheck.get()) {
+                            checkBuild();
+                        }
+                    }
+                }
+            });
+            cancelTask = ThreadLocalPropagateContext.wrap(new Runnable() {
+                @Override
+                public void run() {
+                    tryCancelBuild(BuildWaiter.this.buildTaskHolder.get());
+                }
+            });
+        }
+
+        boolean isEventOf(BuilderEvent event) {
+            return event.getTaskId() == key.taskId && request.getWorkspace().equals(event.getWorkspace());
+        }
+
+        /**
+         * Requests status of build in separate thread. If previous request isn't completed yet then status is requested again after
+         * it.
+         */
+        void checkBuild() {
+            if (finished.get()) {
+                return;
+            }
+            recheck.set(true);
+            if (!checking.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(checkTask);
+            } catch (RejectedExecutionException e) {
+                checking.set(false);
+            }
+        }
+
+        private void doCheckBuild() {
+            if (future.isCancelled()) {
+                return;
+            }
+            final BuildTaskDescriptor buildDescriptor = buildTaskHolder.get();
+            final Link buildStatusLink = buildDescriptor.getLink(org.eclipse.che.api.builder.internal.Constants.LINK_REL_GET_STATUS);
+            final BuildTaskDescriptor newBuildDescriptor;
+            try {
+                newBuildDescriptor = HttpJsonHelper.request(BuildTaskDescriptor.class, DtoFactory.getInstance().clone(buildStatusLink));
+            } catch (Exception e) {
+                // Try again with next event or check, time of waiting is limited with cleaner of queue.
+                LOG.warn("Unable get status of build of project '{}' from workspace '{}'. {}",
+                         request.getProject(), request.getWorkspace(), e.getMessage());
+                return;
+            }
+            // to be able show current state of build process with RunQueueTask.
+            buildTaskHolder.set(newBuildDescriptor);
+            if (isBuildEnded(newBuildDescriptor.getStatus())) {
+                startRun();
+            } else {
+                LOG.debug("Build in of project '{}' from workspace '{}' is progress", request.getProject(), request.getWorkspace());
+            }
+        }
+
+        void startRun() {
+            if (finished.compareAndSet(false, true)) {
+                remove();
+                try {
+                    executor.execute(future, future.priority, future.id);
+                } catch (RejectedExecutionException e) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        void cancelBuild() {
+            if (finished.compareAndSet(false, true)) {
+                remove();
+                try {
+                    executor.execute(cancelTask);
+                } catch (RejectedExecutionException e) {
+                    LOG.warn("Unable cancel build of project '{}' from workspace '{}'", request.getProject(), request.getWorkspace());
+                }
+            }
+        }
+
+        private void remove() {
+            buildWaiters.remove(this);
+            buildWaitersByTaskId.remove(key, this);
+        }
+    }
+
+    private static class BuildWaiterKey {
+        final String builderUrl;
+        final long   taskId;
+
+        BuildWaiterKey(String builderUrl, long taskId) {
+            this.builderUrl = builderUrl;
+            this.taskId = taskId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BuildWaiterKey)) {
+                return false;
+            }
+            BuildWaiterKey other = (BuildWaiterKey)o;
+            return taskId == other.taskId && builderUrl.equals(other.builderUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = hash * 31 + builderUrl.hashCode();
+            hash = hash * 31 + (int)(taskId ^ (taskId >>> 32));
+            return hash;
+        }
+    }
+
+    private class BuildCompletionListener implements EventSubscriber<BuilderEvent> {
+        @Override
+        public void onEvent(BuilderEvent event) {
+            for (String builderUrl : builderUrls) {
+                final BuildWaiter waiter = buildWaitersByTaskId.get(new BuildWaiterKey(builderUrl, event.getTaskId()));
+                if (waiter == null || !waiter.isEventOf(event)) {
+                    continue;
+                }
+                waiter.eventReceived.set(true);
+                switch (event.getType()) {
+                    case DONE:
+                    case CANCELED:
+                    case BUILD_TASK_QUEUE_TIME_EXCEEDED:
+                        // Get result of build and start run task.
+                        waiter.checkBuild();
+                        break;
+                }
+            }
         }
     }
 
@@ -1233,12 +1693,16 @@ public class RunQueue {
 
     // >>>>>>>>>>>>>>>>>>>>>>>>>>>>> application start checker
 
-    private static class ApplicationUrlChecker implements Runnable {
+    /** Checks URL of application. Makes one attempt per run and schedules next attempt to avoid holding thread between attempts. */
+    private class ApplicationUrlChecker implements Runnable {
         final long taskId;
         final URL  url;
         final int  healthCheckerTimeout;
         final int  healthCheckAttempts;
 
+        int    attempts;
+        String requestMethod = "HEAD";
+
         ApplicationUrlChecker(long taskId, URL url, int healthCheckerTimeout, int healthCheckAttempts) {
             this.taskId = taskId;
             this.url = url;
@@ -1246,58 +1710,60 @@ public class RunQueue {
             this.healthCheckAttempts = healthCheckAttempts;
         }
 
+        void start() {
+            try {
+                executor.schedule(this, PriorityThreadPoolExecutor.NORMAL_PRIORITY, taskId, healthCheckerTimeout, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // Queue is stopped.
+            }
+        }
+
         @Override
         public void run() {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            ++attempts;
             boolean ok = false;
-            String requestMethod = "HEAD";
-            for (int i = 0; !ok && i < healthCheckAttempts; i++) {
-                if (Thread.currentThread().isInterrupted()) {
-                    return;
-                }
-                try {
-                    Thread.sleep(healthCheckerTimeout);
-                } catch (InterruptedException e) {
-                    return;
+            HttpURLConnection conn = null;
+            try {
+                conn = (HttpURLConnection)url.openConnection();
+                conn.setRequestMethod(requestMethod);
+                conn.setConnectTimeout(1000);
+                conn.setReadTimeout(1000);
+
+                LOG.debug(String.format("Response code: %d.", conn.getResponseCode()));
+                if (405 == conn.getResponseCode()) {
+                    // In case of Method not allowed, we use get instead of HEAD. X-HTTP-Method-Override would be nice but support is
+                    // to weak and will trigger much more GET than with this fallback.
+                    // Note: Response.Status in JAX-WS in JEE6 hasn't any status matching 405, so here we use int code comparison. Fixed
+                    // in JEE7.
+                    requestMethod = "GET";
                 }
-                HttpURLConnection conn = null;
-                try {
-                    conn = (HttpURLConnection)url.openConnection();
-                    conn.setRequestMethod(requestMethod);
-                    conn.setConnectTimeout(1000);
-                    conn.setReadTimeout(1000);
-
-                    LOG.debug(String.format("Response code: %d.", conn.getResponseCode()));
-                    if (405 == conn.getResponseCode()) {
-                        // In case of Method not allowed, we use get instead of HEAD. X-HTTP-Method-Override would be nice but support is
-                        // to weak and will trigger much more GET than with this fallback.
-                        // Note: Response.Status in JAX-WS in JEE6 hasn't any status matching 405, so here we use int code comparison. Fixed
-                        // in JEE7.
-                        requestMethod = "GET";
-                    }
-                    Response.Status status = Response.Status.fromStatusCode(conn.getResponseCode());
-                    if (status == null) {
-                        continue;
-                    }
-                    if (Response.Status.Family.SUCCESSFUL == status.getFamily()
+                Response.Status status = Response.Status.fromStatusCode(conn.getResponseCode());
+                if (status != null
+                    && (Response.Status.Family.SUCCESSFUL == status.getFamily()
                         || Response.Status.Family.REDIRECTION == status.getFamily()
-                        || Response.Status.Family.INFORMATIONAL == status.getFamily()) {
-                        ok = true;
-                        LOG.debug("Application URL '{}' - OK", url);
-                        final ChannelBroadcastMessage bm = new ChannelBroadcastMessage();
-                        bm.setChannel(String.format("runner:app_health:%d", taskId));
-                        bm.setBody(String.format("{\"url\":%s,\"status\":\"%s\"}", JsonUtils.getJsonString(url.toString()), "OK"));
-                        try {
-                            WSConnectionContext.sendMessage(bm);
-                        } catch (Exception e) {
-                            LOG.error(e.getMessage(), e);
-                        }
-                    }
-                } catch (IOException ignored) {
-                } finally {
-                    if (conn != null) {
-                        conn.disconnect();
+                        || Response.Status.Family.INFORMATIONAL == status.getFamily())) {
+                    ok = true;
+                    LOG.debug("Application URL '{}' - OK", url);
+                    final ChannelBroadcastMessage bm = new ChannelBroadcastMessage();
+                    bm.setChannel(String.format("runner:app_health:%d", taskId));
+                    bm.setBody(String.format("{\"url\":%s,\"status\":\"%s\"}", JsonUtils.getJsonString(url.toString()), "OK"));
+                    try {
+                        WSConnectionContext.sendMessage(bm);
+                    } catch (Exception e) {
+                        LOG.error(e.getMessage(), e);
                     }
                 }
+            } catch (IOException ignored) {
+            } finally {
+                if (conn != null) {
+                    conn.disconnect();
+                }
+            }
+            if (!ok && attempts < healthCheckAttempts) {
+                start();
             }
         }
     }
@@ -1369,10 +1835,10 @@ public class RunQueue {
                             if (event.getType() == RunnerEvent.EventType.STARTED) {
                                 final Link appLink = descriptor.getLink(Constants.LINK_REL_WEB_URL);
                                 if (appLink != null) {
-                                    executor.execute(new ApplicationUrlChecker(id,
-                                                                               new URL(appLink.getHref()),
-                                                                               APPLICATION_CHECK_URL_TIMEOUT,
-                                                                               APPLICATION_CHECK_URL_COUNT));
+                                    new ApplicationUrlChecker(id,
+                                                              new URL(appLink.getHref()),
+                                                              APPLICATION_CHECK_URL_TIMEOUT,
+                                                              APPLICATION_CHECK_URL_COUNT).start();
                                 }
                             }
                         } catch (RunnerException re) {
@@ -1395,8 +1861,21 @@ public class RunQueue {
                         final RunnerEvent.LoggedMessage message = event.getMessage();
                         if (message != null) {
                             bm.setChannel(String.format("runner:output:%d", id));
-                            bm.setBody(String.format("{\"num\":%d, \"line\":%s}",
-                                                     message.getLineNum(), JsonUtils.getJsonString(message.getMessage())));
+                            if (message.getLines() == null) {
+                                bm.setBody(String.format("{\"num\":%d, \"line\":%s}",
+                                                         message.getLineNum(), JsonUtils.getJsonString(message.getMessage())));
+                            } else {
+                                // Frame of few lines, clients get its lines in separate field.
+                                final StringBuilder lines = new StringBuilder();
+                                for (String line : message.getLines()) {
+                                    if (lines.length() > 0) {
+                                        lines.append(',');
+                                    }
+                                    lines.append(JsonUtils.getJsonString(line));
+                                }
+                                bm.setBody(String.format("{\"num\":%d, \"frame\":%d, \"lines\":[%s]}",
+                                                         message.getLineNum(), message.getFrame(), lines));
+                            }
                         }
                         break;
                 }
@@ -11,60 +11,58 @@
 package org.eclipse.che.api.runner.internal;
 
 import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.util.BatchingLineConsumer;
 import org.eclipse.che.api.core.util.RateExceedDetector;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Publishes application's outputs to the EventService.
+ * Publishes application's outputs to the EventService. Lines are published in frames in background, see {@link BatchingLineConsumer}.
+ * If application writes lines faster than {@code maxLogsRate} lines per second or faster than they are published the extra lines aren't
+ * published, client gets report about number of skipped lines. All lines are still written to the delegate logger.
  *
  * @author andrew00x
  */
 public class ApplicationLogsPublisher extends DelegateApplicationLogger {
-    private final AtomicInteger      lineCounter;
-    private final EventService       eventService;
-    private final long               processId;
-    private final String             workspace;
-    private final String             project;
-    private final RateExceedDetector maxEventRateChecker;
-
-    private boolean outputEnabled = true;
+    private final BatchingLineConsumer publisher;
+    private final RateExceedDetector   maxEventRateChecker;
 
     int maxLogsRate = 60;
 
     public ApplicationLogsPublisher(ApplicationLogger delegate,
-                                    EventService eventService,
-                                    long processId,
-                                    String workspace,
-                                    String project) {
+                                    final EventService eventService,
+                                    final long processId,
+                                    final String workspace,
+                                    final String project) {
         super(delegate);
-        this.eventService = eventService;
-        this.processId = processId;
-        this.workspace = workspace;
-        this.project = project;
-        lineCounter = new AtomicInteger(1);
+        publisher = new BatchingLineConsumer() {
+            @Override
+            protected void publish(Frame frame) {
+                eventService.publish(RunnerEvent.messageLoggedEvent(processId, workspace, project, new RunnerEvent.LoggedMessage(
+                        frame.getLines(), frame.getFirstLineNum(), frame.getSequenceNumber())));
+            }
+        };
         maxEventRateChecker = new RateExceedDetector(maxLogsRate);
     }
 
     @Override
     public void writeLine(String line) throws IOException {
-        if (outputEnabled) {
-            double rate;
-            if (maxEventRateChecker.updateAndCheckRate() && (rate = maxEventRateChecker.getRate()) > maxLogsRate) {
-                outputEnabled = false;
-                final String message = String.format(
-                        "[WARNING] Application '%s' has exceeded output rate of %.2f messages / second. Application output has been disabled.",
-                        project.startsWith("/") ? project.substring(1) : project, rate);
-                eventService.publish(RunnerEvent.messageLoggedEvent(processId, workspace, project,
-                                                                    new RunnerEvent.LoggedMessage(message, lineCounter.getAndIncrement())));
-                return;
-            }
-            if (line != null) {
-                eventService.publish(RunnerEvent.messageLoggedEvent(processId, workspace, project,
-                                                                    new RunnerEvent.LoggedMessage(line, lineCounter.getAndIncrement())));
+        if (line != null) {
+            if (maxEventRateChecker.updateAndCheckRate() && maxEventRateChecker.getRate() > maxLogsRate) {
+                publisher.skipLine();
+            } else {
+                publisher.writeLine(line);
             }
         }
         super.writeLine(line);
     }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            publisher.close();
+        } finally {
+            super.close();
+        }
+    }
 }
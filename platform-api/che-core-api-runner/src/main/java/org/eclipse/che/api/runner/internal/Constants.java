@@ -64,6 +64,10 @@ public class Constants {
     public static final String APP_LIFETIME                       = "runner.app_lifetime";
     /** Name of configuration parameter that sets amount of memory (in megabytes) for running applications. */
     public static final String TOTAL_APPS_MEM_SIZE                = "runner.total_apps_mem_size_mb";
+    /** Max number of threads that process tasks of run queue. */
+    public static final String RUNNER_QUEUE_MAX_THREADS           = "runner.queue.max_threads";
+    /** Max number of tasks that wait for free thread in run queue. New tasks are rejected if this limit is reached. */
+    public static final String RUNNER_QUEUE_MAX_SIZE              = "runner.queue.max_size";
 
     public static final String RUNNER_ASSIGNED_TO_WORKSPACE = "runner.assigned_to_workspace";
     public static final String RUNNER_ASSIGNED_TO_PROJECT   = "runner.assigned_to_project";
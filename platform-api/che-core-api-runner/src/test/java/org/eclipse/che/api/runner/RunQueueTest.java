@@ -14,6 +14,7 @@ import org.eclipse.che.api.builder.BuildStatus;
 import org.eclipse.che.api.builder.RemoteBuilderServer;
 import org.eclipse.che.api.builder.dto.BuildOptions;
 import org.eclipse.che.api.builder.dto.BuildTaskDescriptor;
+import org.eclipse.che.api.builder.internal.BuilderEvent;
 import org.eclipse.che.api.core.notification.EventService;
 import org.eclipse.che.api.core.rest.HttpJsonHelper;
 import org.eclipse.che.api.core.rest.RemoteServiceDescriptor;
@@ -61,11 +62,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
@@ -92,6 +96,7 @@ public class RunQueueTest {
     private DtoFactory dtoFactory = DtoFactory.getInstance();
     private HttpJsonHelper.HttpJsonHelperImpl httpJsonHelper;
     private RunQueue                          runQueue;
+    private EventService                      eventService;
     private String wsId   = "my_ws";
     private String wsName = wsId;
     private String pName  = "my_project";
@@ -109,14 +114,20 @@ public class RunQueueTest {
         field.setAccessible(true);
         field.set(null, httpJsonHelper);
 
-        EventService eventService = mock(EventService.class);
+        eventService = spy(new EventService());
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) throws Throwable {
-                events.add((RunnerEvent)invocation.getArguments()[0]);
+                Object event = invocation.getArguments()[0];
+                if (event instanceof RunnerEvent) {
+                    events.add((RunnerEvent)event);
+                } else {
+                    // Let BuilderEvents reach RunQueue.
+                    invocation.callRealMethod();
+                }
                 return null;
             }
-        }).when(eventService).publish(any(RunnerEvent.class));
+        }).when(eventService).publish(any());
         RunnerSelectionStrategy selectionStrategy = new LastInUseRunnerSelectionStrategy();
         runQueue = spy(new RunQueue("http://localhost:8080/api/workspace",
                                     "http://localhost:8080/api/project",
@@ -152,6 +163,7 @@ public class RunQueueTest {
     @AfterMethod
     public void afterMethod() {
         runQueue.stop();
+        eventService.stop();
     }
 
     @Test
@@ -566,6 +578,219 @@ public class RunQueueTest {
         checkEvents(RunnerEvent.EventType.RUN_TASK_ADDED_IN_QUEUE, RunnerEvent.EventType.RUN_TASK_QUEUE_TIME_EXCEEDED);
     }
 
+    @Test
+    public void testRunStartedWhenBuilderNotifiesAboutEndOfBuild() throws Exception {
+        restartWithoutBuildStatusChecks();
+        RemoteRunner runner = mockRunnerAndBuildBefore();
+        final BuildTaskDescriptor buildTaskDone = mockBuildTasks(new AtomicInteger()).get(0);
+
+        ServiceContext serviceContext = newServiceContext();
+        RunQueueTask task = runQueue.run(wsId, pPath, serviceContext, null);
+
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertTrue(task.isWaiting());
+        assertEquals(runQueue.getWaitingForBuildTasksNumber(), 1);
+        // Nothing is requested while build is in progress.
+        verify(httpJsonHelper, never()).request(eq(BuildTaskDescriptor.class), anyString(), eq("GET"), any());
+
+        eventService.publish(BuilderEvent.doneEvent(buildTaskDone.getTaskId(), wsId, pPath));
+
+        ArgumentCaptor<RunRequest> runRequestCaptor = ArgumentCaptor.forClass(RunRequest.class);
+        verify(runner, timeout(5000)).run(runRequestCaptor.capture());
+        assertEquals(runRequestCaptor.getValue().getBuildTaskDescriptor().getStatus(), BuildStatus.SUCCESSFUL);
+        verify(httpJsonHelper, times(1)).request(eq(BuildTaskDescriptor.class), anyString(), eq("GET"), any());
+        assertEquals(runQueue.getWaitingForBuildTasksNumber(), 0);
+    }
+
+    @Test
+    public void testBuildCheckedAgainWhenBuilderNotifiesWhileCheckInProgress() throws Exception {
+        restartWithoutBuildStatusChecks();
+        RemoteRunner runner = mockRunnerAndBuildBefore();
+        final List<BuildTaskDescriptor> buildTasks = mockBuildTasks(new AtomicInteger());
+        final CountDownLatch checkStarted = new CountDownLatch(1);
+        final CountDownLatch checkReleased = new CountDownLatch(1);
+        final AtomicInteger statusRequests = new AtomicInteger();
+        doAnswer(new Answer<BuildTaskDescriptor>() {
+            @Override
+            public BuildTaskDescriptor answer(InvocationOnMock invocation) throws Throwable {
+                if (statusRequests.getAndIncrement() == 0) {
+                    // Builder is not done yet when the first request is handled.
+                    checkStarted.countDown();
+                    checkReleased.await();
+                    return dtoFactory.clone(buildTasks.get(0)).withStatus(BuildStatus.IN_PROGRESS);
+                }
+                return buildTasks.get(0);
+            }
+        }).when(httpJsonHelper).request(eq(BuildTaskDescriptor.class), anyString(), eq("GET"), any());
+
+        runQueue.run(wsId, pPath, newServiceContext(), null);
+        eventService.publish(BuilderEvent.doneEvent(buildTasks.get(0).getTaskId(), wsId, pPath));
+        assertTrue(checkStarted.await(5, TimeUnit.SECONDS));
+        // Event that comes while status of build is requested must not be lost.
+        eventService.publish(BuilderEvent.doneEvent(buildTasks.get(0).getTaskId(), wsId, pPath));
+        checkReleased.countDown();
+
+        verify(runner, timeout(5000)).run(any(RunRequest.class));
+        assertEquals(statusRequests.get(), 2);
+    }
+
+    @Test
+    public void testFailedBuild() throws Exception {
+        restartWithoutBuildStatusChecks();
+        RemoteRunner runner = mockRunnerAndBuildBefore();
+        List<BuildTaskDescriptor> buildTasks = mockBuildTasks(new AtomicInteger());
+        buildTasks.set(0, dtoFactory.clone(buildTasks.get(0)).withStatus(BuildStatus.FAILED));
+
+        RunQueueTask task = runQueue.run(wsId, pPath, newServiceContext(), null);
+        eventService.publish(BuilderEvent.doneEvent(buildTasks.get(0).getTaskId(), wsId, pPath));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (task.isWaiting() && System.currentTimeMillis() < timeout) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertFalse(task.isWaiting());
+        verify(runner, never()).run(any(RunRequest.class));
+        try {
+            task.getRemoteProcess();
+            fail("RunnerException expected");
+        } catch (RunnerException e) {
+            assertTrue(e.getMessage().startsWith("Unable start application. Build of application is failed or cancelled."));
+        }
+    }
+
+    /**
+     * Load test. Previously each run that waits for build held a thread of pool and requested status of build every 2 seconds, that
+     * means 1000 threads and about 500 requests per second for 1000 runs.
+     */
+    @Test
+    public void testManyRunsWaitingForBuild() throws Exception {
+        restartWithoutBuildStatusChecks();
+        RemoteRunner runner = mockRunnerAndBuildBefore();
+        AtomicInteger statusRequests = new AtomicInteger();
+        List<BuildTaskDescriptor> buildTasks = mockBuildTasks(statusRequests);
+        final int runs = 1000;
+        // Enough memory for all applications.
+        RunnerState runnerState = dto(RunnerState.class).withServerState(dto(ServerState.class).withFreeMemory(runs * 256));
+        doReturn(runnerState).when(runner).getRemoteRunnerState();
+
+        ServiceContext serviceContext = newServiceContext();
+        int threadsBefore = countRunQueueThreads();
+        for (int i = 0; i < runs; i++) {
+            runQueue.run(wsId, pPath, serviceContext, null);
+        }
+        TimeUnit.SECONDS.sleep(1);
+
+        assertEquals(runQueue.getWaitingForBuildTasksNumber(), runs);
+        int threadsWhileWaiting = countRunQueueThreads() - threadsBefore;
+        assertTrue(threadsWhileWaiting < 10, "Too many threads while waiting for build: " + threadsWhileWaiting);
+        assertEquals(statusRequests.get(), 0);
+
+        for (BuildTaskDescriptor buildTask : buildTasks.subList(0, runs)) {
+            eventService.publish(BuilderEvent.doneEvent(buildTask.getTaskId(), wsId, pPath));
+        }
+        verify(runner, timeout(30000).times(runs)).run(any(RunRequest.class));
+        // One request for each build when it is done.
+        assertEquals(statusRequests.get(), runs);
+        assertEquals(runQueue.getWaitingForBuildTasksNumber(), 0);
+    }
+
+    @Test
+    public void testConcurrentRunsDoNotOverbookRunner() throws Exception {
+        runQueue.stop();
+        runQueue.runnerStateMaxAge = TimeUnit.MINUTES.toMillis(10);
+        runQueue.start();
+        RemoteRunnerServer runnerServer = registerDefaultRunnerServer();
+        RemoteRunner runner = runnerServer.getRemoteRunner("java/web");
+        // Enough memory for two applications.
+        doReturn(dto(RunnerState.class).withServerState(dto(ServerState.class).withFreeMemory(512))).when(runner).getRemoteRunnerState();
+        RemoteRunnerProcess process = spy(new RemoteRunnerProcess(runnerServer.getBaseUrl(), runner.getName(), 1l));
+        doReturn(process).when(runner).run(any(RunRequest.class));
+
+        ServiceContext serviceContext = newServiceContext();
+        project.withRunners(dto(RunnersDescriptor.class).withDefault("system:/java/web/tomcat7"));
+        doReturn(project).when(runQueue).getProjectDescriptor(wsId, pPath, serviceContext);
+        doReturn(workspace).when(runQueue).getWorkspaceDescriptor(wsId, serviceContext);
+        doNothing().when(runQueue).checkResources(eq(workspace), any(RunRequest.class));
+
+        RunQueueTask task1 = runQueue.run(wsId, pPath, serviceContext, null);
+        RunQueueTask task2 = runQueue.run(wsId, pPath, serviceContext, null);
+        RunQueueTask task3 = runQueue.run(wsId, pPath, serviceContext, null);
+
+        verify(runner, timeout(1000).times(2)).run(any(RunRequest.class));
+        TimeUnit.SECONDS.sleep(2);
+        verify(runner, times(2)).run(any(RunRequest.class));
+        assertFalse(task1.isWaiting());
+        assertFalse(task2.isWaiting());
+        assertTrue(task3.isWaiting());
+        // State of runner is cached and shared between tasks.
+        verify(runner, times(1)).getRemoteRunnerState();
+    }
+
+    private void restartWithoutBuildStatusChecks() {
+        runQueue.stop();
+        runQueue.checkBuildResultPeriod = TimeUnit.MINUTES.toMillis(10);
+        runQueue.start();
+    }
+
+    private RemoteRunner mockRunnerAndBuildBefore() throws Exception {
+        RemoteRunnerServer runnerServer = registerDefaultRunnerServer();
+        RemoteRunner runner = runnerServer.getRemoteRunner("java/web");
+        doReturn(dto(RunnerState.class).withServerState(dto(ServerState.class).withFreeMemory(512))).when(runner).getRemoteRunnerState();
+        RemoteRunnerProcess process = spy(new RemoteRunnerProcess(runnerServer.getBaseUrl(), runner.getName(), 1l));
+        doReturn(process).when(runner).run(any(RunRequest.class));
+        project.withBuilders(dto(BuildersDescriptor.class).withDefault("maven"))
+               .withRunners(dto(RunnersDescriptor.class).withDefault("system:/java/web/tomcat7"));
+        doReturn(project).when(runQueue).getProjectDescriptor(eq(wsId), eq(pPath), any(ServiceContext.class));
+        doReturn(workspace).when(runQueue).getWorkspaceDescriptor(eq(wsId), any(ServiceContext.class));
+        doNothing().when(runQueue).checkResources(eq(workspace), any(RunRequest.class));
+        return runner;
+    }
+
+    /**
+     * Each started build gets new id. Status of build with id N is taken from N-th item of returned list, by default status is
+     * SUCCESSFUL.
+     */
+    private List<BuildTaskDescriptor> mockBuildTasks(final AtomicInteger statusRequests) throws Exception {
+        final List<BuildTaskDescriptor> doneTasks = new CopyOnWriteArrayList<>();
+        final AtomicInteger sequence = new AtomicInteger();
+        doAnswer(new Answer<BuildTaskDescriptor>() {
+            @Override
+            public BuildTaskDescriptor answer(InvocationOnMock invocation) throws Throwable {
+                return buildTask(sequence.getAndIncrement(), BuildStatus.IN_QUEUE);
+            }
+        }).when(runQueue).startBuild(any(RemoteServiceDescriptor.class), eq(pPath), any(BuildOptions.class));
+        doAnswer(new Answer<BuildTaskDescriptor>() {
+            @Override
+            public BuildTaskDescriptor answer(InvocationOnMock invocation) throws Throwable {
+                statusRequests.incrementAndGet();
+                String url = (String)invocation.getArguments()[1];
+                return doneTasks.get(Integer.parseInt(url.substring(url.lastIndexOf('/') + 1)));
+            }
+        }).when(httpJsonHelper).request(eq(BuildTaskDescriptor.class), anyString(), eq("GET"), any());
+        for (int i = 0; i < 1000; i++) {
+            doneTasks.add(buildTask(i, BuildStatus.SUCCESSFUL));
+        }
+        return doneTasks;
+    }
+
+    private BuildTaskDescriptor buildTask(long id, BuildStatus status) {
+        BuildTaskDescriptor buildTask = dto(BuildTaskDescriptor.class).withTaskId(id).withStatus(status);
+        buildTask.getLinks().add(dto(Link.class).withMethod("GET")
+                                                .withHref(String.format("http://localhost:8080/api/builder/%s/status/%d", wsId, id))
+                                                .withRel(org.eclipse.che.api.builder.internal.Constants.LINK_REL_GET_STATUS));
+        return buildTask;
+    }
+
+    private int countRunQueueThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("RunQueue-[")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Test(expectedExceptions = {RunnerException.class},
             expectedExceptionsMessageRegExp = "Not enough resources to start application. Available memory 128M but 256M required.")
     public void testErrorWhenNotEnoughMemoryAssignedToWorkspace() throws Exception {
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.server;
 
+import org.eclipse.che.api.vfs.server.util.FileChannelInputStream;
+
 import javax.inject.Singleton;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.HttpHeaders;
@@ -73,10 +75,14 @@ public final class ContentStreamWriter implements MessageBodyWriter<ContentStrea
         httpHeaders.putSingle(HttpHeaders.CACHE_CONTROL, "public, no-cache, no-store, no-transform");
 
         try (InputStream content = t.getStream()) {
-            byte[] buf = new byte[8192];
-            int rd;
-            while ((rd = content.read(buf)) != -1) {
-                entityStream.write(buf, 0, rd);
+            if (content instanceof FileChannelInputStream) {
+                ((FileChannelInputStream)content).transferTo(entityStream);
+            } else {
+                byte[] buf = new byte[8192];
+                int rd;
+                while ((rd = content.read(buf)) != -1) {
+                    entityStream.write(buf, 0, rd);
+                }
             }
             entityStream.flush();
         }
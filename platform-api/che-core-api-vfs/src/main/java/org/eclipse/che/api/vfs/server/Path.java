@@ -10,146 +10,201 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.server;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * Path of VirtualFile.
+ * <p/>
+ * Path is a reference to the parent path and name, so paths of children of the same folder share the path of folder. Paths are
+ * interned in weak table, all paths that are equal and reachable at the same time are the same instance. Path of child with simple
+ * name, see {@link #newPath(String)}, is resolved without parsing and without creating any objects if such path is already in use.
  *
  * @author andrew00x
  */
 public final class Path {
     /** Create new path. */
     public static Path fromString(String path) {
-        return new Path(parse(path));
+        return ROOT.append(parse(path));
     }
 
-    private static final String[] EMPTY_PATH    = new String[0];
-    private static final Pattern  PATH_SPLITTER = Pattern.compile("/");
+    private static final String[] EMPTY_PATH = new String[0];
+
+    private static final Interner INTERNER = new Interner();
 
     private static String[] parse(String raw) {
-        String[] parsed = ((raw == null) || raw.isEmpty() || ((raw.length() == 1) && (raw.charAt(0) == '/')))
-                          ? EMPTY_PATH : PATH_SPLITTER.split(raw.charAt(0) == '/' ? raw.substring(1) : raw);
-        if (parsed.length == 0) {
-            return parsed;
-        }
-        List<String> newTokens = new ArrayList<>(parsed.length);
-        for (String token : parsed) {
-            if ("..".equals(token)) {
-                int size = newTokens.size();
-                if (size == 0) {
-                    throw new IllegalArgumentException(String.format("Invalid path '%s', '..' on root. ", raw));
+        if ((raw == null) || raw.isEmpty() || ((raw.length() == 1) && (raw.charAt(0) == '/'))) {
+            return EMPTY_PATH;
+        }
+        final List<String> newTokens = new ArrayList<>();
+        // Empty tokens inside of path are kept and empty tokens at the end are skipped.
+        int emptyTokens = 0;
+        int start = raw.charAt(0) == '/' ? 1 : 0;
+        final int length = raw.length();
+        while (start <= length) {
+            int end = raw.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            final String token = raw.substring(start, end);
+            if (token.isEmpty()) {
+                emptyTokens++;
+            } else {
+                for (; emptyTokens > 0; emptyTokens--) {
+                    newTokens.add("");
+                }
+                if ("..".equals(token)) {
+                    int size = newTokens.size();
+                    if (size == 0) {
+                        throw new IllegalArgumentException(String.format("Invalid path '%s', '..' on root. ", raw));
+                    }
+                    newTokens.remove(size - 1);
+                } else if (!".".equals(token)) {
+                    newTokens.add(token);
                 }
-                newTokens.remove(size - 1);
-            } else if (!".".equals(token)) {
-                newTokens.add(token);
             }
+            start = end + 1;
         }
         return newTokens.toArray(new String[newTokens.size()]);
     }
 
-    public static final Path ROOT = new Path();
+    /** Checks whether name is single element of path, such name doesn't need parsing. */
+    private static boolean isSimpleName(String name) {
+        return !(name.isEmpty() || ".".equals(name) || "..".equals(name) || name.indexOf('/') >= 0);
+    }
+
+    public static final Path ROOT = new Path(null, "", 0);
 
-    private final    String[] elements;
-    private volatile int      hashCode;
-    private volatile String   asString;
+    private final    Path   parent;
+    private final    String name;
+    private final    int    length;
+    private final    int    hashCode;
+    private volatile String asString;
 
-    private Path(String... elements) {
-        this.elements = elements;
+    private Path(Path parent, String name, int hashCode) {
+        this.parent = parent;
+        this.name = name;
+        this.length = parent == null ? 0 : parent.length + 1;
+        this.hashCode = hashCode;
     }
 
     public Path getParent() {
-        return isRoot() ? null : elements.length == 1 ? ROOT : subPath(0, elements.length - 1);
+        return parent;
     }
 
     public Path subPath(int beginIndex) {
-        return subPath(beginIndex, elements.length);
+        return subPath(beginIndex, length);
     }
 
     public Path subPath(int beginIndex, int endIndex) {
-        if (beginIndex < 0 || beginIndex >= elements.length || endIndex > elements.length || beginIndex >= endIndex) {
+        if (beginIndex < 0 || beginIndex >= length || endIndex > length || beginIndex >= endIndex) {
             throw new IllegalArgumentException("Invalid end or begin index. ");
         }
-        final int len = endIndex - beginIndex;
-        final String[] subPath = new String[len];
-        System.arraycopy(elements, beginIndex, subPath, 0, len);
-        return new Path(subPath);
+        Path end = this;
+        for (int i = length; i > endIndex; i--) {
+            end = end.parent;
+        }
+        if (beginIndex == 0) {
+            return end;
+        }
+        final String[] elements = end.elements();
+        Path subPath = ROOT;
+        for (int i = beginIndex; i < endIndex; i++) {
+            subPath = subPath.child(elements[i]);
+        }
+        return subPath;
     }
 
     public String getName() {
-        return isRoot() ? "" : element(elements.length - 1);
+        return name;
     }
 
     public String[] elements() {
-        String[] copy = new String[elements.length];
-        System.arraycopy(elements, 0, copy, 0, elements.length);
-        return copy;
+        final String[] elements = new String[length];
+        Path path = this;
+        for (int i = length - 1; i >= 0; i--) {
+            elements[i] = path.name;
+            path = path.parent;
+        }
+        return elements;
     }
 
     public int length() {
-        return elements.length;
+        return length;
     }
 
     public String element(int index) {
-        if (index < 0 || index >= elements.length) {
+        if (index < 0 || index >= length) {
             throw new IllegalArgumentException("Invalid index. ");
         }
-        return elements[index];
+        Path path = this;
+        for (int i = length - 1; i > index; i--) {
+            path = path.parent;
+        }
+        return path.name;
     }
 
     public boolean isRoot() {
-        return elements.length == 0;
+        return parent == null;
     }
 
     public boolean isChild(Path parent) {
-        if (parent.elements.length >= this.elements.length) {
+        if (parent.length >= this.length) {
             return false;
         }
-        for (int i = 0, parentLength = parent.elements.length; i < parentLength; i++) {
-            if (!parent.elements[i].equals(this.elements[i])) {
-                return false;
-            }
+        Path path = this.parent;
+        while (path.length > parent.length) {
+            path = path.parent;
         }
-        return true;
+        return path.equals(parent);
     }
 
     public Path newPath(String name) {
-        final String[] relative = parse(name);
-        if (relative.length == 0) {
-            return this; // It is safety to return this instance since it is immutable.
+        if (isSimpleName(name)) {
+            return child(name);
         }
-        final String[] absolute = new String[elements.length + relative.length];
-        System.arraycopy(elements, 0, absolute, 0, elements.length);
-        System.arraycopy(relative, 0, absolute, elements.length, relative.length);
-        return new Path(absolute);
+        return append(parse(name));
     }
 
     public Path newPath(String... relative) {
-        if (relative.length == 0) {
-            return this; // It is safety to return this instance since it is immutable.
-        }
-        final String[] absolute = new String[elements.length + relative.length];
-        System.arraycopy(elements, 0, absolute, 0, elements.length);
-        System.arraycopy(relative, 0, absolute, elements.length, relative.length);
-        return new Path(absolute);
+        return append(relative);
     }
 
     public Path newPath(Path relative) {
-        final String[] absolute = new String[elements.length + relative.elements.length];
-        System.arraycopy(elements, 0, absolute, 0, elements.length);
-        System.arraycopy(relative.elements, 0, absolute, elements.length, relative.elements.length);
-        return new Path(absolute);
+        return append(relative.elements());
     }
 
     public String join(char separator) {
-        StringBuilder builder = new StringBuilder();
-        for (String element : elements) {
-            builder.append(separator);
-            builder.append(element);
+        if (isRoot()) {
+            return "";
+        }
+        int size = 0;
+        for (Path path = this; !path.isRoot(); path = path.parent) {
+            size += path.name.length() + 1;
+        }
+        final char[] chars = new char[size];
+        int end = size;
+        for (Path path = this; !path.isRoot(); path = path.parent) {
+            final int start = end - path.name.length();
+            path.name.getChars(0, path.name.length(), chars, start);
+            chars[start - 1] = separator;
+            end = start - 1;
+        }
+        return new String(chars);
+    }
+
+    private Path child(String name) {
+        return INTERNER.intern(this, name, 31 * hashCode + name.hashCode());
+    }
+
+    private Path append(String[] relative) {
+        Path path = this;
+        for (String element : relative) {
+            path = path.child(element);
         }
-        return builder.toString();
+        return path;
     }
 
    /* ==================================================== */
@@ -159,10 +214,11 @@ public final class Path {
         if (isRoot()) {
             return "/";
         }
-        if (asString == null) {
-            asString = join('/');
+        String str = asString;
+        if (str == null) {
+            asString = str = join('/');
         }
-        return asString;
+        return str;
     }
 
     @Override
@@ -173,18 +229,117 @@ public final class Path {
         if (!(o instanceof Path)) {
             return false;
         }
+        // Interned paths that are equal are the same instance, so in fact comparison ends at the first parent that is shared.
         Path path = (Path)o;
-        return Arrays.equals(elements, path.elements);
+        if (hashCode != path.hashCode || length != path.length) {
+            return false;
+        }
+        Path mine = this;
+        while (mine != path) {
+            if (!mine.name.equals(path.name)) {
+                return false;
+            }
+            mine = mine.parent;
+            path = path.parent;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        int hash = hashCode;
-        if (hash == 0) {
-            hash = 8;
-            hash = 31 * hash + Arrays.hashCode(elements);
-            hashCode = hash;
+        return hashCode;
+    }
+
+    /**
+     * Weak table of paths. Path is found by its parent and name, so path that is already in use is found without creating any new
+     * objects. Table is split into segments to reduce contention.
+     */
+    private static final class Interner {
+        private static final int SEGMENTS = 32;
+
+        private final Segment[] segments;
+
+        Interner() {
+            segments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment();
+            }
+        }
+
+        Path intern(Path parent, String name, int hashCode) {
+            final int hash = hashCode ^ (hashCode >>> 16);
+            return segments[hash >>> 27].intern(parent, name, hashCode, hash);
+        }
+    }
+
+    private static final class Segment {
+        private final ReferenceQueue<Path> queue = new ReferenceQueue<>();
+
+        private Entry[] table = new Entry[16];
+        private int     size;
+
+        synchronized Path intern(Path parent, String name, int hashCode, int hash) {
+            expungeStaleEntries();
+            final int index = hash & (table.length - 1);
+            for (Entry e = table[index]; e != null; e = e.next) {
+                if (e.hash == hash) {
+                    final Path path = e.get();
+                    if (path != null && path.parent == parent && path.name.equals(name)) {
+                        return path;
+                    }
+                }
+            }
+            final Path path = new Path(parent, name, hashCode);
+            table[index] = new Entry(path, hash, table[index], queue);
+            if (++size > table.length - (table.length >>> 2)) {
+                resize();
+            }
+            return path;
+        }
+
+        private void expungeStaleEntries() {
+            Object stale;
+            while ((stale = queue.poll()) != null) {
+                final Entry entry = (Entry)stale;
+                final int index = entry.hash & (table.length - 1);
+                Entry prev = null;
+                for (Entry e = table[index]; e != null; prev = e, e = e.next) {
+                    if (e == entry) {
+                        if (prev == null) {
+                            table[index] = e.next;
+                        } else {
+                            prev.next = e.next;
+                        }
+                        size--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void resize() {
+            final Entry[] newTable = new Entry[table.length << 1];
+            for (Entry e : table) {
+                while (e != null) {
+                    final Entry next = e.next;
+                    final int index = e.hash & (newTable.length - 1);
+                    e.next = newTable[index];
+                    newTable[index] = e;
+                    e = next;
+                }
+            }
+            table = newTable;
+        }
+    }
+
+    private static final class Entry extends WeakReference<Path> {
+        final int hash;
+        Entry     next;
+
+        Entry(Path path, int hash, Entry next, ReferenceQueue<Path> queue) {
+            super(path, queue);
+            this.hash = hash;
+            this.next = next;
         }
-        return hash;
     }
 }
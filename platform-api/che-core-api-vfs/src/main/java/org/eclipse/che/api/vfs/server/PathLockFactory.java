@@ -10,6 +10,15 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.server;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Advisory file locks. It does not prevent access to the file from other programs.
  * <p/>
@@ -30,15 +39,45 @@ package org.eclipse.che.api.vfs.server;
  *         }
  *      }
  * </pre>
+ * <p/>
+ * Lock on the path also protects whole subtree of this path. Locks are kept in concurrent table, one entry per locked path. Before
+ * getting lock on the path the thread gets "intent" lock on each parent of this path starting from root. Intent lock says that some
+ * child of the path is (or is going to be) locked, so check of conflicts between parent and child locks costs O(depth of path) and
+ * does not depend on number of locks held at the moment.
+ * <p/>
+ * Each entry of the table is striped. Intent locks, that are taken on root and on all parents by every thread, are counted in the
+ * stripe of the thread and need the lock of this stripe only, so threads that work in the same workspace do not queue on the single
+ * monitor of root. Shared and exclusive locks of the path itself need locks of all stripes of the entry. Release of lock wakes up only
+ * threads that wait for the same entry.
+ * <p/>
+ * Compatibility of locks held by different threads:
+ * <pre>
+ *                  | INTENT_SHARED | INTENT_EXCLUSIVE | SHARED | EXCLUSIVE
+ * -----------------|---------------|------------------|--------|----------
+ * INTENT_SHARED    |      yes      |       yes        |  yes   |    no
+ * INTENT_EXCLUSIVE |      yes      |       yes        |  no    |    no
+ * SHARED           |      yes      |       no         |  yes   |    no
+ * EXCLUSIVE        |      no       |       no         |  no    |    no
+ * </pre>
+ * Locks held by the same thread never conflict with each other. Thread that holds shared lock and requests exclusive lock for the same
+ * path waits until other threads release their shared locks.
  *
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  */
 public final class PathLockFactory {
     private static final int MAX_RECURSIVE_LOCKS = (1 << 10) - 1;
+
+    private static final int INTENT_SHARED    = 0;
+    private static final int INTENT_EXCLUSIVE = 1;
+    private static final int SHARED           = 2;
+    private static final int EXCLUSIVE        = 3;
+
+    private static final int STRIPES = 8;
+
     /** Max number of threads allowed to access file. */
-    private final int maxThreads;
-    // Tail of the "lock table".
-    private final Node tail = new Node(null, 0, null);
+    private final int                       maxThreads;
+    // The "lock table". Entry removed as soon as nobody holds or waits for it.
+    private final ConcurrentMap<Path, Node> table;
 
     /**
      * @param maxThreads
@@ -50,145 +89,392 @@ public final class PathLockFactory {
             throw new IllegalArgumentException();
         }
         this.maxThreads = maxThreads;
+        table = new ConcurrentHashMap<>();
     }
 
     public PathLock getLock(Path path, boolean exclusive) {
-        return new PathLock(path, exclusive ? maxThreads : 1);
+        return new PathLock(path, exclusive);
     }
 
-    private synchronized void acquire(Path path, int permits) {
-        while (!tryAcquire(path, permits)) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
+    private void acquire(Path path, boolean exclusive, long timeoutMilliseconds) {
+        final long endTime = timeoutMilliseconds < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutMilliseconds;
+        final Path[] hierarchy = hierarchy(path);
+        final int last = hierarchy.length - 1;
+        final int intentMode = exclusive ? INTENT_EXCLUSIVE : INTENT_SHARED;
+        int i = 0;
+        try {
+            for (; i <= last; i++) {
+                acquire(hierarchy[i], i == last ? (exclusive ? EXCLUSIVE : SHARED) : intentMode, path, endTime);
+            }
+        } finally {
+            if (i <= last) {
+                // Failed to get lock, rollback intent locks that we already have.
+                for (int j = i - 1; j >= 0; j--) {
+                    release(hierarchy[j], intentMode);
+                }
             }
         }
     }
 
-    private synchronized void acquire(Path path, int permits, long timeoutMilliseconds) {
-        final long endTime = System.currentTimeMillis() + timeoutMilliseconds;
-        long waitTime = timeoutMilliseconds;
-        while (!tryAcquire(path, permits)) {
-            try {
-                wait(waitTime);
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
+    private void acquire(Path path, int mode, Path lockPath, long endTime) {
+        final Node node = retainNode(path);
+        boolean acquired = false;
+        try {
+            if (mode == INTENT_SHARED || mode == INTENT_EXCLUSIVE) {
+                node.acquireIntent(Thread.currentThread(), mode, lockPath, endTime);
+            } else {
+                node.acquireDirect(Thread.currentThread(), mode, maxThreads, lockPath, endTime);
             }
-            long now = System.currentTimeMillis();
-            if (now >= endTime) {
-                throw new RuntimeException(String.format("Get lock timeout for '%s'. ", path));
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                releaseNode(node);
             }
-            waitTime = endTime - now;
         }
     }
 
-    private synchronized void release(Path path, int permits) {
-        Node node = tail;
-        while (node != null) {
-            Node prev = node.prev;
-            if (prev == null) {
-                break;
-            }
-            if (prev.path.equals(path)) {
-                if (prev.threadDeep == 1) {
-                    // If last recursive lock.
-                    prev.permits += permits;
-                    if (prev.permits >= maxThreads) {
-                        // remove
-                        node.prev = prev.prev;
-                        prev.prev = null;
-                    }
-                } else {
-                    --prev.threadDeep;
+    private void release(Path path, boolean exclusive) {
+        final Path[] hierarchy = hierarchy(path);
+        final int last = hierarchy.length - 1;
+        release(hierarchy[last], exclusive ? EXCLUSIVE : SHARED);
+        final int intentMode = exclusive ? INTENT_EXCLUSIVE : INTENT_SHARED;
+        for (int i = last - 1; i >= 0; i--) {
+            release(hierarchy[i], intentMode);
+        }
+    }
+
+    private void release(Path path, int mode) {
+        final Node node = table.get(path);
+        if (node == null) {
+            throw new IllegalStateException(String.format("Lock for '%s' is not held. ", path));
+        }
+        if (mode == INTENT_SHARED || mode == INTENT_EXCLUSIVE) {
+            node.releaseIntent(Thread.currentThread(), mode);
+        } else {
+            node.releaseDirect(Thread.currentThread(), mode);
+        }
+        releaseNode(node);
+    }
+
+    /** Gets entry of the table and counts one more user of it, so entry is not removed while thread holds or waits for lock. */
+    private Node retainNode(Path path) {
+        for (; ; ) {
+            Node node = table.get(path);
+            if (node == null) {
+                final Node newNode = new Node(path);
+                node = table.putIfAbsent(path, newNode);
+                if (node == null) {
+                    node = newNode;
                 }
             }
-            node = node.prev;
+            if (node.retain()) {
+                return node;
+            }
+            // Entry was removed from the table after we got it, try again with new one.
         }
-        notifyAll();
-        //System.err.printf(">>>>> release: %s : %d%n", path, permits);
     }
 
-    private boolean tryAcquire(Path path, int permits) {
-        //System.err.printf(">>>>> acquire: %s : %d%n", path, permits);
-        Node node = tail.prev;
-        final Thread current = Thread.currentThread();
-        while (node != null) {
-            if (node.path.equals(path)) {
-                if (node.threadId == current.getId()) {
-                    // Current thread already has direct lock for this path
-                    if (node.threadDeep > MAX_RECURSIVE_LOCKS) {
-                        throw new Error("Max number of recursive locks exceeded. ");
-                    }
-                    ++node.threadDeep;
-                    return true;
+    private void releaseNode(Node node) {
+        if (node.release()) {
+            table.remove(node.path, node);
+        }
+    }
+
+    /** Get all parents of path starting from root and path itself. */
+    private static Path[] hierarchy(Path path) {
+        final Path[] hierarchy = new Path[path.length() + 1];
+        Path current = path;
+        for (int i = hierarchy.length - 1; i >= 0; i--) {
+            hierarchy[i] = current;
+            current = current.getParent();
+        }
+        return hierarchy;
+    }
+
+    public void checkClean() {
+        assert table.isEmpty();
+    }
+
+   /* =============================================== */
+
+    private static class Node {
+        final Path          path;
+        final Stripe[]      stripes;
+        // Number of threads that hold or wait for lock, -1 when entry is removed from the table.
+        final AtomicInteger users;
+
+        // Shared and exclusive locks, guarded by locks of all stripes, so may be read under lock of any stripe.
+        final Map<Thread, Integer> sharedHolders;
+        Thread exclusiveOwner;
+        int    exclusiveHolds;
+
+        // Threads that wait for shared or exclusive lock wait on monitor of node until version is changed.
+        final AtomicInteger directWaiters;
+        volatile int version;
+
+        Node(Path path) {
+            this.path = path;
+            stripes = new Stripe[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
+            users = new AtomicInteger();
+            sharedHolders = new HashMap<>(4);
+            directWaiters = new AtomicInteger();
+        }
+
+        boolean retain() {
+            for (; ; ) {
+                final int current = users.get();
+                if (current < 0) {
+                    return false;
                 }
-                if (node.permits > permits) {
-                    // Lock already exists and current thread is not owner of this lock,
-                    // but lock is not exclusive and we can "share" it for other thread.
-                    node.permits -= permits; // decrement number of allowed concurrent threads
+                if (users.compareAndSet(current, current + 1)) {
                     return true;
                 }
-                // Lock is exclusive or max number of allowed concurrent thread is reached.
+            }
+        }
+
+        /** Returns {@code true} if nobody uses entry any more and it must be removed from the table. */
+        boolean release() {
+            return users.decrementAndGet() == 0 && users.compareAndSet(0, -1);
+        }
+
+        Stripe stripe(Thread thread) {
+            return stripes[(int)thread.getId() & (STRIPES - 1)];
+        }
+
+        void acquireIntent(Thread thread, int mode, Path lockPath, long endTime) {
+            final Stripe stripe = stripe(thread);
+            stripe.lock();
+            try {
+                // Intent locks are compatible with each other, check only shared and exclusive locks of other threads.
+                while ((exclusiveOwner != null && exclusiveOwner != thread)
+                       || (mode == INTENT_EXCLUSIVE && (sharedHolders.size() > 1
+                                                        || (sharedHolders.size() == 1 && !sharedHolders.containsKey(thread))))) {
+                    stripe.await(lockPath, endTime);
+                }
+                int[] own = stripe.intents.get(thread);
+                if (own == null) {
+                    stripe.intents.put(thread, own = new int[2]);
+                }
+                ++own[mode];
+                ++stripe.held[mode];
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        void releaseIntent(Thread thread, int mode) {
+            final Stripe stripe = stripe(thread);
+            stripe.lock();
+            try {
+                final int[] own = stripe.intents.get(thread);
+                if (own == null || own[mode] == 0) {
+                    throw new IllegalStateException(String.format("Lock for '%s' is not held by current thread. ", path));
+                }
+                --own[mode];
+                --stripe.held[mode];
+                if (own[INTENT_SHARED] == 0 && own[INTENT_EXCLUSIVE] == 0) {
+                    stripe.intents.remove(thread);
+                }
+            } finally {
+                stripe.unlock();
+            }
+            wakeDirectWaiters();
+        }
+
+        void acquireDirect(Thread thread, int mode, int maxThreads, Path lockPath, long endTime) {
+            // Count waiter before check, so thread that releases lock after the check sees it and wakes it up.
+            directWaiters.incrementAndGet();
+            try {
+                for (; ; ) {
+                    final int observed = version;
+                    lockAll();
+                    try {
+                        if (tryAcquireDirect(thread, mode, maxThreads)) {
+                            return;
+                        }
+                    } finally {
+                        unlockAll();
+                    }
+                    synchronized (this) {
+                        while (version == observed) {
+                            final long waitTime = endTime == Long.MAX_VALUE ? 0 : endTime - System.currentTimeMillis();
+                            if (endTime != Long.MAX_VALUE && waitTime <= 0) {
+                                throw new RuntimeException(String.format("Get lock timeout for '%s'. ", lockPath));
+                            }
+                            try {
+                                wait(waitTime);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                directWaiters.decrementAndGet();
+            }
+        }
+
+        // UNDER LOCKS OF ALL STRIPES
+        private boolean tryAcquireDirect(Thread thread, int mode, int maxThreads) {
+            final Integer ownShared = sharedHolders.get(thread);
+            if (exclusiveOwner != null && exclusiveOwner != thread) {
+                return false;
+            }
+            if (mode == EXCLUSIVE && (sharedHolders.size() > 1 || (sharedHolders.size() == 1 && ownShared == null))) {
+                // Shared locks of other threads, including the case when current thread wants upgrade its own shared lock.
                 return false;
-            } else if ((node.path.isChild(path) || path.isChild(node.path)) && node.permits <= permits) {
-                // Found some path which already has lock that prevents us to get required permits.
-                // There is two possibilities:
-                // 1. Parent of the path we try to lock already locked
-                // 2. Child of the path we try to lock already locked
-                // Need to check is such lock obtained by current thread or not.
-                // If such lock obtained by other thread stop here immediately there is no reasons to continue.
-                if (node.threadId != current.getId()) {
+            }
+            final int[] ownIntents = stripe(thread).intents.get(thread);
+            for (Stripe stripe : stripes) {
+                final int othersIntentExclusive = stripe.held[INTENT_EXCLUSIVE] - (ownIntents == null || stripe != stripe(thread)
+                                                                                    ? 0 : ownIntents[INTENT_EXCLUSIVE]);
+                final int othersIntentShared = stripe.held[INTENT_SHARED] - (ownIntents == null || stripe != stripe(thread)
+                                                                              ? 0 : ownIntents[INTENT_SHARED]);
+                if (othersIntentExclusive > 0 || (mode == EXCLUSIVE && othersIntentShared > 0)) {
                     return false;
                 }
             }
-            node = node.prev;
+            if (mode == SHARED) {
+                if (ownShared == null && sharedHolders.size() >= maxThreads) {
+                    // Max number of allowed concurrent thread is reached.
+                    return false;
+                }
+                final int holds = ownShared == null ? 1 : ownShared + 1;
+                checkRecursiveLocks(holds + exclusiveHolds);
+                sharedHolders.put(thread, holds);
+            } else {
+                checkRecursiveLocks(exclusiveHolds + 1 + (ownShared == null ? 0 : ownShared));
+                exclusiveOwner = thread;
+                ++exclusiveHolds;
+            }
+            return true;
         }
-        // If we are here there is no lock for path yet.
-        tail.prev = new Node(path, maxThreads - permits, tail.prev);
-        return true;
-    }
 
-    public synchronized void checkClean() {
-        assert tail.prev == null;
-    }
+        void releaseDirect(Thread thread, int mode) {
+            lockAll();
+            try {
+                if (mode == SHARED) {
+                    final Integer holds = sharedHolders.get(thread);
+                    if (holds == null) {
+                        throw new IllegalStateException(String.format("Lock for '%s' is not held by current thread. ", path));
+                    }
+                    if (holds == 1) {
+                        sharedHolders.remove(thread);
+                    } else {
+                        sharedHolders.put(thread, holds - 1);
+                    }
+                } else {
+                    if (exclusiveOwner != thread) {
+                        throw new IllegalStateException(String.format("Lock for '%s' is not held by current thread. ", path));
+                    }
+                    if (--exclusiveHolds == 0) {
+                        exclusiveOwner = null;
+                    }
+                }
+                for (Stripe stripe : stripes) {
+                    stripe.signalWaiters();
+                }
+            } finally {
+                unlockAll();
+            }
+            wakeDirectWaiters();
+        }
 
-   /* =============================================== */
+        private void wakeDirectWaiters() {
+            if (directWaiters.get() > 0) {
+                synchronized (this) {
+                    ++version;
+                    notifyAll();
+                }
+            }
+        }
 
-    private static class Node {
-        final Path path;
-        final long threadId = Thread.currentThread().getId();
-        int  permits;
-        int  threadDeep;
-        Node prev;
+        private void lockAll() {
+            for (Stripe stripe : stripes) {
+                stripe.lock();
+            }
+        }
 
-        Node(Path path, int permits, Node prev) {
-            this.path = path;
-            this.permits = permits;
-            this.prev = prev;
-            threadDeep = 1;
+        private void unlockAll() {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+
+        private static void checkRecursiveLocks(int holds) {
+            if (holds > MAX_RECURSIVE_LOCKS) {
+                throw new Error("Max number of recursive locks exceeded. ");
+            }
         }
 
         @Override
         public String toString() {
             return "Node{" +
                    "path=" + path +
-                   ", threadId=" + threadId +
-                   ", permits=" + permits +
-                   ", prev=" + prev +
+                   ", users=" + users +
                    '}';
         }
     }
 
+    /** Intent locks of threads that are mapped to the same stripe of entry. */
+    @SuppressWarnings("serial")
+    private static class Stripe extends ReentrantLock {
+        // Number of intent locks in each mode held by all threads of the stripe.
+        final int[]              held;
+        // Intent locks held by each thread of the stripe.
+        final Map<Thread, int[]> intents;
+
+        private Condition released;
+        private int       waiters;
+
+        Stripe() {
+            held = new int[2];
+            intents = new HashMap<>(4);
+        }
+
+        // UNDER LOCK OF STRIPE
+        void await(Path lockPath, long endTime) {
+            if (released == null) {
+                released = newCondition();
+            }
+            ++waiters;
+            try {
+                if (endTime == Long.MAX_VALUE) {
+                    released.await();
+                } else {
+                    final long waitTime = endTime - System.currentTimeMillis();
+                    if (waitTime <= 0) {
+                        throw new RuntimeException(String.format("Get lock timeout for '%s'. ", lockPath));
+                    }
+                    released.await(waitTime, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                --waiters;
+            }
+        }
+
+        // UNDER LOCK OF STRIPE
+        void signalWaiters() {
+            if (waiters > 0) {
+                released.signalAll();
+            }
+        }
+    }
+
     public final class PathLock {
-        private final Path path;
-        private final int  permits;
+        private final Path    path;
+        private final boolean exclusive;
 
-        private PathLock(Path path, int permits) {
+        private PathLock(Path path, boolean exclusive) {
             this.path = path;
-            this.permits = permits;
+            this.exclusive = exclusive;
         }
 
         /**
@@ -197,7 +483,7 @@ public final class PathLockFactory {
          * @return this PathLock instance
          */
         public PathLock acquire() {
-            PathLockFactory.this.acquire(path, permits);
+            PathLockFactory.this.acquire(path, exclusive, -1);
             return this;
         }
 
@@ -212,18 +498,18 @@ public final class PathLockFactory {
          *         if waiting timeout reached
          */
         public PathLock acquire(long timeoutMilliseconds) {
-            PathLockFactory.this.acquire(path, permits, timeoutMilliseconds);
+            PathLockFactory.this.acquire(path, exclusive, timeoutMilliseconds);
             return this;
         }
 
         /** Release file permit. */
         public void release() {
-            PathLockFactory.this.release(path, permits);
+            PathLockFactory.this.release(path, exclusive);
         }
 
         /** Returns <code>true</code> if this lock is exclusive and <code>false</code> otherwise. */
         public boolean isExclusive() {
-            return permits == PathLockFactory.this.maxThreads;
+            return exclusive;
         }
     }
 }
@@ -533,6 +533,26 @@ public interface VirtualFile extends Comparable<VirtualFile> {
      */
     void accept(VirtualFileVisitor visitor) throws ServerException;
 
+    /**
+     * Walks through the tree of this folder. Visitor is notified about this folder and about its children up to {@code depth} levels
+     * below this folder, children of each folder are visited in the same order as they are returned by {@link
+     * #getChildren(VirtualFileFilter)}. If current user doesn't have read access to some item neither this item nor its children are
+     * visited. If this VirtualFile isn't a folder only this file is visited.
+     * <p/>
+     * This method is preferable to recursive calls of {@link #getChildren(VirtualFileFilter)} when many levels of tree are needed,
+     * implementation may read each folder only once and resolve permissions of all children of folder at once.
+     *
+     * @param filter
+     *         virtual files filter, it isn't applied to this VirtualFile. Folders that don't match filter are not walked into
+     * @param depth
+     *         number of levels of tree below this folder that are visited, if {@code 0} then only this folder is visited
+     * @param visitor
+     *         visitor
+     * @throws ServerException
+     *         if an error occurs
+     */
+    void walk(VirtualFileFilter filter, int depth, VirtualFileTreeVisitor visitor) throws ServerException;
+
     /**
      * Traverses recursively all files in current folder and count md5sum for each file. Method returns {@code Pair&lt;String, String&gt;}
      * for each file, all folders are omitted. Each {@code Pair} contains following structure:
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server;
+
+import org.eclipse.che.api.core.ServerException;
+
+/**
+ * Visitor that is notified about items of tree when the tree is walked with {@link VirtualFile#walk(VirtualFileFilter, int,
+ * VirtualFileTreeVisitor)}. Each folder is notified before and after its children, so visitor may write tree to the stream while the
+ * tree is walked, without keeping the whole tree in memory.
+ *
+ * @author andrew00x
+ */
+public interface VirtualFileTreeVisitor {
+    /**
+     * Called for folder before its children.
+     *
+     * @param folder
+     *         folder
+     * @return {@code true} if children of folder should be visited and {@code false} if children of folder and {@link
+     * #postVisitFolder(VirtualFile)} for this folder should be skipped
+     * @throws ServerException
+     *         if an error occurs, walk is stopped and error is thrown from {@link VirtualFile#walk(VirtualFileFilter, int,
+     *         VirtualFileTreeVisitor)}
+     */
+    boolean preVisitFolder(VirtualFile folder) throws ServerException;
+
+    /**
+     * Called for file.
+     *
+     * @param file
+     *         file
+     * @throws ServerException
+     *         if an error occurs, walk is stopped and error is thrown from {@link VirtualFile#walk(VirtualFileFilter, int,
+     *         VirtualFileTreeVisitor)}
+     */
+    void visitFile(VirtualFile file) throws ServerException;
+
+    /**
+     * Called for folder after all its children.
+     *
+     * @param folder
+     *         folder
+     * @throws ServerException
+     *         if an error occurs, walk is stopped and error is thrown from {@link VirtualFile#walk(VirtualFileFilter, int,
+     *         VirtualFileTreeVisitor)}
+     */
+    void postVisitFolder(VirtualFile folder) throws ServerException;
+}
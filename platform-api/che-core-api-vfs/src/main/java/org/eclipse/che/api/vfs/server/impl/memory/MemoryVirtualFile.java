@@ -22,6 +22,7 @@ import org.eclipse.che.api.vfs.server.Path;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUser;
+import org.eclipse.che.api.vfs.server.VirtualFileTreeVisitor;
 import org.eclipse.che.api.vfs.server.VirtualFileVisitor;
 import org.eclipse.che.api.vfs.server.observation.CreateEvent;
 import org.eclipse.che.api.vfs.server.observation.DeleteEvent;
@@ -32,7 +33,7 @@ import org.eclipse.che.api.vfs.server.observation.UpdateContentEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdatePropertiesEvent;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.server.util.NotClosableInputStream;
-import org.eclipse.che.api.vfs.server.util.ZipContent;
+import org.eclipse.che.api.vfs.server.util.SafeZipInputStream;
 import org.eclipse.che.api.vfs.shared.PropertyFilter;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Folder;
@@ -70,7 +71,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -413,6 +413,25 @@ public class MemoryVirtualFile implements VirtualFile {
         visitor.visit(this);
     }
 
+    @Override
+    public void walk(VirtualFileFilter filter, int depth, VirtualFileTreeVisitor visitor) throws ServerException {
+        checkExist();
+        if (isFile()) {
+            visitor.visitFile(this);
+            return;
+        }
+        if (!visitor.preVisitFolder(this)) {
+            return;
+        }
+        if (depth > 0) {
+            final LazyIterator<VirtualFile> children = getChildren(filter);
+            while (children.hasNext()) {
+                children.next().walk(filter, depth - 1, visitor);
+            }
+        }
+        visitor.postVisitFolder(this);
+    }
+
     @Override
     public LazyIterator<Pair<String, String>> countMd5Sums() throws ServerException {
         checkExist();
@@ -976,10 +995,10 @@ public class MemoryVirtualFile implements VirtualFile {
                                                        " You do not have the correct permissions to complete this operation.", getPath()));
         }
 
-        ZipInputStream zip = null;
+        SafeZipInputStream zip = null;
         try {
-            final ZipContent zipContent = ZipContent.newInstance(zipped);
-            zip = new ZipInputStream(zipContent.zippedData);
+            // Zip content is checked while it is extracted, so zipped data is read only once.
+            zip = new SafeZipInputStream(zipped);
             // Wrap zip stream to prevent close it. We can pass stream to other method and it can read content of current
             // ZipEntry but not able to close original stream of ZIPed data.
             InputStream noCloseZip = new NotClosableInputStream(zip);
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterFilter;
+import org.apache.lucene.analysis.util.CharTokenizer;
+
+/**
+ * Analyzer for source code. Text is split to identifiers, everything except letters, digits, '_' and '$' separates identifiers.
+ * Each identifier is indexed as is and also split to parts by case changes, '_' and '$', e.g. {@code this.getFooBar()} gives
+ * tokens {@code this}, {@code getfoobar}, {@code get}, {@code foo} and {@code bar}. All tokens are lower-cased.
+ *
+ * @author andrew00x
+ */
+public class CodeAnalyzer extends Analyzer {
+    private static final int WORD_DELIMITER_FLAGS = WordDelimiterFilter.GENERATE_WORD_PARTS
+                                                    | WordDelimiterFilter.GENERATE_NUMBER_PARTS
+                                                    | WordDelimiterFilter.SPLIT_ON_CASE_CHANGE
+                                                    | WordDelimiterFilter.PRESERVE_ORIGINAL;
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        final Tokenizer tokenizer = new CharTokenizer() {
+            @Override
+            protected boolean isTokenChar(int c) {
+                return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+            }
+        };
+        final TokenStream filter = new LowerCaseFilter(new WordDelimiterFilter(tokenizer, WORD_DELIMITER_FLAGS, null));
+        return new TokenStreamComponents(tokenizer, filter);
+    }
+}
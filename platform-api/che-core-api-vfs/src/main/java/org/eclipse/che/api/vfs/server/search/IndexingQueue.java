@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+
+import org.apache.lucene.index.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of changes of index of {@link LuceneSearcher}. Changes are applied to the index asynchronously in the order they are added to
+ * the queue. At most one task that applies changes runs for the queue at the same time, so different queues (searchers) may share
+ * the same executor.
+ * <p/>
+ * Queue keeps at most one operation for each path. New operation for path replaces the operation that is not applied yet and moves
+ * to the end of queue. Deletion of folder also drops pending operations for all items inside the folder. If number of pending
+ * operations reaches {@code maxSize} then thread that adds new operation is blocked until some operations are applied.
+ * <p/>
+ * Changes are taken from queue by batches, index is committed when number of documents changed after last commit reaches {@code
+ * commitSize} or if last commit was done more than {@code commitPeriod} milliseconds ago.
+ *
+ * @author andrew00x
+ */
+public final class IndexingQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexingQueue.class);
+
+    public static final int  DEFAULT_MAX_SIZE      = 10000;
+    public static final int  DEFAULT_BATCH_SIZE    = 100;
+    public static final int  DEFAULT_COMMIT_SIZE   = 1000;
+    public static final long DEFAULT_COMMIT_PERIOD = 10000; // 10 seconds
+
+    private static final int ADD         = 0;
+    private static final int UPDATE      = 1;
+    private static final int DELETE_FILE = 2;
+    private static final int DELETE_TREE = 3;
+
+    private static class Operation {
+        final int         type;
+        final String      path;
+        final VirtualFile virtualFile;
+        // Key in queue. It is path of item for add, update or delete of file and path + '/' for delete of folder.
+        final String      key;
+
+        Operation(int type, String path, VirtualFile virtualFile) {
+            this.type = type;
+            this.path = path;
+            this.virtualFile = virtualFile;
+            key = type == DELETE_TREE ? path + '/' : path;
+        }
+    }
+
+    private final LuceneSearcher searcher;
+    private final Executor       executor;
+    private final int            maxSize;
+    private final int            batchSize;
+    private final int            commitSize;
+    private final long           commitPeriod;
+
+    private final ReentrantLock                    lock;
+    private final Condition                        notFull;
+    private final Condition                        idle;
+    private final LinkedHashMap<String, Operation> pending;
+
+    // All fields below are guarded by lock.
+    private boolean running;
+    // Batch of operations is applied at the moment.
+    private boolean applying;
+    private boolean closed;
+    private int     inProgress;
+    private long    coalesced;
+    private long    applied;
+    private long    indexingTime;
+    private int     uncommitted;
+    private long    lastCommit;
+
+    public IndexingQueue(LuceneSearcher searcher, Executor executor) {
+        this(searcher, executor, DEFAULT_MAX_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, DEFAULT_COMMIT_PERIOD);
+    }
+
+    /**
+     * @param searcher
+     *         searcher which index is updated
+     * @param executor
+     *         executor that runs tasks which apply changes to the index
+     * @param maxSize
+     *         max number of pending operations
+     * @param batchSize
+     *         max number of operations that are taken from queue at once
+     * @param commitSize
+     *         number of changed documents after that index is committed
+     * @param commitPeriod
+     *         max time in milliseconds between commits of changed index
+     */
+    public IndexingQueue(LuceneSearcher searcher, Executor executor, int maxSize, int batchSize, int commitSize, long commitPeriod) {
+        if (maxSize < 1 || batchSize < 1 || commitSize < 1 || commitPeriod < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.searcher = searcher;
+        this.executor = executor;
+        this.maxSize = maxSize;
+        this.batchSize = batchSize;
+        this.commitSize = commitSize;
+        this.commitPeriod = commitPeriod;
+        lock = new ReentrantLock();
+        notFull = lock.newCondition();
+        idle = lock.newCondition();
+        pending = new LinkedHashMap<>();
+        lastCommit = System.currentTimeMillis();
+    }
+
+    public void add(VirtualFile virtualFile) {
+        offer(new Operation(ADD, virtualFile.getPath(), virtualFile));
+    }
+
+    public void update(VirtualFile virtualFile) {
+        offer(new Operation(UPDATE, virtualFile.getPath(), virtualFile));
+    }
+
+    public void delete(String path, boolean isFile) {
+        offer(new Operation(isFile ? DELETE_FILE : DELETE_TREE, path, null));
+    }
+
+    private void offer(Operation operation) {
+        boolean startTask = false;
+        lock.lock();
+        try {
+            while (!closed && pending.size() >= maxSize && !pending.containsKey(operation.key)) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                return;
+            }
+            if (pending.remove(operation.key) != null) {
+                ++coalesced;
+            }
+            if (operation.type == DELETE_TREE) {
+                // Items inside of deleted folder don't need to be indexed.
+                for (Iterator<String> iterator = pending.keySet().iterator(); iterator.hasNext(); ) {
+                    if (iterator.next().startsWith(operation.key)) {
+                        iterator.remove();
+                        ++coalesced;
+                    }
+                }
+            }
+            pending.put(operation.key, operation);
+            if (!running) {
+                running = true;
+                startTask = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (startTask) {
+            startTask();
+        }
+    }
+
+    private void startTask() {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        applyPending();
+                    } catch (Error e) {
+                        abort();
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.error("Unable apply changes to index. {}", e.getMessage());
+            abort();
+        }
+    }
+
+    private void abort() {
+        lock.lock();
+        try {
+            running = false;
+            applying = false;
+            inProgress = 0;
+            pending.clear();
+            notFull.signalAll();
+            idle.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyPending() {
+        for (; ; ) {
+            final List<Operation> batch;
+            lock.lock();
+            try {
+                if (closed || pending.isEmpty()) {
+                    running = false;
+                    idle.signalAll();
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                for (Iterator<Operation> iterator = pending.values().iterator(); iterator.hasNext() && batch.size() < batchSize; ) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                inProgress = batch.size();
+                applying = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            final long start = System.currentTimeMillis();
+            for (Operation operation : batch) {
+                apply(operation);
+            }
+            final long end = System.currentTimeMillis();
+
+            boolean commit;
+            lock.lock();
+            try {
+                inProgress = 0;
+                applied += batch.size();
+                indexingTime += end - start;
+                uncommitted += batch.size();
+                commit = uncommitted >= commitSize || end - lastCommit >= commitPeriod;
+                if (commit) {
+                    uncommitted = 0;
+                    lastCommit = end;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (commit) {
+                commit();
+            }
+            lock.lock();
+            try {
+                applying = false;
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void apply(Operation operation) {
+        try {
+            switch (operation.type) {
+                case ADD:
+                    searcher.doAdd(operation.virtualFile);
+                    break;
+                case UPDATE:
+                    searcher.doUpdate(new Term("path", operation.virtualFile.getPath()), operation.virtualFile);
+                    break;
+                case DELETE_FILE:
+                    searcher.doDelete(operation.path, true);
+                    break;
+                case DELETE_TREE:
+                    searcher.doDelete(operation.path, false);
+                    break;
+            }
+        } catch (ServerException | RuntimeException e) {
+            // Index of one item is not updated but it should not stop indexing of other items.
+            LOG.error(String.format("Unable update index for '%s'. %s", operation.path, e.getMessage()), e);
+        }
+    }
+
+    private void commit() {
+        try {
+            searcher.getIndexWriter().commit();
+        } catch (IOException | RuntimeException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Waits until all operations added to the queue before this method is called are applied to the index.
+     *
+     * @return {@code true} if all operations are applied and {@code false} if timeout is reached
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (running) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops applying changes to the index. Pending operations are discarded and all new operations are ignored. Method waits until
+     * batch of operations that is applied at the moment is done, after that index may be closed. Task that is not started by executor
+     * yet does nothing when it starts. Method must not be called while lock of searcher is held, operations need it.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pending.clear();
+            notFull.signalAll();
+            while (applying) {
+                idle.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of operations that are not applied to the index yet. */
+    public int getSize() {
+        lock.lock();
+        try {
+            return pending.size() + inProgress;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of operations that were applied to the index. */
+    public long getAppliedOperations() {
+        lock.lock();
+        try {
+            return applied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of operations that were dropped because they are replaced with newer operation for the same item. */
+    public long getCoalescedOperations() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Average number of operations applied to the index per second while queue is not empty. */
+    public double getIndexingRate() {
+        lock.lock();
+        try {
+            return indexingTime == 0 ? 0.0 : applied * 1000.0 / indexingTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
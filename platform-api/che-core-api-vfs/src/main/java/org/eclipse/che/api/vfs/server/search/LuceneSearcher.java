@@ -11,6 +11,7 @@
 package org.eclipse.che.api.vfs.server.search;
 
 import org.eclipse.che.api.core.ForbiddenException;
+import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.vfs.server.LazyIterator;
 import org.eclipse.che.api.vfs.server.MountPoint;
@@ -19,29 +20,41 @@ import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.util.MediaTypeFilter;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.analysis.core.LowerCaseFilter;
-import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,8 +63,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Lucene based searcher.
@@ -59,66 +85,106 @@ import java.util.Set;
  * @author andrew00x
  */
 public abstract class LuceneSearcher implements Searcher {
-    private static final Logger LOG          = LoggerFactory.getLogger(LuceneSearcher.class);
-    private static final int    RESULT_LIMIT = 1000;
+    /** Max number of files in result if query does not set it, see {@link QueryExpression#setMaxItems(int)}. */
+    public static final int DEFAULT_MAX_ITEMS = 1000;
+
+    private static final Logger LOG              = LoggerFactory.getLogger(LuceneSearcher.class);
+    /** Max number of lines that are included in result for each matched file. */
+    private static final int    LINE_MATCH_LIMIT = 100;
+
+    private static final Set<String> STAMP_FIELDS = new HashSet<>(Arrays.asList("path", "modified", "length"));
+    private static final Set<String> PATH_FIELD   = Collections.singleton("path");
+
+    /** Version of format of documents, it must be changed if content of documents or analyzer are changed. */
+    private static final String INDEX_FORMAT     = "2";
+    private static final String INDEX_FORMAT_KEY = "che.index.format";
 
     private final VirtualFileFilter filter;
+    private final IndexingQueue     indexingQueue;
 
     private IndexWriter     luceneIndexWriter;
     private SearcherManager searcherManager;
     private boolean         closed;
 
+    private volatile MountPoint mountPoint;
+
     public LuceneSearcher(Set<String> indexedMediaTypes) {
         this(new MediaTypeFilter(indexedMediaTypes));
     }
 
     public LuceneSearcher(VirtualFileFilter filter) {
+        this(filter, null);
+    }
+
+    /**
+     * @param filter
+     *         filter of files which content must be indexed
+     * @param indexingExecutor
+     *         executor for asynchronous update of index. If {@code null} then index is updated in the thread that calls methods
+     *         {@link #add(VirtualFile)}, {@link #update(VirtualFile)} and {@link #delete(String, boolean)}
+     * @see IndexingQueue
+     */
+    public LuceneSearcher(VirtualFileFilter filter, Executor indexingExecutor) {
         this.filter = filter;
+        indexingQueue = indexingExecutor == null ? null : new IndexingQueue(this, indexingExecutor);
     }
 
+    /** Analyzer of content of files and text queries, by default it is {@link CodeAnalyzer}. */
     protected Analyzer makeAnalyzer() {
-        return new Analyzer() {
-			@Override
-			protected TokenStreamComponents createComponents(String fieldName) {
-				Tokenizer tokenizer = new WhitespaceTokenizer();
-				TokenStream filter = new LowerCaseFilter(tokenizer);
-				return new TokenStreamComponents(tokenizer, filter);
-			}
-		};
+        return new CodeAnalyzer();
+    }
+
+    /**
+     * If {@code true} then trigrams of content of files are indexed, see {@link TrigramAnalyzer}. Trigrams make substring and regular
+     * expression search cheap but index becomes bigger. Without trigrams such search reads all files that match other criteria.
+     */
+    protected boolean isTrigramIndexEnabled() {
+        return true;
     }
 
     protected abstract Directory makeDirectory() throws ServerException;
 
     /**
-     * Init lucene index. Need call this method if index directory is clean. Scan all files in virtual filesystem and add to index.
+     * Init lucene index. If index directory is clean scan all files in virtual filesystem and add to index. If index directory
+     * contains index that was created before then only changes that were made after the last update of index are applied.
      *
      * @param mountPoint
      *         MountPoint
      * @throws ServerException
      *         if any virtual filesystem error
+     * @see #syncTree(VirtualFile)
      */
     public void init(MountPoint mountPoint) throws ServerException {
+        this.mountPoint = mountPoint;
         doInit();
-        addTree(mountPoint.getRoot());
+        syncTree(mountPoint.getRoot());
     }
 
     protected final synchronized void doInit() throws ServerException {
         try {
-            luceneIndexWriter = new IndexWriter(makeDirectory(), new IndexWriterConfig(makeAnalyzer()));
+            final Analyzer analyzer = new PerFieldAnalyzerWrapper(
+                    makeAnalyzer(), Collections.<String, Analyzer>singletonMap("trigram", new TrigramAnalyzer()));
+            luceneIndexWriter = new IndexWriter(makeDirectory(), new IndexWriterConfig(analyzer));
             searcherManager = new SearcherManager(luceneIndexWriter, true, new SearcherFactory());
         } catch (IOException e) {
             throw new ServerException(e);
         }
     }
 
-    public synchronized void close() {
-        if (!closed) {
-            try {
-                IOUtils.close(getIndexWriter(), getIndexWriter().getDirectory(), searcherManager);
-            } catch (IOException e) {
-                LOG.error(e.getMessage(), e);
+    public void close() {
+        if (indexingQueue != null) {
+            // Wait for changes that are applied at the moment before closing of index. Not under lock, applying of changes needs it.
+            indexingQueue.close();
+        }
+        synchronized (this) {
+            if (!closed) {
+                try {
+                    IOUtils.close(getIndexWriter(), getIndexWriter().getDirectory(), searcherManager);
+                } catch (IOException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+                closed = true;
             }
-            closed = true;
         }
     }
 
@@ -126,8 +192,22 @@ public abstract class LuceneSearcher implements Searcher {
         return luceneIndexWriter;
     }
 
+    /** Get queue of changes of index or {@code null} if index is updated synchronously. */
+    public IndexingQueue getIndexingQueue() {
+        return indexingQueue;
+    }
+
+    /**
+     * Waits until all changes of index are applied. Method returns immediately if index is updated synchronously.
+     *
+     * @return {@code true} if all changes are applied and {@code false} if timeout is reached
+     */
+    public boolean awaitIndexing(long timeout, TimeUnit unit) throws InterruptedException {
+        return indexingQueue == null || indexingQueue.awaitIdle(timeout, unit);
+    }
+
     @Override
-    public String[] search(QueryExpression query) throws ServerException {
+    public SearchResult search(QueryExpression query) throws ServerException {
         final BooleanQuery luceneQuery = new BooleanQuery();
         final String name = query.getName();
         final String path = query.getPath();
@@ -150,19 +230,45 @@ public abstract class LuceneSearcher implements Searcher {
                 throw new ServerException(e.getMessage());
             }
         }
+        // Substring and regular expression: find candidates with index of trigrams and then check content of each candidate.
+        final List<Pattern> patterns = new ArrayList<>(2);
+        final String substring = query.getSubstring();
+        if (substring != null && !substring.isEmpty()) {
+            patterns.add(Pattern.compile(Pattern.quote(substring), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            addTrigrams(luceneQuery, TrigramAnalyzer.getTrigrams(substring));
+        }
+        final String regex = query.getRegex();
+        if (regex != null && !regex.isEmpty()) {
+            try {
+                patterns.add(Pattern.compile(regex));
+            } catch (PatternSyntaxException e) {
+                throw new ServerException(e.getMessage());
+            }
+            addTrigrams(luceneQuery, TrigramAnalyzer.getTrigramsOfRegex(regex));
+        }
+        if (!patterns.isEmpty() && luceneQuery.clauses().isEmpty()) {
+            // Nothing to look up in index, any file may match.
+            luceneQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+        final int skipCount = Math.max(0, query.getSkipCount());
+        final int maxItems = query.getMaxItems() > 0 ? query.getMaxItems() : DEFAULT_MAX_ITEMS;
         IndexSearcher luceneSearcher = null;
         try {
             searcherManager.maybeRefresh();
             luceneSearcher = searcherManager.acquire();
-            final TopDocs topDocs = luceneSearcher.search(luceneQuery, RESULT_LIMIT);
-            if (topDocs.totalHits > RESULT_LIMIT) {
-                throw new ServerException(String.format("Too many (%d) matched results found. ", topDocs.totalHits));
+            if (!patterns.isEmpty()) {
+                return searchAndVerify(luceneSearcher, luceneQuery, patterns, skipCount, maxItems, query.isIncludeLines());
             }
-            final String[] result = new String[topDocs.scoreDocs.length];
-            for (int i = 0, length = result.length; i < length; i++) {
-                result[i] = luceneSearcher.doc(topDocs.scoreDocs[i].doc).getField("path").stringValue();
+            final TopDocs topDocs = luceneSearcher.search(luceneQuery, (int)Math.min((long)skipCount + maxItems, Integer.MAX_VALUE));
+            final List<LeafReaderContext> leaves = luceneSearcher.getIndexReader().leaves();
+            final Analyzer analyzer = query.isIncludeLines() && text != null ? makeAnalyzer() : null;
+            final MatchTerms terms = analyzer != null ? getMatchTerms(analyzer, text) : null;
+            final List<SearchResultEntry> results = new ArrayList<>(Math.max(0, topDocs.scoreDocs.length - skipCount));
+            for (int i = skipCount, length = topDocs.scoreDocs.length; i < length; i++) {
+                final String filePath = getPath(luceneSearcher, leaves, topDocs.scoreDocs[i].doc);
+                results.add(new SearchResultEntry(filePath, terms == null ? null : findMatchedLines(filePath, analyzer, terms)));
             }
-            return result;
+            return new SearchResult(results, topDocs.totalHits);
         } catch (IOException e) {
             throw new ServerException(e.getMessage(), e);
         } finally {
@@ -174,9 +280,230 @@ public abstract class LuceneSearcher implements Searcher {
         }
     }
 
+    /** Gets path of document from DocValues and falls back to stored field for documents that were indexed without DocValues. */
+    private String getPath(IndexSearcher luceneSearcher, List<LeafReaderContext> leaves, int docId) throws IOException {
+        final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        final BinaryDocValues paths = leaf.reader().getBinaryDocValues("path");
+        if (paths != null) {
+            final BytesRef path = paths.get(docId - leaf.docBase);
+            if (path.length > 0) {
+                return path.utf8ToString();
+            }
+        }
+        return luceneSearcher.doc(docId, PATH_FIELD).get("path");
+    }
+
+    private void addTrigrams(BooleanQuery luceneQuery, Set<String> trigrams) {
+        if (isTrigramIndexEnabled()) {
+            for (String trigram : trigrams) {
+                luceneQuery.add(new TermQuery(new Term("trigram", trigram)), BooleanClause.Occur.MUST);
+            }
+        }
+    }
+
+    /**
+     * Checks content of candidates found with index in order of relevance and returns page of files that contain matches for all
+     * patterns. Candidates after the requested page are not checked, so total number of matched files in result is approximate: it
+     * counts all such candidates as matched.
+     */
+    private SearchResult searchAndVerify(IndexSearcher luceneSearcher, Query luceneQuery, List<Pattern> patterns, int skipCount,
+                                         int maxItems, boolean includeLines) throws IOException, ServerException {
+        final int wanted = (int)Math.min((long)skipCount + maxItems, Integer.MAX_VALUE);
+        final List<LeafReaderContext> leaves = luceneSearcher.getIndexReader().leaves();
+        final List<SearchResultEntry> results = new ArrayList<>();
+        TopDocs topDocs = luceneSearcher.search(luceneQuery, wanted);
+        final int candidates = topDocs.totalHits;
+        int checked = 0;
+        int matched = 0;
+        while (matched < wanted && topDocs.scoreDocs.length > 0) {
+            ScoreDoc last = null;
+            for (int i = 0; i < topDocs.scoreDocs.length && matched < wanted; i++) {
+                last = topDocs.scoreDocs[i];
+                checked++;
+                final String filePath = getPath(luceneSearcher, leaves, last.doc);
+                final boolean inPage = matched >= skipCount;
+                final List<LineMatch> lines = verify(filePath, patterns, inPage && includeLines);
+                if (lines != null) {
+                    if (inPage) {
+                        results.add(new SearchResultEntry(filePath, includeLines ? lines : null));
+                    }
+                    matched++;
+                }
+            }
+            if (matched < wanted) {
+                // Some candidates did not match, take next portion of candidates.
+                topDocs = luceneSearcher.searchAfter(last, luceneQuery, wanted);
+            }
+        }
+        return new SearchResult(results, matched + candidates - checked, checked < candidates);
+    }
+
+    /**
+     * Checks whether file contains matches for all patterns, each pattern is applied to each line of file.
+     *
+     * @return {@code null} if file doesn't match, otherwise matched lines if {@code collectLines} is {@code true} or empty list
+     */
+    private List<LineMatch> verify(String filePath, List<Pattern> patterns, boolean collectLines) throws ServerException {
+        final MountPoint myMountPoint = mountPoint;
+        if (myMountPoint == null) {
+            return null;
+        }
+        final List<LineMatch> lines = new ArrayList<>();
+        final boolean[] found = new boolean[patterns.size()];
+        int foundPatterns = 0;
+        try {
+            final VirtualFile virtualFile = myMountPoint.getVirtualFile(filePath);
+            if (!filter.accept(virtualFile)) {
+                // Content of such files is not indexed and must not be found.
+                return null;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(virtualFile.getContent().getStream()))) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    boolean lineMatched = false;
+                    for (int i = 0; i < found.length; i++) {
+                        if (patterns.get(i).matcher(line).find()) {
+                            lineMatched = true;
+                            if (!found[i]) {
+                                found[i] = true;
+                                foundPatterns++;
+                            }
+                        }
+                    }
+                    if (lineMatched && collectLines) {
+                        lines.add(new LineMatch(lineNumber, line));
+                    }
+                    if (foundPatterns == found.length && (!collectLines || lines.size() >= LINE_MATCH_LIMIT)) {
+                        break;
+                    }
+                }
+            }
+        } catch (NotFoundException | ForbiddenException e) {
+            // File is removed or not accessible anymore, index is not updated yet.
+            return null;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        return foundPatterns == found.length ? lines : null;
+    }
+
+    /** Words of text query, split with analyzer, and prefixes of words with wildcard '*' at the end. */
+    private static class MatchTerms {
+        final Set<String>  words    = new HashSet<>();
+        final List<String> prefixes = new ArrayList<>();
+
+        boolean isEmpty() {
+            return words.isEmpty() && prefixes.isEmpty();
+        }
+
+        boolean matches(String token) {
+            if (words.contains(token)) {
+                return true;
+            }
+            for (String prefix : prefixes) {
+                if (token.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Gets words from text query that should be found in lines of matched files. Words that are excluded from search with operators
+     * '-', '!' and 'NOT' are skipped. Wildcard '*' at the end of word is kept, any other special characters are removed.
+     */
+    private static MatchTerms getMatchTerms(Analyzer analyzer, String text) throws IOException {
+        final MatchTerms terms = new MatchTerms();
+        boolean exclude = false;
+        for (String token : text.split("\\s+")) {
+            if ("AND".equals(token) || "OR".equals(token) || "&&".equals(token) || "||".equals(token)) {
+                continue;
+            }
+            if ("NOT".equals(token)) {
+                exclude = true;
+                continue;
+            }
+            if (token.startsWith("-") || token.startsWith("!")) {
+                exclude = true;
+            }
+            final StringBuilder term = new StringBuilder(token.length());
+            for (int i = 0, length = token.length(); i < length; i++) {
+                final char c = token.charAt(i);
+                if (c == '~' || c == '^') {
+                    // Fuzzy search or boost factor, e.g. 'word~0.5' or 'word^2', skip the rest.
+                    break;
+                }
+                if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.' || (c == '*' && i == length - 1)
+                    || (c == '-' && term.length() > 0)) {
+                    term.append(c);
+                }
+            }
+            if (!exclude && term.length() > 0) {
+                if (term.charAt(term.length() - 1) == '*') {
+                    if (term.length() > 1) {
+                        terms.prefixes.add(term.substring(0, term.length() - 1).toLowerCase(Locale.ROOT));
+                    }
+                } else {
+                    terms.words.addAll(analyze(analyzer, term.toString()));
+                }
+            }
+            exclude = false;
+        }
+        return terms;
+    }
+
+    private static List<String> analyze(Analyzer analyzer, String text) throws IOException {
+        final List<String> tokens = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream("text", text)) {
+            final CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        }
+        return tokens;
+    }
+
+    /** Finds lines of file that contain any of specified terms. Line is split to words with the same analyzer as text query. */
+    private List<LineMatch> findMatchedLines(String filePath, Analyzer analyzer, MatchTerms terms) throws ServerException {
+        final MountPoint myMountPoint = mountPoint;
+        if (myMountPoint == null || terms.isEmpty()) {
+            return null;
+        }
+        final List<LineMatch> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(myMountPoint.getVirtualFile(filePath).getContent().getStream()))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null && lines.size() < LINE_MATCH_LIMIT) {
+                lineNumber++;
+                for (String token : analyze(analyzer, line)) {
+                    if (terms.matches(token)) {
+                        lines.add(new LineMatch(lineNumber, line));
+                        break;
+                    }
+                }
+            }
+        } catch (NotFoundException | ForbiddenException e) {
+            // File is removed or not accessible anymore, index is not updated yet.
+            return null;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        return lines;
+    }
+
     @Override
     public final void add(VirtualFile virtualFile) throws ServerException {
-        doAdd(virtualFile);
+        if (indexingQueue != null) {
+            indexingQueue.add(virtualFile);
+        } else {
+            doAdd(virtualFile);
+        }
     }
 
     protected void doAdd(VirtualFile virtualFile) throws ServerException {
@@ -211,24 +538,131 @@ public abstract class LuceneSearcher implements Searcher {
         LOG.debug("Indexed {} files from {}, time: {} ms", indexedFiles, tree.getPath(), (end - start));
     }
 
-    protected void addFile(VirtualFile virtualFile) throws ServerException {
-        if (virtualFile.exists()) {
-            try (Reader fContentReader = filter.accept(virtualFile) ? new BufferedReader(
-                    new InputStreamReader(virtualFile.getContent().getStream())) : null) {
-                getIndexWriter().updateDocument(new Term("path", virtualFile.getPath()), createDocument(virtualFile, fContentReader));
+    /**
+     * Brings index of the tree in sync with the virtual filesystem. Each document in index keeps modification date and length of file
+     * at the moment of indexing. Files which are not in index yet or which modification date or length differ from ones saved in
+     * index are indexed again. Documents of files that don't exist anymore are removed from index. Index is committed at the end.
+     * Index created with different format of documents is dropped and created again.
+     */
+    protected void syncTree(VirtualFile tree) throws ServerException {
+        final long start = System.currentTimeMillis();
+        try {
+            if (!INDEX_FORMAT.equals(getIndexWriter().getCommitData().get(INDEX_FORMAT_KEY))) {
+                // Index is created with other format of documents or other analyzer, it can't be updated.
+                getIndexWriter().deleteAll();
+                getIndexWriter().setCommitData(Collections.singletonMap(INDEX_FORMAT_KEY, INDEX_FORMAT));
+            }
+        } catch (OutOfMemoryError oome) {
+            close();
+            throw oome;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        final Map<String, long[]> stamps = readStamps(tree.getPath());
+        if (stamps.isEmpty()) {
+            // Nothing to compare with, typically index is just created.
+            addTree(tree);
+        } else {
+            final LinkedList<VirtualFile> q = new LinkedList<>();
+            q.add(tree);
+            int indexedFiles = 0;
+            while (!q.isEmpty()) {
+                final VirtualFile folder = q.pop();
+                if (folder.exists()) {
+                    LazyIterator<VirtualFile> children = folder.getChildren(VirtualFileFilter.ALL);
+                    while (children.hasNext()) {
+                        final VirtualFile child = children.next();
+                        if (child.isFolder()) {
+                            q.push(child);
+                        } else {
+                            final long[] stamp = stamps.remove(child.getPath());
+                            if (stamp == null || stamp[0] != child.getLastModificationDate() || stamp[1] != child.getLength()) {
+                                addFile(child);
+                                indexedFiles++;
+                            }
+                        }
+                    }
+                }
+            }
+            try {
+                for (String path : stamps.keySet()) {
+                    getIndexWriter().deleteDocuments(new Term("path", path));
+                }
             } catch (OutOfMemoryError oome) {
                 close();
                 throw oome;
             } catch (IOException e) {
                 throw new ServerException(e.getMessage(), e);
-            } catch (ForbiddenException e) {
-                throw new ServerException(e.getServiceError());
             }
+            final long end = System.currentTimeMillis();
+            LOG.debug("Synchronized index of {}, indexed {} files, removed {} files, time: {} ms",
+                      tree.getPath(), indexedFiles, stamps.size(), (end - start));
+        }
+        try {
+            getIndexWriter().commit();
+        } catch (OutOfMemoryError oome) {
+            close();
+            throw oome;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads modification date and length of all files under specified path from index. Files indexed without this information get
+     * stamp {-1, -1}, it never matches real file.
+     */
+    private Map<String, long[]> readStamps(String treePath) throws ServerException {
+        final String prefix = treePath.endsWith("/") ? treePath : treePath + '/';
+        final Map<String, long[]> stamps = new HashMap<>();
+        IndexSearcher luceneSearcher = null;
+        try {
+            searcherManager.maybeRefresh();
+            luceneSearcher = searcherManager.acquire();
+            final IndexReader reader = luceneSearcher.getIndexReader();
+            final Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0, maxDoc = reader.maxDoc(); i < maxDoc; i++) {
+                if (liveDocs != null && !liveDocs.get(i)) {
+                    continue;
+                }
+                final Document doc = reader.document(i, STAMP_FIELDS);
+                final String path = doc.get("path");
+                if (path != null && path.startsWith(prefix)) {
+                    final IndexableField modified = doc.getField("modified");
+                    final IndexableField length = doc.getField("length");
+                    stamps.put(path, modified == null || length == null
+                                     ? new long[]{-1, -1}
+                                     : new long[]{modified.numericValue().longValue(), length.numericValue().longValue()});
+                }
+            }
+            return stamps;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        } finally {
+            try {
+                searcherManager.release(luceneSearcher);
+            } catch (IOException e) {
+                LOG.error(e.getMessage());
+            }
+        }
+    }
+
+    protected void addFile(VirtualFile virtualFile) throws ServerException {
+        if (virtualFile.exists()) {
+            indexFile(new Term("path", virtualFile.getPath()), virtualFile);
         }
     }
 
     @Override
     public final void delete(String path, boolean isFile) throws ServerException {
+        if (indexingQueue != null) {
+            indexingQueue.delete(path, isFile);
+        } else {
+            doDelete(path, isFile);
+        }
+    }
+
+    protected void doDelete(String path, boolean isFile) throws ServerException {
         try {
             if (isFile) {
                 Term term = new Term("path", path);
@@ -247,13 +681,28 @@ public abstract class LuceneSearcher implements Searcher {
 
     @Override
     public final void update(VirtualFile virtualFile) throws ServerException {
-        doUpdate(new Term("path", virtualFile.getPath()), virtualFile);
+        if (indexingQueue != null) {
+            indexingQueue.update(virtualFile);
+        } else {
+            doUpdate(new Term("path", virtualFile.getPath()), virtualFile);
+        }
     }
 
     protected void doUpdate(Term deleteTerm, VirtualFile virtualFile) throws ServerException {
-        try (Reader fContentReader = filter.accept(virtualFile) ? new BufferedReader(
-                new InputStreamReader(virtualFile.getContent().getStream())) : null) {
-            getIndexWriter().updateDocument(deleteTerm, createDocument(virtualFile, fContentReader));
+        indexFile(deleteTerm, virtualFile);
+    }
+
+    private void indexFile(Term deleteTerm, VirtualFile virtualFile) throws ServerException {
+        final boolean indexContent = filter.accept(virtualFile);
+        final boolean indexTrigrams = indexContent && isTrigramIndexEnabled();
+        // Lucene consumes each reader once. If trigrams are indexed content is read once and both fields are analyzed from its copy.
+        final String content = indexTrigrams ? readContent(virtualFile) : null;
+        try (Reader fContentReader = indexTrigrams ? new StringReader(content) : indexContent ? openContent(virtualFile) : null) {
+            final Document doc = createDocument(virtualFile, fContentReader);
+            if (indexTrigrams) {
+                doc.add(new TextField("trigram", new StringReader(content)));
+            }
+            getIndexWriter().updateDocument(deleteTerm, doc);
         } catch (OutOfMemoryError oome) {
             close();
             throw oome;
@@ -264,11 +713,36 @@ public abstract class LuceneSearcher implements Searcher {
         }
     }
 
+    private static Reader openContent(VirtualFile virtualFile) throws ForbiddenException, ServerException {
+        return new BufferedReader(new InputStreamReader(virtualFile.getContent().getStream()));
+    }
+
+    private static String readContent(VirtualFile virtualFile) throws ServerException {
+        try (Reader reader = new InputStreamReader(virtualFile.getContent().getStream())) {
+            final StringBuilder content = new StringBuilder();
+            final char[] buff = new char[8192];
+            int r;
+            while ((r = reader.read(buff)) != -1) {
+                content.append(buff, 0, r);
+            }
+            return content.toString();
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        } catch (ForbiddenException e) {
+            throw new ServerException(e.getServiceError());
+        }
+    }
+
     protected Document createDocument(VirtualFile virtualFile, Reader inReader) throws ServerException {
         final Document doc = new Document();
         doc.add(new StringField("path", virtualFile.getPath(), Field.Store.YES));
+        // Read path of matched documents from DocValues, it is much cheaper than load of stored document.
+        doc.add(new BinaryDocValuesField("path", new BytesRef(virtualFile.getPath())));
         doc.add(new StringField("name", virtualFile.getName(), Field.Store.YES));
         doc.add(new StringField("mediatype", getMediaType(virtualFile), Field.Store.YES));
+        // Stored only, help to find changes of files that were made while index is not updated, see syncTree(VirtualFile).
+        doc.add(new StoredField("modified", virtualFile.getLastModificationDate()));
+        doc.add(new StoredField("length", virtualFile.getLength()));
         if (inReader != null) {
             doc.add(new TextField("text", inReader));
         }
@@ -12,10 +12,15 @@ package org.eclipse.che.api.vfs.server.search;
 
 /** @author andrew00x */
 public class QueryExpression {
-    private String name;
-    private String path;
-    private String mediaType;
-    private String text;
+    private String  name;
+    private String  path;
+    private String  mediaType;
+    private String  text;
+    private String  substring;
+    private String  regex;
+    private int     skipCount;
+    private int     maxItems;
+    private boolean includeLines;
 
     public String getPath() {
         return path;
@@ -53,6 +58,59 @@ public class QueryExpression {
         return this;
     }
 
+    public String getSubstring() {
+        return substring;
+    }
+
+    /** Set string that must be found in content of files, case is ignored. Unlike text, substring may start or end inside of word. */
+    public QueryExpression setSubstring(String substring) {
+        this.substring = substring;
+        return this;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    /** Set regular expression, content of file must contain at least one line that matches it. */
+    public QueryExpression setRegex(String regex) {
+        this.regex = regex;
+        return this;
+    }
+
+    public int getSkipCount() {
+        return skipCount;
+    }
+
+    /** Set number of matched items to skip, e.g. to get next page of result. Default is {@code 0}. */
+    public QueryExpression setSkipCount(int skipCount) {
+        this.skipCount = skipCount;
+        return this;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Set max number of items in result. Zero or negative value means that searcher uses its default limit, e.g. {@link
+     * LuceneSearcher#DEFAULT_MAX_ITEMS}. Default is {@code 0}.
+     */
+    public QueryExpression setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+        return this;
+    }
+
+    public boolean isIncludeLines() {
+        return includeLines;
+    }
+
+    /** If {@code true} then result contains lines of files that match words of text query. Default is {@code false}. */
+    public QueryExpression setIncludeLines(boolean includeLines) {
+        this.includeLines = includeLines;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "QueryExpression{" +
@@ -60,6 +118,11 @@ public class QueryExpression {
                ", path='" + path + '\'' +
                ", mediaType='" + mediaType + '\'' +
                ", text='" + text + '\'' +
+               ", substring='" + substring + '\'' +
+               ", regex='" + regex + '\'' +
+               ", skipCount=" + skipCount +
+               ", maxItems=" + maxItems +
+               ", includeLines=" + includeLines +
                '}';
     }
 }
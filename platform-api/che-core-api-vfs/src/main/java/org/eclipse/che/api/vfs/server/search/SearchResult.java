@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import java.util.List;
+
+/**
+ * Result of search. Contains one page of matched files, see {@link QueryExpression#setSkipCount(int)} and {@link
+ * QueryExpression#setMaxItems(int)}, and total number of matched files.
+ *
+ * @author andrew00x
+ */
+public class SearchResult {
+    private final List<SearchResultEntry> results;
+    private final int                     totalHits;
+    private final boolean                 totalHitsApproximate;
+
+    public SearchResult(List<SearchResultEntry> results, int totalHits) {
+        this(results, totalHits, false);
+    }
+
+    /**
+     * @param results
+     *         matched files of requested page
+     * @param totalHits
+     *         total number of matched files
+     * @param totalHitsApproximate
+     *         {@code true} if not all found files are checked and {@code totalHits} is upper bound of number of matched files
+     */
+    public SearchResult(List<SearchResultEntry> results, int totalHits, boolean totalHitsApproximate) {
+        this.results = results;
+        this.totalHits = totalHits;
+        this.totalHitsApproximate = totalHitsApproximate;
+    }
+
+    /** Matched files of requested page in order of relevance. */
+    public List<SearchResultEntry> getResults() {
+        return results;
+    }
+
+    /** Total number of matched files, it may be greater than number of files in {@link #getResults()}. */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Returns {@code true} if {@link #getTotalHits()} is approximate. It happens for search of substring or regular expression:
+     * content of files after the requested page is not checked, so total number of hits counts all candidates found with index.
+     */
+    public boolean isTotalHitsApproximate() {
+        return totalHitsApproximate;
+    }
+
+    /** Paths of matched files of requested page in order of relevance. */
+    public String[] getFilePaths() {
+        final String[] paths = new String[results.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = results.get(i).getFilePath();
+        }
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+               "results=" + results +
+               ", totalHits=" + totalHits +
+               ", totalHitsApproximate=" + totalHitsApproximate +
+               '}';
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * File matched to the search query.
+ *
+ * @author andrew00x
+ */
+public class SearchResultEntry {
+    private final String          filePath;
+    private final List<LineMatch> lines;
+
+    public SearchResultEntry(String filePath, List<LineMatch> lines) {
+        this.filePath = filePath;
+        this.lines = lines == null ? Collections.<LineMatch>emptyList() : lines;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Lines of file that contain words of text query. Lines are provided only if {@link QueryExpression#isIncludeLines()} is {@code
+     * true}, otherwise list is empty.
+     */
+    public List<LineMatch> getLines() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResultEntry{" +
+               "filePath='" + filePath + '\'' +
+               ", lines=" + lines +
+               '}';
+    }
+}
@@ -15,15 +15,15 @@ import org.eclipse.che.api.vfs.server.VirtualFile;
 
 public interface Searcher {
     /**
-     * Return paths of matched items on virtual filesystem.
+     * Return matched items on virtual filesystem.
      *
      * @param query
      *         query expression
-     * @return paths of matched items
+     * @return page of matched items, which is defined by skipCount and maxItems of query, and total number of matched items
      * @throws ServerException
      *         if an error occurs
      */
-    String[] search(QueryExpression query) throws ServerException;
+    SearchResult search(QueryExpression query) throws ServerException;
 
     /**
      * Add VirtualFile to index.
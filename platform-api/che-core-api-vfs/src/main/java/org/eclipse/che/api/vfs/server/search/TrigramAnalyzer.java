@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text to all lower-cased sequences of three characters. Index of trigrams helps to find candidates for substring and
+ * regular expression search: file that contains substring contains all trigrams of the substring.
+ *
+ * @author andrew00x
+ */
+public class TrigramAnalyzer extends Analyzer {
+    public static final int GRAM_SIZE = 3;
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        final Tokenizer tokenizer = new NGramTokenizer(GRAM_SIZE, GRAM_SIZE);
+        return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+    }
+
+    /** Gets all distinct lower-cased trigrams of specified string. Returns empty set if string is shorter than three characters. */
+    public static Set<String> getTrigrams(String str) {
+        final String lower = str.toLowerCase(Locale.ROOT);
+        final Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0, last = lower.length() - GRAM_SIZE; i <= last; i++) {
+            trigrams.add(lower.substring(i, i + GRAM_SIZE));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Gets trigrams that any string matched to the regular expression must contain. Only literal parts of expression that are not
+     * inside groups and are not followed by optional quantifiers are used. Returns empty set if expression has alternatives, i.e.
+     * contains '|', or has no literals with three or more characters, in this case any string may match.
+     */
+    public static Set<String> getTrigramsOfRegex(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return Collections.emptySet();
+        }
+        final Set<String> trigrams = new LinkedHashSet<>();
+        for (String literal : getRequiredLiterals(regex)) {
+            trigrams.addAll(getTrigrams(literal));
+        }
+        return trigrams;
+    }
+
+    private static List<String> getRequiredLiterals(String regex) {
+        final List<String> literals = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (int i = 0, length = regex.length(); i < length; i++) {
+            final char c = regex.charAt(i);
+            switch (c) {
+                case '\\':
+                    if (i + 1 < length) {
+                        final char next = regex.charAt(++i);
+                        if (next == 'Q') {
+                            // Quoted sequence, up to \E or the end of expression.
+                            int end = regex.indexOf("\\E", i + 1);
+                            if (end < 0) {
+                                end = length;
+                            }
+                            if (depth == 0) {
+                                current.append(regex, i + 1, end);
+                            }
+                            i = end + 1;
+                        } else if (Character.isLetterOrDigit(next)) {
+                            // Character class, e.g. \d, \w, or back reference.
+                            flush(current, literals);
+                        } else if (depth == 0) {
+                            current.append(next);
+                        }
+                    }
+                    break;
+                case '[':
+                    flush(current, literals);
+                    // Skip character class, ']' right after '[' or '[^' is literal.
+                    i++;
+                    if (i < length && regex.charAt(i) == '^') {
+                        i++;
+                    }
+                    if (i < length && regex.charAt(i) == ']') {
+                        i++;
+                    }
+                    while (i < length && regex.charAt(i) != ']') {
+                        if (regex.charAt(i) == '\\') {
+                            i++;
+                        }
+                        i++;
+                    }
+                    break;
+                case '(':
+                    flush(current, literals);
+                    depth++;
+                    break;
+                case ')':
+                    flush(current, literals);
+                    depth--;
+                    break;
+                case '*':
+                case '?':
+                case '{':
+                    // Previous character may be absent.
+                    if (current.length() > 0) {
+                        current.setLength(current.length() - 1);
+                    }
+                    flush(current, literals);
+                    if (c == '{') {
+                        final int end = regex.indexOf('}', i);
+                        i = end < 0 ? length : end;
+                    }
+                    break;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                    flush(current, literals);
+                    break;
+                default:
+                    if (depth == 0) {
+                        current.append(c);
+                    }
+            }
+        }
+        flush(current, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder current, List<String> literals) {
+        if (current.length() >= GRAM_SIZE) {
+            literals.add(current.toString());
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Reads content of opened {@code FileChannel}. Content may be sent to output stream with {@link #transferTo(OutputStream)} that uses
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} and lets OS copy bytes without copying them to the java heap. The
+ * stream is limited by size of channel at the moment when stream is created.
+ *
+ * @author andrew00x
+ */
+public final class FileChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long        size;
+
+    private long position;
+    private long mark;
+
+    public FileChannelInputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+        position = channel.position();
+        mark = position;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        final int r = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, size - position)), position);
+        if (r > 0) {
+            position += r;
+        }
+        return r;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long skipped = Math.max(0, Math.min(n, size - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int)Math.min(Integer.MAX_VALUE, Math.max(0, size - position));
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = mark;
+    }
+
+    /**
+     * Sends the rest of content to the specified output stream. Output stream isn't closed.
+     *
+     * @return number of bytes sent
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        final WritableByteChannel target = out instanceof FileOutputStream ? ((FileOutputStream)out).getChannel() : Channels.newChannel(out);
+        final long start = position;
+        while (position < size) {
+            final long transferred = channel.transferTo(position, size - position, target);
+            if (transferred <= 0) {
+                // File is truncated.
+                break;
+            }
+            position += transferred;
+        }
+        return position - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
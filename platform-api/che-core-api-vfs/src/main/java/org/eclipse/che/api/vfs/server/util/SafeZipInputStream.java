@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * ZipInputStream that checks compression ratio and size of uncompressed data while it is read, so zip content may be validated and
+ * extracted with single pass over the stream. Limits are checked for each entry and for the whole stream. If any limit is exceeded
+ * {@link LimitExceededException} is thrown, the caller is responsible for removing data of the entry that is extracted partially.
+ * <p/>
+ * Stream also counts extracted entries and bytes to report speed of extraction.
+ *
+ * @author andrew00x
+ */
+public final class SafeZipInputStream extends ZipInputStream {
+    /**
+     * Max compression ratio. If the number of bytes uncompressed data is exceed the number of bytes of compressed stream more than this
+     * ratio (and number of uncompressed data is more than threshold) then zip is considered as zip bomb.
+     */
+    public static final int  DEFAULT_MAX_RATIO       = 100;
+    /** The threshold after that checking of ZIP ratio started. */
+    public static final long DEFAULT_RATIO_THRESHOLD = 1000000;
+    public static final long DEFAULT_MAX_ENTRY_SIZE  = 1024L * 1024 * 1024; // 1G
+    public static final long DEFAULT_MAX_SIZE        = 10L * 1024 * 1024 * 1024; // 10G
+
+    /** Is thrown when zip content exceeds one of limits of {@code SafeZipInputStream}. */
+    public static final class LimitExceededException extends IOException {
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final CountingInputStream compressedCounter;
+    private final int                 maxRatio;
+    private final long                ratioThreshold;
+    private final long                maxEntrySize;
+    private final long                maxSize;
+    private final long                startTime;
+
+    private ZipEntry               entry;
+    private long                   entryCompressedStart;
+    private long                   entrySize;
+    private long                   size;
+    private int                    entries;
+    private LimitExceededException limitError;
+
+    public SafeZipInputStream(InputStream in) {
+        this(in, DEFAULT_MAX_RATIO, DEFAULT_RATIO_THRESHOLD, DEFAULT_MAX_ENTRY_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param in
+     *         zipped data
+     * @param maxRatio
+     *         max ratio of uncompressed and compressed data
+     * @param ratioThreshold
+     *         ratio is checked only when number of uncompressed bytes exceeds this threshold
+     * @param maxEntrySize
+     *         max number of uncompressed bytes of single entry
+     * @param maxSize
+     *         max number of uncompressed bytes of all entries
+     */
+    public SafeZipInputStream(InputStream in, int maxRatio, long ratioThreshold, long maxEntrySize, long maxSize) {
+        this(new CountingInputStream(in), maxRatio, ratioThreshold, maxEntrySize, maxSize);
+    }
+
+    private SafeZipInputStream(CountingInputStream compressedCounter, int maxRatio, long ratioThreshold, long maxEntrySize,
+                               long maxSize) {
+        super(compressedCounter);
+        this.compressedCounter = compressedCounter;
+        this.maxRatio = maxRatio;
+        this.ratioThreshold = ratioThreshold;
+        this.maxEntrySize = maxEntrySize;
+        this.maxSize = maxSize;
+        startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public ZipEntry getNextEntry() throws IOException {
+        // Rest of data of the previous entry is read and checked by super class before it goes to the next entry.
+        final ZipEntry next = super.getNextEntry();
+        entry = next;
+        if (next != null) {
+            entries++;
+            entrySize = 0;
+            entryCompressedStart = compressedCounter.getByteCount();
+        }
+        return next;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (limitError != null) {
+            throw limitError;
+        }
+        final int r = super.read(b, off, len);
+        if (r > 0) {
+            entrySize += r;
+            size += r;
+            checkLimits();
+        }
+        return r;
+    }
+
+    private void checkLimits() throws LimitExceededException {
+        final String name = entry == null ? null : entry.getName();
+        if (entrySize > maxEntrySize) {
+            fail(String.format("Size of zip entry '%s' exceeds %d bytes. ", name, maxEntrySize));
+        }
+        if (size > maxSize) {
+            fail(String.format("Size of uncompressed zip content exceeds %d bytes. ", maxSize));
+        }
+        // Compressed stream is read ahead with small buffer, so number of compressed bytes of entry is approximate.
+        if (entrySize > ratioThreshold && entrySize > maxRatio * (compressedCounter.getByteCount() - entryCompressedStart)) {
+            fail(String.format("Zip bomb detected. Compression ratio of zip entry '%s' exceeds %d. ", name, maxRatio));
+        }
+        if (size > ratioThreshold && size > maxRatio * compressedCounter.getByteCount()) {
+            fail(String.format("Zip bomb detected. Compression ratio exceeds %d. ", maxRatio));
+        }
+    }
+
+    private void fail(String message) throws LimitExceededException {
+        limitError = new LimitExceededException(message);
+        throw limitError;
+    }
+
+    /** Gets error if any limit is exceeded or {@code null} otherwise. */
+    public LimitExceededException getLimitError() {
+        return limitError;
+    }
+
+    /** Gets number of entries that are read so far. */
+    public int getEntries() {
+        return entries;
+    }
+
+    /** Gets number of uncompressed bytes that are read so far. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Gets number of compressed bytes that are read so far. */
+    public long getCompressedSize() {
+        return compressedCounter.getByteCount();
+    }
+
+    /** Gets time in milliseconds since this stream is created. */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    public long getEntriesPerSecond() {
+        return entries * 1000L / Math.max(1, getElapsedTime());
+    }
+
+    public long getBytesPerSecond() {
+        return size * 1000L / Math.max(1, getElapsedTime());
+    }
+}
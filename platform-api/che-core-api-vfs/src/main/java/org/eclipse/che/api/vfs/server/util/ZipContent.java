@@ -21,7 +21,11 @@ import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-/** @author andrew00x */
+/**
+ * @author andrew00x
+ * @deprecated reads zip content twice, use {@link SafeZipInputStream} that checks zip content while it is extracted
+ */
+@Deprecated
 public final class ZipContent {
     /** Memory threshold. If zip stream over this size it spooled in file. */
     private static final int  BUFFER        = 100 * 1024; // 100k
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PathLockFactory} with previous implementation {@link LinkedListPathLockFactory}. Each benchmark thread gets and
+ * releases lock for random file in the tree while some other thread keeps {@code heldLocks} locks in other part of file system, the
+ * same as other users of workspace do.
+ * <p/>
+ * Not a unit test, run {@link #main(String[])} with test classpath.
+ *
+ * @author andrew00x
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(8)
+public class PathLockFactoryBenchmark {
+    private static final int MAX_THREADS = 1024;
+
+    @Param({"0", "64", "512"})
+    public int heldLocks;
+
+    private Path[]                    files;
+    private PathLockFactory           pathLockFactory;
+    private LinkedListPathLockFactory linkedListPathLockFactory;
+    private CountDownLatch            holderStopper;
+    private Thread                    holder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pathLockFactory = new PathLockFactory(MAX_THREADS);
+        linkedListPathLockFactory = new LinkedListPathLockFactory(MAX_THREADS);
+        final Path root = Path.fromString("/workspace/project/src");
+        files = new Path[8 * 64];
+        for (int i = 0; i < 8; i++) {
+            final Path folder = root.newPath("folder" + i);
+            for (int j = 0; j < 64; j++) {
+                files[i * 64 + j] = folder.newPath("file" + j);
+            }
+        }
+        // Locks must be released by thread that holds them.
+        final CountDownLatch holderStarter = new CountDownLatch(1);
+        holderStopper = new CountDownLatch(1);
+        holder = new Thread() {
+            @Override
+            public void run() {
+                final Path other = Path.fromString("/workspace/other");
+                final PathLockFactory.PathLock[] locks = new PathLockFactory.PathLock[heldLocks];
+                final LinkedListPathLockFactory.PathLock[] linkedListLocks = new LinkedListPathLockFactory.PathLock[heldLocks];
+                for (int i = 0; i < heldLocks; i++) {
+                    final Path path = other.newPath("file" + i);
+                    locks[i] = pathLockFactory.getLock(path, false).acquire();
+                    linkedListLocks[i] = linkedListPathLockFactory.getLock(path, false).acquire();
+                }
+                holderStarter.countDown();
+                try {
+                    holderStopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    for (int i = 0; i < heldLocks; i++) {
+                        locks[i].release();
+                        linkedListLocks[i].release();
+                    }
+                }
+            }
+        };
+        holder.start();
+        holderStarter.await();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        holderStopper.countDown();
+        holder.join();
+        pathLockFactory.checkClean();
+    }
+
+    @Benchmark
+    public void sharedLock() {
+        final PathLockFactory.PathLock lock = pathLockFactory.getLock(randomFile(), false).acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void sharedLockLinkedList() {
+        final LinkedListPathLockFactory.PathLock lock = linkedListPathLockFactory.getLock(randomFile(), false).acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void exclusiveLock() {
+        final PathLockFactory.PathLock lock = pathLockFactory.getLock(randomFile(), true).acquire();
+        lock.release();
+    }
+
+    @Benchmark
+    public void exclusiveLockLinkedList() {
+        final LinkedListPathLockFactory.PathLock lock = linkedListPathLockFactory.getLock(randomFile(), true).acquire();
+        lock.release();
+    }
+
+    private Path randomFile() {
+        return files[ThreadLocalRandom.current().nextInt(files.length)];
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PathLockFactoryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
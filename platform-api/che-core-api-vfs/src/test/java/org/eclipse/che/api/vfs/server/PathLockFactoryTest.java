@@ -236,4 +236,111 @@ public class PathLockFactoryTest extends TestCase {
         waiter.await();
         assertEquals(2, acquired.get());
     }
+
+    public void testChildLockBlocksParentExclusiveLock() throws Exception {
+        final CountDownLatch starter = new CountDownLatch(1);
+        final CountDownLatch stopper = new CountDownLatch(1);
+        Runnable childTask = new Runnable() {
+            @Override
+            public void run() {
+                PathLockFactory.PathLock lock = pathLockFactory.getLock(path, false);
+                lock.acquire();
+                starter.countDown();
+                try {
+                    stopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    lock.release();
+                }
+            }
+        };
+        new Thread(childTask).start();
+        starter.await();
+        try {
+            // Child of the path is locked by other thread, must be failed to get exclusive lock for parent.
+            pathLockFactory.getLock(path.getParent().getParent(), true).acquire(100);
+            fail();
+        } catch (RuntimeException e) {
+            // OK
+        }
+        // But shared lock for parent is allowed.
+        PathLockFactory.PathLock lock = pathLockFactory.getLock(path.getParent(), false).acquire(100);
+        lock.release();
+        stopper.countDown();
+    }
+
+    public void testSiblingLocks() throws Exception {
+        final CountDownLatch starter = new CountDownLatch(1);
+        final CountDownLatch stopper = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                PathLockFactory.PathLock lock = pathLockFactory.getLock(path, true);
+                lock.acquire();
+                starter.countDown();
+                try {
+                    stopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    lock.release();
+                }
+            }
+        };
+        new Thread(task).start();
+        starter.await();
+        // Exclusive lock of sibling does not conflict with lock of the path.
+        PathLockFactory.PathLock lock = pathLockFactory.getLock(path.getParent().newPath("d"), true).acquire(100);
+        lock.release();
+        stopper.countDown();
+    }
+
+    public void testUpgradeWaitsForOtherSharedLocks() throws Exception {
+        final CountDownLatch starter = new CountDownLatch(1);
+        final CountDownLatch stopper = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                PathLockFactory.PathLock lock = pathLockFactory.getLock(path, false);
+                lock.acquire();
+                starter.countDown();
+                try {
+                    stopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    lock.release();
+                    released.countDown();
+                }
+            }
+        };
+        PathLockFactory.PathLock sharedLock = pathLockFactory.getLock(path, false).acquire();
+        new Thread(task).start();
+        starter.await();
+        try {
+            // Other thread holds shared lock, current thread must not upgrade its own shared lock to exclusive.
+            pathLockFactory.getLock(path, true).acquire(100);
+            fail();
+        } catch (RuntimeException e) {
+            // OK
+        }
+        stopper.countDown();
+        released.await();
+        // Now current thread is the only holder of shared lock.
+        pathLockFactory.getLock(path, true).acquire(100).release();
+        sharedLock.release();
+        pathLockFactory.checkClean();
+    }
+
+    public void testLockTableCleanedAfterRelease() throws Exception {
+        PathLockFactory.PathLock parentLock = pathLockFactory.getLock(path.getParent(), false).acquire();
+        PathLockFactory.PathLock lock = pathLockFactory.getLock(path, true).acquire();
+        lock.release();
+        parentLock.release();
+        try {
+            pathLockFactory.getLock(path, true).acquire(100).release();
+        } catch (RuntimeException e) {
+            fail("All locks must be released. ");
+        }
+        pathLockFactory.checkClean();
+    }
 }
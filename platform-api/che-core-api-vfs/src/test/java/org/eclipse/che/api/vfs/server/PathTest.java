@@ -82,6 +82,23 @@ public class PathTest extends TestCase {
         assertEquals(expectedParent, path.getParent());
     }
 
+    public void testSimpleName() {
+        Path parent = Path.fromString("/a/b");
+        Path child = parent.newPath("c");
+        assertEquals("/a/b/c", child.toString());
+        assertSame(parent, child.getParent());
+        assertSame(parent, parent.newPath("."));
+    }
+
+    public void testEqualPathsAreSameInstance() {
+        Path path = Path.fromString("/a/b/c");
+        assertSame(path, Path.fromString("/a/b/c"));
+        assertSame(path, Path.fromString("/a").newPath("b").newPath("c"));
+        assertSame(path, Path.ROOT.newPath("a", "b", "c"));
+        assertSame(path.getParent(), Path.fromString("/a/b/c/d").subPath(0, 2));
+        assertNotSame(path, Path.fromString("/a/b/d"));
+    }
+
     public void testIllegalPath() {
         for (String s : illegal) {
             try {
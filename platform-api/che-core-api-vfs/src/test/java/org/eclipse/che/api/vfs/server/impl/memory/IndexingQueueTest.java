@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.impl.memory;
+
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.search.IndexingQueue;
+import org.eclipse.che.api.vfs.server.search.LuceneSearcher;
+import org.eclipse.che.api.vfs.server.search.QueryExpression;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** @author andrew00x */
+public class IndexingQueueTest extends MemoryFileSystemTest {
+    private List<Runnable> tasks;
+    private LuceneSearcher searcher;
+    private VirtualFile    folder;
+    private VirtualFile    file1;
+    private VirtualFile    file2;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tasks = new ArrayList<>();
+        // Executor runs tasks only when test asks about it.
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        searcher = new LuceneSearcher(VirtualFileFilter.ALL, executor) {
+            @Override
+            protected Directory makeDirectory() {
+                return new RAMDirectory();
+            }
+        };
+        searcher.init(mountPoint);
+        folder = mountPoint.getRoot().createFolder("IndexingQueueTest");
+        file1 = folder.createFile("IndexingQueueTest_File1", "text/plain", new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+        file2 = folder.createFile("IndexingQueueTest_File2", "text/plain", new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        searcher.close();
+        super.tearDown();
+    }
+
+    public void testIndexAsynchronously() throws Exception {
+        searcher.add(file1);
+        assertEquals(0, searcher.search(new QueryExpression().setName(file1.getName())).getTotalHits());
+        assertEquals(1, searcher.getIndexingQueue().getSize());
+        assertFalse(searcher.awaitIndexing(0, TimeUnit.MILLISECONDS));
+
+        runTasks();
+
+        assertTrue(searcher.awaitIndexing(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, searcher.getIndexingQueue().getSize());
+        assertEquals(1, searcher.getIndexingQueue().getAppliedOperations());
+        assertEquals(1, searcher.search(new QueryExpression().setName(file1.getName())).getTotalHits());
+    }
+
+    public void testCoalesceUpdatesOfSameFile() throws Exception {
+        searcher.add(file1);
+        searcher.update(file1);
+        searcher.update(file1);
+        searcher.add(file2);
+        assertEquals(2, searcher.getIndexingQueue().getSize());
+        assertEquals(2, searcher.getIndexingQueue().getCoalescedOperations());
+        // Only one task for the queue.
+        assertEquals(1, tasks.size());
+
+        runTasks();
+
+        assertEquals(2, searcher.getIndexingQueue().getAppliedOperations());
+        assertEquals(2, searcher.search(new QueryExpression().setPath(folder.getPath())).getTotalHits());
+    }
+
+    public void testDeleteFolderDropsPendingChanges() throws Exception {
+        searcher.add(file1);
+        searcher.add(file2);
+        searcher.delete(folder.getPath(), false);
+        assertEquals(1, searcher.getIndexingQueue().getSize());
+
+        runTasks();
+
+        assertEquals(0, searcher.search(new QueryExpression().setPath(folder.getPath())).getTotalHits());
+    }
+
+    public void testBlockWhenQueueIsFull() throws Exception {
+        final IndexingQueue queue = new IndexingQueue(searcher, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        }, 1, 1, 1, 0);
+        queue.add(file1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                queue.add(file2);
+            }
+        };
+        producer.start();
+        producer.join(200);
+        assertTrue("Thread must be blocked while queue is full", producer.isAlive());
+
+        runTasks();
+
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        runTasks();
+        assertEquals(2, queue.getAppliedOperations());
+    }
+
+    public void testCloseDoesNotWaitForNotStartedTask() throws Exception {
+        searcher.add(file1);
+        assertEquals(1, tasks.size());
+        searcher.getIndexingQueue().close();
+
+        runTasks();
+
+        assertEquals(0, searcher.getIndexingQueue().getAppliedOperations());
+    }
+
+    public void testCloseWaitsForAppliedBatch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final AtomicBoolean block = new AtomicBoolean();
+        VirtualFileFilter blockingFilter = new VirtualFileFilter() {
+            @Override
+            public boolean accept(VirtualFile file) {
+                if (!block.get()) {
+                    return true;
+                }
+                started.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        final LuceneSearcher blockingSearcher = new LuceneSearcher(blockingFilter, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        }) {
+            @Override
+            protected Directory makeDirectory() {
+                return new RAMDirectory();
+            }
+        };
+        blockingSearcher.init(mountPoint);
+        assertTrue(blockingSearcher.awaitIndexing(1, TimeUnit.SECONDS));
+        block.set(true);
+        blockingSearcher.update(file1);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        Thread closer = new Thread() {
+            @Override
+            public void run() {
+                blockingSearcher.close();
+            }
+        };
+        closer.start();
+        closer.join(200);
+        assertTrue("Index must not be closed while changes are applied", closer.isAlive());
+
+        proceed.countDown();
+
+        closer.join(1000);
+        assertFalse(closer.isAlive());
+        assertEquals(1, blockingSearcher.getIndexingQueue().getAppliedOperations());
+    }
+
+    private void runTasks() {
+        List<Runnable> copy = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : copy) {
+            task.run();
+        }
+    }
+}
@@ -11,7 +11,11 @@
 package org.eclipse.che.api.vfs.server.impl.memory;
 
 import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.search.LineMatch;
 import org.eclipse.che.api.vfs.server.search.LuceneSearcher;
+import org.eclipse.che.api.vfs.server.search.QueryExpression;
+import org.eclipse.che.api.vfs.server.search.SearchResult;
+import org.eclipse.che.api.vfs.server.search.TrigramAnalyzer;
 import org.eclipse.che.api.vfs.shared.dto.Item;
 import org.eclipse.che.api.vfs.shared.dto.ItemList;
 
@@ -33,6 +37,7 @@ import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -115,6 +120,110 @@ public class SearcherTest extends MemoryFileSystemTest {
         }
     }
 
+    public void testSearchPage() throws Exception {
+        SearchResult result = searcher.search(new QueryExpression().setPath(searchTestPath).setText("be").setMaxItems(2));
+        assertEquals(3, result.getTotalHits());
+        assertEquals(2, result.getResults().size());
+        List<String> paths = new ArrayList<>(Arrays.asList(result.getFilePaths()));
+
+        result = searcher.search(new QueryExpression().setPath(searchTestPath).setText("be").setSkipCount(2).setMaxItems(2));
+        assertEquals(3, result.getTotalHits());
+        assertEquals(1, result.getResults().size());
+        paths.addAll(Arrays.asList(result.getFilePaths()));
+
+        assertEquals(3, paths.size());
+        assertTrue(paths.containsAll(Arrays.asList(file1, file2, file3)));
+    }
+
+    public void testSearchWithDefaultPageSize() throws Exception {
+        VirtualFile folder = searchTestFolder.createFolder("SearcherTest_ManyFiles");
+        for (int i = 0; i <= LuceneSearcher.DEFAULT_MAX_ITEMS; i++) {
+            folder.createFile("file" + i, "text/plain", new ByteArrayInputStream("to be or not to be".getBytes()));
+        }
+        SearchResult result = searcher.search(new QueryExpression().setPath(folder.getPath()).setText("be"));
+        assertEquals(LuceneSearcher.DEFAULT_MAX_ITEMS + 1, result.getTotalHits());
+        assertEquals(LuceneSearcher.DEFAULT_MAX_ITEMS, result.getResults().size());
+    }
+
+    public void testSearchPageThroughService() throws Exception {
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        String requestPath = SERVICE_URI + "search?maxItems=2";
+        Map<String, List<String>> h = new HashMap<>(1);
+        h.put("Content-Type", Arrays.asList("application/x-www-form-urlencoded"));
+        ContainerResponse response = launcher.service("POST", requestPath, BASE_URI, h, "text=to%20be%20or".getBytes(), writer, null);
+        assertEquals("Error: " + response.getEntity(), 200, response.getStatus());
+        ItemList result = (ItemList)response.getEntity();
+        assertEquals(2, result.getItems().size());
+        assertEquals(3, result.getNumItems());
+        assertTrue(result.isHasMoreItems());
+    }
+
+    public void testSearchWithMatchedLines() throws Exception {
+        VirtualFile file = mountPoint.getVirtualFile(searchTestPath)
+                                     .createFile("lines", "text/plain", new ByteArrayInputStream("first\nsecond Line\nthird".getBytes()));
+        SearchResult result = searcher.search(new QueryExpression().setPath(searchTestPath).setText("line OR thi*").setIncludeLines(true));
+        assertEquals(1, result.getTotalHits());
+        assertEquals(file.getPath(), result.getResults().get(0).getFilePath());
+        List<LineMatch> lines = result.getResults().get(0).getLines();
+        assertEquals(2, lines.size());
+        assertEquals(2, lines.get(0).getLineNumber());
+        assertEquals("second Line", lines.get(0).getLine());
+        assertEquals(3, lines.get(1).getLineNumber());
+
+        result = searcher.search(new QueryExpression().setPath(searchTestPath).setText("line"));
+        assertTrue(result.getResults().get(0).getLines().isEmpty());
+    }
+
+    public void testSearchPartsOfIdentifiers() throws Exception {
+        VirtualFile file = mountPoint.getVirtualFile(searchTestPath)
+                                     .createFile("code", "text/plain", new ByteArrayInputStream("this.getFooBar(my_value);".getBytes()));
+        assertEquals(Arrays.asList(file.getPath()), Arrays.asList(searcher.search(new QueryExpression().setText("bar")).getFilePaths()));
+        assertEquals(Arrays.asList(file.getPath()), Arrays.asList(searcher.search(new QueryExpression().setText("value")).getFilePaths()));
+        assertEquals(Arrays.asList(file.getPath()),
+                     Arrays.asList(searcher.search(new QueryExpression().setText("getFooBar")).getFilePaths()));
+    }
+
+    public void testSearchSubstring() throws Exception {
+        VirtualFile file = mountPoint.getVirtualFile(searchTestPath)
+                                     .createFile("code", "text/plain", new ByteArrayInputStream("a\nthis.getFooBar();\nb".getBytes()));
+        mountPoint.getVirtualFile(searchTestPath)
+                  .createFile("code2", "text/plain", new ByteArrayInputStream("getBar(); getFoo".getBytes()));
+        SearchResult result = searcher.search(new QueryExpression().setSubstring("getfoob").setIncludeLines(true));
+        assertEquals(1, result.getTotalHits());
+        assertEquals(file.getPath(), result.getResults().get(0).getFilePath());
+        List<LineMatch> lines = result.getResults().get(0).getLines();
+        assertEquals(1, lines.size());
+        assertEquals(2, lines.get(0).getLineNumber());
+
+        // Shorter than trigram, all files are checked.
+        assertEquals(0, searcher.search(new QueryExpression().setSubstring("zq")).getTotalHits());
+    }
+
+    public void testSearchRegex() throws Exception {
+        VirtualFile file = mountPoint.getVirtualFile(searchTestPath)
+                                     .createFile("code", "text/plain", new ByteArrayInputStream("int getFoo123Bar();".getBytes()));
+        mountPoint.getVirtualFile(searchTestPath)
+                  .createFile("code2", "text/plain", new ByteArrayInputStream("int getFooBar();".getBytes()));
+        SearchResult result = searcher.search(new QueryExpression().setRegex("getFoo\\d+Bar"));
+        assertEquals(1, result.getTotalHits());
+        assertFalse(result.isTotalHitsApproximate());
+        assertEquals(file.getPath(), result.getResults().get(0).getFilePath());
+
+        // Candidates after the requested page are not checked.
+        result = searcher.search(new QueryExpression().setRegex("getFoo\\d*Bar").setMaxItems(1));
+        assertEquals(2, result.getTotalHits());
+        assertTrue(result.isTotalHitsApproximate());
+        assertEquals(1, result.getResults().size());
+    }
+
+    public void testTrigramsOfRegex() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("get", "etf", "tfo", "foo", "bar")),
+                     TrigramAnalyzer.getTrigramsOfRegex("getFoo\\w+Bar"));
+        // Optional parts are not required.
+        assertEquals(new LinkedHashSet<>(Arrays.asList("foo", "baz")), TrigramAnalyzer.getTrigramsOfRegex("foo(bar)?bazx?"));
+        assertTrue(TrigramAnalyzer.getTrigramsOfRegex("foo|bar").isEmpty());
+    }
+
     public void testDelete() throws Exception {
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.VirtualFileSystemUserContext;
+import org.eclipse.che.api.vfs.server.impl.memory.MemoryMountPoint;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares search with whitespace analyzer and without index of trigrams, the way content was indexed before, with {@link
+ * CodeAnalyzer} and index of trigrams. Corpus is {@code files} synthetic java-like files, one of each {@value #RARE_FREQUENCY}
+ * files contains method {@code getFooBarBaz}. Size of index and time of indexing are printed after setup.
+ * <p/>
+ * Without trigrams substring and regular expression search reads all files, with trigrams only candidates found in index are read.
+ * <p/>
+ * Not a unit test, run {@link #main(String[])} with test classpath.
+ *
+ * @author andrew00x
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    private static final int      RARE_FREQUENCY = 1000;
+    private static final String[] WORDS          = {"user", "name", "value", "item", "list", "map", "count", "index", "file", "path",
+                                                    "node", "tree", "event", "state", "config", "result", "query", "cache"};
+
+    @Param({"50000"})
+    public int files;
+
+    @Param({"whitespace", "code"})
+    public String analyzer;
+
+    private LuceneSearcher searcher;
+    private Directory      directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final MemoryMountPoint mountPoint = new MemoryMountPoint("my-ws", new EventService(), null,
+                                                                 VirtualFileSystemUserContext.newInstance());
+        final Random random = new Random(17);
+        VirtualFile folder = null;
+        for (int i = 0; i < files; i++) {
+            if (i % 100 == 0) {
+                folder = mountPoint.getRoot().createFolder("folder" + i / 100);
+            }
+            final byte[] content = generateSource("Class" + i, random, i % RARE_FREQUENCY == 0).getBytes(StandardCharsets.UTF_8);
+            folder.createFile("Class" + i + ".java", "text/plain", new ByteArrayInputStream(content));
+        }
+
+        final boolean code = "code".equals(analyzer);
+        searcher = new LuceneSearcher(VirtualFileFilter.ALL) {
+            @Override
+            protected Directory makeDirectory() {
+                return directory = new RAMDirectory();
+            }
+
+            @Override
+            protected Analyzer makeAnalyzer() {
+                return code ? super.makeAnalyzer() : new Analyzer() {
+                    @Override
+                    protected TokenStreamComponents createComponents(String fieldName) {
+                        Tokenizer tokenizer = new WhitespaceTokenizer();
+                        TokenStream filter = new LowerCaseFilter(tokenizer);
+                        return new TokenStreamComponents(tokenizer, filter);
+                    }
+                };
+            }
+
+            @Override
+            protected boolean isTrigramIndexEnabled() {
+                return code;
+            }
+        };
+        final long start = System.currentTimeMillis();
+        searcher.init(mountPoint);
+        final long end = System.currentTimeMillis();
+        long size = 0;
+        for (String name : directory.listAll()) {
+            size += directory.fileLength(name);
+        }
+        System.out.printf("%n%s analyzer: indexed %d files in %d ms, index size %d KB%n", analyzer, files, end - start, size / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        searcher.close();
+    }
+
+    @Benchmark
+    public SearchResult word() throws Exception {
+        return searcher.search(new QueryExpression().setText("getFooBarBaz").setMaxItems(50));
+    }
+
+    @Benchmark
+    public SearchResult substring() throws Exception {
+        return searcher.search(new QueryExpression().setSubstring("FooBarBaz").setMaxItems(50));
+    }
+
+    @Benchmark
+    public SearchResult regex() throws Exception {
+        return searcher.search(new QueryExpression().setRegex("getFooBar\\w*\\(").setMaxItems(50));
+    }
+
+    private static String generateSource(String className, Random random, boolean rare) {
+        final StringBuilder source = new StringBuilder(2048);
+        source.append("package org.example;\n\npublic class ").append(className).append(" {\n");
+        for (int i = 0; i < 10; i++) {
+            final String field = WORDS[random.nextInt(WORDS.length)] + capitalize(WORDS[random.nextInt(WORDS.length)]);
+            source.append("    private int ").append(field).append(i).append(";\n");
+        }
+        for (int i = 0; i < 10; i++) {
+            final String word = capitalize(WORDS[random.nextInt(WORDS.length)]) + capitalize(WORDS[random.nextInt(WORDS.length)]);
+            source.append("\n    public int get").append(word).append(i).append("() {\n")
+                  .append("        return this.").append(WORDS[random.nextInt(WORDS.length)]).append('_')
+                  .append(random.nextInt(100)).append(".size();\n")
+                  .append("    }\n");
+        }
+        if (rare) {
+            source.append("\n    public void getFooBarBaz() {\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(SearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2015 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** @author andrew00x */
+public class SafeZipInputStreamTest extends TestCase {
+    public void testExtract() throws Exception {
+        byte[] zip = zip(new String[]{"a.txt", "b/c.txt"}, new byte[][]{"hello".getBytes(), "world!".getBytes()});
+        SafeZipInputStream in = new SafeZipInputStream(new ByteArrayInputStream(zip));
+        while (in.getNextEntry() != null) {
+            readAll(in);
+        }
+        in.close();
+        assertEquals(2, in.getEntries());
+        assertEquals(11, in.getSize());
+        assertNull(in.getLimitError());
+    }
+
+    public void testZipBomb() throws Exception {
+        byte[] zip = zip(new String[]{"small.txt", "bomb.txt"}, new byte[][]{"hello".getBytes(), new byte[10 * 1024 * 1024]});
+        SafeZipInputStream in = new SafeZipInputStream(new ByteArrayInputStream(zip));
+        assertEquals("small.txt", in.getNextEntry().getName());
+        readAll(in);
+        assertEquals("bomb.txt", in.getNextEntry().getName());
+        try {
+            readAll(in);
+            fail("Zip bomb must be detected");
+        } catch (SafeZipInputStream.LimitExceededException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Zip bomb detected"));
+            assertSame(e, in.getLimitError());
+        }
+        // Data is detected as zip bomb before all of it is extracted.
+        assertTrue(in.getSize() < 10 * 1024 * 1024);
+    }
+
+    public void testEntrySizeLimit() throws Exception {
+        byte[] zip = zip(new String[]{"a.txt", "b.txt"}, new byte[][]{new byte[100], new byte[101]});
+        SafeZipInputStream in = new SafeZipInputStream(new ByteArrayInputStream(zip), 100, 1000000, 100, 1000);
+        in.getNextEntry();
+        readAll(in);
+        in.getNextEntry();
+        try {
+            readAll(in);
+            fail("Limit of size of entry must be checked");
+        } catch (SafeZipInputStream.LimitExceededException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("b.txt"));
+        }
+    }
+
+    public void testSkippedEntryIsChecked() throws Exception {
+        byte[] zip = zip(new String[]{"a.txt", "b.txt"}, new byte[][]{new byte[101], new byte[10]});
+        SafeZipInputStream in = new SafeZipInputStream(new ByteArrayInputStream(zip), 100, 1000000, 100, 1000);
+        in.getNextEntry();
+        try {
+            // Content of entry is not read by caller, but it is read when stream goes to the next entry.
+            in.getNextEntry();
+            fail("Limit of size of entry must be checked");
+        } catch (SafeZipInputStream.LimitExceededException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("a.txt"));
+        }
+    }
+
+    private byte[] zip(String[] names, byte[][] contents) throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bout)) {
+            for (int i = 0; i < names.length; i++) {
+                zip.putNextEntry(new ZipEntry(names[i]));
+                zip.write(contents[i]);
+                zip.closeEntry();
+            }
+        }
+        return bout.toByteArray();
+    }
+
+    private void readAll(SafeZipInputStream in) throws Exception {
+        byte[] buf = new byte[8192];
+        while (in.read(buf) != -1) {
+            // Read full data from stream to check limits.
+        }
+    }
+}